@@ -30,6 +30,7 @@ import org.apache.bookkeeper.mledger.AsyncCallbacks.MarkDeleteCallback;
 import org.apache.bookkeeper.mledger.AsyncCallbacks.ReadEntriesCallback;
 import org.apache.bookkeeper.mledger.AsyncCallbacks.ReadEntryCallback;
 import org.apache.bookkeeper.mledger.AsyncCallbacks.SkipEntriesCallback;
+import org.apache.commons.lang3.tuple.Pair;
 
 /**
  * A ManangedCursor is a persisted cursor inside a ManagedLedger.
@@ -315,6 +316,22 @@ public interface ManagedCursor {
      */
     void asyncDelete(Iterable<Position> position, DeleteCallback callback, Object ctx);
 
+    /**
+     * Delete ranges of consecutive messages asynchronously
+     *
+     * <p/>
+     * Same as {@link #asyncDelete(Iterable, DeleteCallback, Object)}, each range of messages being given by the
+     * positions of its first and last messages, which must belong to the same ledger.
+     *
+     * @param ranges
+     *            the positions of the first and last messages of each range of messages to be deleted
+     * @param callback
+     *            callback object
+     * @param ctx
+     *            opaque context
+     */
+    void asyncDeleteRanges(List<Pair<Position, Position>> ranges, DeleteCallback callback, Object ctx);
+
     /**
      * Get the read position. This points to the next message to be read from the cursor.
      *
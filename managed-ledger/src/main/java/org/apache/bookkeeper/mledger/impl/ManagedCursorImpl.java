@@ -53,6 +53,7 @@ import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.stream.Collectors;
+import org.apache.commons.lang3.tuple.Pair;
 
 import org.apache.bookkeeper.client.AsyncCallback.CloseCallback;
 import org.apache.bookkeeper.client.AsyncCallback.DeleteCallback;
@@ -1527,6 +1528,41 @@ public class ManagedCursorImpl implements ManagedCursor {
     }
 
 
+    /**
+     * Adds the positions [start, end] of a single ledger to the individually deleted messages. Needs to be called while
+     * holding the write lock.
+     */
+    private void addIndividualDeletedRange(PositionImpl start, PositionImpl end) {
+        if (start == null) {
+            return;
+        }
+
+        // Add a range (prev, end] to the set. Adding the previous entry as an open limit to the range will make
+        // the RangeSet recognize the "continuity" between adjacent Positions
+        PositionImpl previousPosition = ledger.getPreviousPosition(start);
+        Range<PositionImpl> range = Range.openClosed(previousPosition, end);
+
+        // Only count the entries of the range which were not deleted yet
+        long alreadyDeleted = 0;
+        for (Range<PositionImpl> deleted : individualDeletedMessages.subRangeSet(range).asRanges()) {
+            PositionImpl upper = deleted.upperEndpoint();
+            if (upper.getLedgerId() != end.getLedgerId()) {
+                continue;
+            }
+            PositionImpl lower = deleted.lowerEndpoint();
+            long lowerEntryId = lower.getLedgerId() == end.getLedgerId() ? lower.getEntryId() : start.getEntryId() - 1;
+            alreadyDeleted += upper.getEntryId() - lowerEntryId;
+        }
+
+        individualDeletedMessages.add(range);
+        messagesConsumedCounter += end.getEntryId() - start.getEntryId() + 1 - alreadyDeleted;
+
+        if (log.isDebugEnabled()) {
+            log.debug("[{}] [{}] Individually deleted messages: {}", ledger.getName(), name,
+                    individualDeletedMessages);
+        }
+    }
+
     @Override
     public void asyncDelete(Iterable<Position> positions, AsyncCallbacks.DeleteCallback callback, Object ctx) {
         if (state == State.Closed) {
@@ -1544,10 +1580,15 @@ public class ManagedCursorImpl implements ManagedCursor {
                         ledger.getName(), name, positions, individualDeletedMessages, markDeletePosition);
             }
 
+            // Consecutive positions of the same ledger are accumulated and added to the set as a single range
+            PositionImpl rangeStart = null;
+            PositionImpl rangeEnd = null;
+
             for (Position pos : positions) {
                 PositionImpl position  = (PositionImpl) checkNotNull(pos);
 
                 if (((PositionImpl) ledger.getLastConfirmedEntry()).compareTo(position) < 0) {
+                    addIndividualDeletedRange(rangeStart, rangeEnd);
                     if (log.isDebugEnabled()) {
                         log.debug(
                                 "[{}] Failed mark delete due to invalid markDelete {} is ahead of last-confirmed-entry {} for cursor [{}]",
@@ -1557,52 +1598,87 @@ public class ManagedCursorImpl implements ManagedCursor {
                     return;
                 }
 
-                if (individualDeletedMessages.contains(position) || position.compareTo(markDeletePosition) <= 0) {
+                if (individualDeletedMessages.contains(position) || position.compareTo(markDeletePosition) <= 0
+                        || (rangeStart != null && position.compareTo(rangeStart) >= 0
+                                && position.compareTo(rangeEnd) <= 0)) {
                     if (log.isDebugEnabled()) {
                         log.debug("[{}] [{}] Position was already deleted {}", ledger.getName(), name, position);
                     }
                     continue;
                 }
 
-                // Add a range (prev, pos] to the set. Adding the previous entry as an open limit to the range will make
-                // the RangeSet recognize the "continuity" between adjacent Positions
-                PositionImpl previousPosition = ledger.getPreviousPosition(position);
-                individualDeletedMessages.add(Range.openClosed(previousPosition, position));
-                ++messagesConsumedCounter;
-
-                if (log.isDebugEnabled()) {
-                    log.debug("[{}] [{}] Individually deleted messages: {}", ledger.getName(), name,
-                            individualDeletedMessages);
+                if (rangeEnd != null && rangeEnd.getLedgerId() == position.getLedgerId()
+                        && rangeEnd.getEntryId() + 1 == position.getEntryId()) {
+                    rangeEnd = position;
+                } else {
+                    addIndividualDeletedRange(rangeStart, rangeEnd);
+                    rangeStart = position;
+                    rangeEnd = position;
                 }
             }
 
-            if (individualDeletedMessages.isEmpty()) {
-                // No changes to individually deleted messages, so nothing to do at this point
-                callback.deleteComplete(ctx);
-                return;
-            }
+            addIndividualDeletedRange(rangeStart, rangeEnd);
+            newMarkDeletePosition = getMarkDeletePositionAfterDeletes();
+        } catch (Exception e) {
+            log.warn("[{}] [{}] Error while updating individualDeletedMessages [{}]", ledger.getName(), name,
+                    e.getMessage(), e);
+            callback.deleteFailed(getManagedLedgerException(e), ctx);
+            return;
+        } finally {
+            lock.writeLock().unlock();
+        }
 
-            // If the lower bound of the range set is the current mark delete position, then we can trigger a new
-            // mark-delete to the upper bound of the first range segment
-            Range<PositionImpl> range = individualDeletedMessages.asRanges().iterator().next();
+        markDeleteAfterDeletes(newMarkDeletePosition, callback, ctx);
+    }
 
-            // If the lowerBound is ahead of MarkDelete, verify if there are any entries in-between
-            if (range.lowerEndpoint().compareTo(markDeletePosition) <= 0 || ledger
-                    .getNumberOfEntries(Range.openClosed(markDeletePosition, range.lowerEndpoint())) <= 0) {
+    @Override
+    public void asyncDeleteRanges(List<Pair<Position, Position>> ranges, AsyncCallbacks.DeleteCallback callback,
+            Object ctx) {
+        if (state == State.Closed) {
+            callback.deleteFailed(new ManagedLedgerException("Cursor was already closed"), ctx);
+            return;
+        }
 
-                if (log.isDebugEnabled()) {
-                    log.debug("[{}] Found a position range to mark delete for cursor {}: {} ", ledger.getName(),
-                            name, range);
-                }
+        PositionImpl newMarkDeletePosition = null;
 
-                newMarkDeletePosition = range.upperEndpoint();
+        lock.writeLock().lock();
+
+        try {
+            if (log.isDebugEnabled()) {
+                log.debug("[{}] [{}] Deleting ranges of messages {}. Current status: {} - md-position: {}",
+                        ledger.getName(), name, ranges, individualDeletedMessages, markDeletePosition);
             }
 
-            if (newMarkDeletePosition != null) {
-                newMarkDeletePosition = setAcknowledgedPosition(newMarkDeletePosition);
-            } else {
-                newMarkDeletePosition = markDeletePosition;
+            PositionImpl lastConfirmedEntry = (PositionImpl) ledger.getLastConfirmedEntry();
+            for (Pair<Position, Position> range : ranges) {
+                PositionImpl first = (PositionImpl) checkNotNull(range.getLeft());
+                PositionImpl last = (PositionImpl) checkNotNull(range.getRight());
+                checkArgument(first.getLedgerId() == last.getLedgerId() && first.getEntryId() <= last.getEntryId(),
+                        "Invalid range of positions %s - %s", first, last);
+                if (lastConfirmedEntry.compareTo(last) < 0) {
+                    if (log.isDebugEnabled()) {
+                        log.debug("[{}] Failed mark delete due to invalid range {} - {} ahead of last-confirmed-entry "
+                                + "{} for cursor [{}]", ledger.getName(), first, last, lastConfirmedEntry, name);
+                    }
+                    callback.deleteFailed(new ManagedLedgerException("Invalid mark deleted position"), ctx);
+                    return;
+                }
             }
+
+            for (Pair<Position, Position> range : ranges) {
+                PositionImpl first = (PositionImpl) range.getLeft();
+                PositionImpl last = (PositionImpl) range.getRight();
+                if (last.compareTo(markDeletePosition) <= 0) {
+                    continue;
+                }
+                if (first.compareTo(markDeletePosition) <= 0) {
+                    // Part of the range is already mark deleted
+                    first = PositionImpl.get(first.getLedgerId(), markDeletePosition.getEntryId() + 1);
+                }
+                addIndividualDeletedRange(first, last);
+            }
+
+            newMarkDeletePosition = getMarkDeletePositionAfterDeletes();
         } catch (Exception e) {
             log.warn("[{}] [{}] Error while updating individualDeletedMessages [{}]", ledger.getName(), name,
                     e.getMessage(), e);
@@ -1612,6 +1688,45 @@ public class ManagedCursorImpl implements ManagedCursor {
             lock.writeLock().unlock();
         }
 
+        markDeleteAfterDeletes(newMarkDeletePosition, callback, ctx);
+    }
+
+    /**
+     * Find the mark delete position once messages are individually deleted. Must be called with the write lock.
+     *
+     * @return the position to mark delete, or null if no message is individually deleted
+     */
+    private PositionImpl getMarkDeletePositionAfterDeletes() {
+        if (individualDeletedMessages.isEmpty()) {
+            return null;
+        }
+
+        // If the lower bound of the range set is the current mark delete position, then we can trigger a new
+        // mark-delete to the upper bound of the first range segment
+        Range<PositionImpl> range = individualDeletedMessages.asRanges().iterator().next();
+
+        // If the lowerBound is ahead of MarkDelete, verify if there are any entries in-between
+        if (range.lowerEndpoint().compareTo(markDeletePosition) <= 0 || ledger
+                .getNumberOfEntries(Range.openClosed(markDeletePosition, range.lowerEndpoint())) <= 0) {
+
+            if (log.isDebugEnabled()) {
+                log.debug("[{}] Found a position range to mark delete for cursor {}: {} ", ledger.getName(),
+                        name, range);
+            }
+
+            return setAcknowledgedPosition(range.upperEndpoint());
+        }
+        return markDeletePosition;
+    }
+
+    private void markDeleteAfterDeletes(PositionImpl newMarkDeletePosition, AsyncCallbacks.DeleteCallback callback,
+            Object ctx) {
+        if (newMarkDeletePosition == null) {
+            // No changes to individually deleted messages, so nothing to do at this point
+            callback.deleteComplete(ctx);
+            return;
+        }
+
         // Apply rate limiting to mark-delete operations
         if (markDeleteLimiter != null && !markDeleteLimiter.tryAcquire()) {
             lastMarkDeleteEntry = new MarkDeleteEntry(newMarkDeletePosition, Collections.emptyMap(), null, null);
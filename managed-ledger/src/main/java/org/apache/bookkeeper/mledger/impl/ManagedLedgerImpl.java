@@ -1543,7 +1543,11 @@ public class ManagedLedgerImpl implements ManagedLedger, CreateCallback {
         }
     }
 
-    private void trimConsumedLedgersInBackground() {
+    /**
+     * Schedule a trim of the ledgers, deleting the consumed ledgers past their retention and the bookkeeper copy of
+     * the offloaded ledgers past their deletion lag.
+     */
+    public void trimConsumedLedgersInBackground() {
         trimConsumedLedgersInBackground(Futures.NULL_PROMISE);
     }
 
@@ -30,8 +30,10 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
@@ -65,6 +67,7 @@ import org.apache.bookkeeper.mledger.impl.MetaStore.Stat;
 import org.apache.bookkeeper.mledger.proto.MLDataFormats.ManagedCursorInfo;
 import org.apache.bookkeeper.mledger.proto.MLDataFormats.PositionInfo;
 import org.apache.bookkeeper.test.MockedBookKeeperTestCase;
+import org.apache.commons.lang3.tuple.Pair;
 import org.apache.zookeeper.KeeperException.Code;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -1154,6 +1157,91 @@ public class ManagedCursorTest extends MockedBookKeeperTestCase {
         }
     }
 
+    @Test(timeOut = 20000)
+    void testMultiPositionDelete() throws Exception {
+        ManagedLedger ledger = factory.open("my_test_ledger", new ManagedLedgerConfig().setMaxEntriesPerLedger(3));
+        ManagedCursor cursor = ledger.openCursor("c1");
+
+        List<Position> positions = Lists.newArrayList();
+        for (int i = 0; i < 9; i++) {
+            positions.add(ledger.addEntry(("entry" + i).getBytes()));
+        }
+        Position p0 = cursor.getMarkDeletedPosition();
+
+        // Consecutive entries across 2 ledgers, plus a duplicate
+        cursor.delete(Lists.newArrayList(positions.get(2), positions.get(3), positions.get(4), positions.get(4),
+                positions.get(5), positions.get(7)));
+        assertEquals(cursor.getMarkDeletedPosition(), p0);
+        assertEquals(cursor.getNumberOfEntriesInBacklog(), 4);
+
+        cursor.delete(Lists.newArrayList(positions.get(0), positions.get(1)));
+        assertEquals(cursor.getMarkDeletedPosition(), positions.get(5));
+        assertEquals(cursor.getNumberOfEntriesInBacklog(), 2);
+
+        cursor.delete(Lists.newArrayList(positions.get(6), positions.get(8)));
+        assertEquals(cursor.getMarkDeletedPosition(), positions.get(8));
+        assertEquals(cursor.getNumberOfEntriesInBacklog(), 0);
+    }
+
+    @Test(timeOut = 20000)
+    void testDeleteRanges() throws Exception {
+        ManagedLedger ledger = factory.open("my_test_ledger", new ManagedLedgerConfig().setMaxEntriesPerLedger(3));
+        ManagedCursor cursor = ledger.openCursor("c1");
+
+        List<Position> positions = Lists.newArrayList();
+        for (int i = 0; i < 9; i++) {
+            positions.add(ledger.addEntry(("entry" + i).getBytes()));
+        }
+        Position p0 = cursor.getMarkDeletedPosition();
+
+        deleteRanges(cursor, Pair.of(positions.get(3), positions.get(4)), Pair.of(positions.get(7), positions.get(7)));
+        assertEquals(cursor.getMarkDeletedPosition(), p0);
+        assertEquals(cursor.getNumberOfEntriesInBacklog(), 6);
+
+        // Overlaps the entries already deleted
+        deleteRanges(cursor, Pair.of(positions.get(4), positions.get(5)));
+        assertEquals(cursor.getMarkDeletedPosition(), p0);
+        assertEquals(cursor.getNumberOfEntriesInBacklog(), 5);
+
+        deleteRanges(cursor, Pair.of(positions.get(0), positions.get(2)));
+        assertEquals(cursor.getMarkDeletedPosition(), positions.get(5));
+        assertEquals(cursor.getNumberOfEntriesInBacklog(), 2);
+
+        // Starts before the mark delete position
+        deleteRanges(cursor, Pair.of(positions.get(3), positions.get(5)), Pair.of(positions.get(6), positions.get(8)));
+        assertEquals(cursor.getMarkDeletedPosition(), positions.get(8));
+        assertEquals(cursor.getNumberOfEntriesInBacklog(), 0);
+
+        // Ranges across ledgers are rejected
+        try {
+            deleteRanges(cursor, Pair.of(positions.get(0), positions.get(8)));
+            fail("Should have failed");
+        } catch (ManagedLedgerException e) {
+            // ok
+        }
+    }
+
+    @SafeVarargs
+    private static void deleteRanges(ManagedCursor cursor, Pair<Position, Position>... ranges) throws Exception {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        cursor.asyncDeleteRanges(Arrays.asList(ranges), new DeleteCallback() {
+            @Override
+            public void deleteComplete(Object ctx) {
+                future.complete(null);
+            }
+
+            @Override
+            public void deleteFailed(ManagedLedgerException exception, Object ctx) {
+                future.completeExceptionally(exception);
+            }
+        }, null);
+        try {
+            future.get();
+        } catch (ExecutionException e) {
+            throw (Exception) e.getCause();
+        }
+    }
+
     @Test(timeOut = 20000)
     void testFilteringReadEntries() throws Exception {
         ManagedLedger ledger = factory.open("my_test_ledger", new ManagedLedgerConfig().setMaxEntriesPerLedger(3));
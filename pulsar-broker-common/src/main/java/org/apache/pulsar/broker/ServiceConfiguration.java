@@ -23,9 +23,11 @@ import java.util.List;
 import java.util.Optional;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.bookkeeper.client.api.DigestType;
 import org.apache.pulsar.broker.authorization.PulsarAuthorizationProvider;
+import org.apache.pulsar.common.api.proto.PulsarApi.CompressionType;
 import org.apache.pulsar.common.configuration.FieldContext;
 import org.apache.pulsar.common.configuration.PulsarConfiguration;
 
@@ -147,6 +149,9 @@ public class ServiceConfiguration implements PulsarConfiguration {
     // than this percentage limit and subscription will not receive any new messages until that subscription acks back
     // limit/2 messages
     private double maxUnackedMessagesPerSubscriptionOnBrokerBlocked = 0.16;
+    // Max number of messages in a range of messages acknowledged by a consumer at once. Ranges with more messages are
+    // ignored, so that a bogus range can't make the broker go through an unbounded number of pending acks
+    private long maxMessagesPerAckRange = 1000000;
     // Default number of message dispatching throttling-limit for every topic. Using a value of 0, is disabling default
     // message dispatch-throttling
     @FieldContext(dynamic = true)
@@ -177,6 +182,14 @@ public class ServiceConfiguration implements PulsarConfiguration {
     private int maxConcurrentNonPersistentMessagePerConnection = 1000;
     // Number of worker threads to serve non-persistent topic
     private int numWorkerThreadsForNonPersistentTopic = 8;
+    // Max number of messages a subscription of a non-persistent topic keeps while its consumers can't receive them,
+    // instead of dropping them. 0 drops the messages right away
+    @FieldContext(dynamic = true)
+    private int nonPersistentDispatcherMaxPendingMessages = 0;
+    // Message dropped when a subscription of a non-persistent topic has the max number of pending messages: the
+    // Oldest pending message or the Newest published one
+    @FieldContext(dynamic = true)
+    private NonPersistentDropPolicy nonPersistentDispatcherDropPolicy = NonPersistentDropPolicy.Newest;
 
     // Enable broker to load persistent topics
     private boolean enablePersistentTopics = true;
@@ -361,12 +374,16 @@ public class ServiceConfiguration implements PulsarConfiguration {
     // load placement strategy[weightedRandomSelection/leastLoadedServer] (only used by SimpleLoadManagerImpl)
     @Deprecated
     private String loadBalancerPlacementStrategy = "leastLoadedServer"; // weighted random selection
-    // Percentage of change to trigger load report update
+    // Percentage of change to trigger load report and bundle data update
     @FieldContext(dynamic = true)
     private int loadBalancerReportUpdateThresholdPercentage = 10;
-    // maximum interval to update load report
+    // maximum interval to update load report and bundle data
     @FieldContext(dynamic = true)
     private int loadBalancerReportUpdateMaxIntervalMinutes = 15;
+    // Write the bundle data to ZooKeeper in a compact binary format instead of JSON. Only enable once all the brokers
+    // are able to read it
+    @FieldContext(dynamic = true)
+    private boolean loadBalancerBundleDataBinaryFormatEnabled = false;
     // Frequency of report to collect
     private int loadBalancerHostUsageCheckIntervalMinutes = 1;
     // Enable/disable automatic bundle unloading for load-shedding
@@ -399,6 +416,10 @@ public class ServiceConfiguration implements PulsarConfiguration {
     // enable/disable automatic unloading of split bundles
     @FieldContext(dynamic = true)
     private boolean loadBalancerAutoUnloadSplitBundlesEnabled = true;
+    // When unloading a bundle, make the new owner selected by the leader take the ownership of the bundle and load
+    // its topics, then tell the clients of its topics to reconnect to it directly
+    @FieldContext(dynamic = true)
+    private boolean loadBalancerBundleHandoffEnabled = false;
     // maximum topics in a bundle, otherwise bundle split will be triggered
     private int loadBalancerNamespaceBundleMaxTopics = 1000;
     // maximum sessions (producers + consumers) in a bundle, otherwise bundle split will be triggered
@@ -409,9 +430,19 @@ public class ServiceConfiguration implements PulsarConfiguration {
     private int loadBalancerNamespaceBundleMaxBandwidthMbytes = 100;
     // maximum number of bundles in a namespace
     private int loadBalancerNamespaceMaximumBundles = 128;
+    // Split bundles between their topics so that the load of the topics is balanced between the two new bundles,
+    // instead of at the middle of their hash range
+    @FieldContext(dynamic = true)
+    private boolean loadBalancerBundleSplitByTopicLoadEnabled = false;
+    // Minimum time between two automatic splits of the bundles of a namespace (0 to disable the limit)
+    @FieldContext(dynamic = true)
+    private int loadBalancerNamespaceBundleSplitMinIntervalSeconds = 0;
     // Name of load manager to use
     @FieldContext(dynamic = true)
     private String loadManagerClassName = "org.apache.pulsar.broker.loadbalance.impl.ModularLoadManagerImpl";
+    // Name of the class of the placement strategy used by ModularLoadManagerImpl to assign bundles to brokers
+    private String loadBalancerLoadPlacementStrategy =
+            "org.apache.pulsar.broker.loadbalance.impl.LeastLongTermMessageRate";
 
     // Option to override the auto-detected network interfaces max speed
     private Double loadBalancerOverrideBrokerNicSpeedGbps;
@@ -428,6 +459,15 @@ public class ServiceConfiguration implements PulsarConfiguration {
     private String replicatorPrefix = "pulsar.repl";
     // Replicator producer queue size;
     private int replicationProducerQueueSize = 1000;
+    // Max size of the messages sent by a replicator and not yet acknowledged by the remote cluster. 0 means no limit
+    private long replicationProducerQueueSizeInBytes = 16 * 1024 * 1024;
+    // Send consecutive small entries to the remote cluster in compressed batches. The brokers of the remote
+    // cluster must support replicated batches
+    private boolean replicationBatchingEnabled = false;
+    // Max size of a batch of replicated entries, before compression. Larger entries are sent on their own
+    private int replicationBatchingMaxSizeInBytes = 128 * 1024;
+    // Compression applied to the batches of replicated entries (NONE, LZ4 or ZLIB)
+    private CompressionType replicationBatchingCompressionType = CompressionType.LZ4;
     // Enable TLS when talking with other clusters to replicate messages
     private boolean replicationTlsEnabled = false;
 
@@ -475,6 +515,26 @@ public class ServiceConfiguration implements PulsarConfiguration {
     // Maximum number of thread pool threads for ledger offloading
     private int managedLedgerOffloadMaxThreads = 2;
 
+    // Interval at which the broker checks the offload policies of its topics, and offloads the eligible ledgers.
+    // 0 disables automatic offload
+    private int managedLedgerOffloadCheckIntervalInSeconds = 60;
+
+    // Default bytes of a topic kept in bookkeeper before older ledgers are offloaded, for namespaces without
+    // offload policies. -1 disables it
+    private long managedLedgerOffloadThresholdInBytes = -1;
+
+    // Default age after which closed ledgers are offloaded, for namespaces without offload policies. -1 disables it
+    private long managedLedgerOffloadLedgerAgeInSeconds = -1;
+
+    // Default delay before the bookkeeper copy of an offloaded ledger is deleted (4 hours by default)
+    private long managedLedgerOffloadDeletionLagInMillis = TimeUnit.HOURS.toMillis(4);
+
+    // Max number of ledgers offloaded concurrently by the broker, further offloads wait for a slot
+    private int managedLedgerOffloadMaxConcurrentLedgers = 2;
+
+    // Max bytes per second read from bookkeeper by all the offloads of the broker. 0 means no limit
+    private long managedLedgerOffloadMaxBytesPerSecond = 0;
+
     // For Amazon S3 ledger offload, AWS region
     private String s3ManagedLedgerOffloadRegion = null;
 
@@ -484,6 +544,21 @@ public class ServiceConfiguration implements PulsarConfiguration {
     // For Amazon S3 ledger offload, Alternative endpoint to connect to (useful for testing)
     private String s3ManagedLedgerOffloadServiceEndpoint = null;
 
+    // For Amazon S3 ledger offload, Max block size in bytes (64MB by default, 5MB minimum)
+    private int s3ManagedLedgerOffloadMaxBlockSizeInBytes = 64 * 1024 * 1024;
+
+    // For Amazon S3 ledger offload, Max number of blocks of a ledger being uploaded in parallel
+    private int s3ManagedLedgerOffloadMaxConcurrentBlockUploads = 2;
+
+    // For Amazon S3 ledger offload, Size of the ranged reads done when reading back offloaded ledgers (1MB by default)
+    private int s3ManagedLedgerOffloadReadBufferSizeInBytes = 1024 * 1024;
+
+    // For filesystem ledger offload, Directory where the offloaded ledgers are stored (eg: a NFS mount)
+    private String fileSystemManagedLedgerOffloadDirectory = null;
+
+    // For filesystem ledger offload, Max size of the segment files of an offloaded ledger (1GB by default)
+    private int fileSystemManagedLedgerOffloadMaxSegmentSizeInBytes = 1024 * 1024 * 1024;
+
     public String getZookeeperServers() {
         return zookeeperServers;
     }
@@ -758,6 +833,14 @@ public class ServiceConfiguration implements PulsarConfiguration {
         this.maxUnackedMessagesPerBroker = maxUnackedMessagesPerBroker;
     }
 
+    public long getMaxMessagesPerAckRange() {
+        return maxMessagesPerAckRange;
+    }
+
+    public void setMaxMessagesPerAckRange(long maxMessagesPerAckRange) {
+        this.maxMessagesPerAckRange = maxMessagesPerAckRange;
+    }
+
     public double getMaxUnackedMessagesPerSubscriptionOnBrokerBlocked() {
         return maxUnackedMessagesPerSubscriptionOnBrokerBlocked;
     }
@@ -839,6 +922,22 @@ public class ServiceConfiguration implements PulsarConfiguration {
         this.numWorkerThreadsForNonPersistentTopic = numWorkerThreadsForNonPersistentTopic;
     }
 
+    public int getNonPersistentDispatcherMaxPendingMessages() {
+        return nonPersistentDispatcherMaxPendingMessages;
+    }
+
+    public void setNonPersistentDispatcherMaxPendingMessages(int nonPersistentDispatcherMaxPendingMessages) {
+        this.nonPersistentDispatcherMaxPendingMessages = nonPersistentDispatcherMaxPendingMessages;
+    }
+
+    public NonPersistentDropPolicy getNonPersistentDispatcherDropPolicy() {
+        return nonPersistentDispatcherDropPolicy;
+    }
+
+    public void setNonPersistentDispatcherDropPolicy(NonPersistentDropPolicy nonPersistentDispatcherDropPolicy) {
+        this.nonPersistentDispatcherDropPolicy = nonPersistentDispatcherDropPolicy;
+    }
+
     public boolean isEnablePersistentTopics() {
         return enablePersistentTopics;
     }
@@ -1290,6 +1389,14 @@ public class ServiceConfiguration implements PulsarConfiguration {
         this.loadBalancerReportUpdateMaxIntervalMinutes = loadBalancerReportUpdateMaxIntervalMinutes;
     }
 
+    public boolean isLoadBalancerBundleDataBinaryFormatEnabled() {
+        return loadBalancerBundleDataBinaryFormatEnabled;
+    }
+
+    public void setLoadBalancerBundleDataBinaryFormatEnabled(boolean loadBalancerBundleDataBinaryFormatEnabled) {
+        this.loadBalancerBundleDataBinaryFormatEnabled = loadBalancerBundleDataBinaryFormatEnabled;
+    }
+
     public int getLoadBalancerHostUsageCheckIntervalMinutes() {
         return loadBalancerHostUsageCheckIntervalMinutes;
     }
@@ -1412,6 +1519,14 @@ public class ServiceConfiguration implements PulsarConfiguration {
         this.loadBalancerAutoUnloadSplitBundlesEnabled = loadBalancerAutoUnloadSplitBundlesEnabled;
     }
 
+    public boolean isLoadBalancerBundleHandoffEnabled() {
+        return loadBalancerBundleHandoffEnabled;
+    }
+
+    public void setLoadBalancerBundleHandoffEnabled(boolean loadBalancerBundleHandoffEnabled) {
+        this.loadBalancerBundleHandoffEnabled = loadBalancerBundleHandoffEnabled;
+    }
+
     public void setLoadBalancerNamespaceMaximumBundles(int bundles) {
         this.loadBalancerNamespaceMaximumBundles = bundles;
     }
@@ -1420,6 +1535,22 @@ public class ServiceConfiguration implements PulsarConfiguration {
         return this.loadBalancerNamespaceMaximumBundles;
     }
 
+    public boolean isLoadBalancerBundleSplitByTopicLoadEnabled() {
+        return loadBalancerBundleSplitByTopicLoadEnabled;
+    }
+
+    public void setLoadBalancerBundleSplitByTopicLoadEnabled(boolean loadBalancerBundleSplitByTopicLoadEnabled) {
+        this.loadBalancerBundleSplitByTopicLoadEnabled = loadBalancerBundleSplitByTopicLoadEnabled;
+    }
+
+    public int getLoadBalancerNamespaceBundleSplitMinIntervalSeconds() {
+        return loadBalancerNamespaceBundleSplitMinIntervalSeconds;
+    }
+
+    public void setLoadBalancerNamespaceBundleSplitMinIntervalSeconds(int intervalSeconds) {
+        this.loadBalancerNamespaceBundleSplitMinIntervalSeconds = intervalSeconds;
+    }
+
     public Optional<Double> getLoadBalancerOverrideBrokerNicSpeedGbps() {
         return Optional.ofNullable(loadBalancerOverrideBrokerNicSpeedGbps);
     }
@@ -1452,6 +1583,38 @@ public class ServiceConfiguration implements PulsarConfiguration {
         this.replicationProducerQueueSize = replicationProducerQueueSize;
     }
 
+    public long getReplicationProducerQueueSizeInBytes() {
+        return replicationProducerQueueSizeInBytes;
+    }
+
+    public void setReplicationProducerQueueSizeInBytes(long replicationProducerQueueSizeInBytes) {
+        this.replicationProducerQueueSizeInBytes = replicationProducerQueueSizeInBytes;
+    }
+
+    public boolean isReplicationBatchingEnabled() {
+        return replicationBatchingEnabled;
+    }
+
+    public void setReplicationBatchingEnabled(boolean replicationBatchingEnabled) {
+        this.replicationBatchingEnabled = replicationBatchingEnabled;
+    }
+
+    public int getReplicationBatchingMaxSizeInBytes() {
+        return replicationBatchingMaxSizeInBytes;
+    }
+
+    public void setReplicationBatchingMaxSizeInBytes(int replicationBatchingMaxSizeInBytes) {
+        this.replicationBatchingMaxSizeInBytes = replicationBatchingMaxSizeInBytes;
+    }
+
+    public CompressionType getReplicationBatchingCompressionType() {
+        return replicationBatchingCompressionType;
+    }
+
+    public void setReplicationBatchingCompressionType(CompressionType replicationBatchingCompressionType) {
+        this.replicationBatchingCompressionType = replicationBatchingCompressionType;
+    }
+
     public boolean isReplicationTlsEnabled() {
         return replicationTlsEnabled;
     }
@@ -1542,6 +1705,14 @@ public class ServiceConfiguration implements PulsarConfiguration {
         this.loadManagerClassName = loadManagerClassName;
     }
 
+    public String getLoadBalancerLoadPlacementStrategy() {
+        return loadBalancerLoadPlacementStrategy;
+    }
+
+    public void setLoadBalancerLoadPlacementStrategy(String loadBalancerLoadPlacementStrategy) {
+        this.loadBalancerLoadPlacementStrategy = loadBalancerLoadPlacementStrategy;
+    }
+
     public boolean isPreferLaterVersions() {
         return preferLaterVersions;
     }
@@ -1659,6 +1830,54 @@ public class ServiceConfiguration implements PulsarConfiguration {
         return this.managedLedgerOffloadMaxThreads;
     }
 
+    public void setManagedLedgerOffloadCheckIntervalInSeconds(int intervalInSeconds) {
+        this.managedLedgerOffloadCheckIntervalInSeconds = intervalInSeconds;
+    }
+
+    public int getManagedLedgerOffloadCheckIntervalInSeconds() {
+        return this.managedLedgerOffloadCheckIntervalInSeconds;
+    }
+
+    public void setManagedLedgerOffloadThresholdInBytes(long thresholdInBytes) {
+        this.managedLedgerOffloadThresholdInBytes = thresholdInBytes;
+    }
+
+    public long getManagedLedgerOffloadThresholdInBytes() {
+        return this.managedLedgerOffloadThresholdInBytes;
+    }
+
+    public void setManagedLedgerOffloadLedgerAgeInSeconds(long ledgerAgeInSeconds) {
+        this.managedLedgerOffloadLedgerAgeInSeconds = ledgerAgeInSeconds;
+    }
+
+    public long getManagedLedgerOffloadLedgerAgeInSeconds() {
+        return this.managedLedgerOffloadLedgerAgeInSeconds;
+    }
+
+    public void setManagedLedgerOffloadDeletionLagInMillis(long deletionLagInMillis) {
+        this.managedLedgerOffloadDeletionLagInMillis = deletionLagInMillis;
+    }
+
+    public long getManagedLedgerOffloadDeletionLagInMillis() {
+        return this.managedLedgerOffloadDeletionLagInMillis;
+    }
+
+    public void setManagedLedgerOffloadMaxConcurrentLedgers(int maxConcurrentLedgers) {
+        this.managedLedgerOffloadMaxConcurrentLedgers = maxConcurrentLedgers;
+    }
+
+    public int getManagedLedgerOffloadMaxConcurrentLedgers() {
+        return this.managedLedgerOffloadMaxConcurrentLedgers;
+    }
+
+    public void setManagedLedgerOffloadMaxBytesPerSecond(long maxBytesPerSecond) {
+        this.managedLedgerOffloadMaxBytesPerSecond = maxBytesPerSecond;
+    }
+
+    public long getManagedLedgerOffloadMaxBytesPerSecond() {
+        return this.managedLedgerOffloadMaxBytesPerSecond;
+    }
+
     public void setS3ManagedLedgerOffloadRegion(String region) {
         this.s3ManagedLedgerOffloadRegion = region;
     }
@@ -1682,4 +1901,44 @@ public class ServiceConfiguration implements PulsarConfiguration {
     public String getS3ManagedLedgerOffloadServiceEndpoint() {
         return this.s3ManagedLedgerOffloadServiceEndpoint;
     }
+
+    public void setS3ManagedLedgerOffloadMaxBlockSizeInBytes(int blockSizeInBytes) {
+        this.s3ManagedLedgerOffloadMaxBlockSizeInBytes = blockSizeInBytes;
+    }
+
+    public int getS3ManagedLedgerOffloadMaxBlockSizeInBytes() {
+        return this.s3ManagedLedgerOffloadMaxBlockSizeInBytes;
+    }
+
+    public void setS3ManagedLedgerOffloadMaxConcurrentBlockUploads(int maxConcurrentBlockUploads) {
+        this.s3ManagedLedgerOffloadMaxConcurrentBlockUploads = maxConcurrentBlockUploads;
+    }
+
+    public int getS3ManagedLedgerOffloadMaxConcurrentBlockUploads() {
+        return this.s3ManagedLedgerOffloadMaxConcurrentBlockUploads;
+    }
+
+    public void setS3ManagedLedgerOffloadReadBufferSizeInBytes(int readBufferSizeInBytes) {
+        this.s3ManagedLedgerOffloadReadBufferSizeInBytes = readBufferSizeInBytes;
+    }
+
+    public int getS3ManagedLedgerOffloadReadBufferSizeInBytes() {
+        return this.s3ManagedLedgerOffloadReadBufferSizeInBytes;
+    }
+
+    public void setFileSystemManagedLedgerOffloadDirectory(String directory) {
+        this.fileSystemManagedLedgerOffloadDirectory = directory;
+    }
+
+    public String getFileSystemManagedLedgerOffloadDirectory() {
+        return this.fileSystemManagedLedgerOffloadDirectory;
+    }
+
+    public void setFileSystemManagedLedgerOffloadMaxSegmentSizeInBytes(int segmentSizeInBytes) {
+        this.fileSystemManagedLedgerOffloadMaxSegmentSizeInBytes = segmentSizeInBytes;
+    }
+
+    public int getFileSystemManagedLedgerOffloadMaxSegmentSizeInBytes() {
+        return this.fileSystemManagedLedgerOffloadMaxSegmentSizeInBytes;
+    }
 }
@@ -18,6 +18,11 @@
  */
 package org.apache.pulsar.broker;
 
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+import org.apache.pulsar.common.util.ObjectMapperFactory;
 import org.apache.pulsar.policies.data.loadbalancer.JSONWritable;
 import org.apache.pulsar.policies.data.loadbalancer.NamespaceBundleStats;
 
@@ -38,6 +43,12 @@ public class BundleData extends JSONWritable {
     // number of topics present under this bundle
     private int topics;
 
+    // First byte of the binary encoding of bundle data, which can't be the first byte of a JSON encoding.
+    private static final byte BINARY_FORMAT_VERSION = 1;
+    // Size of the binary encoding of time average message data: 2 ints and 4 doubles.
+    private static final int MESSAGE_DATA_SIZE = 2 * Integer.BYTES + 4 * Double.BYTES;
+    private static final int BINARY_SIZE = 1 + Integer.BYTES + 2 * MESSAGE_DATA_SIZE;
+
     // For JSON only.
     public BundleData() {
     }
@@ -106,4 +117,66 @@ public class BundleData extends JSONWritable {
     public void setTopics(int topics) {
         this.topics = topics;
     }
+
+    /**
+     * Get the compact binary encoding of this bundle data, about a fourth of the size of its JSON.
+     *
+     * @return A byte[] of this bundle data, to be read with {@link #fromBytes(byte[])}.
+     */
+    public byte[] toBinary() {
+        final ByteBuffer buffer = ByteBuffer.allocate(BINARY_SIZE);
+        buffer.put(BINARY_FORMAT_VERSION);
+        buffer.putInt(topics);
+        writeMessageData(buffer, shortTermData);
+        writeMessageData(buffer, longTermData);
+        return buffer.array();
+    }
+
+    /**
+     * Read bundle data from either its JSON or its binary encoding.
+     *
+     * @param data
+     *            The data written to ZooKeeper.
+     * @return The bundle data.
+     * @throws IOException
+     *             If the data is not valid.
+     */
+    public static BundleData fromBytes(final byte[] data) throws IOException {
+        if (data.length == 0 || data[0] != BINARY_FORMAT_VERSION) {
+            return ObjectMapperFactory.getThreadLocal().readValue(data, BundleData.class);
+        }
+        try {
+            final ByteBuffer buffer = ByteBuffer.wrap(data);
+            buffer.get();
+            final BundleData bundleData = new BundleData();
+            bundleData.topics = buffer.getInt();
+            bundleData.shortTermData = readMessageData(buffer);
+            bundleData.longTermData = readMessageData(buffer);
+            return bundleData;
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Truncated bundle data", e);
+        }
+    }
+
+    private static void writeMessageData(final ByteBuffer buffer, TimeAverageMessageData messageData) {
+        if (messageData == null) {
+            messageData = new TimeAverageMessageData();
+        }
+        buffer.putInt(messageData.getMaxSamples());
+        buffer.putInt(messageData.getNumSamples());
+        buffer.putDouble(messageData.getMsgThroughputIn());
+        buffer.putDouble(messageData.getMsgThroughputOut());
+        buffer.putDouble(messageData.getMsgRateIn());
+        buffer.putDouble(messageData.getMsgRateOut());
+    }
+
+    private static TimeAverageMessageData readMessageData(final ByteBuffer buffer) {
+        final TimeAverageMessageData messageData = new TimeAverageMessageData(buffer.getInt());
+        messageData.setNumSamples(buffer.getInt());
+        messageData.setMsgThroughputIn(buffer.getDouble());
+        messageData.setMsgThroughputOut(buffer.getDouble());
+        messageData.setMsgRateIn(buffer.getDouble());
+        messageData.setMsgRateOut(buffer.getDouble());
+        return messageData;
+    }
 }
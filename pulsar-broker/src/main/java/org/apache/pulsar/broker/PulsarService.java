@@ -52,6 +52,7 @@ import org.apache.commons.lang3.builder.ReflectionToStringBuilder;
 import org.apache.pulsar.broker.admin.AdminResource;
 import org.apache.pulsar.broker.cache.ConfigurationCacheService;
 import org.apache.pulsar.broker.cache.LocalZooKeeperCacheService;
+import org.apache.pulsar.broker.fsoffload.FileSystemManagedLedgerOffloader;
 import org.apache.pulsar.broker.loadbalance.LeaderElectionService;
 import org.apache.pulsar.broker.loadbalance.LeaderElectionService.LeaderListener;
 import org.apache.pulsar.broker.loadbalance.LoadManager;
@@ -60,6 +61,7 @@ import org.apache.pulsar.broker.loadbalance.LoadResourceQuotaUpdaterTask;
 import org.apache.pulsar.broker.loadbalance.LoadSheddingTask;
 import org.apache.pulsar.broker.loadbalance.impl.LoadManagerShared;
 import org.apache.pulsar.broker.namespace.NamespaceService;
+import org.apache.pulsar.broker.offload.ThrottledLedgerOffloader;
 import org.apache.pulsar.broker.s3offload.S3ManagedLedgerOffloader;
 import org.apache.pulsar.broker.service.BrokerService;
 import org.apache.pulsar.broker.service.Topic;
@@ -651,12 +653,18 @@ public class PulsarService implements AutoCloseable {
 
     public synchronized LedgerOffloader createManagedLedgerOffloader(ServiceConfiguration conf)
             throws PulsarServerException {
+        LedgerOffloader offloader;
         if (conf.getManagedLedgerOffloadDriver() != null
             && conf.getManagedLedgerOffloadDriver().equalsIgnoreCase(S3ManagedLedgerOffloader.DRIVER_NAME)) {
-            return new S3ManagedLedgerOffloader(conf, getOffloaderScheduler(conf));
+            offloader = new S3ManagedLedgerOffloader(conf, getOffloaderScheduler(conf));
+        } else if (conf.getManagedLedgerOffloadDriver() != null
+            && conf.getManagedLedgerOffloadDriver().equalsIgnoreCase(FileSystemManagedLedgerOffloader.DRIVER_NAME)) {
+            offloader = new FileSystemManagedLedgerOffloader(conf, getOffloaderScheduler(conf));
         } else {
             return NullLedgerOffloader.INSTANCE;
         }
+        return new ThrottledLedgerOffloader(offloader, conf.getManagedLedgerOffloadMaxConcurrentLedgers(),
+                conf.getManagedLedgerOffloadMaxBytesPerSecond(), getExecutor());
     }
 
     public ZooKeeperCache getLocalZkCache() {
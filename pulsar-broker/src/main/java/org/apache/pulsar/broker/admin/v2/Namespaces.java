@@ -41,6 +41,7 @@ import org.apache.pulsar.common.policies.data.BacklogQuota;
 import org.apache.pulsar.common.policies.data.BacklogQuota.BacklogQuotaType;
 import org.apache.pulsar.common.policies.data.BundlesData;
 import org.apache.pulsar.common.policies.data.DispatchRate;
+import org.apache.pulsar.common.policies.data.OffloadPolicies;
 import org.apache.pulsar.common.policies.data.PersistencePolicies;
 import org.apache.pulsar.common.policies.data.Policies;
 import org.apache.pulsar.common.policies.data.RetentionPolicies;
@@ -404,6 +405,29 @@ public class Namespaces extends NamespacesBase {
         internalSetRetention(retention);
     }
 
+    @GET
+    @Path("/{tenant}/{namespace}/offloadPolicies")
+    @ApiOperation(value = "Get offload configuration on a namespace.")
+    @ApiResponses(value = { @ApiResponse(code = 403, message = "Don't have admin permission"),
+            @ApiResponse(code = 404, message = "Namespace does not exist") })
+    public OffloadPolicies getOffloadPolicies(@PathParam("tenant") String tenant,
+            @PathParam("namespace") String namespace) {
+        validateNamespaceName(tenant, namespace);
+        return internalGetOffloadPolicies();
+    }
+
+    @POST
+    @Path("/{tenant}/{namespace}/offloadPolicies")
+    @ApiOperation(value = " Set offload configuration on a namespace.")
+    @ApiResponses(value = { @ApiResponse(code = 403, message = "Don't have admin permission"),
+            @ApiResponse(code = 404, message = "Namespace does not exist"),
+            @ApiResponse(code = 409, message = "Concurrent modification") })
+    public void setOffloadPolicies(@PathParam("tenant") String tenant, @PathParam("namespace") String namespace,
+            OffloadPolicies offloadPolicies) {
+        validateNamespaceName(tenant, namespace);
+        internalSetOffloadPolicies(offloadPolicies);
+    }
+
     @POST
     @Path("/{tenant}/{namespace}/persistence")
     @ApiOperation(value = "Set the persistence configuration for all the topics on a namespace.")
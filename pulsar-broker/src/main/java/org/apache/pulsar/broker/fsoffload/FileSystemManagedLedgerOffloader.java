@@ -0,0 +1,295 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.broker.fsoffload;
+
+import com.google.common.base.Strings;
+
+import io.netty.buffer.ByteBuf;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+
+import org.apache.bookkeeper.client.api.LedgerEntries;
+import org.apache.bookkeeper.client.api.LedgerEntry;
+import org.apache.bookkeeper.client.api.ReadHandle;
+import org.apache.bookkeeper.mledger.LedgerOffloader;
+import org.apache.pulsar.broker.PulsarServerException;
+import org.apache.pulsar.broker.ServiceConfiguration;
+import org.apache.pulsar.broker.fsoffload.impl.FileSystemBackedReadHandleImpl;
+import org.apache.pulsar.broker.s3offload.OffloadIndexBlock;
+import org.apache.pulsar.broker.s3offload.OffloadIndexBlockBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * LedgerOffloader storing ledgers as files in a directory, typically a local disk or a NFS mount.
+ * <p>
+ * The entries of a ledger are written, as [entry size][entry id][entry data] records, to one or more segment files
+ * of at most maxSegmentSize bytes. The ledger index is an {@link OffloadIndexBlock} with one index entry for each
+ * group of records of about {@link #INDEX_GROUP_SIZE} bytes, the part id being the segment number and the offset
+ * counting from the start of the first segment. The extra metadata of the offload is written as a properties file.
+ * The index file is written last, so a ledger without index is an incomplete offload.
+ * <p>
+ * Segments are memory mapped when the ledger is read, and the entries returned are slices of the mapped segments,
+ * so reads do not copy the data.
+ */
+public class FileSystemManagedLedgerOffloader implements LedgerOffloader {
+    private static final Logger log = LoggerFactory.getLogger(FileSystemManagedLedgerOffloader.class);
+
+    public static final String DRIVER_NAME = "filesystem";
+
+    // Target size of a group of records sharing the same index entry
+    static final int INDEX_GROUP_SIZE = 64 * 1024;
+
+    private static final int ENTRIES_PER_READ = 100;
+    private static final int WRITE_BUFFER_SIZE = 1024 * 1024;
+
+    private final ScheduledExecutorService scheduler;
+    private final Path directory;
+    private final int maxSegmentSize;
+
+    public FileSystemManagedLedgerOffloader(ServiceConfiguration conf,
+                                            ScheduledExecutorService scheduler)
+            throws PulsarServerException {
+        this(conf.getFileSystemManagedLedgerOffloadDirectory(), scheduler,
+             conf.getFileSystemManagedLedgerOffloadMaxSegmentSizeInBytes());
+    }
+
+    FileSystemManagedLedgerOffloader(String directory, ScheduledExecutorService scheduler, int maxSegmentSize)
+            throws PulsarServerException {
+        if (Strings.isNullOrEmpty(directory)) {
+            throw new PulsarServerException(
+                    "fileSystemManagedLedgerOffloadDirectory cannot be empty if filesystem offload enabled");
+        }
+        if (maxSegmentSize < INDEX_GROUP_SIZE) {
+            throw new PulsarServerException("fileSystemManagedLedgerOffloadMaxSegmentSizeInBytes cannot be less than "
+                    + INDEX_GROUP_SIZE);
+        }
+        this.directory = Paths.get(directory);
+        try {
+            Files.createDirectories(this.directory);
+        } catch (IOException e) {
+            throw new PulsarServerException(e);
+        }
+        this.scheduler = scheduler;
+        this.maxSegmentSize = maxSegmentSize;
+    }
+
+    static String ledgerFilePrefix(long ledgerId, UUID uuid) {
+        return String.format("%s-ledger-%d-", uuid.toString(), ledgerId);
+    }
+
+    static String segmentFileName(long ledgerId, UUID uuid, int segment) {
+        return ledgerFilePrefix(ledgerId, uuid) + segment;
+    }
+
+    static String indexFileName(long ledgerId, UUID uuid) {
+        return ledgerFilePrefix(ledgerId, uuid) + "index";
+    }
+
+    static String metadataFileName(long ledgerId, UUID uuid) {
+        return ledgerFilePrefix(ledgerId, uuid) + "metadata";
+    }
+
+    @Override
+    public CompletableFuture<Void> offload(ReadHandle readHandle,
+                                           UUID uuid,
+                                           Map<String, String> extraMetadata) {
+        CompletableFuture<Void> promise = new CompletableFuture<>();
+        scheduler.submit(() -> {
+                try {
+                    if (readHandle.getLastAddConfirmed() < 0) {
+                        throw new IllegalArgumentException("Ledger " + readHandle.getId() + " is empty");
+                    }
+                    writeLedger(readHandle, uuid, extraMetadata);
+                    promise.complete(null);
+                } catch (Throwable t) {
+                    log.error("Failed to offload ledger {}", readHandle.getId(), t);
+                    try {
+                        deleteLedgerFiles(readHandle.getId(), uuid);
+                    } catch (Throwable deleteError) {
+                        log.warn("Failed to delete files of ledger {}", readHandle.getId(), deleteError);
+                    }
+                    promise.completeExceptionally(t);
+                }
+            });
+        return promise;
+    }
+
+    private void writeLedger(ReadHandle readHandle, UUID uuid, Map<String, String> extraMetadata) throws Exception {
+        long ledgerId = readHandle.getId();
+        long lastEntryId = readHandle.getLastAddConfirmed();
+        OffloadIndexBlockBuilder indexBuilder = OffloadIndexBlockBuilder.create()
+            .withMetadata(readHandle.getLedgerMetadata());
+
+        int segment = 0;
+        FileOutputStream segmentFile = null;
+        DataOutputStream segmentStream = null;
+        long segmentBytes = 0;
+
+        long groupFirstEntryId = -1;
+        int groupBytes = 0;
+
+        try {
+            long nextEntryId = 0;
+            while (nextEntryId <= lastEntryId) {
+                long endEntryId = Math.min(nextEntryId + ENTRIES_PER_READ - 1, lastEntryId);
+                try (LedgerEntries entries = readHandle.read(nextEntryId, endEntryId)) {
+                    for (LedgerEntry entry : entries) {
+                        ByteBuf buf = entry.getEntryBuffer();
+                        int recordSize = FileSystemBackedReadHandleImpl.RECORD_HEADER_SIZE + buf.readableBytes();
+
+                        if (segmentStream != null && segmentBytes > 0 && segmentBytes + recordSize > maxSegmentSize) {
+                            if (groupFirstEntryId != -1) {
+                                indexBuilder.addBlock(groupFirstEntryId, segment, groupBytes);
+                                groupFirstEntryId = -1;
+                            }
+                            closeSegment(segmentFile, segmentStream);
+                            segmentStream = null;
+                            segment++;
+                        }
+                        if (segmentStream == null) {
+                            segmentFile = new FileOutputStream(
+                                    directory.resolve(segmentFileName(ledgerId, uuid, segment)).toFile());
+                            segmentStream = new DataOutputStream(
+                                    new BufferedOutputStream(segmentFile, WRITE_BUFFER_SIZE));
+                            segmentBytes = 0;
+                        }
+                        if (groupFirstEntryId == -1) {
+                            groupFirstEntryId = entry.getEntryId();
+                            groupBytes = 0;
+                        }
+
+                        segmentStream.writeInt(buf.readableBytes());
+                        segmentStream.writeLong(entry.getEntryId());
+                        buf.getBytes(buf.readerIndex(), segmentStream, buf.readableBytes());
+                        segmentBytes += recordSize;
+                        groupBytes += recordSize;
+
+                        if (groupBytes >= INDEX_GROUP_SIZE) {
+                            indexBuilder.addBlock(groupFirstEntryId, segment, groupBytes);
+                            groupFirstEntryId = -1;
+                        }
+                    }
+                }
+                nextEntryId = endEntryId + 1;
+            }
+            if (groupFirstEntryId != -1) {
+                indexBuilder.addBlock(groupFirstEntryId, segment, groupBytes);
+            }
+            closeSegment(segmentFile, segmentStream);
+            segmentStream = null;
+        } finally {
+            if (segmentStream != null) {
+                segmentStream.close();
+            }
+        }
+
+        try (FileOutputStream metadataOut = new FileOutputStream(
+                directory.resolve(metadataFileName(ledgerId, uuid)).toFile())) {
+            Properties metadata = new Properties();
+            metadata.putAll(extraMetadata);
+            metadata.store(metadataOut, null);
+            metadataOut.getChannel().force(true);
+        }
+
+        // The index is written to a temporary file and then renamed, so it is never seen partially written
+        Path indexFile = directory.resolve(indexFileName(ledgerId, uuid));
+        Path tmpIndexFile = directory.resolve(indexFileName(ledgerId, uuid) + ".tmp");
+        try (OffloadIndexBlock index = indexBuilder.build();
+             InputStream indexStream = index.toStream();
+             FileOutputStream indexOut = new FileOutputStream(tmpIndexFile.toFile())) {
+            byte[] buffer = new byte[WRITE_BUFFER_SIZE];
+            int read;
+            while ((read = indexStream.read(buffer)) != -1) {
+                indexOut.write(buffer, 0, read);
+            }
+            indexOut.getChannel().force(true);
+        }
+        Files.move(tmpIndexFile, indexFile, StandardCopyOption.ATOMIC_MOVE);
+
+        if (log.isDebugEnabled()) {
+            log.debug("Offloaded ledger {} to {} segment(s) in {}", ledgerId, segment + 1, directory);
+        }
+    }
+
+    private static void closeSegment(FileOutputStream segmentFile, DataOutputStream segmentStream)
+            throws IOException {
+        segmentStream.flush();
+        segmentFile.getChannel().force(true);
+        segmentStream.close();
+    }
+
+    private void deleteLedgerFiles(long ledgerId, UUID uuid) throws IOException {
+        // Remove the index first, so that a partially deleted ledger is seen as an incomplete offload
+        Files.deleteIfExists(directory.resolve(indexFileName(ledgerId, uuid)));
+
+        String prefix = ledgerFilePrefix(ledgerId, uuid);
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, prefix + "*")) {
+            stream.forEach(files::add);
+        }
+        for (Path file : files) {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Override
+    public CompletableFuture<ReadHandle> readOffloaded(long ledgerId, UUID uid) {
+        CompletableFuture<ReadHandle> promise = new CompletableFuture<>();
+        scheduler.submit(() -> {
+                try {
+                    promise.complete(FileSystemBackedReadHandleImpl.open(scheduler, directory,
+                            ledgerFilePrefix(ledgerId, uid), indexFileName(ledgerId, uid), ledgerId));
+                } catch (Throwable t) {
+                    promise.completeExceptionally(t);
+                }
+            });
+        return promise;
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteOffloaded(long ledgerId, UUID uid) {
+        CompletableFuture<Void> promise = new CompletableFuture<>();
+        scheduler.submit(() -> {
+                try {
+                    deleteLedgerFiles(ledgerId, uid);
+                    promise.complete(null);
+                } catch (Throwable t) {
+                    promise.completeExceptionally(t);
+                }
+            });
+        return promise;
+    }
+}
@@ -0,0 +1,247 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.broker.fsoffload.impl;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import org.apache.bookkeeper.client.BKException;
+import org.apache.bookkeeper.client.api.LastConfirmedAndEntry;
+import org.apache.bookkeeper.client.api.LedgerEntries;
+import org.apache.bookkeeper.client.api.LedgerEntry;
+import org.apache.bookkeeper.client.api.LedgerMetadata;
+import org.apache.bookkeeper.client.api.ReadHandle;
+import org.apache.bookkeeper.client.impl.LedgerEntriesImpl;
+import org.apache.bookkeeper.client.impl.LedgerEntryImpl;
+import org.apache.pulsar.broker.offload.OffloadedLastConfirmedAndEntry;
+import org.apache.pulsar.broker.s3offload.OffloadIndexBlock;
+import org.apache.pulsar.broker.s3offload.OffloadIndexBlockBuilder;
+import org.apache.pulsar.broker.s3offload.OffloadIndexEntry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * ReadHandle of a ledger offloaded to a filesystem.
+ * <p>
+ * The index is loaded when opening the handle, and used to find the group of records containing the first entry of
+ * a read. Segment files are memory mapped the first time they are read, and entries are returned as slices of the
+ * mapped segment, holding a reference on it, so no data is copied.
+ */
+public class FileSystemBackedReadHandleImpl implements ReadHandle {
+    private static final Logger log = LoggerFactory.getLogger(FileSystemBackedReadHandleImpl.class);
+
+    public static final int RECORD_HEADER_SIZE = 4 /* entry size */ + 8 /* entry id */;
+
+    private final long ledgerId;
+    private final OffloadIndexBlock index;
+    private final Path directory;
+    private final String filePrefix;
+    private final ExecutorService executor;
+
+    // Offset, as counted by the index, of the start of each segment
+    private final Map<Integer, Long> segmentStartOffsets = new HashMap<>();
+    // Mapped segments, guarded by this
+    private final Map<Integer, ByteBuf> segments = new HashMap<>();
+
+    private FileSystemBackedReadHandleImpl(long ledgerId, OffloadIndexBlock index, Path directory,
+                                           String filePrefix, ExecutorService executor) {
+        this.ledgerId = ledgerId;
+        this.index = index;
+        this.directory = directory;
+        this.filePrefix = filePrefix;
+        this.executor = executor;
+
+        for (OffloadIndexEntry entry : index.getIndexEntries()) {
+            segmentStartOffsets.putIfAbsent(entry.getPartId(), entry.getOffset());
+        }
+    }
+
+    @Override
+    public long getId() {
+        return ledgerId;
+    }
+
+    @Override
+    public LedgerMetadata getLedgerMetadata() {
+        return index.getLedgerMetadata();
+    }
+
+    @Override
+    public CompletableFuture<Void> closeAsync() {
+        CompletableFuture<Void> promise = new CompletableFuture<>();
+        executor.submit(() -> {
+                synchronized (this) {
+                    try {
+                        // Entries still referencing a segment keep it alive until they are closed
+                        segments.values().forEach(ByteBuf::release);
+                        segments.clear();
+                        index.close();
+                        promise.complete(null);
+                    } catch (IOException t) {
+                        promise.completeExceptionally(t);
+                    }
+                }
+            });
+        return promise;
+    }
+
+    @Override
+    public CompletableFuture<LedgerEntries> readAsync(long firstEntry, long lastEntry) {
+        if (log.isDebugEnabled()) {
+            log.debug("Ledger {}: reading {} - {}", getId(), firstEntry, lastEntry);
+        }
+        CompletableFuture<LedgerEntries> promise = new CompletableFuture<>();
+        if (firstEntry > lastEntry || firstEntry < 0 || lastEntry > getLastAddConfirmed()) {
+            promise.completeExceptionally(new BKException.BKIncorrectParameterException());
+            return promise;
+        }
+        executor.submit(() -> {
+                List<LedgerEntry> entries = new ArrayList<>((int) (lastEntry - firstEntry + 1));
+                try {
+                    synchronized (this) {
+                        readEntries(firstEntry, lastEntry, entries);
+                    }
+                    promise.complete(LedgerEntriesImpl.create(entries));
+                } catch (Throwable t) {
+                    log.warn("Ledger {}: failed to read {} - {}", getId(), firstEntry, lastEntry, t);
+                    entries.forEach(LedgerEntry::close);
+                    promise.completeExceptionally(t);
+                }
+            });
+        return promise;
+    }
+
+    private void readEntries(long firstEntry, long lastEntry, List<LedgerEntry> entries) throws IOException {
+        long nextExpectedId = firstEntry;
+        OffloadIndexEntry indexEntry = index.getIndexEntryForEntry(nextExpectedId);
+        int segment = indexEntry.getPartId();
+        ByteBuf segmentBuf = getSegment(segment);
+        int position = positionInSegment(indexEntry);
+
+        while (nextExpectedId <= lastEntry) {
+            if (position + RECORD_HEADER_SIZE > segmentBuf.capacity()) {
+                // End of the segment, the next entry is at the start of one of the following ones
+                indexEntry = index.getIndexEntryForEntry(nextExpectedId);
+                if (indexEntry.getPartId() <= segment) {
+                    throw new IOException("Entry " + nextExpectedId + " not found in ledger " + ledgerId
+                            + " segment " + segment);
+                }
+                segment = indexEntry.getPartId();
+                segmentBuf = getSegment(segment);
+                position = positionInSegment(indexEntry);
+                continue;
+            }
+
+            int length = segmentBuf.getInt(position);
+            long entryId = segmentBuf.getLong(position + 4);
+            int dataStart = position + RECORD_HEADER_SIZE;
+            if (length < 0 || dataStart + length > segmentBuf.capacity()) {
+                throw new IOException("Invalid record of length " + length + " at " + position + " in ledger "
+                        + ledgerId + " segment " + segment);
+            }
+
+            if (entryId == nextExpectedId) {
+                entries.add(LedgerEntryImpl.create(ledgerId, entryId, length,
+                        segmentBuf.retainedSlice(dataStart, length)));
+                nextExpectedId++;
+            } else if (entryId > nextExpectedId) {
+                throw new IOException("Unexpected entry " + entryId + " in ledger " + ledgerId + " data, expected "
+                        + nextExpectedId);
+            }
+            // Entries before the first one to read, in the same group, are skipped
+            position = dataStart + length;
+        }
+    }
+
+    private int positionInSegment(OffloadIndexEntry indexEntry) {
+        return (int) (indexEntry.getOffset() - segmentStartOffsets.get(indexEntry.getPartId()));
+    }
+
+    private ByteBuf getSegment(int segment) throws IOException {
+        ByteBuf buf = segments.get(segment);
+        if (buf == null) {
+            // The mapping stays valid after the channel is closed
+            try (FileChannel channel = FileChannel.open(directory.resolve(filePrefix + segment),
+                                                        StandardOpenOption.READ)) {
+                buf = Unpooled.wrappedBuffer(channel.map(MapMode.READ_ONLY, 0, channel.size()));
+            }
+            segments.put(segment, buf);
+        }
+        return buf;
+    }
+
+    @Override
+    public CompletableFuture<LedgerEntries> readUnconfirmedAsync(long firstEntry, long lastEntry) {
+        return readAsync(firstEntry, lastEntry);
+    }
+
+    @Override
+    public CompletableFuture<Long> readLastAddConfirmedAsync() {
+        return CompletableFuture.completedFuture(getLastAddConfirmed());
+    }
+
+    @Override
+    public CompletableFuture<Long> tryReadLastAddConfirmedAsync() {
+        return CompletableFuture.completedFuture(getLastAddConfirmed());
+    }
+
+    @Override
+    public long getLastAddConfirmed() {
+        return getLedgerMetadata().getLastEntryId();
+    }
+
+    @Override
+    public long getLength() {
+        return getLedgerMetadata().getLength();
+    }
+
+    @Override
+    public boolean isClosed() {
+        return getLedgerMetadata().isClosed();
+    }
+
+    @Override
+    public CompletableFuture<LastConfirmedAndEntry> readLastAddConfirmedAndEntryAsync(long entryId,
+                                                                                      long timeOutInMillis,
+                                                                                      boolean parallel) {
+        // The offloaded ledger is closed, there is nothing to wait for
+        return OffloadedLastConfirmedAndEntry.read(this, entryId);
+    }
+
+    public static ReadHandle open(ExecutorService executor, Path directory, String filePrefix,
+                                  String indexFileName, long ledgerId) throws IOException {
+        OffloadIndexBlock index;
+        try (InputStream indexStream = Files.newInputStream(directory.resolve(indexFileName))) {
+            index = OffloadIndexBlockBuilder.create().fromStream(indexStream);
+        }
+        return new FileSystemBackedReadHandleImpl(ledgerId, index, directory, filePrefix, executor);
+    }
+}
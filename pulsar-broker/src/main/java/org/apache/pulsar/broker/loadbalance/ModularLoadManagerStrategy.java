@@ -23,7 +23,6 @@ import java.util.Set;
 
 import org.apache.pulsar.broker.BundleData;
 import org.apache.pulsar.broker.ServiceConfiguration;
-import org.apache.pulsar.broker.loadbalance.impl.LeastLongTermMessageRate;
 
 /**
  * Interface which serves as a component for ModularLoadManagerImpl, flexibly allowing the injection of potentially
@@ -53,14 +52,23 @@ public interface ModularLoadManagerStrategy {
      * @param conf
      *            ServiceConfiguration to use.
      * @return A placement strategy from the given configurations.
+     * @throws IllegalArgumentException
+     *             If the configured strategy can't be created.
      */
     static ModularLoadManagerStrategy create(final ServiceConfiguration conf) {
+        final String strategyName = conf.getLoadBalancerLoadPlacementStrategy();
+        final Object strategyInstance;
         try {
-            // Only one strategy at the moment.
-            return new LeastLongTermMessageRate(conf);
+            final Class<?> strategyClass = Class.forName(strategyName);
+            // Assume there is a constructor with one argument of ServiceConfiguration.
+            strategyInstance = strategyClass.getConstructor(ServiceConfiguration.class).newInstance(conf);
         } catch (Exception e) {
-            // Ignore
+            throw new IllegalArgumentException("Failed to create load placement strategy " + strategyName, e);
         }
-        return new LeastLongTermMessageRate(conf);
+        if (!(strategyInstance instanceof ModularLoadManagerStrategy)) {
+            throw new IllegalArgumentException("Load placement strategy " + strategyName + " is not a "
+                    + ModularLoadManagerStrategy.class.getSimpleName());
+        }
+        return (ModularLoadManagerStrategy) strategyInstance;
     }
 }
@@ -18,9 +18,11 @@
  */
 package org.apache.pulsar.broker.loadbalance.impl;
 
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -40,6 +42,8 @@ import org.apache.pulsar.policies.data.loadbalancer.NamespaceBundleStats;
 public class BundleSplitterTask implements BundleSplitStrategy {
     private static final Logger log = LoggerFactory.getLogger(BundleSplitStrategy.class);
     private final Set<String> bundleCache;
+    // Time at which bundles of each namespace were last selected to be split.
+    private final Map<String, Long> namespaceLastSplitTime;
 
     /**
      * Construct a BundleSplitterTask.
@@ -49,6 +53,7 @@ public class BundleSplitterTask implements BundleSplitStrategy {
      */
     public BundleSplitterTask(final PulsarService pulsar) {
         bundleCache = new HashSet<>();
+        namespaceLastSplitTime = new HashMap<>();
     }
 
     /**
@@ -62,7 +67,7 @@ public class BundleSplitterTask implements BundleSplitStrategy {
      * @param pulsar
      *            Service to use.
      * @return All bundles who have exceeded configured thresholds in number of topics, number of sessions, total
-     *         message rates, or total throughput.
+     *         message rates, or total throughput, in namespaces whose bundles were not split recently.
      */
     @Override
     public Set<String> findBundlesToSplit(final LoadData loadData, final PulsarService pulsar) {
@@ -73,6 +78,12 @@ public class BundleSplitterTask implements BundleSplitStrategy {
         long maxBundleSessions = conf.getLoadBalancerNamespaceBundleMaxSessions();
         long maxBundleMsgRate = conf.getLoadBalancerNamespaceBundleMaxMsgRate();
         long maxBundleBandwidth = conf.getLoadBalancerNamespaceBundleMaxBandwidthMbytes() * LoadManagerShared.MIBI;
+        final boolean splitByTopicLoad = conf.isLoadBalancerBundleSplitByTopicLoadEnabled();
+        final long minSplitIntervalMs = TimeUnit.SECONDS
+                .toMillis(conf.getLoadBalancerNamespaceBundleSplitMinIntervalSeconds());
+        final long now = System.currentTimeMillis();
+        namespaceLastSplitTime.values().removeIf(lastSplitTime -> now - lastSplitTime >= minSplitIntervalMs);
+        final Set<String> splitNamespaces = new HashSet<>();
         loadData.getBrokerData().forEach((broker, brokerData) -> {
             LocalBrokerData localData = brokerData.getLocalData();
             for (final Map.Entry<String, NamespaceBundleStats> entry : localData.getLastStats().entrySet()) {
@@ -88,12 +99,24 @@ public class BundleSplitterTask implements BundleSplitStrategy {
                 }
                 if (stats.topics > maxBundleTopics || stats.consumerCount + stats.producerCount > maxBundleSessions
                         || totalMessageRate > maxBundleMsgRate || totalMessageThroughput > maxBundleBandwidth) {
+                    if (splitByTopicLoad && stats.topics < 2) {
+                        // The load of a single topic can't be spread by splitting its bundle.
+                        continue;
+                    }
                     final String namespace = LoadManagerShared.getNamespaceNameFromBundleName(bundle);
+                    if (namespaceLastSplitTime.containsKey(namespace)) {
+                        if (log.isDebugEnabled()) {
+                            log.debug("Not splitting namespace bundle {} because namespace {} was split recently",
+                                    bundle, namespace);
+                        }
+                        continue;
+                    }
                     try {
                         final int bundleCount = pulsar.getNamespaceService()
                                 .getBundleCount(NamespaceName.get(namespace));
                         if (bundleCount < maxBundleCount) {
                             bundleCache.add(bundle);
+                            splitNamespaces.add(namespace);
                         } else {
                             log.warn(
                                     "Could not split namespace bundle {} because namespace {} has too many bundles: {}",
@@ -105,6 +128,9 @@ public class BundleSplitterTask implements BundleSplitStrategy {
                 }
             }
         });
+        if (minSplitIntervalMs > 0) {
+            splitNamespaces.forEach(namespace -> namespaceLastSplitTime.put(namespace, now));
+        }
         return bundleCache;
     }
 }
@@ -0,0 +1,293 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.broker.loadbalance.impl;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.ToDoubleFunction;
+
+import org.apache.pulsar.broker.BrokerData;
+import org.apache.pulsar.broker.BundleData;
+import org.apache.pulsar.broker.ServiceConfiguration;
+import org.apache.pulsar.broker.TimeAverageMessageData;
+import org.apache.pulsar.broker.loadbalance.LoadData;
+import org.apache.pulsar.broker.loadbalance.ModularLoadManagerStrategy;
+import org.apache.pulsar.policies.data.loadbalancer.LocalBrokerData;
+import org.apache.pulsar.policies.data.loadbalancer.ResourceUsage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Placement strategy which selects the broker with the least resource usage once the bundle is assigned to it.
+ * <p>
+ * The usage of each resource (cpu, memory, direct memory, bandwidth in and out) of a broker is projected by adding
+ * the load of the bundle to assign, estimated from the higher of its short and long term message data, and the
+ * higher of the load of the bundles preallocated to the broker and of the increase of its usage since its previous
+ * load report, so that brokers getting hotter are avoided before they reach the overload threshold. The score of a
+ * broker is its highest projected usage, plus a penalty for brokers whose writes to the bookies are slower than the
+ * others.
+ */
+public class LeastProjectedResourceUsage implements ModularLoadManagerStrategy {
+    private static final Logger log = LoggerFactory.getLogger(LeastProjectedResourceUsage.class);
+
+    // Weight of the storage write latency of a broker, relative to the highest one among the candidates, in its score.
+    static final double STORAGE_LATENCY_WEIGHT = 0.1;
+
+    private static final int CPU = 0;
+    private static final int MEMORY = 1;
+    private static final int DIRECT_MEMORY = 2;
+    private static final int BANDWIDTH_IN = 3;
+    private static final int BANDWIDTH_OUT = 4;
+    private static final int NUM_RESOURCES = 5;
+
+    // Maintain this list to reduce object creation.
+    private final ArrayList<String> bestBrokers;
+
+    // Usage reported by each broker in its last two load reports.
+    private final Map<String, UsageTrend> usageTrends;
+
+    private static class UsageTrend {
+        long lastUpdate = -1;
+        final double[] usage = new double[NUM_RESOURCES];
+        final double[] increase = new double[NUM_RESOURCES];
+
+        void update(final LocalBrokerData localData) {
+            if (localData.getLastUpdate() == lastUpdate) {
+                return;
+            }
+            final double[] newUsage = getUsage(localData);
+            for (int i = 0; i < NUM_RESOURCES; i++) {
+                increase[i] = lastUpdate == -1 ? 0 : Math.max(0, newUsage[i] - usage[i]);
+                usage[i] = newUsage[i];
+            }
+            lastUpdate = localData.getLastUpdate();
+        }
+    }
+
+    public LeastProjectedResourceUsage(final ServiceConfiguration conf) {
+        bestBrokers = new ArrayList<>();
+        usageTrends = new HashMap<>();
+    }
+
+    private static double[] getUsage(final LocalBrokerData localData) {
+        final double[] usage = new double[NUM_RESOURCES];
+        usage[CPU] = localData.getCpu().percentUsage() / 100.0;
+        usage[MEMORY] = localData.getMemory().percentUsage() / 100.0;
+        usage[DIRECT_MEMORY] = localData.getDirectMemory().percentUsage() / 100.0;
+        usage[BANDWIDTH_IN] = localData.getBandwidthIn().percentUsage() / 100.0;
+        usage[BANDWIDTH_OUT] = localData.getBandwidthOut().percentUsage() / 100.0;
+        return usage;
+    }
+
+    // Fraction of the resource taken by the given load, assuming the usage of the resource is proportional to the
+    // current load of the broker.
+    private static double scaledUsage(final ResourceUsage resource, final double currentLoad, final double load) {
+        if (resource.limit <= 0 || currentLoad <= 0) {
+            return 0;
+        }
+        return resource.usage / resource.limit * load / currentLoad;
+    }
+
+    // Fraction of the bandwidth taken by the given throughput in bytes per second.
+    private static double bandwidthUsage(final ResourceUsage bandwidth, final double throughput) {
+        if (bandwidth.limit <= 0) {
+            return 0;
+        }
+        // Bandwidth is reported in kilobits per second.
+        return throughput * 8 / 1024 / bandwidth.limit;
+    }
+
+    // Fraction of each resource taken by the given load, assuming the usage of cpu and memory scales with the
+    // message rate and the usage of direct memory with the throughput, as currently seen by the broker.
+    private static double[] getLoadUsage(final LocalBrokerData localData, final double msgRate,
+            final double throughputIn, final double throughputOut) {
+        final double currentMsgRate = localData.getMsgRateIn() + localData.getMsgRateOut();
+        final double[] usage = new double[NUM_RESOURCES];
+        usage[CPU] = scaledUsage(localData.getCpu(), currentMsgRate, msgRate);
+        usage[MEMORY] = scaledUsage(localData.getMemory(), currentMsgRate, msgRate);
+        usage[DIRECT_MEMORY] = scaledUsage(localData.getDirectMemory(),
+                localData.getMsgThroughputIn() + localData.getMsgThroughputOut(), throughputIn + throughputOut);
+        usage[BANDWIDTH_IN] = bandwidthUsage(localData.getBandwidthIn(), throughputIn);
+        usage[BANDWIDTH_OUT] = bandwidthUsage(localData.getBandwidthOut(), throughputOut);
+        return usage;
+    }
+
+    /**
+     * Project the usage of each resource of a broker if the given bundle is assigned to it.
+     *
+     * @param brokerData
+     *            The data of the broker.
+     * @param trend
+     *            The increase of the usage of each resource since the previous load report, or null if unknown.
+     * @param bundleToAssign
+     *            The data for the bundle to assign.
+     * @return The projected usage of each resource, as a fraction of its limit.
+     */
+    static double[] getProjectedUsage(final BrokerData brokerData, final double[] trend,
+            final BundleData bundleToAssign) {
+        final LocalBrokerData localData = brokerData.getLocalData();
+        double msgRate = 0;
+        double throughputIn = 0;
+        double throughputOut = 0;
+        for (BundleData bundleData : brokerData.getPreallocatedBundleData().values()) {
+            msgRate += getMsgRate(bundleData);
+            throughputIn += getMsgThroughputIn(bundleData);
+            throughputOut += getMsgThroughputOut(bundleData);
+        }
+        final double[] preallocatedUsage = getLoadUsage(localData, msgRate, throughputIn, throughputOut);
+        final double[] bundleUsage = getLoadUsage(localData, getMsgRate(bundleToAssign),
+                getMsgThroughputIn(bundleToAssign), getMsgThroughputOut(bundleToAssign));
+
+        final double[] usage = getUsage(localData);
+        for (int i = 0; i < NUM_RESOURCES; i++) {
+            // The preallocated bundles and the trend both stand for the load coming to the broker which is not
+            // reported yet, and the trend includes the preallocated bundles the broker started to serve, so only
+            // the higher of them is added.
+            final double expectedIncrease = trend == null ? preallocatedUsage[i]
+                    : Math.max(preallocatedUsage[i], trend[i]);
+            usage[i] += bundleUsage[i] + expectedIncrease;
+        }
+        return usage;
+    }
+
+    private static double getMsgRate(final BundleData bundleData) {
+        return getMaxOfTerms(bundleData, TimeAverageMessageData::totalMsgRate);
+    }
+
+    private static double getMsgThroughputIn(final BundleData bundleData) {
+        return getMaxOfTerms(bundleData, TimeAverageMessageData::getMsgThroughputIn);
+    }
+
+    private static double getMsgThroughputOut(final BundleData bundleData) {
+        return getMaxOfTerms(bundleData, TimeAverageMessageData::getMsgThroughputOut);
+    }
+
+    // Higher of the short and long term values, so that a bundle whose load just increased is not underestimated.
+    private static double getMaxOfTerms(final BundleData bundleData,
+            final ToDoubleFunction<TimeAverageMessageData> value) {
+        double max = 0;
+        if (bundleData.getShortTermData() != null) {
+            max = Math.max(max, value.applyAsDouble(bundleData.getShortTermData()));
+        }
+        if (bundleData.getLongTermData() != null) {
+            max = Math.max(max, value.applyAsDouble(bundleData.getLongTermData()));
+        }
+        return max;
+    }
+
+    private static double max(final double[] values) {
+        double max = Double.NEGATIVE_INFINITY;
+        for (double value : values) {
+            max = Math.max(max, value);
+        }
+        return max;
+    }
+
+    // Form a score for a broker from its projected resource usage and its storage write latency.
+    // Any broker which would be above the overload threshold will have a score of POSITIVE_INFINITY.
+    private double getScore(final String broker, final BrokerData brokerData, final BundleData bundleToAssign,
+            final double maxStorageLatency, final ServiceConfiguration conf) {
+        final double overloadThreshold = conf.getLoadBalancerBrokerOverloadedThresholdPercentage() / 100.0;
+        final UsageTrend trend = usageTrends.get(broker);
+        final double maxUsage = max(getProjectedUsage(brokerData, trend == null ? null : trend.increase,
+                bundleToAssign));
+        if (maxUsage > overloadThreshold) {
+            if (log.isDebugEnabled()) {
+                log.debug("Broker {} would be overloaded: projected max usage={}", broker, maxUsage);
+            }
+            return Double.POSITIVE_INFINITY;
+        }
+
+        double score = maxUsage;
+        if (maxStorageLatency > 0) {
+            score += STORAGE_LATENCY_WEIGHT * brokerData.getLocalData().getStorageWriteLatencyMs() / maxStorageLatency;
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Broker {} has projected max usage {} and score {}", broker, maxUsage, score);
+        }
+        return score;
+    }
+
+    /**
+     * Find a suitable broker to assign the given bundle to.
+     *
+     * @param candidates
+     *            The candidates for which the bundle may be assigned.
+     * @param bundleToAssign
+     *            The data for the bundle to assign.
+     * @param loadData
+     *            The load data from the leader broker.
+     * @param conf
+     *            The service configuration.
+     * @return The name of the selected broker as it appears on ZooKeeper.
+     */
+    @Override
+    public Optional<String> selectBroker(final Set<String> candidates, final BundleData bundleToAssign,
+            final LoadData loadData, final ServiceConfiguration conf) {
+        final Map<String, BrokerData> brokerDataMap = loadData.getBrokerData();
+        usageTrends.keySet().retainAll(brokerDataMap.keySet());
+        double maxStorageLatency = 0;
+        for (String broker : candidates) {
+            final BrokerData brokerData = brokerDataMap.get(broker);
+            usageTrends.computeIfAbsent(broker, key -> new UsageTrend()).update(brokerData.getLocalData());
+            maxStorageLatency = Math.max(maxStorageLatency, brokerData.getLocalData().getStorageWriteLatencyMs());
+        }
+
+        bestBrokers.clear();
+        double minScore = Double.POSITIVE_INFINITY;
+        // Maintain a list of all the best scoring brokers and then randomly
+        // select one of them at the end.
+        for (String broker : candidates) {
+            final double score = getScore(broker, brokerDataMap.get(broker), bundleToAssign, maxStorageLatency, conf);
+            if (score == Double.POSITIVE_INFINITY) {
+                // The broker would be overloaded.
+                continue;
+            }
+            if (score < minScore) {
+                // Clear best brokers since this score beats the other brokers.
+                bestBrokers.clear();
+                bestBrokers.add(broker);
+                minScore = score;
+            } else if (score == minScore) {
+                // Add this broker to best brokers since it ties with the best score.
+                bestBrokers.add(broker);
+            }
+        }
+        if (bestBrokers.isEmpty()) {
+            // All brokers would be overloaded.
+            // Assign randomly in this case.
+            if (!candidates.isEmpty()) {
+                log.warn("All {} candidate brokers would be overloaded, assigning the bundle randomly",
+                        candidates.size());
+            }
+            bestBrokers.addAll(candidates);
+        }
+
+        if (bestBrokers.isEmpty()) {
+            // If still, it means there are no available brokers at this point
+            return Optional.empty();
+        }
+
+        return Optional.of(bestBrokers.get(ThreadLocalRandom.current().nextInt(bestBrokers.size())));
+    }
+}
@@ -41,6 +41,9 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
+import org.apache.bookkeeper.mledger.ManagedLedgerMXBean;
+import org.apache.bookkeeper.mledger.impl.ManagedLedgerFactoryImpl;
+import org.apache.bookkeeper.mledger.impl.ManagedLedgerImpl;
 import org.apache.bookkeeper.util.ZkUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.SystemUtils;
@@ -146,6 +149,25 @@ public class ModularLoadManagerImpl implements ModularLoadManager, ZooKeeperCach
     // Timestamp of last invocation of updateBundleData.
     private long lastBundleDataUpdate;
 
+    // Bundle data last written to ZooKeeper by this broker, used to only write the bundles whose data changed.
+    private final Map<String, WrittenBundleData> lastWrittenBundleData;
+
+    private static class WrittenBundleData {
+        final double msgRate;
+        final double msgThroughput;
+        final int topics;
+        final long writeTime;
+
+        WrittenBundleData(final BundleData data, final long writeTime) {
+            final TimeAverageMessageData shortTermData = data.getShortTermData();
+            this.msgRate = shortTermData == null ? 0 : shortTermData.totalMsgRate();
+            this.msgThroughput = shortTermData == null ? 0
+                    : shortTermData.getMsgThroughputIn() + shortTermData.getMsgThroughputOut();
+            this.topics = data.getTopics();
+            this.writeTime = writeTime;
+        }
+    }
+
     // LocalBrokerData available before most recent update.
     private LocalBrokerData lastData;
 
@@ -196,6 +218,7 @@ public class ModularLoadManagerImpl implements ModularLoadManager, ZooKeeperCach
         loadSheddingPipeline = new ArrayList<>();
         loadSheddingPipeline.add(new OverloadShedder());
         preallocatedBundleToBroker = new ConcurrentHashMap<>();
+        lastWrittenBundleData = new ConcurrentHashMap<>();
         scheduler = Executors.newSingleThreadScheduledExecutor(new DefaultThreadFactory("pulsar-modular-load-manager"));
         this.brokerToFailureDomainMap = Maps.newHashMap();
 
@@ -353,7 +376,7 @@ public class ModularLoadManagerImpl implements ModularLoadManager, ZooKeeperCach
             final String bundleZPath = getBundleDataZooKeeperPath(bundle);
             final String quotaZPath = String.format("%s/%s", RESOURCE_QUOTA_ZPATH, bundle);
             if (zkClient.exists(bundleZPath, null) != null) {
-                bundleData = readJson(zkClient.getData(bundleZPath, null, null), BundleData.class);
+                bundleData = BundleData.fromBytes(zkClient.getData(bundleZPath, null, null));
             } else if (zkClient.exists(quotaZPath, null) != null) {
                 final ResourceQuota quota = readJson(zkClient.getData(quotaZPath, null, null), ResourceQuota.class);
                 bundleData = new BundleData(NUM_SHORT_SAMPLES, NUM_LONG_SAMPLES);
@@ -394,6 +417,23 @@ public class ModularLoadManagerImpl implements ModularLoadManager, ZooKeeperCach
         return pulsar.getBrokerService().getBundleStats();
     }
 
+    // Average add entry latency of the managed ledgers of this broker, weighted by their add rate, in milliseconds.
+    private double getStorageWriteLatencyMs() {
+        if (!(pulsar.getManagedLedgerFactory() instanceof ManagedLedgerFactoryImpl)) {
+            return 0;
+        }
+        double totalLatency = 0;
+        double totalRate = 0;
+        for (ManagedLedgerImpl ledger : ((ManagedLedgerFactoryImpl) pulsar.getManagedLedgerFactory())
+                .getManagedLedgers().values()) {
+            final ManagedLedgerMXBean stats = ledger.getStats();
+            final double rate = stats.getAddEntryMessagesRate();
+            totalLatency += rate * stats.getAddEntryLatencyAverageUsec();
+            totalRate += rate;
+        }
+        return totalRate > 0 ? totalLatency / totalRate / 1000 : 0;
+    }
+
     // Use the thread local ObjectMapperFactory to read the given json data into an instance of the given class.
     private static <T> T readJson(final byte[] data, final Class<T> clazz) throws IOException {
         return ObjectMapperFactory.getThreadLocal().readValue(data, clazz);
@@ -410,6 +450,22 @@ public class ModularLoadManagerImpl implements ModularLoadManager, ZooKeeperCach
         return 100 * Math.abs((oldValue - newValue) / oldValue);
     }
 
+    // Determine if the data of a bundle changed enough since it was last written to ZooKeeper to be written again.
+    private boolean needBundleDataUpdate(final BundleData data, final WrittenBundleData lastWritten, final long now) {
+        if (lastWritten == null) {
+            return true;
+        }
+        if (now - lastWritten.writeTime > TimeUnit.MINUTES
+                .toMillis(conf.getLoadBalancerReportUpdateMaxIntervalMinutes())) {
+            return true;
+        }
+        final WrittenBundleData current = new WrittenBundleData(data, now);
+        final double maxChange = Math.max(percentChange(lastWritten.msgRate, current.msgRate),
+                Math.max(percentChange(lastWritten.msgThroughput, current.msgThroughput),
+                        percentChange(lastWritten.topics, current.topics)));
+        return maxChange > conf.getLoadBalancerReportUpdateThresholdPercentage();
+    }
+
     // Determine if the broker data requires an update by delegating to the update condition.
     private boolean needBrokerDataUpdate() {
         final long updateMaxIntervalMillis = TimeUnit.MINUTES
@@ -840,6 +896,7 @@ public class ModularLoadManagerImpl implements ModularLoadManager, ZooKeeperCach
         try {
             final SystemResourceUsage systemResourceUsage = LoadManagerShared.getSystemResourceUsage(brokerHostUsage);
             localData.update(systemResourceUsage, getBundleStats());
+            localData.setStorageWriteLatencyMs(getStorageWriteLatencyMs());
         } catch (Exception e) {
             log.warn("Error when attempting to update local broker data: {}", e);
         }
@@ -880,18 +937,35 @@ public class ModularLoadManagerImpl implements ModularLoadManager, ZooKeeperCach
     @Override
     public void writeBundleDataOnZooKeeper() {
         updateBundleData();
-        // Write the bundle data to ZooKeeper.
+        // Write the bundle data which changed since it was last written to ZooKeeper.
+        final long now = System.currentTimeMillis();
+        final boolean binaryFormat = conf.isLoadBalancerBundleDataBinaryFormatEnabled();
+        lastWrittenBundleData.keySet().retainAll(loadData.getBundleData().keySet());
+        int bundlesWritten = 0;
         for (Map.Entry<String, BundleData> entry : loadData.getBundleData().entrySet()) {
             final String bundle = entry.getKey();
             final BundleData data = entry.getValue();
+            final WrittenBundleData lastWritten = lastWrittenBundleData.get(bundle);
+            if (!needBundleDataUpdate(data, lastWritten, now)) {
+                continue;
+            }
             try {
                 final String zooKeeperPath = getBundleDataZooKeeperPath(bundle);
-                createZPathIfNotExists(zkClient, zooKeeperPath);
-                zkClient.setData(zooKeeperPath, data.getJsonBytes(), -1);
+                if (lastWritten == null) {
+                    createZPathIfNotExists(zkClient, zooKeeperPath);
+                }
+                zkClient.setData(zooKeeperPath, binaryFormat ? data.toBinary() : data.getJsonBytes(), -1);
+                lastWrittenBundleData.put(bundle, new WrittenBundleData(data, now));
+                bundlesWritten++;
             } catch (Exception e) {
+                lastWrittenBundleData.remove(bundle);
                 log.warn("Error when writing data for bundle {} to ZooKeeper: {}", bundle, e);
             }
         }
+        if (log.isDebugEnabled()) {
+            log.debug("Wrote data of {} out of {} bundles to ZooKeeper", bundlesWritten,
+                    loadData.getBundleData().size());
+        }
         // Write the time average broker data to ZooKeeper.
         for (Map.Entry<String, BrokerData> entry : loadData.getBrokerData().entrySet()) {
             final String broker = entry.getKey();
@@ -910,6 +984,7 @@ public class ModularLoadManagerImpl implements ModularLoadManager, ZooKeeperCach
     }
 
     private void deleteBundleDataFromZookeeper(String bundle) {
+        lastWrittenBundleData.remove(bundle);
         final String zooKeeperPath = getBundleDataZooKeeperPath(bundle);
         try {
             if (zkClient.exists(zooKeeperPath, null) != null) {
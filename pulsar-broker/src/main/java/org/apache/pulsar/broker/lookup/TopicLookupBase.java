@@ -19,8 +19,8 @@
 package org.apache.pulsar.broker.lookup;
 
 import static com.google.common.base.Preconditions.checkNotNull;
-import static org.apache.pulsar.common.api.Commands.newLookupErrorResponse;
-import static org.apache.pulsar.common.api.Commands.newLookupResponse;
+import static org.apache.pulsar.common.api.Commands.newLookupErrorResponseCommand;
+import static org.apache.pulsar.common.api.Commands.newLookupResponseCommand;
 
 import java.net.URI;
 import java.net.URISyntaxException;
@@ -48,6 +48,8 @@ import org.apache.pulsar.broker.lookup.LookupResult;
 import org.apache.pulsar.broker.web.NoSwaggerDocumentation;
 import org.apache.pulsar.broker.web.PulsarWebResource;
 import org.apache.pulsar.broker.web.RestException;
+import org.apache.pulsar.common.api.Commands;
+import org.apache.pulsar.common.api.proto.PulsarApi.CommandLookupTopicResponse;
 import org.apache.pulsar.common.api.proto.PulsarApi.CommandLookupTopicResponse.LookupType;
 import org.apache.pulsar.common.api.proto.PulsarApi.ServerError;
 import org.apache.pulsar.common.lookup.data.LookupData;
@@ -169,9 +171,20 @@ public class TopicLookupBase extends PulsarWebResource {
      */
     public static CompletableFuture<ByteBuf> lookupTopicAsync(PulsarService pulsarService, TopicName topicName,
             boolean authoritative, String clientAppId, AuthenticationDataSource authenticationData, long requestId) {
+        return lookupTopicCommandAsync(pulsarService, topicName, authoritative, clientAppId, authenticationData,
+                requestId).thenApply(Commands::newLookupResponse);
+    }
+
+    /**
+     * Same as {@link #lookupTopicAsync}, but returns the lookup result before serialization, so that it can be also
+     * sent as part of a {@link org.apache.pulsar.common.api.proto.PulsarApi.CommandLookupTopicsResponse}. The caller
+     * has to recycle the returned command.
+     */
+    public static CompletableFuture<CommandLookupTopicResponse> lookupTopicCommandAsync(PulsarService pulsarService,
+            TopicName topicName, boolean authoritative, String clientAppId, AuthenticationDataSource authenticationData, long requestId) {
 
-        final CompletableFuture<ByteBuf> validationFuture = new CompletableFuture<>();
-        final CompletableFuture<ByteBuf> lookupfuture = new CompletableFuture<>();
+        final CompletableFuture<CommandLookupTopicResponse> validationFuture = new CompletableFuture<>();
+        final CompletableFuture<CommandLookupTopicResponse> lookupfuture = new CompletableFuture<>();
         final String cluster = topicName.getCluster();
 
         // (1) validate cluster
@@ -183,7 +196,7 @@ public class TopicLookupBase extends PulsarWebResource {
                             differentClusterData.getBrokerServiceUrl(), differentClusterData.getBrokerServiceUrlTls(),
                             cluster);
                 }
-                validationFuture.complete(newLookupResponse(differentClusterData.getBrokerServiceUrl(),
+                validationFuture.complete(newLookupResponseCommand(differentClusterData.getBrokerServiceUrl(),
                         differentClusterData.getBrokerServiceUrlTls(), true, LookupType.Redirect, requestId, false));
             } else {
                 // (2) authorize client
@@ -191,7 +204,7 @@ public class TopicLookupBase extends PulsarWebResource {
                     checkAuthorization(pulsarService, topicName, clientAppId, authenticationData);
                 } catch (RestException authException) {
                     log.warn("Failed to authorized {} on cluster {}", clientAppId, topicName.toString());
-                    validationFuture.complete(newLookupErrorResponse(ServerError.AuthorizationError,
+                    validationFuture.complete(newLookupErrorResponseCommand(ServerError.AuthorizationError,
                             authException.getMessage(), requestId));
                     return;
                 } catch (Exception e) {
@@ -211,17 +224,17 @@ public class TopicLookupBase extends PulsarWebResource {
                             // request should be redirect to the peer-cluster
                             if (StringUtils.isBlank(peerClusterData.getBrokerServiceUrl())
                                     && StringUtils.isBlank(peerClusterData.getBrokerServiceUrl())) {
-                                validationFuture.complete(newLookupErrorResponse(ServerError.MetadataError,
+                                validationFuture.complete(newLookupErrorResponseCommand(ServerError.MetadataError,
                                         "Redirected cluster's brokerService url is not configured", requestId));
                                 return;
                             }
-                            validationFuture.complete(newLookupResponse(peerClusterData.getBrokerServiceUrl(),
+                            validationFuture.complete(newLookupResponseCommand(peerClusterData.getBrokerServiceUrl(),
                                     peerClusterData.getBrokerServiceUrlTls(), true, LookupType.Redirect, requestId,
                                     false));
 
                         }).exceptionally(ex -> {
-                            validationFuture.complete(
-                                    newLookupErrorResponse(ServerError.MetadataError, ex.getMessage(), requestId));
+                            validationFuture.complete(newLookupErrorResponseCommand(ServerError.MetadataError,
+                                    ex.getMessage(), requestId));
                             return null;
                         });
             }
@@ -243,7 +256,7 @@ public class TopicLookupBase extends PulsarWebResource {
                             }
 
                             if (!lookupResult.isPresent()) {
-                                lookupfuture.complete(newLookupErrorResponse(ServerError.ServiceNotReady,
+                                lookupfuture.complete(newLookupErrorResponseCommand(ServerError.ServiceNotReady,
                                         "No broker was available to own " + topicName, requestId));
                                 return;
                             }
@@ -251,16 +264,16 @@ public class TopicLookupBase extends PulsarWebResource {
                             LookupData lookupData = lookupResult.get().getLookupData();
                             if (lookupResult.get().isRedirect()) {
                                 boolean newAuthoritative = isLeaderBroker(pulsarService);
-                                lookupfuture.complete(
-                                        newLookupResponse(lookupData.getBrokerUrl(), lookupData.getBrokerUrlTls(),
-                                                newAuthoritative, LookupType.Redirect, requestId, false));
+                                lookupfuture.complete(newLookupResponseCommand(lookupData.getBrokerUrl(),
+                                        lookupData.getBrokerUrlTls(), newAuthoritative, LookupType.Redirect, requestId,
+                                        false));
                             } else {
                                 // When running in standalone mode we want to redirect the client through the service
                                 // url, so that the advertised address configuration is not relevant anymore.
                                 boolean redirectThroughServiceUrl = pulsarService.getConfiguration()
                                         .isRunningStandalone();
 
-                                lookupfuture.complete(newLookupResponse(lookupData.getBrokerUrl(),
+                                lookupfuture.complete(newLookupResponseCommand(lookupData.getBrokerUrl(),
                                         lookupData.getBrokerUrlTls(), true /* authoritative */, LookupType.Connect,
                                         requestId, redirectThroughServiceUrl));
                             }
@@ -272,8 +285,8 @@ public class TopicLookupBase extends PulsarWebResource {
                                 log.warn("Failed to lookup {} for topic {} with error {}", clientAppId,
                                         topicName.toString(), ex.getMessage(), ex);
                             }
-                            lookupfuture.complete(
-                                    newLookupErrorResponse(ServerError.ServiceNotReady, ex.getMessage(), requestId));
+                            lookupfuture.complete(newLookupErrorResponseCommand(ServerError.ServiceNotReady,
+                                    ex.getMessage(), requestId));
                             return null;
                         });
             }
@@ -287,7 +300,8 @@ public class TopicLookupBase extends PulsarWebResource {
                         ex.getMessage(), ex);
             }
 
-            lookupfuture.complete(newLookupErrorResponse(ServerError.ServiceNotReady, ex.getMessage(), requestId));
+            lookupfuture.complete(
+                    newLookupErrorResponseCommand(ServerError.ServiceNotReady, ex.getMessage(), requestId));
             return null;
         });
 
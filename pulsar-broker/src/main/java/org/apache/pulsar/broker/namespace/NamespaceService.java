@@ -27,15 +27,20 @@ import static org.apache.pulsar.broker.web.PulsarWebResource.joinPath;
 import static org.apache.pulsar.common.naming.NamespaceBundleFactory.getBundlesData;
 import static org.apache.pulsar.zookeeper.ZooKeeperCache.cacheTimeOutInSec;
 
+import java.net.InetSocketAddress;
 import java.net.URI;
 import java.net.URL;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
 import java.util.Optional;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.regex.Matcher;
@@ -54,6 +59,8 @@ import org.apache.pulsar.broker.lookup.LookupResult;
 import org.apache.pulsar.broker.service.BrokerServiceException.ServerMetadataException;
 import org.apache.pulsar.broker.service.BrokerServiceException.ServiceUnitNotReadyException;
 import org.apache.pulsar.client.admin.PulsarAdmin;
+import org.apache.pulsar.client.impl.PulsarClientImpl;
+import org.apache.pulsar.common.api.Commands;
 import org.apache.pulsar.common.lookup.data.LookupData;
 import org.apache.pulsar.common.naming.TopicName;
 import org.apache.pulsar.common.naming.NamespaceBundle;
@@ -66,6 +73,7 @@ import org.apache.pulsar.common.policies.data.BrokerAssignment;
 import org.apache.pulsar.common.policies.data.BundlesData;
 import org.apache.pulsar.common.policies.data.LocalPolicies;
 import org.apache.pulsar.common.policies.data.NamespaceOwnershipStatus;
+import org.apache.pulsar.common.policies.data.TopicStats;
 import org.apache.pulsar.common.policies.impl.NamespaceIsolationPolicies;
 import org.apache.pulsar.common.util.Codec;
 import org.apache.pulsar.common.util.ObjectMapperFactory;
@@ -114,6 +122,9 @@ public class NamespaceService {
     private final String host;
 
     private static final int BUNDLE_SPLIT_RETRY_LIMIT = 7;
+    // The leader redirects to the new owner of a bundle handed off, which redirects again with a non centralized
+    // load manager when it selects another broker
+    private static final int MAX_BUNDLE_HANDOFF_REDIRECTS = 3;
 
     public static final String SLA_NAMESPACE_PROPERTY = "sla-monitor";
     public static final Pattern HEARTBEAT_NAMESPACE_PATTERN = Pattern.compile("pulsar/[^/]+/([^:]+:\\d+)");
@@ -506,6 +517,71 @@ public class NamespaceService {
         checkNotNull(ownershipCache.getOwnedBundle(bundle)).handleUnloadRequest(pulsar, timeout, timeoutUnit);
     }
 
+    /**
+     * Hand off a bundle which was unloaded to its next owner: the leader selects the new owner, which acquires the
+     * ownership of the bundle and loads its topics. This is done with a lookup of a topic of the bundle, sent to the
+     * leader and following its redirections.
+     *
+     * @param bundle
+     *            the bundle which was unloaded
+     * @param topic
+     *            a topic of the bundle
+     * @return the new owner of the bundle, once it owns the bundle
+     */
+    public CompletableFuture<LookupData> handOffBundle(NamespaceBundle bundle, String topic) {
+        CompletableFuture<LookupData> future = new CompletableFuture<>();
+        try {
+            String leader = pulsar.getLeaderElectionService().getCurrentLeader().getServiceUrl();
+            LookupData leaderLookupData = createLookupResult(leader).get(cacheTimeOutInSec, SECONDS)
+                    .getLookupData();
+            acquireBundleOnBroker((PulsarClientImpl) pulsar.getClient(),
+                    config.isTlsEnabled() ? leaderLookupData.getBrokerUrlTls() : leaderLookupData.getBrokerUrl(),
+                    topic, false, MAX_BUNDLE_HANDOFF_REDIRECTS, future);
+        } catch (Exception e) {
+            future.completeExceptionally(e);
+        }
+        ScheduledFuture<?> timeout = pulsar.getExecutor().schedule(() -> future.completeExceptionally(
+                new TimeoutException("Timed out handing off bundle " + bundle)), cacheTimeOutInSec, SECONDS);
+        return future.whenComplete((target, ex) -> {
+            timeout.cancel(false);
+            if (ex != null) {
+                LOG.warn("Failed to hand off bundle {}: {}", bundle, ex.getMessage());
+            } else {
+                LOG.info("Bundle {} handed off to {}", bundle, target.getBrokerUrl());
+            }
+        });
+    }
+
+    private void acquireBundleOnBroker(PulsarClientImpl client, String brokerUrl, String topic, boolean authoritative,
+            int redirects, CompletableFuture<LookupData> future) throws Exception {
+        URI uri = new URI(brokerUrl);
+        client.getCnxPool().getConnection(InetSocketAddress.createUnresolved(uri.getHost(), uri.getPort()))
+                .thenCompose(cnx -> {
+                    long requestId = client.newRequestId();
+                    return cnx.newLookup(Commands.newLookup(topic, authoritative, requestId), requestId);
+                }).thenAccept(lookupDataResult -> {
+                    if (!lookupDataResult.redirect) {
+                        // the broker which answered owns the bundle now
+                        future.complete(new LookupData(lookupDataResult.brokerUrl, lookupDataResult.brokerUrlTls,
+                                false, true));
+                    } else if (redirects <= 0) {
+                        future.completeExceptionally(
+                                new IllegalStateException("Too many redirects, last to " + lookupDataResult.brokerUrl));
+                    } else {
+                        try {
+                            acquireBundleOnBroker(client, config.isTlsEnabled() ? lookupDataResult.brokerUrlTls
+                                    : lookupDataResult.brokerUrl, topic, lookupDataResult.authoritative,
+                                    redirects - 1, future);
+                        } catch (Exception e) {
+                            future.completeExceptionally(e);
+                        }
+                    }
+                }).exceptionally(ex -> {
+                    future.completeExceptionally(ex);
+                    return null;
+                });
+    }
+
     public Map<String, NamespaceOwnershipStatus> getOwnedNameSpacesStatus() throws Exception {
         NamespaceIsolationPolicies nsIsolationPolicies = this.getLocalNamespaceIsolationPolicies();
         Map<String, NamespaceOwnershipStatus> ownedNsStatus = new HashMap<String, NamespaceOwnershipStatus>();
@@ -589,14 +665,43 @@ public class NamespaceService {
         return unloadFuture;
     }
 
+    // Split the bundle in two, between its topics if the split by topic load is enabled and they have some traffic
+    private Pair<NamespaceBundles, List<NamespaceBundle>> splitBundle(NamespaceBundle bundle) {
+        if (config.isLoadBalancerBundleSplitByTopicLoadEnabled()) {
+            Optional<Long> splitPoint = NamespaceBundleFactory.getLoadBalancedSplitPoint(bundle,
+                    getTopicLoads(bundle));
+            if (splitPoint.isPresent()) {
+                LOG.info("Splitting bundle {} at {} to balance the load of its topics", bundle,
+                        String.format("0x%08x", splitPoint.get()));
+                return bundleFactory.splitBundleAt(bundle, splitPoint.get());
+            }
+        }
+        return bundleFactory.splitBundles(bundle, 2 /* by default split into 2 */);
+    }
+
+    // Message rate (in + out) of the topics of the bundle loaded on this broker, by the hash of their name
+    private NavigableMap<Long, Double> getTopicLoads(NamespaceBundle bundle) {
+        NavigableMap<Long, Double> topicLoads = new TreeMap<>();
+        pulsar.getBrokerService().getTopics().forEach((name, topicFuture) -> {
+            TopicName topicName = TopicName.get(name);
+            if (bundle.includes(topicName) && topicFuture.isDone() && !topicFuture.isCompletedExceptionally()) {
+                topicFuture.join().ifPresent(topic -> {
+                    TopicStats stats = topic.getStats();
+                    topicLoads.merge(bundleFactory.getLongHashCode(topicName.toString()),
+                            stats.msgRateIn + stats.msgRateOut, Double::sum);
+                });
+            }
+        });
+        return topicLoads;
+    }
+
     void splitAndOwnBundleOnceAndRetry(NamespaceBundle bundle,
                                        boolean unload,
                                        AtomicInteger counter,
                                        CompletableFuture<Void> unloadFuture) {
         CompletableFuture<NamespaceBundles> updateFuture = new CompletableFuture<>();
 
-        final Pair<NamespaceBundles, List<NamespaceBundle>> splittedBundles = bundleFactory.splitBundles(bundle,
-            2 /* by default split into 2 */);
+        final Pair<NamespaceBundles, List<NamespaceBundle>> splittedBundles = splitBundle(bundle);
 
         // Split and updateNamespaceBundles. Update may fail because of concurrent write to Zookeeper.
         if (splittedBundles != null) {
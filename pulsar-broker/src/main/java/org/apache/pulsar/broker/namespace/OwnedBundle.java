@@ -18,13 +18,17 @@
  */
 package org.apache.pulsar.broker.namespace;
 
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.apache.pulsar.broker.PulsarService;
+import org.apache.pulsar.common.lookup.data.LookupData;
 import org.apache.pulsar.common.naming.NamespaceBundle;
+import org.apache.pulsar.common.naming.TopicName;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -83,6 +87,10 @@ public class OwnedBundle {
      * b. close all the topics concurrently
      * c. delete ownership znode from zookeeper.
      * </pre>
+     *
+     * When bundle handoff is enabled, the producers and consumers of the topics are told to reconnect only once the
+     * ownership is released, and the new owner selected by the leader has acquired the bundle and loaded its topics.
+     * They are told to reconnect to the new owner directly.
      * 
      * @param pulsar
      * @param timeout
@@ -116,10 +124,22 @@ public class OwnedBundle {
         }
 
         int unloadedTopics = 0;
+        Optional<String> handoffTopic = Optional.empty();
+        CompletableFuture<LookupData> handoff = null;
         try {
             LOG.info("Disabling ownership: {}", this.bundle);
             pulsar.getNamespaceService().getOwnershipCache().updateBundleState(this.bundle, false);
 
+            if (pulsar.getConfiguration().isLoadBalancerBundleHandoffEnabled()) {
+                handoffTopic = pulsar.getBrokerService().getTopics().keys().stream()
+                        .filter(topic -> bundle.includes(TopicName.get(topic))).findFirst();
+                if (handoffTopic.isPresent()) {
+                    // the clients are told to reconnect once the handoff completes
+                    handoff = new CompletableFuture<>();
+                    pulsar.getBrokerService().addBundleHandoff(bundle, handoff);
+                }
+            }
+
             // close topics forcefully
             try {
                 unloadedTopics = pulsar.getBrokerService().unloadServiceUnit(bundle).get(timeout, timeoutUnit);
@@ -140,8 +160,22 @@ public class OwnedBundle {
                 throw new RuntimeException(String.format("Failed to delete ownership node %s", bundle.toString()),
                         e.getCause());
             }
+            if (handoff != null) {
+                final CompletableFuture<LookupData> bundleHandoff = handoff;
+                pulsar.getNamespaceService().handOffBundle(bundle, handoffTopic.get()).whenComplete((target, ex) -> {
+                    if (ex != null) {
+                        // the clients reconnect with a lookup
+                        bundleHandoff.completeExceptionally(ex);
+                    } else {
+                        bundleHandoff.complete(target);
+                    }
+                });
+            }
         } catch (Exception e) {
             LOG.error("Failed to unload a namespace {}", bundle.toString(), e);
+            if (handoff != null) {
+                handoff.completeExceptionally(e);
+            }
             throw new RuntimeException(e);
         }
 
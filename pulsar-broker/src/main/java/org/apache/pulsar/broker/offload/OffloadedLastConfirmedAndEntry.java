@@ -0,0 +1,85 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.broker.offload;
+
+import java.util.concurrent.CompletableFuture;
+import org.apache.bookkeeper.client.api.LastConfirmedAndEntry;
+import org.apache.bookkeeper.client.api.LedgerEntry;
+import org.apache.bookkeeper.client.api.ReadHandle;
+
+/**
+ * LastConfirmedAndEntry of an offloaded ledger.
+ * <p>
+ * Offloaded ledgers are closed, so their last add confirmed is known without waiting, and the entry is read when
+ * it is not after it.
+ */
+public class OffloadedLastConfirmedAndEntry implements LastConfirmedAndEntry {
+    private final long lastAddConfirmed;
+    // Null if the entry is after the last add confirmed
+    private final LedgerEntry entry;
+
+    private OffloadedLastConfirmedAndEntry(long lastAddConfirmed, LedgerEntry entry) {
+        this.lastAddConfirmed = lastAddConfirmed;
+        this.entry = entry;
+    }
+
+    /**
+     * Read the last add confirmed of an offloaded ledger, and the given entry if it is not after it.
+     *
+     * @param readHandle the handle of the offloaded ledger
+     * @param entryId the id of the entry to read
+     * @return a future completed with the last add confirmed and the entry
+     */
+    public static CompletableFuture<LastConfirmedAndEntry> read(ReadHandle readHandle, long entryId) {
+        long lastAddConfirmed = readHandle.getLastAddConfirmed();
+        if (entryId < 0 || entryId > lastAddConfirmed) {
+            return CompletableFuture.completedFuture(new OffloadedLastConfirmedAndEntry(lastAddConfirmed, null));
+        }
+        return readHandle.readAsync(entryId, entryId).thenApply(entries -> {
+                try {
+                    // The entries release their buffers once closed, keep a reference to the one returned
+                    return new OffloadedLastConfirmedAndEntry(lastAddConfirmed, entries.getEntry(entryId).duplicate());
+                } finally {
+                    entries.close();
+                }
+            });
+    }
+
+    @Override
+    public long getLastAddConfirmed() {
+        return lastAddConfirmed;
+    }
+
+    @Override
+    public boolean hasEntry() {
+        return entry != null;
+    }
+
+    @Override
+    public LedgerEntry getEntry() {
+        return entry;
+    }
+
+    @Override
+    public void close() {
+        if (entry != null) {
+            entry.close();
+        }
+    }
+}
@@ -0,0 +1,248 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.broker.offload;
+
+import static org.apache.bookkeeper.mledger.util.SafeRun.safeRun;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.apache.bookkeeper.client.api.LastConfirmedAndEntry;
+import org.apache.bookkeeper.client.api.LedgerEntries;
+import org.apache.bookkeeper.client.api.LedgerEntry;
+import org.apache.bookkeeper.client.api.LedgerMetadata;
+import org.apache.bookkeeper.client.api.ReadHandle;
+import org.apache.bookkeeper.mledger.LedgerOffloader;
+
+/**
+ * LedgerOffloader bounding the resources used by the offloads of a broker.
+ * <p>
+ * At most maxConcurrentOffloads ledgers are offloaded at a time, further offloads are queued until one completes.
+ * When maxBytesPerSecond is positive, the reads of the offloaded ledgers from bookkeeper, shared by all the running
+ * offloads, are delayed so that their average rate stays under it. Reads of offloaded ledgers are not throttled.
+ */
+public class ThrottledLedgerOffloader implements LedgerOffloader {
+    private final LedgerOffloader offloader;
+    private final int maxConcurrentOffloads;
+    private final long maxBytesPerSecond;
+    private final ScheduledExecutorService timer;
+
+    // Guarded by this
+    private final Queue<PendingOffload> pendingOffloads = new ArrayDeque<>();
+    private int runningOffloads = 0;
+    // Time at which the bytes read so far are paid for, and the next read can start
+    private long nextReadNanos = 0;
+
+    public ThrottledLedgerOffloader(LedgerOffloader offloader, int maxConcurrentOffloads, long maxBytesPerSecond,
+                                    ScheduledExecutorService timer) {
+        this.offloader = offloader;
+        this.maxConcurrentOffloads = Math.max(1, maxConcurrentOffloads);
+        this.maxBytesPerSecond = maxBytesPerSecond;
+        this.timer = timer;
+    }
+
+    private static class PendingOffload {
+        final ReadHandle readHandle;
+        final UUID uuid;
+        final Map<String, String> extraMetadata;
+        final CompletableFuture<Void> promise = new CompletableFuture<>();
+
+        PendingOffload(ReadHandle readHandle, UUID uuid, Map<String, String> extraMetadata) {
+            this.readHandle = readHandle;
+            this.uuid = uuid;
+            this.extraMetadata = extraMetadata;
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> offload(ReadHandle ledger, UUID uid, Map<String, String> extraMetadata) {
+        PendingOffload op = new PendingOffload(ledger, uid, extraMetadata);
+        boolean start;
+        synchronized (this) {
+            start = runningOffloads < maxConcurrentOffloads;
+            if (start) {
+                runningOffloads++;
+            } else {
+                pendingOffloads.add(op);
+            }
+        }
+        if (start) {
+            start(op);
+        }
+        return op.promise;
+    }
+
+    private void start(PendingOffload op) {
+        ReadHandle readHandle = maxBytesPerSecond > 0 ? new RateLimitedReadHandle(op.readHandle) : op.readHandle;
+        CompletableFuture<Void> future;
+        try {
+            future = offloader.offload(readHandle, op.uuid, op.extraMetadata);
+        } catch (Throwable t) {
+            future = new CompletableFuture<>();
+            future.completeExceptionally(t);
+        }
+        future.whenComplete((ignore, exception) -> {
+                startNextOffload();
+                if (exception != null) {
+                    op.promise.completeExceptionally(exception);
+                } else {
+                    op.promise.complete(null);
+                }
+            });
+    }
+
+    private void startNextOffload() {
+        PendingOffload next;
+        synchronized (this) {
+            next = pendingOffloads.poll();
+            if (next == null) {
+                runningOffloads--;
+            }
+        }
+        if (next != null) {
+            start(next);
+        }
+    }
+
+    synchronized int getPendingOffloadsCount() {
+        return pendingOffloads.size();
+    }
+
+    @Override
+    public CompletableFuture<ReadHandle> readOffloaded(long ledgerId, UUID uid) {
+        return offloader.readOffloaded(ledgerId, uid);
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteOffloaded(long ledgerId, UUID uid) {
+        return offloader.deleteOffloaded(ledgerId, uid);
+    }
+
+    private synchronized long getReadDelayNanos() {
+        return Math.max(0, nextReadNanos - System.nanoTime());
+    }
+
+    private synchronized void recordReadBytes(long bytes) {
+        long now = System.nanoTime();
+        nextReadNanos = Math.max(nextReadNanos, now) + TimeUnit.SECONDS.toNanos(bytes) / maxBytesPerSecond;
+    }
+
+    private interface ReadOp {
+        CompletableFuture<LedgerEntries> read();
+    }
+
+    /**
+     * ReadHandle delaying its reads until the bytes of the previous reads of all the offloads are paid for.
+     */
+    private class RateLimitedReadHandle implements ReadHandle {
+        private final ReadHandle readHandle;
+
+        RateLimitedReadHandle(ReadHandle readHandle) {
+            this.readHandle = readHandle;
+        }
+
+        private CompletableFuture<LedgerEntries> throttle(ReadOp readOp) {
+            long delayNanos = getReadDelayNanos();
+            if (delayNanos == 0) {
+                return readAndRecord(readOp);
+            }
+            CompletableFuture<LedgerEntries> promise = new CompletableFuture<>();
+            timer.schedule(safeRun(() -> readAndRecord(readOp).whenComplete((entries, exception) -> {
+                    if (exception != null) {
+                        promise.completeExceptionally(exception);
+                    } else {
+                        promise.complete(entries);
+                    }
+                })), delayNanos, TimeUnit.NANOSECONDS);
+            return promise;
+        }
+
+        private CompletableFuture<LedgerEntries> readAndRecord(ReadOp readOp) {
+            return readOp.read().thenApply(entries -> {
+                    long bytes = 0;
+                    for (LedgerEntry entry : entries) {
+                        bytes += entry.getLength();
+                    }
+                    recordReadBytes(bytes);
+                    return entries;
+                });
+        }
+
+        @Override
+        public CompletableFuture<LedgerEntries> readAsync(long firstEntry, long lastEntry) {
+            return throttle(() -> readHandle.readAsync(firstEntry, lastEntry));
+        }
+
+        @Override
+        public CompletableFuture<LedgerEntries> readUnconfirmedAsync(long firstEntry, long lastEntry) {
+            return throttle(() -> readHandle.readUnconfirmedAsync(firstEntry, lastEntry));
+        }
+
+        @Override
+        public long getId() {
+            return readHandle.getId();
+        }
+
+        @Override
+        public LedgerMetadata getLedgerMetadata() {
+            return readHandle.getLedgerMetadata();
+        }
+
+        @Override
+        public CompletableFuture<Void> closeAsync() {
+            return readHandle.closeAsync();
+        }
+
+        @Override
+        public CompletableFuture<Long> readLastAddConfirmedAsync() {
+            return readHandle.readLastAddConfirmedAsync();
+        }
+
+        @Override
+        public CompletableFuture<Long> tryReadLastAddConfirmedAsync() {
+            return readHandle.tryReadLastAddConfirmedAsync();
+        }
+
+        @Override
+        public long getLastAddConfirmed() {
+            return readHandle.getLastAddConfirmed();
+        }
+
+        @Override
+        public long getLength() {
+            return readHandle.getLength();
+        }
+
+        @Override
+        public boolean isClosed() {
+            return readHandle.isClosed();
+        }
+
+        @Override
+        public CompletableFuture<LastConfirmedAndEntry> readLastAddConfirmedAndEntryAsync(long entryId,
+                                                                                          long timeOutInMillis,
+                                                                                          boolean parallel) {
+            return readHandle.readLastAddConfirmedAndEntryAsync(entryId, timeOutInMillis, parallel);
+        }
+    }
+}
@@ -21,6 +21,7 @@ package org.apache.pulsar.broker.s3offload;
 import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.List;
 import org.apache.bookkeeper.client.api.LedgerMetadata;
 import org.apache.bookkeeper.common.annotation.InterfaceStability.Unstable;
 
@@ -54,6 +55,11 @@ public interface OffloadIndexBlock extends Closeable {
      */
     int getEntryCount();
 
+    /**
+     * Get all the index entries contained in this index Block, ordered by entry id.
+     */
+    List<OffloadIndexEntry> getIndexEntries();
+
     /**
      * Get LedgerMetadata.
      */
@@ -0,0 +1,40 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.broker.s3offload;
+
+import java.io.InputStream;
+
+/**
+ * InputStream reading an object stored in S3 with ranged reads, which can be positioned anywhere in the object.
+ */
+public abstract class S3BackedInputStream extends InputStream {
+    /**
+     * Move the read position of the stream.
+     *
+     * @param position the offset in the object where the next read will start
+     */
+    public abstract void seek(long position);
+
+    /**
+     * Get the current read position of the stream.
+     *
+     * @return the offset in the object where the next read will start
+     */
+    public abstract long getPosition();
+}
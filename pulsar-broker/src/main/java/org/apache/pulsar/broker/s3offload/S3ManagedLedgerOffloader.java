@@ -21,9 +21,27 @@ package org.apache.pulsar.broker.s3offload;
 import com.amazonaws.client.builder.AwsClientBuilder.EndpointConfiguration;
 import com.amazonaws.services.s3.AmazonS3;
 import com.amazonaws.services.s3.AmazonS3ClientBuilder;
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.s3.model.DeleteObjectsRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadResult;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PartETag;
+import com.amazonaws.services.s3.model.UploadPartRequest;
+import com.amazonaws.services.s3.model.UploadPartResult;
 
 import com.google.common.base.Strings;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.PooledByteBufAllocator;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
@@ -33,16 +51,68 @@ import org.apache.bookkeeper.client.api.ReadHandle;
 import org.apache.bookkeeper.mledger.LedgerOffloader;
 import org.apache.pulsar.broker.PulsarServerException;
 import org.apache.pulsar.broker.ServiceConfiguration;
+import org.apache.pulsar.broker.s3offload.impl.BlockAwareSegmentInputStreamImpl;
+import org.apache.pulsar.broker.s3offload.impl.S3BackedReadHandleImpl;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+/**
+ * LedgerOffloader storing ledgers in S3.
+ * <p>
+ * A ledger is stored as two objects: a data object, made of the data blocks read out by
+ * {@link BlockAwareSegmentInputStreamImpl}, and an index object, mapping entry ids to the data blocks.
+ * <p>
+ * The data object is written with a multipart upload, one part per block. Blocks are read from the ledger one at a
+ * time and up to maxConcurrentBlockUploads of them are uploaded in parallel, so the memory used by an offload is
+ * bounded to (maxConcurrentBlockUploads + 1) * maxBlockSize. None of the offload tasks wait for one another, so
+ * several ledgers can be offloaded concurrently with any number of scheduler threads.
+ */
 public class S3ManagedLedgerOffloader implements LedgerOffloader {
+    private static final Logger log = LoggerFactory.getLogger(S3ManagedLedgerOffloader.class);
+
     public static final String DRIVER_NAME = "S3";
+
+    // S3 requires all the parts of a multipart upload, except the last one, to be at least 5MB
+    static final int MIN_BLOCK_SIZE = 5 * 1024 * 1024;
+
     private final ScheduledExecutorService scheduler;
     private final AmazonS3 s3client;
     private final String bucket;
+    private final int maxBlockSize;
+    private final int maxConcurrentBlockUploads;
+    private final int readBufferSize;
 
     public S3ManagedLedgerOffloader(ServiceConfiguration conf,
                                     ScheduledExecutorService scheduler)
             throws PulsarServerException {
+        this(buildS3Client(conf), conf.getS3ManagedLedgerOffloadBucket(), scheduler,
+             conf.getS3ManagedLedgerOffloadMaxBlockSizeInBytes(),
+             conf.getS3ManagedLedgerOffloadMaxConcurrentBlockUploads(),
+             conf.getS3ManagedLedgerOffloadReadBufferSizeInBytes());
+    }
+
+    S3ManagedLedgerOffloader(AmazonS3 s3client, String bucket, ScheduledExecutorService scheduler,
+                             int maxBlockSize, int maxConcurrentBlockUploads, int readBufferSize)
+            throws PulsarServerException {
+        if (maxBlockSize < MIN_BLOCK_SIZE) {
+            throw new PulsarServerException("s3ManagedLedgerOffloadMaxBlockSizeInBytes cannot be less than "
+                    + MIN_BLOCK_SIZE);
+        }
+        if (maxConcurrentBlockUploads < 1) {
+            throw new PulsarServerException("s3ManagedLedgerOffloadMaxConcurrentBlockUploads must be at least 1");
+        }
+        if (readBufferSize < 1) {
+            throw new PulsarServerException("s3ManagedLedgerOffloadReadBufferSizeInBytes must be positive");
+        }
+        this.s3client = s3client;
+        this.bucket = bucket;
+        this.scheduler = scheduler;
+        this.maxBlockSize = maxBlockSize;
+        this.maxConcurrentBlockUploads = maxConcurrentBlockUploads;
+        this.readBufferSize = readBufferSize;
+    }
+
+    private static AmazonS3 buildS3Client(ServiceConfiguration conf) throws PulsarServerException {
         String region = conf.getS3ManagedLedgerOffloadRegion();
         String bucket = conf.getS3ManagedLedgerOffloadBucket();
         String endpoint = conf.getS3ManagedLedgerOffloadServiceEndpoint();
@@ -58,20 +128,31 @@ public class S3ManagedLedgerOffloader implements LedgerOffloader {
             builder.setEndpointConfiguration(new EndpointConfiguration(endpoint, region));
             builder.setPathStyleAccessEnabled(true);
         }
-        s3client = builder.build();
-        this.bucket = bucket;
-        this.scheduler = scheduler;
+        return builder.build();
+    }
+
+    static String dataBlockOffloadKey(long ledgerId, UUID uuid) {
+        return String.format("%s-ledger-%d", uuid.toString(), ledgerId);
+    }
+
+    static String indexBlockOffloadKey(long ledgerId, UUID uuid) {
+        return String.format("%s-ledger-%d-index", uuid.toString(), ledgerId);
     }
 
     @Override
-    public CompletableFuture<Void> offload(ReadHandle ledger,
-                                           UUID uid,
+    public CompletableFuture<Void> offload(ReadHandle readHandle,
+                                           UUID uuid,
                                            Map<String, String> extraMetadata) {
         CompletableFuture<Void> promise = new CompletableFuture<>();
         scheduler.submit(() -> {
                 try {
-                    s3client.putObject(bucket, uid.toString(), uid.toString());
-                    promise.complete(null);
+                    if (readHandle.getLastAddConfirmed() < 0) {
+                        throw new IllegalArgumentException("Ledger " + readHandle.getId() + " is empty");
+                    }
+                    String dataBlockKey = dataBlockOffloadKey(readHandle.getId(), uuid);
+                    InitiateMultipartUploadResult mpu = s3client.initiateMultipartUpload(
+                            new InitiateMultipartUploadRequest(bucket, dataBlockKey, new ObjectMetadata()));
+                    new OffloadTask(readHandle, uuid, extraMetadata, mpu.getUploadId(), promise).readNextBlock();
                 } catch (Throwable t) {
                     promise.completeExceptionally(t);
                 }
@@ -79,19 +160,205 @@ public class S3ManagedLedgerOffloader implements LedgerOffloader {
         return promise;
     }
 
+    /**
+     * Offload of one ledger. Each step runs as a separate task on the scheduler: reading a block, uploading a block,
+     * and, once all blocks are uploaded, completing the upload and writing the index.
+     */
+    private class OffloadTask {
+        private final ReadHandle readHandle;
+        private final UUID uuid;
+        private final Map<String, String> extraMetadata;
+        private final String dataBlockKey;
+        private final String uploadId;
+        private final CompletableFuture<Void> promise;
+        private final OffloadIndexBlockBuilder indexBuilder;
+
+        // Only accessed by the block reading task, which is never running concurrently with itself
+        private long nextEntryId = 0;
+        private long entryBytesWritten = 0;
+        private int nextPartId = 1;
+
+        // Guarded by this
+        private final List<PartETag> partETags = new ArrayList<>();
+        private int uploadsInFlight = 0;
+        private boolean readerWaiting = false;
+        private boolean allBlocksRead = false;
+
+        OffloadTask(ReadHandle readHandle, UUID uuid, Map<String, String> extraMetadata, String uploadId,
+                    CompletableFuture<Void> promise) {
+            this.readHandle = readHandle;
+            this.uuid = uuid;
+            this.extraMetadata = extraMetadata;
+            this.dataBlockKey = dataBlockOffloadKey(readHandle.getId(), uuid);
+            this.uploadId = uploadId;
+            this.promise = promise;
+            this.indexBuilder = OffloadIndexBlockBuilder.create().withMetadata(readHandle.getLedgerMetadata());
+        }
+
+        void readNextBlock() {
+            if (promise.isDone()) {
+                return;
+            }
+            ByteBuf block = null;
+            try {
+                int blockSize = BlockAwareSegmentInputStreamImpl.calculateBlockSize(
+                        maxBlockSize, readHandle, nextEntryId, entryBytesWritten);
+                block = PooledByteBufAllocator.DEFAULT.buffer(blockSize, blockSize);
+                long endEntryId;
+                try (BlockAwareSegmentInputStream blockStream = new BlockAwareSegmentInputStreamImpl(
+                        readHandle, nextEntryId, blockSize)) {
+                    while (block.isWritable()) {
+                        if (block.writeBytes(blockStream, block.writableBytes()) < 0) {
+                            throw new IOException("Unexpected end of block of ledger " + readHandle.getId()
+                                    + " at entry " + nextEntryId);
+                        }
+                    }
+                    endEntryId = blockStream.getEndEntryId();
+                    if (endEntryId == -1) {
+                        throw new IOException("Entry " + nextEntryId + " of ledger " + readHandle.getId()
+                                + " does not fit in a block of " + blockSize + " bytes");
+                    }
+                    entryBytesWritten += blockStream.getBlockEntryBytesCount();
+                }
+
+                int partId = nextPartId++;
+                indexBuilder.addBlock(nextEntryId, partId, blockSize);
+                nextEntryId = endEntryId + 1;
+
+                boolean readNext;
+                synchronized (this) {
+                    uploadsInFlight++;
+                    allBlocksRead = nextEntryId > readHandle.getLastAddConfirmed();
+                    readNext = !allBlocksRead && uploadsInFlight < maxConcurrentBlockUploads;
+                    readerWaiting = !allBlocksRead && !readNext;
+                }
+
+                final ByteBuf blockToUpload = block;
+                block = null;
+                scheduler.submit(() -> uploadBlock(blockToUpload, partId));
+                if (readNext) {
+                    scheduler.submit(this::readNextBlock);
+                }
+            } catch (Throwable t) {
+                if (block != null) {
+                    block.release();
+                }
+                fail(t);
+            }
+        }
+
+        private void uploadBlock(ByteBuf block, int partId) {
+            try {
+                if (promise.isDone()) {
+                    return;
+                }
+                int blockSize = block.readableBytes();
+                UploadPartResult uploadRes = s3client.uploadPart(new UploadPartRequest()
+                        .withBucketName(bucket)
+                        .withKey(dataBlockKey)
+                        .withUploadId(uploadId)
+                        .withInputStream(new ByteBufInputStream(block))
+                        .withPartSize(blockSize)
+                        .withPartNumber(partId));
+                if (log.isDebugEnabled()) {
+                    log.debug("Uploaded part {} of ledger {} ({} bytes)", partId, readHandle.getId(), blockSize);
+                }
+
+                boolean readNext;
+                boolean complete;
+                synchronized (this) {
+                    partETags.add(uploadRes.getPartETag());
+                    uploadsInFlight--;
+                    readNext = readerWaiting;
+                    readerWaiting = false;
+                    complete = allBlocksRead && uploadsInFlight == 0;
+                }
+                if (readNext) {
+                    scheduler.submit(this::readNextBlock);
+                } else if (complete) {
+                    scheduler.submit(this::complete);
+                }
+            } catch (Throwable t) {
+                fail(t);
+            } finally {
+                block.release();
+            }
+        }
+
+        private void complete() {
+            try {
+                List<PartETag> etags;
+                synchronized (this) {
+                    etags = new ArrayList<>(partETags);
+                }
+                etags.sort(Comparator.comparingInt(PartETag::getPartNumber));
+                s3client.completeMultipartUpload(
+                        new CompleteMultipartUploadRequest(bucket, dataBlockKey, uploadId, etags));
+            } catch (Throwable t) {
+                fail(t);
+                return;
+            }
+
+            // The index is written last, a ledger without index is an incomplete offload
+            try (OffloadIndexBlock index = indexBuilder.build();
+                 InputStream indexStream = index.toStream()) {
+                ObjectMetadata metadata = new ObjectMetadata();
+                extraMetadata.forEach(metadata::addUserMetadata);
+                metadata.setContentLength(indexStream.available());
+                s3client.putObject(bucket, indexBlockOffloadKey(readHandle.getId(), uuid), indexStream, metadata);
+                promise.complete(null);
+            } catch (Throwable t) {
+                log.error("Failed to write index of ledger {}", readHandle.getId(), t);
+                try {
+                    s3client.deleteObject(bucket, dataBlockKey);
+                } catch (Throwable deleteError) {
+                    log.warn("Failed to delete data of ledger {}", readHandle.getId(), deleteError);
+                }
+                promise.completeExceptionally(t);
+            }
+        }
+
+        private void fail(Throwable t) {
+            if (!promise.completeExceptionally(t)) {
+                return;
+            }
+            log.error("Failed to offload ledger {}", readHandle.getId(), t);
+            try {
+                s3client.abortMultipartUpload(new AbortMultipartUploadRequest(bucket, dataBlockKey, uploadId));
+            } catch (Throwable abortError) {
+                log.warn("Failed to abort upload {} of ledger {}", uploadId, readHandle.getId(), abortError);
+            }
+        }
+    }
+
     @Override
     public CompletableFuture<ReadHandle> readOffloaded(long ledgerId, UUID uid) {
+        String key = dataBlockOffloadKey(ledgerId, uid);
+        String indexKey = indexBlockOffloadKey(ledgerId, uid);
         CompletableFuture<ReadHandle> promise = new CompletableFuture<>();
-        promise.completeExceptionally(new UnsupportedOperationException());
+        scheduler.submit(() -> {
+                try {
+                    promise.complete(S3BackedReadHandleImpl.open(scheduler, s3client, bucket, key, indexKey,
+                            ledgerId, readBufferSize));
+                } catch (Throwable t) {
+                    promise.completeExceptionally(t);
+                }
+            });
         return promise;
     }
 
     @Override
     public CompletableFuture<Void> deleteOffloaded(long ledgerId, UUID uid) {
         CompletableFuture<Void> promise = new CompletableFuture<>();
-        promise.completeExceptionally(new UnsupportedOperationException());
+        scheduler.submit(() -> {
+                try {
+                    s3client.deleteObjects(new DeleteObjectsRequest(bucket)
+                            .withKeys(dataBlockOffloadKey(ledgerId, uid), indexBlockOffloadKey(ledgerId, uid)));
+                    promise.complete(null);
+                } catch (Throwable t) {
+                    promise.completeExceptionally(t);
+                }
+            });
         return promise;
     }
 }
-
-
@@ -78,8 +78,8 @@ public class BlockAwareSegmentInputStreamImpl extends BlockAwareSegmentInputStre
         this.entriesByteBuf = Lists.newLinkedList();
     }
 
-    // read ledger entries.
-    private int readEntries() throws IOException {
+    // Get the entry being read out, or null once no more entries fit in the block and only padding is left.
+    private ByteBuf nextEntryToRead() throws IOException {
         checkState(bytesReadOffset >= DataBlockHeaderImpl.getDataStartOffset());
         checkState(bytesReadOffset < blockSize);
 
@@ -91,25 +91,41 @@ public class BlockAwareSegmentInputStreamImpl extends BlockAwareSegmentInputStre
         }
 
         if (!entriesByteBuf.isEmpty() && bytesReadOffset + entriesByteBuf.get(0).readableBytes() <= blockSize) {
-            // always read from the first ByteBuf in the list, once read all of its content remove it.
-            ByteBuf entryByteBuf = entriesByteBuf.get(0);
-            int ret = entryByteBuf.readByte();
-            bytesReadOffset++;
+            // always read from the first ByteBuf in the list
+            return entriesByteBuf.get(0);
+        }
 
-            if (entryByteBuf.readableBytes() == 0) {
-                entryByteBuf.release();
-                entriesByteBuf.remove(0);
-                blockEntryCount++;
-            }
+        // no space for a new entry or there are no more entries
+        // set data block full, return end padding
+        if (dataBlockFullOffset == blockSize) {
+            dataBlockFullOffset = bytesReadOffset;
+        }
+        return null;
+    }
+
+    // once read all of the content of the entry, remove it.
+    private void entryReadOut(ByteBuf entryByteBuf) {
+        if (entryByteBuf.readableBytes() == 0) {
+            entryByteBuf.release();
+            entriesByteBuf.remove(0);
+            blockEntryCount++;
+        }
+    }
 
+    private byte nextPaddingByte() {
+        return BLOCK_END_PADDING[(bytesReadOffset++ - dataBlockFullOffset) % BLOCK_END_PADDING.length];
+    }
+
+    // read ledger entries.
+    private int readEntries() throws IOException {
+        ByteBuf entryByteBuf = nextEntryToRead();
+        if (entryByteBuf != null) {
+            int ret = entryByteBuf.readByte();
+            bytesReadOffset++;
+            entryReadOut(entryByteBuf);
             return ret;
         } else {
-            // no space for a new entry or there are no more entries
-            // set data block full, return end padding
-            if (dataBlockFullOffset == blockSize) {
-                dataBlockFullOffset = bytesReadOffset;
-            }
-            return BLOCK_END_PADDING[(bytesReadOffset++ - dataBlockFullOffset) % BLOCK_END_PADDING.length];
+            return nextPaddingByte();
         }
     }
 
@@ -161,6 +177,41 @@ public class BlockAwareSegmentInputStreamImpl extends BlockAwareSegmentInputStre
         return -1;
     }
 
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+
+        // reading header
+        if (dataBlockHeaderStream.available() > 0) {
+            int ret = dataBlockHeaderStream.read(b, off, len);
+            bytesReadOffset += ret;
+            return ret;
+        }
+
+        // reached end
+        if (bytesReadOffset >= blockSize) {
+            return -1;
+        }
+
+        // reading Ledger entries, copying as much as possible from each entry buffer.
+        int bytesRead = 0;
+        while (bytesRead < len && bytesReadOffset < blockSize) {
+            ByteBuf entryByteBuf = nextEntryToRead();
+            if (entryByteBuf != null) {
+                int bytesToCopy = Math.min(len - bytesRead, entryByteBuf.readableBytes());
+                entryByteBuf.readBytes(b, off + bytesRead, bytesToCopy);
+                bytesReadOffset += bytesToCopy;
+                bytesRead += bytesToCopy;
+                entryReadOut(entryByteBuf);
+            } else {
+                b[off + bytesRead++] = nextPaddingByte();
+            }
+        }
+        return bytesRead;
+    }
+
     @Override
     public void close() throws IOException {
         super.close();
@@ -209,5 +260,23 @@ public class BlockAwareSegmentInputStreamImpl extends BlockAwareSegmentInputStre
         return BLOCK_END_PADDING;
     }
 
+    /**
+     * Get the size of the next block to write, so that a ledger is split in blocks of maxBlockSize, except the last
+     * one which is only as large as the remaining entries.
+     *
+     * @param maxBlockSize the max size of a block
+     * @param readHandle the ledger being written
+     * @param firstEntryToWrite the first entry of the next block
+     * @param entryBytesAlreadyWritten the bytes of the entries already written in the previous blocks
+     * @return the block size
+     */
+    public static int calculateBlockSize(int maxBlockSize, ReadHandle readHandle,
+                                         long firstEntryToWrite, long entryBytesAlreadyWritten) {
+        return (int) Math.min(maxBlockSize,
+            (readHandle.getLength() - entryBytesAlreadyWritten)
+            + ((readHandle.getLastAddConfirmed() - firstEntryToWrite + 1) * ENTRY_HEADER_SIZE)
+            + DataBlockHeaderImpl.getDataStartOffset());
+    }
+
 }
 
@@ -111,6 +111,11 @@ public class OffloadIndexBlockImpl implements OffloadIndexBlock {
         return this.indexEntries.size();
     }
 
+    @Override
+    public List<OffloadIndexEntry> getIndexEntries() {
+        return new ArrayList<>(this.indexEntries.values());
+    }
+
     @Override
     public LedgerMetadata getLedgerMetadata() {
         return this.segmentMetadata;
@@ -0,0 +1,250 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.broker.s3offload.impl;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.S3Object;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.pulsar.broker.s3offload.S3BackedInputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * S3BackedInputStream fetching the object with ranged GETs of bufferSize bytes.
+ * <p>
+ * When a range is fetched, the next one is read ahead in the background, so that sequential reads of an offloaded
+ * ledger do not wait for a round trip to S3 every bufferSize bytes. A seek within the current range does not cause
+ * any request.
+ */
+public class S3BackedInputStreamImpl extends S3BackedInputStream {
+    private static final Logger log = LoggerFactory.getLogger(S3BackedInputStreamImpl.class);
+
+    private final AmazonS3 s3client;
+    private final String bucket;
+    private final String key;
+    private final long objectLen;
+    private final int bufferSize;
+    private final ExecutorService executor;
+
+    // Range of the object currently buffered, starting at bufferStart
+    private ByteBuf buffer = null;
+    private long bufferStart = -1;
+    // Position in the object of the next byte to read
+    private long cursor = 0;
+
+    private ReadAhead readAhead = null;
+
+    public S3BackedInputStreamImpl(AmazonS3 s3client, String bucket, String key, long objectLen, int bufferSize,
+                                   ExecutorService executor) {
+        this.s3client = s3client;
+        this.bucket = bucket;
+        this.key = key;
+        this.objectLen = objectLen;
+        this.bufferSize = bufferSize;
+        this.executor = executor;
+    }
+
+    /**
+     * Background fetch of the range following the buffered one.
+     */
+    private class ReadAhead {
+        static final int PENDING = 0;
+        static final int RUNNING = 1;
+        static final int CANCELLED = 2;
+
+        final long start;
+        final AtomicInteger state = new AtomicInteger(PENDING);
+        final CompletableFuture<ByteBuf> future = new CompletableFuture<>();
+
+        ReadAhead(long start) {
+            this.start = start;
+            executor.submit(() -> {
+                if (!state.compareAndSet(PENDING, RUNNING)) {
+                    return;
+                }
+                try {
+                    future.complete(fetch(start));
+                } catch (Throwable t) {
+                    future.completeExceptionally(t);
+                }
+            });
+        }
+
+        /**
+         * Get the range if it has been, or is being, fetched. Returns null if the fetch did not start yet, in which
+         * case it is cancelled, rather than waiting for a task that could be queued behind the current thread.
+         */
+        ByteBuf take() throws IOException {
+            if (state.compareAndSet(PENDING, CANCELLED)) {
+                return null;
+            }
+            try {
+                return future.join();
+            } catch (CompletionException e) {
+                log.warn("Read ahead of {} at {} failed, retrying", key, start, e.getCause());
+                return null;
+            }
+        }
+
+        void discard() {
+            if (!state.compareAndSet(PENDING, CANCELLED)) {
+                future.thenAccept(ByteBuf::release);
+            }
+        }
+    }
+
+    private ByteBuf fetch(long start) throws IOException {
+        long end = Math.min(start + bufferSize, objectLen) - 1;
+        int len = (int) (end - start + 1);
+        GetObjectRequest req = new GetObjectRequest(bucket, key).withRange(start, end);
+        try (S3Object obj = s3client.getObject(req); InputStream stream = obj.getObjectContent()) {
+            ByteBuf buf = PooledByteBufAllocator.DEFAULT.buffer(len, len);
+            try {
+                while (buf.isWritable()) {
+                    if (buf.writeBytes(stream, buf.writableBytes()) < 0) {
+                        throw new EOFException("Unexpected end of " + key + " at " + (start + buf.readableBytes()));
+                    }
+                }
+                return buf;
+            } catch (IOException | RuntimeException e) {
+                buf.release();
+                throw e;
+            }
+        } catch (AmazonClientException e) {
+            throw new IOException("Error reading " + key + " range " + start + "-" + end, e);
+        }
+    }
+
+    /**
+     * Make sure there are bytes to read at the cursor in the buffer.
+     *
+     * @return false if the end of the object has been reached
+     */
+    private boolean refillBufferIfNeeded() throws IOException {
+        if (buffer != null && buffer.isReadable()) {
+            return true;
+        }
+        if (cursor >= objectLen) {
+            return false;
+        }
+
+        ByteBuf next = null;
+        if (readAhead != null) {
+            if (readAhead.start == cursor) {
+                next = readAhead.take();
+            } else {
+                readAhead.discard();
+            }
+            readAhead = null;
+        }
+        if (next == null) {
+            next = fetch(cursor);
+        }
+
+        if (buffer != null) {
+            buffer.release();
+        }
+        buffer = next;
+        bufferStart = cursor;
+
+        long nextStart = bufferStart + buffer.readableBytes();
+        if (nextStart < objectLen) {
+            readAhead = new ReadAhead(nextStart);
+        }
+        return true;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!refillBufferIfNeeded()) {
+            return -1;
+        }
+        cursor++;
+        return buffer.readUnsignedByte();
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!refillBufferIfNeeded()) {
+            return -1;
+        }
+        int bytesToRead = Math.min(len, buffer.readableBytes());
+        buffer.readBytes(b, off, bytesToRead);
+        cursor += bytesToRead;
+        return bytesToRead;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = Math.max(0, Math.min(n, objectLen - cursor));
+        seek(cursor + skipped);
+        return skipped;
+    }
+
+    @Override
+    public int available() {
+        return buffer != null ? buffer.readableBytes() : 0;
+    }
+
+    @Override
+    public void seek(long position) {
+        if (log.isDebugEnabled()) {
+            log.debug("Seeking {} to {}, current position {}", key, position, cursor);
+        }
+        if (buffer != null && position >= bufferStart && position < bufferStart + buffer.writerIndex()) {
+            buffer.readerIndex((int) (position - bufferStart));
+        } else if (buffer != null) {
+            // The read ahead is kept, it is used if the position is at its start
+            buffer.release();
+            buffer = null;
+            bufferStart = -1;
+        }
+        cursor = position;
+    }
+
+    @Override
+    public long getPosition() {
+        return cursor;
+    }
+
+    @Override
+    public void close() {
+        if (buffer != null) {
+            buffer.release();
+            buffer = null;
+        }
+        if (readAhead != null) {
+            readAhead.discard();
+            readAhead = null;
+        }
+    }
+}
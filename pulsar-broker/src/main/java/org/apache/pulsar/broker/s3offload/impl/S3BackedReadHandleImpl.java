@@ -0,0 +1,236 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.broker.s3offload.impl;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.S3Object;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import org.apache.bookkeeper.client.BKException;
+import org.apache.bookkeeper.client.api.LastConfirmedAndEntry;
+import org.apache.bookkeeper.client.api.LedgerEntries;
+import org.apache.bookkeeper.client.api.LedgerEntry;
+import org.apache.bookkeeper.client.api.LedgerMetadata;
+import org.apache.bookkeeper.client.api.ReadHandle;
+import org.apache.bookkeeper.client.impl.LedgerEntriesImpl;
+import org.apache.bookkeeper.client.impl.LedgerEntryImpl;
+import org.apache.pulsar.broker.offload.OffloadedLastConfirmedAndEntry;
+import org.apache.pulsar.broker.s3offload.OffloadIndexBlock;
+import org.apache.pulsar.broker.s3offload.OffloadIndexBlockBuilder;
+import org.apache.pulsar.broker.s3offload.S3BackedInputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * ReadHandle of a ledger offloaded to S3.
+ * <p>
+ * The index block is loaded when opening the handle, and used to find the data block containing the first entry of a
+ * read. Entries are then read sequentially from the data object, through a S3BackedInputStream doing ranged reads.
+ * Reads of a handle are serialized, and a read starting right after the previous one does not need any seek.
+ */
+public class S3BackedReadHandleImpl implements ReadHandle {
+    private static final Logger log = LoggerFactory.getLogger(S3BackedReadHandleImpl.class);
+
+    private final long ledgerId;
+    private final OffloadIndexBlock index;
+    private final S3BackedInputStream inputStream;
+    private final DataInputStream dataStream;
+    private final ExecutorService executor;
+
+    // Entry located at the current position of the input stream, -1 if unknown
+    private long nextEntryIdAtPosition = -1;
+
+    private S3BackedReadHandleImpl(long ledgerId, OffloadIndexBlock index,
+                                   S3BackedInputStream inputStream, ExecutorService executor) {
+        this.ledgerId = ledgerId;
+        this.index = index;
+        this.inputStream = inputStream;
+        this.dataStream = new DataInputStream(inputStream);
+        this.executor = executor;
+    }
+
+    @Override
+    public long getId() {
+        return ledgerId;
+    }
+
+    @Override
+    public LedgerMetadata getLedgerMetadata() {
+        return index.getLedgerMetadata();
+    }
+
+    @Override
+    public CompletableFuture<Void> closeAsync() {
+        CompletableFuture<Void> promise = new CompletableFuture<>();
+        executor.submit(() -> {
+                synchronized (this) {
+                    try {
+                        index.close();
+                        inputStream.close();
+                        promise.complete(null);
+                    } catch (IOException t) {
+                        promise.completeExceptionally(t);
+                    }
+                }
+            });
+        return promise;
+    }
+
+    @Override
+    public CompletableFuture<LedgerEntries> readAsync(long firstEntry, long lastEntry) {
+        if (log.isDebugEnabled()) {
+            log.debug("Ledger {}: reading {} - {}", getId(), firstEntry, lastEntry);
+        }
+        CompletableFuture<LedgerEntries> promise = new CompletableFuture<>();
+        if (firstEntry > lastEntry || firstEntry < 0 || lastEntry > getLastAddConfirmed()) {
+            promise.completeExceptionally(new BKException.BKIncorrectParameterException());
+            return promise;
+        }
+        executor.submit(() -> {
+                List<LedgerEntry> entries = new ArrayList<>((int) (lastEntry - firstEntry + 1));
+                try {
+                    synchronized (this) {
+                        readEntries(firstEntry, lastEntry, entries);
+                    }
+                    promise.complete(LedgerEntriesImpl.create(entries));
+                } catch (Throwable t) {
+                    log.warn("Ledger {}: failed to read {} - {}", getId(), firstEntry, lastEntry, t);
+                    entries.forEach(LedgerEntry::close);
+                    promise.completeExceptionally(t);
+                }
+            });
+        return promise;
+    }
+
+    private void readEntries(long firstEntry, long lastEntry, List<LedgerEntry> entries) throws IOException {
+        long nextExpectedId = firstEntry;
+        long blockStart;
+        if (nextEntryIdAtPosition == nextExpectedId) {
+            // The stream is right after the previous entry, which might be the last one of its block
+            blockStart = getBlockStart(nextExpectedId - 1);
+        } else {
+            blockStart = getBlockStart(nextExpectedId);
+            inputStream.seek(blockStart + DataBlockHeaderImpl.getDataStartOffset());
+        }
+        nextEntryIdAtPosition = -1;
+
+        while (nextExpectedId <= lastEntry) {
+            int length = dataStream.readInt();
+            if (length < 0) {
+                // Reached the padding at the end of the block, or the header of the next block
+                long nextBlockStart = getBlockStart(nextExpectedId);
+                if (nextBlockStart <= blockStart) {
+                    throw new IOException("Entry " + nextExpectedId + " not found in ledger " + ledgerId
+                            + " block at " + blockStart);
+                }
+                blockStart = nextBlockStart;
+                inputStream.seek(blockStart + DataBlockHeaderImpl.getDataStartOffset());
+                continue;
+            }
+            long entryId = dataStream.readLong();
+
+            if (entryId == nextExpectedId) {
+                ByteBuf buf = PooledByteBufAllocator.DEFAULT.buffer(length, length);
+                entries.add(LedgerEntryImpl.create(ledgerId, entryId, length, buf));
+                while (buf.isWritable()) {
+                    if (buf.writeBytes(dataStream, buf.writableBytes()) < 0) {
+                        throw new EOFException("Unexpected end of ledger " + ledgerId + " data, reading entry "
+                                + entryId);
+                    }
+                }
+                nextExpectedId++;
+            } else if (entryId < nextExpectedId) {
+                // Entry before the first one to read, in the same block
+                if (inputStream.skip(length) != length) {
+                    throw new EOFException("Unexpected end of ledger " + ledgerId + " data, skipping entry "
+                            + entryId);
+                }
+            } else {
+                throw new IOException("Unexpected entry " + entryId + " in ledger " + ledgerId + " data, expected "
+                        + nextExpectedId);
+            }
+        }
+        nextEntryIdAtPosition = nextExpectedId;
+    }
+
+    private long getBlockStart(long entryId) throws IOException {
+        return index.getIndexEntryForEntry(entryId).getOffset();
+    }
+
+    @Override
+    public CompletableFuture<LedgerEntries> readUnconfirmedAsync(long firstEntry, long lastEntry) {
+        return readAsync(firstEntry, lastEntry);
+    }
+
+    @Override
+    public CompletableFuture<Long> readLastAddConfirmedAsync() {
+        return CompletableFuture.completedFuture(getLastAddConfirmed());
+    }
+
+    @Override
+    public CompletableFuture<Long> tryReadLastAddConfirmedAsync() {
+        return CompletableFuture.completedFuture(getLastAddConfirmed());
+    }
+
+    @Override
+    public long getLastAddConfirmed() {
+        return getLedgerMetadata().getLastEntryId();
+    }
+
+    @Override
+    public long getLength() {
+        return getLedgerMetadata().getLength();
+    }
+
+    @Override
+    public boolean isClosed() {
+        return getLedgerMetadata().isClosed();
+    }
+
+    @Override
+    public CompletableFuture<LastConfirmedAndEntry> readLastAddConfirmedAndEntryAsync(long entryId,
+                                                                                      long timeOutInMillis,
+                                                                                      boolean parallel) {
+        // The offloaded ledger is closed, there is nothing to wait for
+        return OffloadedLastConfirmedAndEntry.read(this, entryId);
+    }
+
+    public static ReadHandle open(ExecutorService executor, AmazonS3 s3client, String bucket, String key,
+                                  String indexKey, long ledgerId, int readBufferSize)
+            throws AmazonClientException, IOException {
+        OffloadIndexBlock index;
+        try (S3Object obj = s3client.getObject(bucket, indexKey)) {
+            index = OffloadIndexBlockBuilder.create().fromStream(obj.getObjectContent());
+        }
+
+        ObjectMetadata dataMetadata = s3client.getObjectMetadata(bucket, key);
+        S3BackedInputStream inputStream = new S3BackedInputStreamImpl(s3client, bucket, key,
+                dataMetadata.getContentLength(), readBufferSize, executor);
+        return new S3BackedReadHandleImpl(ledgerId, index, inputStream, executor);
+    }
+}
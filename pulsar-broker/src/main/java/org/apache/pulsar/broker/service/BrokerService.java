@@ -101,12 +101,14 @@ import org.apache.pulsar.client.impl.ClientBuilderImpl;
 import org.apache.pulsar.client.impl.PulsarClientImpl;
 import org.apache.pulsar.client.impl.conf.ClientConfigurationData;
 import org.apache.pulsar.common.configuration.FieldContext;
+import org.apache.pulsar.common.lookup.data.LookupData;
 import org.apache.pulsar.common.naming.NamespaceBundle;
 import org.apache.pulsar.common.naming.NamespaceBundleFactory;
 import org.apache.pulsar.common.naming.NamespaceName;
 import org.apache.pulsar.common.naming.TopicDomain;
 import org.apache.pulsar.common.naming.TopicName;
 import org.apache.pulsar.common.policies.data.ClusterData;
+import org.apache.pulsar.common.policies.data.OffloadPolicies;
 import org.apache.pulsar.common.policies.data.PersistencePolicies;
 import org.apache.pulsar.common.policies.data.PersistentOfflineTopicStats;
 import org.apache.pulsar.common.policies.data.Policies;
@@ -141,6 +143,9 @@ public class BrokerService implements Closeable, ZooKeeperCacheListener<Policies
 
     private final ConcurrentOpenHashMap<String, PulsarClient> replicationClients;
 
+    // New owners of the bundles being handed off, announced to the clients of their topics once they own the bundles
+    private final ConcurrentOpenHashMap<NamespaceBundle, CompletableFuture<LookupData>> bundleHandoffs;
+
     // Multi-layer topics map:
     // Namespace --> Bundle --> topicName --> topic
     private final ConcurrentOpenHashMap<String, ConcurrentOpenHashMap<String, ConcurrentOpenHashMap<String, Topic>>> multiLayerTopicsMap;
@@ -165,6 +170,7 @@ public class BrokerService implements Closeable, ZooKeeperCacheListener<Policies
 
     private final ScheduledExecutorService inactivityMonitor;
     private final ScheduledExecutorService messageExpiryMonitor;
+    private final ScheduledExecutorService offloadMonitor;
 
     private DistributedIdGenerator producerNameGenerator;
 
@@ -194,6 +200,7 @@ public class BrokerService implements Closeable, ZooKeeperCacheListener<Policies
         this.tlsPort = new URI(pulsar.getBrokerServiceUrlTls()).getPort();
         this.topics = new ConcurrentOpenHashMap<>();
         this.replicationClients = new ConcurrentOpenHashMap<>();
+        this.bundleHandoffs = new ConcurrentOpenHashMap<>();
         this.keepAliveIntervalSeconds = pulsar.getConfiguration().getKeepAliveIntervalSeconds();
         this.configRegisteredListeners = new ConcurrentOpenHashMap<>();
         this.pendingTopicLoadingQueue = Queues.newConcurrentLinkedQueue();
@@ -227,6 +234,8 @@ public class BrokerService implements Closeable, ZooKeeperCacheListener<Policies
                 .newSingleThreadScheduledExecutor(new DefaultThreadFactory("pulsar-inactivity-monitor"));
         this.messageExpiryMonitor = Executors
                 .newSingleThreadScheduledExecutor(new DefaultThreadFactory("pulsar-msg-expiry-monitor"));
+        this.offloadMonitor = Executors
+                .newSingleThreadScheduledExecutor(new DefaultThreadFactory("pulsar-offload-monitor"));
         this.backlogQuotaManager = new BacklogQuotaManager(pulsar);
         this.backlogQuotaChecker = Executors
                 .newSingleThreadScheduledExecutor(new DefaultThreadFactory("pulsar-backlog-quota-checker"));
@@ -304,6 +313,7 @@ public class BrokerService implements Closeable, ZooKeeperCacheListener<Policies
         this.startInactivityMonitor();
         this.startMessageExpiryMonitor();
         this.startBacklogQuotaChecker();
+        this.startOffloadMonitor();
         // register listener to capture zk-latency
         ClientCnxnAspect.addListener(zkStatsListener);
         ClientCnxnAspect.registerExecutor(pulsar.getExecutor());
@@ -344,6 +354,13 @@ public class BrokerService implements Closeable, ZooKeeperCacheListener<Policies
                 TimeUnit.MINUTES);
     }
 
+    void startOffloadMonitor() {
+        int interval = pulsar().getConfiguration().getManagedLedgerOffloadCheckIntervalInSeconds();
+        if (interval > 0) {
+            offloadMonitor.scheduleAtFixedRate(safeRun(this::checkOffload), interval, interval, TimeUnit.SECONDS);
+        }
+    }
+
     void startBacklogQuotaChecker() {
         if (pulsar().getConfiguration().isBacklogQuotaCheckEnabled()) {
             final int interval = pulsar().getConfiguration().getBacklogQuotaCheckIntervalInSeconds();
@@ -381,6 +398,7 @@ public class BrokerService implements Closeable, ZooKeeperCacheListener<Policies
         statsUpdater.shutdown();
         inactivityMonitor.shutdown();
         messageExpiryMonitor.shutdown();
+        offloadMonitor.shutdown();
         backlogQuotaChecker.shutdown();
         authenticationService.close();
         pulsarStats.close();
@@ -723,6 +741,10 @@ public class BrokerService implements Closeable, ZooKeeperCacheListener<Policies
             managedLedgerConfig.setRetentionSizeInMB(retentionPolicies.getRetentionSizeInMB());
 
             managedLedgerConfig.setLedgerOffloader(pulsar.getManagedLedgerOffloader());
+            long offloadDeletionLagInMillis = policies.map(p -> p.offload_policies)
+                    .map(OffloadPolicies::getOffloadDeletionLagInMillis).filter(lag -> lag >= 0)
+                    .orElse(serviceConfig.getManagedLedgerOffloadDeletionLagInMillis());
+            managedLedgerConfig.setOffloadLedgerDeletionLag(offloadDeletionLagInMillis, TimeUnit.MILLISECONDS);
 
             future.complete(managedLedgerConfig);
         }, (exception) -> future.completeExceptionally(exception)));
@@ -830,6 +852,14 @@ public class BrokerService implements Closeable, ZooKeeperCacheListener<Policies
         forEachTopic(Topic::checkMessageExpiry);
     }
 
+    public void checkOffload() {
+        forEachTopic(topic -> {
+            if (topic instanceof PersistentTopic) {
+                ((PersistentTopic) topic).checkOffload();
+            }
+        });
+    }
+
     public void checkMessageDeduplicationInfo() {
         forEachTopic(Topic::checkMessageDeduplicationInfo);
     }
@@ -935,6 +965,32 @@ public class BrokerService implements Closeable, ZooKeeperCacheListener<Policies
         return result;
     }
 
+    /**
+     * Register a bundle being handed off to another broker. The producers and consumers of its topics are told to
+     * reconnect once the handoff completes, to the new owner if it succeeds.
+     */
+    public void addBundleHandoff(NamespaceBundle bundle, CompletableFuture<LookupData> handoff) {
+        bundleHandoffs.put(bundle, handoff);
+        handoff.whenComplete((target, ex) -> bundleHandoffs.remove(bundle, handoff));
+    }
+
+    /**
+     * Get the handoff of the bundle of the topic, if it is being handed off.
+     */
+    public Optional<CompletableFuture<LookupData>> getBundleHandoff(String topic) {
+        if (bundleHandoffs.isEmpty()) {
+            return Optional.empty();
+        }
+        TopicName topicName = TopicName.get(topic);
+        AtomicReference<CompletableFuture<LookupData>> handoff = new AtomicReference<>();
+        bundleHandoffs.forEach((bundle, bundleHandoff) -> {
+            if (bundle.includes(topicName)) {
+                handoff.set(bundleHandoff);
+            }
+        });
+        return Optional.ofNullable(handoff.get());
+    }
+
     public AuthorizationService getAuthorizationService() {
         return authorizationService;
     }
@@ -47,15 +47,18 @@ import org.apache.bookkeeper.mledger.impl.PositionImpl;
 import org.apache.bookkeeper.mledger.util.Rate;
 import org.apache.bookkeeper.util.collections.ConcurrentLongLongPairHashMap;
 import org.apache.bookkeeper.util.collections.ConcurrentLongLongPairHashMap.LongPair;
+import org.apache.commons.lang3.tuple.Pair;
 import org.apache.pulsar.broker.PulsarServerException;
 import org.apache.pulsar.broker.authentication.AuthenticationDataSource;
 import org.apache.pulsar.common.api.Commands;
 import org.apache.pulsar.common.api.proto.PulsarApi;
 import org.apache.pulsar.common.api.proto.PulsarApi.CommandAck;
 import org.apache.pulsar.common.api.proto.PulsarApi.CommandAck.AckType;
+import org.apache.pulsar.common.api.proto.PulsarApi.CommandAckRanges;
 import org.apache.pulsar.common.api.proto.PulsarApi.CommandSubscribe.InitialPosition;
 import org.apache.pulsar.common.api.proto.PulsarApi.CommandSubscribe.SubType;
 import org.apache.pulsar.common.api.proto.PulsarApi.MessageIdData;
+import org.apache.pulsar.common.api.proto.PulsarApi.MessageIdRange;
 import org.apache.pulsar.common.api.proto.PulsarApi.ProtocolVersion;
 import org.apache.pulsar.common.naming.TopicName;
 import org.apache.pulsar.common.policies.data.ConsumerStats;
@@ -234,6 +237,45 @@ public class Consumer {
             return sentMessages;
         }
 
+        writeEntries(ctx, entries, writePromise);
+        return sentMessages;
+    }
+
+    /**
+     * Dispatch an entry whose number of messages is already known, so that a non-persistent topic only parses the
+     * metadata of a message once for all its subscriptions. <br/>
+     * <b>It is also responsible to release entry data and recycle entry object.</b>
+     *
+     * @return a SendMessageInfo object that contains the detail of what was sent to consumer
+     */
+    public SendMessageInfo sendMessage(final Entry entry, final int batchSize) {
+        final ChannelHandlerContext ctx = cnx.ctx();
+        final SendMessageInfo sentMessages = new SendMessageInfo();
+        if (batchSize > 1 && !cnx.isBatchMessageCompatibleVersion()) {
+            log.warn("[{}] [{}] consumer doesn't support batch-message {}", subscription, consumerId,
+                    cnx.getRemoteEndpointProtocolVersion());
+            entry.release();
+            subscription.markTopicWithBatchMessagePublished();
+            disconnect();
+            return sentMessages;
+        }
+
+        if (pendingAcks != null) {
+            pendingAcks.put(entry.getLedgerId(), entry.getEntryId(), batchSize, 0);
+        }
+        final long readableBytes = entry.getDataBuffer().readableBytes();
+        MESSAGE_PERMITS_UPDATER.addAndGet(this, -batchSize);
+        incrementUnackedMessages(batchSize);
+        msgOut.recordMultipleEvents(batchSize, readableBytes);
+        sentMessages.totalSentMessages = batchSize;
+        sentMessages.totalSentMessageBytes = readableBytes;
+
+        writeEntries(ctx, Collections.singletonList(entry), ctx.voidPromise());
+        return sentMessages;
+    }
+
+    private void writeEntries(final ChannelHandlerContext ctx, final List<Entry> entries,
+            final ChannelPromise writePromise) {
         ctx.channel().eventLoop().execute(() -> {
             for (int i = 0; i < entries.size(); i++) {
                 Entry entry = entries.get(i);
@@ -268,8 +310,6 @@ public class Consumer {
 
             ctx.flush();
         });
-
-        return sentMessages;
     }
 
     private void incrementUnackedMessages(int ackedMessages) {
@@ -428,6 +468,34 @@ public class Consumer {
         }
     }
 
+    void messageAckedRanges(CommandAckRanges ackRanges) {
+        // Each range is validated on its own, so that a bad range doesn't make the broker drop the valid acks sent
+        // with it. The size of a range is bounded, since the pending acks of a shared subscription are removed entry
+        // by entry
+        long maxMessagesPerRange = cnx.getBrokerService().pulsar().getConfiguration().getMaxMessagesPerAckRange();
+        List<Pair<Position, Position>> rangesAcked = new ArrayList<>(ackRanges.getRangesCount());
+        for (int i = 0; i < ackRanges.getRangesCount(); i++) {
+            MessageIdRange range = ackRanges.getRanges(i);
+            long rangeMessages = range.getLastEntryId() - range.getFirstEntryId() + 1;
+            if (range.getFirstEntryId() < 0 || rangeMessages <= 0 || rangeMessages > maxMessagesPerRange) {
+                log.warn("[{}] [{}] Received invalid ack range {}:{}-{}, ignoring it", subscription, consumerId,
+                        range.getLedgerId(), range.getFirstEntryId(), range.getLastEntryId());
+                continue;
+            }
+            rangesAcked.add(Pair.of(PositionImpl.get(range.getLedgerId(), range.getFirstEntryId()),
+                    PositionImpl.get(range.getLedgerId(), range.getLastEntryId())));
+
+            if (subType == SubType.Shared) {
+                for (long entryId = range.getFirstEntryId(); entryId <= range.getLastEntryId(); entryId++) {
+                    removePendingAcks(PositionImpl.get(range.getLedgerId(), entryId));
+                }
+            }
+        }
+        if (!rangesAcked.isEmpty()) {
+            subscription.acknowledgeMessageRanges(rangesAcked);
+        }
+    }
+
     void flowPermits(int additionalNumberOfMessages) {
         checkArgument(additionalNumberOfMessages > 0);
 
@@ -29,6 +29,7 @@ import io.netty.buffer.ByteBuf;
 import io.netty.util.Recycler;
 import io.netty.util.Recycler.Handle;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
@@ -148,6 +149,21 @@ public class Producer {
             return;
         }
 
+        if (isRemote) {
+            headersAndPayload.markReaderIndex();
+            MessageMetadata msgMetadata = Commands.parseMessageMetadata(headersAndPayload);
+            try {
+                if (ReplicatedEntriesBatch.isBatch(msgMetadata)) {
+                    // headersAndPayload now points to the payload of the batch
+                    publishReplicatedEntries(producerId, sequenceId, msgMetadata, headersAndPayload, batchSize);
+                    return;
+                }
+            } finally {
+                msgMetadata.recycle();
+            }
+            headersAndPayload.resetReaderIndex();
+        }
+
         if (topic.isEncryptionRequired()) {
 
             headersAndPayload.markReaderIndex();
@@ -171,6 +187,62 @@ public class Producer {
                 MessagePublishContext.get(this, sequenceId, msgIn, headersAndPayload.readableBytes(), batchSize));
     }
 
+    /**
+     * Publish each of the entries of a batch sent by a replicator, and acknowledge the batch once all of them are
+     * persisted.
+     */
+    private void publishReplicatedEntries(long producerId, long sequenceId, MessageMetadata msgMetadata,
+            ByteBuf payload, long batchSize) {
+        int msgSize = payload.readableBytes();
+        List<ByteBuf> entries;
+        try {
+            entries = ReplicatedEntriesBatch.getEntries(msgMetadata, payload);
+        } catch (Exception e) {
+            log.warn("[{}] [{}] Failed to read batch of replicated entries: {}", topic, producerName, e.getMessage());
+            cnx.ctx().channel().eventLoop().execute(() -> {
+                cnx.ctx().writeAndFlush(Commands.newSendError(producerId, sequenceId, ServerError.MetadataError,
+                        "Invalid batch of replicated entries"));
+                cnx.completedSendOperation(isNonPersistentTopic);
+            });
+            return;
+        }
+
+        try {
+            if (topic.isEncryptionRequired()) {
+                for (ByteBuf entry : entries) {
+                    entry.markReaderIndex();
+                    MessageMetadata entryMetadata = Commands.parseMessageMetadata(entry);
+                    entry.resetReaderIndex();
+                    int encryptionKeysCount = entryMetadata.getEncryptionKeysCount();
+                    entryMetadata.recycle();
+                    if (encryptionKeysCount < 1) {
+                        log.warn("[{}] Messages must be encrypted", getTopic().getName());
+                        cnx.ctx().channel().eventLoop().execute(() -> {
+                            cnx.ctx().writeAndFlush(Commands.newSendError(producerId, sequenceId,
+                                    ServerError.MetadataError, "Messages must be encrypted"));
+                            cnx.completedSendOperation(isNonPersistentTopic);
+                        });
+                        return;
+                    }
+                }
+            }
+
+            startPublishOperation();
+            MessagePublishContext context = MessagePublishContext.get(this, sequenceId, msgIn, msgSize, batchSize);
+            if (entries.isEmpty()) {
+                context.completed(null, -1, -1);
+                return;
+            }
+            ReplicatedEntriesPublish batchPublish = new ReplicatedEntriesPublish(context, entries.size());
+            for (ByteBuf entry : entries) {
+                topic.publishMessage(entry, new ReplicatedEntryPublishContext(batchPublish));
+            }
+        } finally {
+            // The topic retains the entries it stores
+            entries.forEach(ByteBuf::release);
+        }
+    }
+
     private boolean verifyChecksum(ByteBuf headersAndPayload) {
         if (hasChecksum(headersAndPayload)) {
             int readerIndex = headersAndPayload.readerIndex();
@@ -363,6 +435,84 @@ public class Producer {
         }
     }
 
+    /**
+     * Completes the publish of a batch of replicated entries once all its entries are persisted, with the position of
+     * the last one.
+     */
+    private static final class ReplicatedEntriesPublish {
+        private final MessagePublishContext context;
+        private int pendingEntries;
+        private Exception exception = null;
+        private long ledgerId = -1;
+        private long entryId = -1;
+
+        ReplicatedEntriesPublish(MessagePublishContext context, int numEntries) {
+            this.context = context;
+            this.pendingEntries = numEntries;
+        }
+
+        synchronized void entryCompleted(Exception exception, long ledgerId, long entryId) {
+            if (exception != null) {
+                if (this.exception == null) {
+                    this.exception = exception;
+                }
+            } else if (ledgerId >= 0) {
+                // Duplicated entries are completed with no position
+                this.ledgerId = ledgerId;
+                this.entryId = entryId;
+            }
+
+            if (--pendingEntries == 0) {
+                context.completed(this.exception, this.ledgerId, this.entryId);
+            }
+        }
+    }
+
+    private static final class ReplicatedEntryPublishContext implements PublishContext {
+        private final ReplicatedEntriesPublish batchPublish;
+        private String originalProducerName;
+        private long originalSequenceId = -1;
+
+        ReplicatedEntryPublishContext(ReplicatedEntriesPublish batchPublish) {
+            this.batchPublish = batchPublish;
+        }
+
+        @Override
+        public String getProducerName() {
+            return batchPublish.context.getProducerName();
+        }
+
+        @Override
+        public long getSequenceId() {
+            return batchPublish.context.getSequenceId();
+        }
+
+        @Override
+        public void setOriginalProducerName(String originalProducerName) {
+            this.originalProducerName = originalProducerName;
+        }
+
+        @Override
+        public void setOriginalSequenceId(long originalSequenceId) {
+            this.originalSequenceId = originalSequenceId;
+        }
+
+        @Override
+        public String getOriginalProducerName() {
+            return originalProducerName;
+        }
+
+        @Override
+        public long getOriginalSequenceId() {
+            return originalSequenceId;
+        }
+
+        @Override
+        public void completed(Exception exception, long ledgerId, long entryId) {
+            batchPublish.entryCompleted(exception, ledgerId, entryId);
+        }
+    }
+
     public Topic getTopic() {
         return topic;
     }
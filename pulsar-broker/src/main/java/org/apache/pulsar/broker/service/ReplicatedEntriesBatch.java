@@ -0,0 +1,179 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.broker.service;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.pulsar.common.api.Commands;
+import org.apache.pulsar.common.api.proto.PulsarApi.CompressionType;
+import org.apache.pulsar.common.api.proto.PulsarApi.KeyValue;
+import org.apache.pulsar.common.api.proto.PulsarApi.MessageMetadata;
+import org.apache.pulsar.common.api.proto.PulsarApi.MessageMetadata.Builder;
+import org.apache.pulsar.common.compression.CompressionCodec;
+import org.apache.pulsar.common.compression.CompressionCodecProvider;
+
+/**
+ * Format of the messages used by a replicator to send several small entries to the remote cluster at once.
+ * <p>
+ * The payload of such a message is the list of the entries, each one written as [size][metadata size][metadata]
+ * [payload], and compressed as a whole. The message metadata has the {@link #BATCH_PROPERTY} property, so the broker
+ * of the remote cluster can recognize it and publish each entry on its own: the replicated entries keep their own
+ * message ids, and their original producer name and sequence id for the deduplication.
+ */
+public class ReplicatedEntriesBatch {
+
+    public static final String BATCH_PROPERTY = "pulsar.repl.batch";
+
+    private static final int ENTRY_SIZE_LENGTH = 4;
+
+    private final ByteBuf entries;
+    private int numEntries = 0;
+    private int numMessages = 0;
+    private String lastProducerName;
+    private long lastSequenceId;
+
+    public ReplicatedEntriesBatch(int initialCapacity) {
+        this.entries = PooledByteBufAllocator.DEFAULT.buffer(initialCapacity);
+    }
+
+    /**
+     * Add an entry to the batch.
+     *
+     * @param msgMetadata
+     *            the metadata of the entry, with the replicated_from field already set
+     * @param payload
+     *            the payload of the entry, as stored
+     */
+    public void add(MessageMetadata msgMetadata, ByteBuf payload) {
+        ByteBuf serialized = Commands.serializeMetadataAndPayload(Commands.ChecksumType.None, msgMetadata, payload);
+        try {
+            entries.writeInt(serialized.readableBytes());
+            entries.writeBytes(serialized);
+        } finally {
+            serialized.release();
+        }
+        numEntries++;
+        numMessages += msgMetadata.getNumMessagesInBatch();
+        lastProducerName = msgMetadata.getProducerName();
+        lastSequenceId = msgMetadata.getSequenceId();
+    }
+
+    public int getNumEntries() {
+        return numEntries;
+    }
+
+    public int getNumMessages() {
+        return numMessages;
+    }
+
+    public int getSize() {
+        return entries.readableBytes();
+    }
+
+    /**
+     * Build the message carrying the entries of the batch, and release them.
+     * <p>
+     * As any replicated message carries the producer name and sequence id of its original producer, the batch message
+     * carries the ones of its last entry.
+     *
+     * @return the metadata and payload of the message
+     */
+    public ByteBuf build(String replicatedFrom, CompressionType compressionType) {
+        try {
+            int uncompressedSize = entries.readableBytes();
+            CompressionCodec codec = CompressionCodecProvider.getCompressionCodec(compressionType);
+            ByteBuf compressed = codec.encode(entries);
+
+            Builder builder = MessageMetadata.newBuilder();
+            builder.setProducerName(lastProducerName);
+            builder.setSequenceId(lastSequenceId);
+            builder.setPublishTime(System.currentTimeMillis());
+            builder.setReplicatedFrom(replicatedFrom);
+            builder.setNumMessagesInBatch(numMessages);
+            builder.addProperties(KeyValue.newBuilder().setKey(BATCH_PROPERTY).setValue(Integer.toString(numEntries))
+                    .build());
+            if (compressionType != CompressionType.NONE) {
+                builder.setCompression(compressionType);
+                builder.setUncompressedSize(uncompressedSize);
+            }
+            MessageMetadata msgMetadata = builder.build();
+            try {
+                return Commands.serializeMetadataAndPayload(Commands.ChecksumType.None, msgMetadata, compressed);
+            } finally {
+                compressed.release();
+                builder.recycle();
+                msgMetadata.recycle();
+            }
+        } finally {
+            entries.release();
+        }
+    }
+
+    /**
+     * Release the entries of a batch that won't be sent.
+     */
+    public void release() {
+        entries.release();
+    }
+
+    public static boolean isBatch(MessageMetadata msgMetadata) {
+        for (int i = 0; i < msgMetadata.getPropertiesCount(); i++) {
+            if (BATCH_PROPERTY.equals(msgMetadata.getProperties(i).getKey())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Extract the entries carried by a batch message.
+     *
+     * @param msgMetadata
+     *            the metadata of the message
+     * @param payload
+     *            the payload of the message, not released
+     * @return the metadata and payload of each entry, to be released by the caller
+     */
+    public static List<ByteBuf> getEntries(MessageMetadata msgMetadata, ByteBuf payload) throws IOException {
+        CompressionCodec codec = CompressionCodecProvider.getCompressionCodec(msgMetadata.getCompression());
+        ByteBuf uncompressed = codec.decode(payload, msgMetadata.getUncompressedSize());
+        List<ByteBuf> entries = new ArrayList<>();
+        try {
+            while (uncompressed.isReadable()) {
+                if (uncompressed.readableBytes() < ENTRY_SIZE_LENGTH) {
+                    throw new IOException("Truncated replicated entries batch");
+                }
+                int size = uncompressed.readInt();
+                if (size < 0 || size > uncompressed.readableBytes()) {
+                    throw new IOException("Invalid replicated entry size " + size);
+                }
+                entries.add(uncompressed.readRetainedSlice(size));
+            }
+        } catch (IOException e) {
+            entries.forEach(ByteBuf::release);
+            throw e;
+        } finally {
+            uncompressed.release();
+        }
+        return entries;
+    }
+}
@@ -21,8 +21,8 @@ package org.apache.pulsar.broker.service;
 import static com.google.common.base.Preconditions.checkArgument;
 import static org.apache.commons.lang3.StringUtils.isNotBlank;
 import static org.apache.pulsar.broker.admin.impl.PersistentTopicsBase.getPartitionedTopicMetadata;
-import static org.apache.pulsar.broker.lookup.v1.TopicLookup.lookupTopicAsync;
-import static org.apache.pulsar.common.api.Commands.newLookupErrorResponse;
+import static org.apache.pulsar.broker.lookup.TopicLookupBase.lookupTopicCommandAsync;
+import static org.apache.pulsar.common.api.Commands.newLookupErrorResponseCommand;
 import static org.apache.pulsar.common.api.proto.PulsarApi.ProtocolVersion.v5;
 
 import com.google.common.base.Strings;
@@ -33,8 +33,10 @@ import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelOption;
 import io.netty.handler.ssl.SslHandler;
 import java.net.SocketAddress;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Semaphore;
@@ -62,6 +64,7 @@ import org.apache.pulsar.common.api.Commands;
 import org.apache.pulsar.common.api.PulsarHandler;
 import org.apache.pulsar.common.api.proto.PulsarApi;
 import org.apache.pulsar.common.api.proto.PulsarApi.CommandAck;
+import org.apache.pulsar.common.api.proto.PulsarApi.CommandAckRanges;
 import org.apache.pulsar.common.api.proto.PulsarApi.CommandCloseConsumer;
 import org.apache.pulsar.common.api.proto.PulsarApi.CommandCloseProducer;
 import org.apache.pulsar.common.api.proto.PulsarApi.CommandConnect;
@@ -71,6 +74,8 @@ import org.apache.pulsar.common.api.proto.PulsarApi.CommandFlow;
 import org.apache.pulsar.common.api.proto.PulsarApi.CommandGetLastMessageId;
 import org.apache.pulsar.common.api.proto.PulsarApi.CommandGetTopicsOfNamespace;
 import org.apache.pulsar.common.api.proto.PulsarApi.CommandLookupTopic;
+import org.apache.pulsar.common.api.proto.PulsarApi.CommandLookupTopicResponse;
+import org.apache.pulsar.common.api.proto.PulsarApi.CommandLookupTopics;
 import org.apache.pulsar.common.api.proto.PulsarApi.CommandPartitionedTopicMetadata;
 import org.apache.pulsar.common.api.proto.PulsarApi.CommandProducer;
 import org.apache.pulsar.common.api.proto.PulsarApi.CommandRedeliverUnacknowledgedMessages;
@@ -84,6 +89,7 @@ import org.apache.pulsar.common.api.proto.PulsarApi.MessageIdData;
 import org.apache.pulsar.common.api.proto.PulsarApi.MessageMetadata;
 import org.apache.pulsar.common.api.proto.PulsarApi.ProtocolVersion;
 import org.apache.pulsar.common.api.proto.PulsarApi.ServerError;
+import org.apache.pulsar.common.lookup.data.LookupData;
 import org.apache.pulsar.common.naming.Metadata;
 import org.apache.pulsar.common.naming.NamespaceName;
 import org.apache.pulsar.common.naming.TopicName;
@@ -227,62 +233,110 @@ public class ServerCnx extends PulsarHandler {
             return;
         }
 
-        final Semaphore lookupSemaphore = service.getLookupRequestSemaphore();
-        if (lookupSemaphore.tryAcquire()) {
-            if (invalidOriginalPrincipal(originalPrincipal)) {
-                final String msg = "Valid Proxy Client role should be provided for lookup ";
-                log.warn("[{}] {} with role {} and proxyClientAuthRole {} on topic {}", remoteAddress, msg, authRole,
-                        originalPrincipal, topicName);
-                ctx.writeAndFlush(newLookupErrorResponse(ServerError.AuthorizationError, msg, requestId));
-                lookupSemaphore.release();
-                return;
-            }
-            CompletableFuture<Boolean> isProxyAuthorizedFuture;
-            if (service.isAuthorizationEnabled() && originalPrincipal != null) {
-                isProxyAuthorizedFuture = service.getAuthorizationService().canLookupAsync(topicName, authRole,
-                        authenticationData);
-            } else {
-                isProxyAuthorizedFuture = CompletableFuture.completedFuture(true);
-            }
-            String finalOriginalPrincipal = originalPrincipal;
-            isProxyAuthorizedFuture.thenApply(isProxyAuthorized -> {
-                if (isProxyAuthorized) {
-                    lookupTopicAsync(getBrokerService().pulsar(), topicName, authoritative,
-                            finalOriginalPrincipal != null ? finalOriginalPrincipal : authRole, authenticationData,
-                            requestId).handle((lookupResponse, ex) -> {
-                                if (ex == null) {
-                                    ctx.writeAndFlush(lookupResponse);
-                                } else {
-                                    // it should never happen
-                                    log.warn("[{}] lookup failed with error {}, {}", remoteAddress, topicName,
-                                            ex.getMessage(), ex);
-                                    ctx.writeAndFlush(newLookupErrorResponse(ServerError.ServiceNotReady,
-                                            ex.getMessage(), requestId));
-                                }
-                                lookupSemaphore.release();
-                                return null;
-                            });
-                } else {
-                    final String msg = "Proxy Client is not authorized to Lookup";
-                    log.warn("[{}] {} with role {} on topic {}", remoteAddress, msg, authRole, topicName);
-                    ctx.writeAndFlush(newLookupErrorResponse(ServerError.AuthorizationError, msg, requestId));
-                    lookupSemaphore.release();
+        lookupTopic(topicName, authoritative, requestId)
+                .thenAccept(lookupResponse -> ctx.writeAndFlush(Commands.newLookupResponse(lookupResponse)));
+    }
+
+    @Override
+    protected void handleLookupTopics(CommandLookupTopics lookupTopics) {
+        final long requestId = lookupTopics.getRequestId();
+        if (log.isDebugEnabled()) {
+            log.debug("[{}] Received Lookup of {} topics for {}", remoteAddress, lookupTopics.getTopicsCount(),
+                    requestId);
+        }
+
+        // Each topic is looked up as if it had its own CommandLookupTopic, and takes its own permit of the lookup
+        // semaphore. The client follows the redirects of single topics with CommandLookupTopic, so the bulk lookup is
+        // never authoritative.
+        List<CompletableFuture<CommandLookupTopicResponse>> lookupFutures = new ArrayList<>(
+                lookupTopics.getTopicsCount());
+        for (String topic : lookupTopics.getTopicsList()) {
+            TopicName topicName;
+            try {
+                topicName = TopicName.get(topic);
+            } catch (Throwable t) {
+                if (log.isDebugEnabled()) {
+                    log.debug("[{}] Failed to parse topic name '{}'", remoteAddress, topic, t);
                 }
-                return null;
-            }).exceptionally(ex -> {
-                final String msg = "Exception occured while trying to authorize lookup";
-                log.warn("[{}] {} with role {} on topic {}", remoteAddress, msg, authRole, topicName, ex);
-                ctx.writeAndFlush(newLookupErrorResponse(ServerError.AuthorizationError, msg, requestId));
-                lookupSemaphore.release();
-                return null;
-            });
-        } else {
+                lookupFutures.add(CompletableFuture.completedFuture(newLookupErrorResponseCommand(
+                        ServerError.InvalidTopicName, "Invalid topic name: " + t.getMessage(), requestId)));
+                continue;
+            }
+            lookupFutures.add(lookupTopic(topicName, false, requestId));
+        }
+
+        FutureUtil.waitForAll(lookupFutures).thenRun(() -> {
+            List<CommandLookupTopicResponse> lookups = lookupFutures.stream().map(CompletableFuture::join)
+                    .collect(Collectors.toList());
+            ctx.writeAndFlush(Commands.newLookupTopicsResponse(lookups, requestId));
+            lookups.forEach(CommandLookupTopicResponse::recycle);
+        });
+    }
+
+    /**
+     * Looks up the owner of a topic, holding a permit of the lookup semaphore until the lookup completes. The returned
+     * future is always completed with a response, errors included, and the caller has to recycle it.
+     */
+    private CompletableFuture<CommandLookupTopicResponse> lookupTopic(TopicName topicName, boolean authoritative,
+            long requestId) {
+        final Semaphore lookupSemaphore = service.getLookupRequestSemaphore();
+        if (!lookupSemaphore.tryAcquire()) {
             if (log.isDebugEnabled()) {
                 log.debug("[{}] Failed lookup due to too many lookup-requests {}", remoteAddress, topicName);
             }
-            ctx.writeAndFlush(newLookupErrorResponse(ServerError.TooManyRequests,
+            return CompletableFuture.completedFuture(newLookupErrorResponseCommand(ServerError.TooManyRequests,
                     "Failed due to too many pending lookup requests", requestId));
         }
+
+        if (invalidOriginalPrincipal(originalPrincipal)) {
+            final String msg = "Valid Proxy Client role should be provided for lookup ";
+            log.warn("[{}] {} with role {} and proxyClientAuthRole {} on topic {}", remoteAddress, msg, authRole,
+                    originalPrincipal, topicName);
+            lookupSemaphore.release();
+            return CompletableFuture.completedFuture(
+                    newLookupErrorResponseCommand(ServerError.AuthorizationError, msg, requestId));
+        }
+        CompletableFuture<Boolean> isProxyAuthorizedFuture;
+        if (service.isAuthorizationEnabled() && originalPrincipal != null) {
+            isProxyAuthorizedFuture = service.getAuthorizationService().canLookupAsync(topicName, authRole,
+                    authenticationData);
+        } else {
+            isProxyAuthorizedFuture = CompletableFuture.completedFuture(true);
+        }
+        String finalOriginalPrincipal = originalPrincipal;
+        CompletableFuture<CommandLookupTopicResponse> lookupFuture = new CompletableFuture<>();
+        isProxyAuthorizedFuture.thenApply(isProxyAuthorized -> {
+            if (isProxyAuthorized) {
+                lookupTopicCommandAsync(getBrokerService().pulsar(), topicName, authoritative,
+                        finalOriginalPrincipal != null ? finalOriginalPrincipal : authRole, authenticationData,
+                        requestId).handle((lookupResponse, ex) -> {
+                            if (ex == null) {
+                                lookupFuture.complete(lookupResponse);
+                            } else {
+                                // it should never happen
+                                log.warn("[{}] lookup failed with error {}, {}", remoteAddress, topicName,
+                                        ex.getMessage(), ex);
+                                lookupFuture.complete(newLookupErrorResponseCommand(ServerError.ServiceNotReady,
+                                        ex.getMessage(), requestId));
+                            }
+                            lookupSemaphore.release();
+                            return null;
+                        });
+            } else {
+                final String msg = "Proxy Client is not authorized to Lookup";
+                log.warn("[{}] {} with role {} on topic {}", remoteAddress, msg, authRole, topicName);
+                lookupFuture.complete(newLookupErrorResponseCommand(ServerError.AuthorizationError, msg, requestId));
+                lookupSemaphore.release();
+            }
+            return null;
+        }).exceptionally(ex -> {
+            final String msg = "Exception occured while trying to authorize lookup";
+            log.warn("[{}] {} with role {} on topic {}", remoteAddress, msg, authRole, topicName, ex);
+            lookupFuture.complete(newLookupErrorResponseCommand(ServerError.AuthorizationError, msg, requestId));
+            lookupSemaphore.release();
+            return null;
+        });
+        return lookupFuture;
     }
 
     @Override
@@ -960,6 +1014,16 @@ public class ServerCnx extends PulsarHandler {
         }
     }
 
+    @Override
+    protected void handleAckRanges(CommandAckRanges ackRanges) {
+        checkArgument(state == State.Connected);
+        CompletableFuture<Consumer> consumerFuture = consumers.get(ackRanges.getConsumerId());
+
+        if (consumerFuture != null && consumerFuture.isDone() && !consumerFuture.isCompletedExceptionally()) {
+            consumerFuture.getNow(null).messageAckedRanges(ackRanges);
+        }
+    }
+
     @Override
     protected void handleFlow(CommandFlow flow) {
         checkArgument(state == State.Connected);
@@ -1207,7 +1271,15 @@ public class ServerCnx extends PulsarHandler {
         long producerId = producer.getProducerId();
         producers.remove(producerId);
         if (remoteEndpointProtocolVersion >= v5.getNumber()) {
-            ctx.writeAndFlush(Commands.newCloseProducer(producerId, -1L));
+            // If the topic is handed off to another broker, tell the client where to reconnect once it owns the topic
+            Optional<CompletableFuture<LookupData>> handoff = service.getBundleHandoff(producer.getTopic().getName());
+            if (handoff.isPresent()) {
+                handoff.get().handle((target, ex) -> ctx.writeAndFlush(Commands.newCloseProducer(producerId, -1L,
+                        target != null ? target.getBrokerUrl() : null,
+                        target != null ? target.getBrokerUrlTls() : null)));
+            } else {
+                ctx.writeAndFlush(Commands.newCloseProducer(producerId, -1L));
+            }
         } else {
             close();
         }
@@ -1222,7 +1294,15 @@ public class ServerCnx extends PulsarHandler {
         long consumerId = consumer.consumerId();
         consumers.remove(consumerId);
         if (remoteEndpointProtocolVersion >= v5.getNumber()) {
-            ctx.writeAndFlush(Commands.newCloseConsumer(consumerId, -1L));
+            Optional<CompletableFuture<LookupData>> handoff = service
+                    .getBundleHandoff(consumer.getSubscription().getTopicName());
+            if (handoff.isPresent()) {
+                handoff.get().handle((target, ex) -> ctx.writeAndFlush(Commands.newCloseConsumer(consumerId, -1L,
+                        target != null ? target.getBrokerUrl() : null,
+                        target != null ? target.getBrokerUrlTls() : null)));
+            } else {
+                ctx.writeAndFlush(Commands.newCloseConsumer(consumerId, -1L));
+            }
         } else {
             close();
         }
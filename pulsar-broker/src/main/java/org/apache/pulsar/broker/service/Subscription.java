@@ -25,6 +25,7 @@ import java.util.concurrent.CompletableFuture;
 import org.apache.bookkeeper.mledger.Entry;
 import org.apache.bookkeeper.mledger.Position;
 import org.apache.bookkeeper.mledger.impl.PositionImpl;
+import org.apache.commons.lang3.tuple.Pair;
 import org.apache.pulsar.common.api.proto.PulsarApi.CommandAck.AckType;
 import org.apache.pulsar.common.api.proto.PulsarApi.CommandSubscribe.SubType;
 
@@ -42,6 +43,12 @@ public interface Subscription {
 
     void acknowledgeMessage(List<Position> positions, AckType ackType, Map<String,Long> properties);
 
+    /**
+     * Individually acknowledge ranges of consecutive messages, given by the positions of their first and last
+     * messages.
+     */
+    void acknowledgeMessageRanges(List<Pair<Position, Position>> ranges);
+
     String getTopicName();
 
     Dispatcher getDispatcher();
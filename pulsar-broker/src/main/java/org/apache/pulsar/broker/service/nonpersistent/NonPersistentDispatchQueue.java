@@ -0,0 +1,148 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.broker.service.nonpersistent;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+import org.apache.bookkeeper.mledger.Entry;
+import org.apache.bookkeeper.mledger.util.Rate;
+import org.apache.pulsar.broker.NonPersistentDropPolicy;
+import org.apache.pulsar.broker.ServiceConfiguration;
+
+/**
+ * Messages of a subscription of a non-persistent topic waiting for its consumers to be able to receive them, and
+ * accounting of the messages the subscription dropped.
+ * <p>
+ * A subscription keeps at most nonPersistentDispatcherMaxPendingMessages messages while its consumers have no permits
+ * or their connection is not writable. Once it has as many, either the oldest pending message or the newly published
+ * one is dropped, depending on nonPersistentDispatcherDropPolicy. The queue is only accessed from the ordered executor
+ * thread of the topic, so the fan-out of a message to the subscriptions of the topic takes no lock.
+ */
+class NonPersistentDispatchQueue {
+
+    interface Sender {
+        /**
+         * Send an entry to a consumer of the subscription if one can receive it.
+         *
+         * @return false if no consumer can receive the entry, in which case it is not released
+         */
+        boolean trySend(Entry entry, int batchSize);
+    }
+
+    private static class PendingEntry {
+        final Entry entry;
+        final int batchSize;
+
+        PendingEntry(Entry entry, int batchSize) {
+            this.entry = entry;
+            this.batchSize = batchSize;
+        }
+    }
+
+    private final NonPersistentDispatcher dispatcher;
+    private final Sender sender;
+    private final ServiceConfiguration serviceConfig;
+    private final ArrayDeque<PendingEntry> pendingEntries = new ArrayDeque<>();
+    private int pendingMessages = 0;
+
+    private final Rate msgDrop = new Rate();
+    private static final AtomicLongFieldUpdater<NonPersistentDispatchQueue> MSG_DROP_COUNT_UPDATER =
+            AtomicLongFieldUpdater.newUpdater(NonPersistentDispatchQueue.class, "msgDropCount");
+    @SuppressWarnings("unused")
+    private volatile long msgDropCount = 0;
+
+    NonPersistentDispatchQueue(NonPersistentDispatcher dispatcher, Sender sender, ServiceConfiguration serviceConfig) {
+        this.dispatcher = dispatcher;
+        this.sender = sender;
+        this.serviceConfig = serviceConfig;
+    }
+
+    /**
+     * Send a message published on the topic, after the pending messages, or keep it until a consumer can receive it.
+     */
+    void dispatch(Entry entry, int batchSize) {
+        if (!pendingEntries.isEmpty()) {
+            dispatchPending();
+        }
+        if (pendingEntries.isEmpty() && sender.trySend(entry, batchSize)) {
+            return;
+        }
+
+        // the pending messages are dropped once the subscription has no consumer left
+        final int maxPendingMessages = serviceConfig.getNonPersistentDispatcherMaxPendingMessages();
+        if (batchSize > maxPendingMessages || !dispatcher.isConsumerConnected()) {
+            drop(entry, batchSize);
+            return;
+        }
+        if (pendingMessages + batchSize > maxPendingMessages
+                && serviceConfig.getNonPersistentDispatcherDropPolicy() == NonPersistentDropPolicy.Newest) {
+            drop(entry, batchSize);
+            return;
+        }
+        while (pendingMessages + batchSize > maxPendingMessages) {
+            final PendingEntry oldest = pendingEntries.poll();
+            pendingMessages -= oldest.batchSize;
+            drop(oldest.entry, oldest.batchSize);
+        }
+        pendingEntries.add(new PendingEntry(entry, batchSize));
+        pendingMessages += batchSize;
+    }
+
+    /**
+     * Send the pending messages, in order, as long as a consumer can receive them.
+     */
+    void dispatchPending() {
+        PendingEntry pending;
+        while ((pending = pendingEntries.peek()) != null) {
+            if (!sender.trySend(pending.entry, pending.batchSize)) {
+                return;
+            }
+            pendingEntries.poll();
+            pendingMessages -= pending.batchSize;
+        }
+    }
+
+    /**
+     * Drop the pending messages, when the subscription has no consumer left.
+     */
+    void clear() {
+        PendingEntry pending;
+        while ((pending = pendingEntries.poll()) != null) {
+            drop(pending.entry, pending.batchSize);
+        }
+        pendingMessages = 0;
+    }
+
+    private void drop(Entry entry, int batchSize) {
+        if (batchSize > 0) {
+            msgDrop.recordMultipleEvents(batchSize, entry.getLength());
+            MSG_DROP_COUNT_UPDATER.addAndGet(this, batchSize);
+        }
+        entry.release();
+    }
+
+    Rate getMsgDropRate() {
+        return msgDrop;
+    }
+
+    long getMsgDropCount() {
+        return msgDropCount;
+    }
+}
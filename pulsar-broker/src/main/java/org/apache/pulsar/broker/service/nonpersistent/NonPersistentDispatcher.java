@@ -51,9 +51,20 @@ public interface NonPersistentDispatcher extends Dispatcher{
 
     SubType getType();
     
-    void sendMessages(List<Entry> entries);
-    
+    /**
+     * Dispatch a message published on the topic to a consumer of the subscription, or drop it.
+     * <b>It is also responsible to release entry data and recycle entry object.</b>
+     *
+     * @param entry
+     *            the message, whose data is shared with the other subscriptions of the topic
+     * @param batchSize
+     *            the number of messages in the entry
+     */
+    void sendMessage(Entry entry, int batchSize);
+
     Rate getMesssageDropRate();
+
+    long getMsgDropCount();
     
     boolean hasPermits();
     
@@ -18,9 +18,6 @@
  */
 package org.apache.pulsar.broker.service.nonpersistent;
 
-import static org.apache.pulsar.broker.service.Consumer.getBatchSizeforEntry;
-
-import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 
@@ -47,7 +44,7 @@ public class NonPersistentDispatcherMultipleConsumers extends AbstractDispatcher
 
     private CompletableFuture<Void> closeFuture = null;
     private final String name;
-    private final Rate msgDrop;
+    private final NonPersistentDispatchQueue dispatchQueue;
     protected static final AtomicIntegerFieldUpdater<NonPersistentDispatcherMultipleConsumers> TOTAL_AVAILABLE_PERMITS_UPDATER = AtomicIntegerFieldUpdater
             .newUpdater(NonPersistentDispatcherMultipleConsumers.class, "totalAvailablePermits");
     @SuppressWarnings("unused")
@@ -59,8 +56,8 @@ public class NonPersistentDispatcherMultipleConsumers extends AbstractDispatcher
         this.topic = topic;
         this.subscription = subscription;
         this.name = topic.getName() + " / " + subscription.getName();
-        this.msgDrop = new Rate();
         this.serviceConfig = topic.getBrokerService().pulsar().getConfiguration();
+        this.dispatchQueue = new NonPersistentDispatchQueue(this, this::trySendMessage, serviceConfig);
     }
 
     @Override
@@ -112,6 +109,7 @@ public class NonPersistentDispatcherMultipleConsumers extends AbstractDispatcher
                     closeFuture.complete(null);
                 }
                 TOTAL_AVAILABLE_PERMITS_UPDATER.set(this, 0);
+                topic.executeOnDispatchThread(dispatchQueue::clear);
             }
         } else {
             if (log.isDebugEnabled()) {
@@ -155,6 +153,9 @@ public class NonPersistentDispatcherMultipleConsumers extends AbstractDispatcher
         if (log.isDebugEnabled()) {
             log.debug("[{}] Trigger new read after receiving flow control message", consumer);
         }
+        if (serviceConfig.getNonPersistentDispatcherMaxPendingMessages() > 0) {
+            topic.executeOnDispatchThread(dispatchQueue::dispatchPending);
+        }
     }
 
     @Override
@@ -179,19 +180,17 @@ public class NonPersistentDispatcherMultipleConsumers extends AbstractDispatcher
     }
 
     @Override
-    public void sendMessages(List<Entry> entries) {
+    public void sendMessage(Entry entry, int batchSize) {
+        dispatchQueue.dispatch(entry, batchSize);
+    }
+
+    private boolean trySendMessage(Entry entry, int batchSize) {
         Consumer consumer = TOTAL_AVAILABLE_PERMITS_UPDATER.get(this) > 0 ? getNextConsumer() : null;
-        if (consumer != null) {
-            TOTAL_AVAILABLE_PERMITS_UPDATER.addAndGet(this, -consumer.sendMessages(entries).getTotalSentMessages());
-        } else {
-            entries.forEach(entry -> {
-                int totalMsgs = getBatchSizeforEntry(entry.getDataBuffer(), subscription, -1);
-                if (totalMsgs > 0) {
-                    msgDrop.recordEvent();
-                }
-                entry.release();
-            });
+        if (consumer == null) {
+            return false;
         }
+        TOTAL_AVAILABLE_PERMITS_UPDATER.addAndGet(this, -consumer.sendMessage(entry, batchSize).getTotalSentMessages());
+        return true;
     }
 
     @Override
@@ -201,7 +200,12 @@ public class NonPersistentDispatcherMultipleConsumers extends AbstractDispatcher
 
     @Override
     public Rate getMesssageDropRate() {
-        return msgDrop;
+        return dispatchQueue.getMsgDropRate();
+    }
+
+    @Override
+    public long getMsgDropCount() {
+        return dispatchQueue.getMsgDropCount();
     }
 
     @Override
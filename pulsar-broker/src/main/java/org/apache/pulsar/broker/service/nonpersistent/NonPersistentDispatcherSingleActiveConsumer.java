@@ -19,15 +19,13 @@
 package org.apache.pulsar.broker.service.nonpersistent;
 
 import static org.apache.pulsar.broker.cache.ConfigurationCacheService.POLICIES;
-import static org.apache.pulsar.broker.service.Consumer.getBatchSizeforEntry;
-
-import java.util.List;
 
 import org.apache.bookkeeper.mledger.Entry;
 import org.apache.bookkeeper.mledger.util.Rate;
 import org.apache.pulsar.broker.ServiceConfiguration;
 import org.apache.pulsar.broker.admin.AdminResource;
 import org.apache.pulsar.broker.service.AbstractDispatcherSingleActiveConsumer;
+import org.apache.pulsar.broker.service.BrokerServiceException;
 import org.apache.pulsar.broker.service.Consumer;
 import org.apache.pulsar.broker.service.Subscription;
 import org.apache.pulsar.common.api.proto.PulsarApi.CommandSubscribe.SubType;
@@ -37,7 +35,7 @@ import org.apache.pulsar.common.policies.data.Policies;
 public final class NonPersistentDispatcherSingleActiveConsumer extends AbstractDispatcherSingleActiveConsumer implements NonPersistentDispatcher {
 
     private final NonPersistentTopic topic;
-    private final Rate msgDrop;
+    private final NonPersistentDispatchQueue dispatchQueue;
     private final Subscription subscription;
     private final ServiceConfiguration serviceConfig;
 
@@ -46,24 +44,30 @@ public final class NonPersistentDispatcherSingleActiveConsumer extends AbstractD
         super(subscriptionType, partitionIndex, topic.getName());
         this.topic = topic;
         this.subscription = subscription;
-        this.msgDrop = new Rate();
         this.serviceConfig = topic.getBrokerService().pulsar().getConfiguration();
+        this.dispatchQueue = new NonPersistentDispatchQueue(this, this::trySendMessage, serviceConfig);
     }
 
     @Override
-    public void sendMessages(List<Entry> entries) {
+    public synchronized void removeConsumer(Consumer consumer) throws BrokerServiceException {
+        super.removeConsumer(consumer);
+        if (consumers.isEmpty()) {
+            topic.executeOnDispatchThread(dispatchQueue::clear);
+        }
+    }
+
+    @Override
+    public void sendMessage(Entry entry, int batchSize) {
+        dispatchQueue.dispatch(entry, batchSize);
+    }
+
+    private boolean trySendMessage(Entry entry, int batchSize) {
         Consumer currentConsumer = ACTIVE_CONSUMER_UPDATER.get(this);
         if (currentConsumer != null && currentConsumer.getAvailablePermits() > 0 && currentConsumer.isWritable()) {
-            currentConsumer.sendMessages(entries);
-        } else {
-            entries.forEach(entry -> {
-                int totalMsgs = getBatchSizeforEntry(entry.getDataBuffer(), subscription, -1);
-                if (totalMsgs > 0) {
-                    msgDrop.recordEvent();
-                }
-                entry.release();
-            });
+            currentConsumer.sendMessage(entry, batchSize);
+            return true;
         }
+        return false;
     }
 
     protected boolean isConsumersExceededOnTopic() {
@@ -104,7 +108,12 @@ public final class NonPersistentDispatcherSingleActiveConsumer extends AbstractD
 
     @Override
     public Rate getMesssageDropRate() {
-        return msgDrop;
+        return dispatchQueue.getMsgDropRate();
+    }
+
+    @Override
+    public long getMsgDropCount() {
+        return dispatchQueue.getMsgDropCount();
     }
 
     @Override
@@ -114,7 +123,9 @@ public final class NonPersistentDispatcherSingleActiveConsumer extends AbstractD
 
     @Override
     public void consumerFlow(Consumer consumer, int additionalNumberOfMessages) {
-        // No-op
+        if (serviceConfig.getNonPersistentDispatcherMaxPendingMessages() > 0) {
+            topic.executeOnDispatchThread(dispatchQueue::dispatchPending);
+        }
     }
 
     @Override
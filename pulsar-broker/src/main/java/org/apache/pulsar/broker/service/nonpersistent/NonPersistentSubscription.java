@@ -28,6 +28,7 @@ import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 import org.apache.bookkeeper.mledger.Entry;
 import org.apache.bookkeeper.mledger.Position;
 import org.apache.bookkeeper.mledger.impl.PositionImpl;
+import org.apache.commons.lang3.tuple.Pair;
 import org.apache.pulsar.broker.service.BrokerServiceException;
 import org.apache.pulsar.broker.service.BrokerServiceException.ServerMetadataException;
 import org.apache.pulsar.broker.service.BrokerServiceException.SubscriptionBusyException;
@@ -143,6 +144,11 @@ public class NonPersistentSubscription implements Subscription {
         // No-op
     }
 
+    @Override
+    public void acknowledgeMessageRanges(List<Pair<Position, Position>> ranges) {
+        // No-op
+    }
+
     @Override
     public String toString() {
         return MoreObjects.toStringHelper(this).add("topic", topicName).add("name", subName).toString();
@@ -325,7 +331,10 @@ public class NonPersistentSubscription implements Subscription {
         }
 
         subStats.type = getType();
-        subStats.msgDropRate = dispatcher.getMesssageDropRate().getRate();
+        if (dispatcher != null) {
+            subStats.msgDropRate = dispatcher.getMesssageDropRate().getRate();
+            subStats.msgDropCount = dispatcher.getMsgDropCount();
+        }
         return subStats;
     }
 
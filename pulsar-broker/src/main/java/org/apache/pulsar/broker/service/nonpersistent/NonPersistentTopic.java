@@ -21,6 +21,7 @@ package org.apache.pulsar.broker.service.nonpersistent;
 import static com.google.common.base.Preconditions.checkArgument;
 import static org.apache.bookkeeper.mledger.impl.EntryCacheManager.create;
 import static org.apache.pulsar.broker.cache.ConfigurationCacheService.POLICIES;
+import static org.apache.pulsar.broker.service.Consumer.getBatchSizeforEntry;
 
 import com.carrotsearch.hppc.ObjectObjectHashMap;
 import com.google.common.base.MoreObjects;
@@ -194,19 +195,21 @@ public class NonPersistentTopic implements Topic {
         // retain data for sub/replication because io-thread will release actual payload
         data.retain(2);
         this.executor.executeOrdered(topic, SafeRun.safeRun(() -> {
-            subscriptions.forEach((name, subscription) -> {
-                ByteBuf duplicateBuffer = data.retainedDuplicate();
-                Entry entry = create(0L, 0L, duplicateBuffer);
-                // entry internally retains data so, duplicateBuffer should be release here
-                duplicateBuffer.release();
-                if (subscription.getDispatcher() != null) {
-                    subscription.getDispatcher().sendMessages(Lists.newArrayList(entry));
-                } else {
-                    // it happens when subscription is created but dispatcher is not created as consumer is not added
-                    // yet
-                    entry.release();
-                }
-            });
+            // parse the metadata once for all the subscriptions, which share the payload
+            final int batchSize = subscriptions.isEmpty() ? 0 : getBatchSizeforEntry(data, null, -1);
+            if (batchSize > 0) {
+                subscriptions.forEach((name, subscription) -> {
+                    // dispatcher is not created until a consumer is added to the subscription
+                    NonPersistentDispatcher dispatcher = subscription.getDispatcher();
+                    if (dispatcher != null) {
+                        ByteBuf duplicateBuffer = data.retainedDuplicate();
+                        Entry entry = create(0L, 0L, duplicateBuffer);
+                        // entry internally retains data so, duplicateBuffer should be release here
+                        duplicateBuffer.release();
+                        dispatcher.sendMessage(entry, batchSize);
+                    }
+                });
+            }
             data.release();
             if (msgDeliveryCount.decrementAndGet() == 0) {
                 callback.completed(null, 0L, 0L);
@@ -323,6 +326,11 @@ public class NonPersistentTopic implements Topic {
         }
     }
 
+    // Run a task on the thread dispatching the messages of the topic to its subscriptions.
+    void executeOnDispatchThread(Runnable task) {
+        executor.executeOrdered(topic, SafeRun.safeRun(task));
+    }
+
     @Override
     public CompletableFuture<Consumer> subscribe(final ServerCnx cnx, String subscriptionName, long consumerId,
             SubType subType, int priorityLevel, String consumerName, boolean isDurable, MessageId startMessageId,
@@ -800,6 +808,7 @@ public class NonPersistentTopic implements Topic {
                 if (subscription.getDispatcher() != null) {
                     topicStatsStream.writePair("msgDropRate",
                             subscription.getDispatcher().getMesssageDropRate().getRate());
+                    topicStatsStream.writePair("msgDropCount", subscription.getDispatcher().getMsgDropCount());
                 }
 
                 // Close consumers
@@ -29,6 +29,7 @@ import org.apache.bookkeeper.mledger.ManagedCursor;
 import org.apache.bookkeeper.mledger.ManagedLedgerException;
 import org.apache.bookkeeper.mledger.Position;
 import org.apache.bookkeeper.mledger.impl.PositionImpl;
+import org.apache.commons.lang3.tuple.Pair;
 import org.apache.pulsar.broker.service.Consumer;
 import org.apache.pulsar.common.api.proto.PulsarApi.CommandAck.AckType;
 import org.apache.pulsar.compaction.CompactedTopic;
@@ -96,5 +97,11 @@ public class CompactorSubscription extends PersistentSubscription {
         future.thenAccept((v) -> compactedTopic.newCompactedLedger(position, compactedLedgerId));
     }
 
+    @Override
+    public void acknowledgeMessageRanges(List<Pair<Position, Position>> ranges) {
+        // Like acknowledgeMessage, only the cumulative acks of the compactor are accepted
+        throw new IllegalArgumentException("Individual acks are not supported on compactor subscription");
+    }
+
     private static final Logger log = LoggerFactory.getLogger(CompactorSubscription.class);
 }
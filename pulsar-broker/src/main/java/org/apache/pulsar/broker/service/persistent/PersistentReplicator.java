@@ -18,10 +18,12 @@
  */
 package org.apache.pulsar.broker.service.persistent;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
 
 import org.apache.bookkeeper.mledger.AsyncCallbacks;
 import org.apache.bookkeeper.mledger.AsyncCallbacks.ClearBacklogCallback;
@@ -36,15 +38,20 @@ import org.apache.bookkeeper.mledger.ManagedLedgerException.CursorAlreadyClosedE
 import org.apache.bookkeeper.mledger.ManagedLedgerException.TooManyRequestsException;
 import org.apache.bookkeeper.mledger.Position;
 import org.apache.bookkeeper.mledger.util.Rate;
+import org.apache.pulsar.broker.ServiceConfiguration;
 import org.apache.pulsar.broker.service.AbstractReplicator;
 import org.apache.pulsar.broker.service.BrokerService;
 import org.apache.pulsar.broker.service.BrokerServiceException.NamingException;
+import org.apache.pulsar.broker.service.ReplicatedEntriesBatch;
 import org.apache.pulsar.broker.service.Replicator;
 import org.apache.pulsar.client.api.MessageId;
 import org.apache.pulsar.client.impl.Backoff;
 import org.apache.pulsar.client.impl.MessageImpl;
 import org.apache.pulsar.client.impl.ProducerImpl;
 import org.apache.pulsar.client.impl.SendCallback;
+import org.apache.pulsar.common.api.Commands;
+import org.apache.pulsar.common.api.proto.PulsarApi.CompressionType;
+import org.apache.pulsar.common.api.proto.PulsarApi.MessageMetadata;
 import org.apache.pulsar.common.policies.data.ReplicatorStats;
 import org.apache.pulsar.common.util.Codec;
 import org.slf4j.Logger;
@@ -60,15 +67,31 @@ public class PersistentReplicator extends AbstractReplicator implements Replicat
     private final ManagedCursor cursor;
 
 
-    private static final int MaxReadBatchSize = 100;
+    private static final int MaxReadBatchSize = 1000;
+    private final int maxReadBatchSize;
     private int readBatchSize;
 
     private final int producerQueueThreshold;
+    private final long producerQueueSizeInBytes;
+    private final long producerQueueThresholdInBytes;
 
     private static final AtomicIntegerFieldUpdater<PersistentReplicator> PENDING_MESSAGES_UPDATER = AtomicIntegerFieldUpdater
             .newUpdater(PersistentReplicator.class, "pendingMessages");
     private volatile int pendingMessages = 0;
 
+    private static final AtomicLongFieldUpdater<PersistentReplicator> PENDING_BYTES_UPDATER = AtomicLongFieldUpdater
+            .newUpdater(PersistentReplicator.class, "pendingBytes");
+    private volatile long pendingBytes = 0;
+
+    // Average size of the entries read, used to size the reads by bytes
+    private volatile long avgEntrySize = 0;
+
+    // The read batch size is reduced when the average time for the remote cluster to acknowledge a message gets
+    // higher than this factor times the lowest ack time seen in the current stats period
+    private static final int RttQueueingFactor = 2;
+    private volatile long avgRttNanos = 0;
+    private volatile long minRttNanos = 0;
+
     private static final int FALSE = 0;
     private static final int TRUE = 1;
 
@@ -89,6 +112,10 @@ public class PersistentReplicator extends AbstractReplicator implements Replicat
 
     private final ReplicatorStats stats = new ReplicatorStats();
 
+    private final boolean replicationBatchingEnabled;
+    private final int replicationBatchingMaxSize;
+    private final CompressionType replicationBatchingCompressionType;
+
     public PersistentReplicator(PersistentTopic topic, ManagedCursor cursor, String localCluster, String remoteCluster,
             BrokerService brokerService) throws NamingException {
         super(topic.getName(), topic.replicatorPrefix, localCluster, remoteCluster, brokerService);
@@ -98,8 +125,17 @@ public class PersistentReplicator extends AbstractReplicator implements Replicat
         HAVE_PENDING_READ_UPDATER.set(this, FALSE);
         PENDING_MESSAGES_UPDATER.set(this, 0);
 
-        readBatchSize = Math.min(producerQueueSize, MaxReadBatchSize);
+        maxReadBatchSize = Math.min(producerQueueSize, MaxReadBatchSize);
+        readBatchSize = maxReadBatchSize;
         producerQueueThreshold = (int) (producerQueueSize * 0.9);
+        long queueSizeInBytes = brokerService.pulsar().getConfiguration().getReplicationProducerQueueSizeInBytes();
+        producerQueueSizeInBytes = queueSizeInBytes > 0 ? queueSizeInBytes : Long.MAX_VALUE;
+        producerQueueThresholdInBytes = queueSizeInBytes > 0 ? (long) (queueSizeInBytes * 0.9) : Long.MAX_VALUE;
+
+        ServiceConfiguration conf = brokerService.pulsar().getConfiguration();
+        replicationBatchingEnabled = conf.isReplicationBatchingEnabled();
+        replicationBatchingMaxSize = conf.getReplicationBatchingMaxSizeInBytes();
+        replicationBatchingCompressionType = conf.getReplicationBatchingCompressionType();
 
         startProducer();
     }
@@ -112,6 +148,8 @@ public class PersistentReplicator extends AbstractReplicator implements Replicat
         cursor.cancelPendingReadRequest();
         HAVE_PENDING_READ_UPDATER.set(this, FALSE);
         this.producer = (ProducerImpl) producer;
+        minRttNanos = 0;
+        avgRttNanos = 0;
 
         if (STATE_UPDATER.compareAndSet(this, State.Starting, State.Started)) {
             log.info("[{}][{} -> {}] Created replicator producer", topicName, localCluster, remoteCluster);
@@ -149,9 +187,15 @@ public class PersistentReplicator extends AbstractReplicator implements Replicat
 
     protected void readMoreEntries() {
         int availablePermits = producerQueueSize - PENDING_MESSAGES_UPDATER.get(this);
+        long availableBytes = producerQueueSizeInBytes - PENDING_BYTES_UPDATER.get(this);
 
-        if (availablePermits > 0) {
+        if (availablePermits > 0 && availableBytes > 0) {
             int messagesToRead = Math.min(availablePermits, readBatchSize);
+            long entrySize = avgEntrySize;
+            if (entrySize > 0) {
+                // Don't read more than what fits in the bytes still available in the producer queue
+                messagesToRead = (int) Math.max(1, Math.min(messagesToRead, availableBytes / entrySize));
+            }
             if (!isWritable()) {
                 if (log.isDebugEnabled()) {
                     log.debug("[{}][{} -> {}] Throttling replication traffic because producer is not writable",
@@ -189,19 +233,23 @@ public class PersistentReplicator extends AbstractReplicator implements Replicat
                     entries.size());
         }
 
-        if (readBatchSize < MaxReadBatchSize) {
-            int newReadBatchSize = Math.min(readBatchSize * 2, MaxReadBatchSize);
-            if (log.isDebugEnabled()) {
-                log.debug("[{}][{} -> {}] Increasing read batch size from {} to {}", topicName, localCluster,
-                        remoteCluster, readBatchSize, newReadBatchSize);
-            }
+        adjustReadBatchSize();
 
-            readBatchSize = newReadBatchSize;
+        if (!entries.isEmpty()) {
+            long readBytes = 0;
+            for (int i = 0; i < entries.size(); i++) {
+                readBytes += entries.get(i).getLength();
+            }
+            long entrySize = readBytes / entries.size();
+            avgEntrySize = avgEntrySize == 0 ? entrySize : (avgEntrySize * 7 + entrySize) / 8;
         }
 
         readFailureBackoff.reduceToHalf();
 
         boolean atLeastOneMessageSentForReplication = false;
+        // Consecutive small entries sent together, when replication batching is enabled
+        ReplicatedEntriesBatch batch = null;
+        List<Entry> batchEntries = null;
 
         try {
             // This flag is set to true when we skip atleast one local message,
@@ -211,6 +259,7 @@ public class PersistentReplicator extends AbstractReplicator implements Replicat
                 Entry entry = entries.get(i);
                 int length = entry.getLength();
                 ByteBuf headersAndPayload = entry.getDataBuffer();
+                int headersIndex = headersAndPayload.readerIndex();
                 MessageImpl msg;
                 try {
                     msg = MessageImpl.deserialize(headersAndPayload);
@@ -268,14 +317,45 @@ public class PersistentReplicator extends AbstractReplicator implements Replicat
 
                 // Increment pending messages for messages produced locally
                 PENDING_MESSAGES_UPDATER.incrementAndGet(this);
+                PENDING_BYTES_UPDATER.addAndGet(this, length);
 
                 msgOut.recordEvent(headersAndPayload.readableBytes());
 
+                if (replicationBatchingEnabled && length <= replicationBatchingMaxSize) {
+                    if (batch != null && batch.getSize() + length > replicationBatchingMaxSize) {
+                        sendBatch(batch, batchEntries);
+                        batch = null;
+                    }
+                    if (batch == null) {
+                        batch = new ReplicatedEntriesBatch(replicationBatchingMaxSize);
+                        batchEntries = new ArrayList<>();
+                    }
+                    msg.recycle();
+                    headersAndPayload.readerIndex(headersIndex);
+                    MessageMetadata msgMetadata = Commands.parseMessageMetadata(headersAndPayload);
+                    MessageMetadata.Builder builder = MessageMetadata.newBuilder(msgMetadata);
+                    MessageMetadata replicatedMsgMetadata = builder.setReplicatedFrom(localCluster).build();
+                    batch.add(replicatedMsgMetadata, headersAndPayload);
+                    batchEntries.add(entry);
+                    msgMetadata.recycle();
+                    builder.recycle();
+                    replicatedMsgMetadata.recycle();
+                    atLeastOneMessageSentForReplication = true;
+                    continue;
+                }
+
+                if (batch != null) {
+                    // Keep the order of the entries
+                    sendBatch(batch, batchEntries);
+                    batch = null;
+                }
+
                 msg.setReplicatedFrom(localCluster);
 
                 headersAndPayload.retain();
 
-                producer.sendAsync(msg, ProducerSendCallback.create(this, entry, msg));
+                // The payload is forwarded as stored: compressed and batched by the original producer
+                producer.sendAsync(msg, ProducerSendCallback.create(this, entry, msg, System.nanoTime()));
                 atLeastOneMessageSentForReplication = true;
             }
         } catch (Exception e) {
@@ -283,9 +363,14 @@ public class PersistentReplicator extends AbstractReplicator implements Replicat
                     e);
         }
 
+        if (batch != null) {
+            sendBatch(batch, batchEntries);
+        }
+
         HAVE_PENDING_READ_UPDATER.set(this, FALSE);
 
-        if (atLeastOneMessageSentForReplication && !isWritable()) {
+        if (atLeastOneMessageSentForReplication && (!isWritable()
+                || PENDING_BYTES_UPDATER.get(this) >= producerQueueSizeInBytes)) {
             // Don't read any more entries until the current pending entries are persisted
             if (log.isDebugEnabled()) {
                 log.debug("[{}][{} -> {}] Pausing replication traffic. at-least-one: {} is-writable: {}", topicName,
@@ -296,6 +381,56 @@ public class PersistentReplicator extends AbstractReplicator implements Replicat
         }
     }
 
+    private void sendBatch(ReplicatedEntriesBatch batch, List<Entry> batchEntries) {
+        ProducerSendCallback callback = ProducerSendCallback.create(this, batchEntries, System.nanoTime());
+        try {
+            MessageImpl msg = MessageImpl.deserialize(batch.build(localCluster, replicationBatchingCompressionType));
+            callback.msg = msg;
+            if (log.isDebugEnabled()) {
+                log.debug("[{}][{} -> {}] Sending a batch of {} entries", topicName, localCluster, remoteCluster,
+                        batchEntries.size());
+            }
+            producer.sendAsync(msg, callback);
+        } catch (Exception e) {
+            log.error("[{}][{} -> {}] Failed to send a batch of {} entries", topicName, localCluster, remoteCluster,
+                    batchEntries.size(), e);
+            callback.sendComplete(e);
+        }
+    }
+
+    /**
+     * Grows the read batch size while the remote cluster acknowledges the replicated messages as fast as before, and
+     * halves it when the ack time builds up, which means that the remote broker or the link is queueing our sends.
+     */
+    private void adjustReadBatchSize() {
+        long avgRtt = avgRttNanos;
+        long minRtt = minRttNanos;
+        int newReadBatchSize;
+        if (minRtt > 0 && avgRtt > RttQueueingFactor * minRtt) {
+            newReadBatchSize = Math.max(readBatchSize / 2, 1);
+        } else {
+            newReadBatchSize = Math.min(readBatchSize * 2, maxReadBatchSize);
+        }
+
+        if (newReadBatchSize != readBatchSize) {
+            if (log.isDebugEnabled()) {
+                log.debug("[{}][{} -> {}] Changing read batch size from {} to {}, ack time {} ms (min {} ms)",
+                        topicName, localCluster, remoteCluster, readBatchSize, newReadBatchSize,
+                        avgRtt / 1_000_000.0, minRtt / 1_000_000.0);
+            }
+            readBatchSize = newReadBatchSize;
+        }
+    }
+
+    private void recordRtt(long rttNanos) {
+        long minRtt = minRttNanos;
+        if (minRtt == 0 || rttNanos < minRtt) {
+            minRttNanos = rttNanos;
+        }
+        long avgRtt = avgRttNanos;
+        avgRttNanos = avgRtt == 0 ? rttNanos : (avgRtt * 7 + rttNanos) / 8;
+    }
+
     public void updateCursorState() {
         if (producer != null && producer.isConnected()) {
             this.cursor.setActive();
@@ -307,7 +442,10 @@ public class PersistentReplicator extends AbstractReplicator implements Replicat
     private static final class ProducerSendCallback implements SendCallback {
         private PersistentReplicator replicator;
         private Entry entry;
+        // Entries sent as a batch, instead of a single entry
+        private List<Entry> entries;
         private MessageImpl msg;
+        private long sendTimeNanos;
 
         @Override
         public void sendComplete(Exception exception) {
@@ -321,11 +459,33 @@ public class PersistentReplicator extends AbstractReplicator implements Replicat
                     log.debug("[{}][{} -> {}] Message persisted on remote broker", replicator.topicName,
                             replicator.localCluster, replicator.remoteCluster);
                 }
-                replicator.cursor.asyncDelete(entry.getPosition(), replicator, entry.getPosition());
+                if (entries != null) {
+                    for (int i = 0; i < entries.size(); i++) {
+                        Position position = entries.get(i).getPosition();
+                        replicator.cursor.asyncDelete(position, replicator, position);
+                    }
+                } else {
+                    replicator.cursor.asyncDelete(entry.getPosition(), replicator, entry.getPosition());
+                }
+                replicator.recordRtt(System.nanoTime() - sendTimeNanos);
             }
-            entry.release();
 
-            int pending = PENDING_MESSAGES_UPDATER.decrementAndGet(replicator);
+            long sentBytes = 0;
+            int sentEntries;
+            if (entries != null) {
+                for (int i = 0; i < entries.size(); i++) {
+                    sentBytes += entries.get(i).getLength();
+                    entries.get(i).release();
+                }
+                sentEntries = entries.size();
+            } else {
+                sentBytes = entry.getLength();
+                entry.release();
+                sentEntries = 1;
+            }
+            long pendingBytes = PENDING_BYTES_UPDATER.addAndGet(replicator, -sentBytes);
+
+            int pending = PENDING_MESSAGES_UPDATER.addAndGet(replicator, -sentEntries);
 
             // In general, we schedule a new batch read operation when the occupied queue size gets smaller than half
             // the max size, unless another read operation is already in progress.
@@ -333,6 +493,7 @@ public class PersistentReplicator extends AbstractReplicator implements Replicat
             // until we have emptied the whole queue, and at that point we will read a batch of 1 single message if the
             // producer is still not "writable".
             if (pending < replicator.producerQueueThreshold //
+                    && pendingBytes < replicator.producerQueueThresholdInBytes //
                     && HAVE_PENDING_READ_UPDATER.get(replicator) == FALSE //
             ) {
                 if (pending == 0 || replicator.producer.isWritable()) {
@@ -355,17 +516,28 @@ public class PersistentReplicator extends AbstractReplicator implements Replicat
             this.recyclerHandle = recyclerHandle;
         }
 
-        static ProducerSendCallback create(PersistentReplicator replicator, Entry entry, MessageImpl msg) {
+        static ProducerSendCallback create(PersistentReplicator replicator, Entry entry, MessageImpl msg,
+                long sendTimeNanos) {
             ProducerSendCallback sendCallback = RECYCLER.get();
             sendCallback.replicator = replicator;
             sendCallback.entry = entry;
             sendCallback.msg = msg;
+            sendCallback.sendTimeNanos = sendTimeNanos;
+            return sendCallback;
+        }
+
+        static ProducerSendCallback create(PersistentReplicator replicator, List<Entry> entries, long sendTimeNanos) {
+            ProducerSendCallback sendCallback = RECYCLER.get();
+            sendCallback.replicator = replicator;
+            sendCallback.entries = entries;
+            sendCallback.sendTimeNanos = sendTimeNanos;
             return sendCallback;
         }
 
         private void recycle() {
             replicator = null;
             entry = null; //already released and recycled on sendComplete
+            entries = null;
             if (msg != null) {
                 msg.recycle();
                 msg = null;
@@ -530,12 +702,16 @@ public class PersistentReplicator extends AbstractReplicator implements Replicat
         stats.msgRateOut = msgOut.getRate();
         stats.msgThroughputOut = msgOut.getValueRate();
         stats.msgRateExpired = msgExpired.getRate() + expiryMonitor.getMessageExpiryRate();
+        stats.replicationRttMillis = avgRttNanos / 1_000_000.0;
+        // Start a new period for the lowest ack time, so that it follows the changes of the remote cluster latency
+        minRttNanos = 0;
     }
 
     public ReplicatorStats getStats() {
         stats.replicationBacklog = cursor.getNumberOfEntriesInBacklog();
         stats.connected = producer != null && producer.isConnected();
         stats.replicationDelayInSeconds = getReplicationDelayInSeconds();
+        stats.inFlightBytes = PENDING_BYTES_UPDATER.get(this);
 
         ProducerImpl producer = this.producer;
         if (producer != null) {
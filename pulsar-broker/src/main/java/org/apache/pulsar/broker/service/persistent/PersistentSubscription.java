@@ -39,6 +39,7 @@ import org.apache.bookkeeper.mledger.ManagedLedgerException.ConcurrentFindCursor
 import org.apache.bookkeeper.mledger.ManagedLedgerException.InvalidCursorPositionException;
 import org.apache.bookkeeper.mledger.Position;
 import org.apache.bookkeeper.mledger.impl.PositionImpl;
+import org.apache.commons.lang3.tuple.Pair;
 import org.apache.pulsar.broker.service.BrokerServiceException;
 import org.apache.pulsar.broker.service.BrokerServiceException.PersistenceException;
 import org.apache.pulsar.broker.service.BrokerServiceException.ServerMetadataException;
@@ -207,6 +208,19 @@ public class PersistentSubscription implements Subscription {
         }
     }
 
+    @Override
+    public void acknowledgeMessageRanges(List<Pair<Position, Position>> ranges) {
+        if (log.isDebugEnabled()) {
+            log.debug("[{}][{}] Individual acks on ranges {}", topicName, subName, ranges);
+        }
+        cursor.asyncDeleteRanges(ranges, deleteCallback, ranges);
+
+        if (topic.getManagedLedger().isTerminated() && cursor.getNumberOfEntriesInBacklog() == 0) {
+            // Notify all consumer that the end of topic was reached
+            dispatcher.getConsumers().forEach(Consumer::reachedEndOfTopic);
+        }
+    }
+
     private final MarkDeleteCallback markDeleteCallback = new MarkDeleteCallback() {
         @Override
         public void markDeleteComplete(Object ctx) {
@@ -54,8 +54,11 @@ import org.apache.bookkeeper.mledger.ManagedLedgerException.ManagedLedgerTermina
 import org.apache.bookkeeper.mledger.Position;
 import org.apache.bookkeeper.mledger.impl.ManagedCursorImpl;
 import org.apache.bookkeeper.mledger.impl.ManagedLedgerImpl;
+import org.apache.bookkeeper.mledger.impl.NullLedgerOffloader;
 import org.apache.bookkeeper.mledger.impl.PositionImpl;
+import org.apache.bookkeeper.mledger.proto.MLDataFormats.ManagedLedgerInfo;
 import org.apache.pulsar.broker.PulsarServerException;
+import org.apache.pulsar.broker.ServiceConfiguration;
 import org.apache.pulsar.broker.admin.AdminResource;
 import org.apache.pulsar.broker.service.BrokerService;
 import org.apache.pulsar.broker.service.BrokerServiceException;
@@ -93,6 +96,7 @@ import org.apache.pulsar.common.api.proto.PulsarApi.CommandSubscribe.SubType;
 import org.apache.pulsar.common.naming.TopicName;
 import org.apache.pulsar.common.policies.data.BacklogQuota;
 import org.apache.pulsar.common.policies.data.ConsumerStats;
+import org.apache.pulsar.common.policies.data.OffloadPolicies;
 import org.apache.pulsar.common.policies.data.PersistentTopicInternalStats;
 import org.apache.pulsar.common.policies.data.PersistentTopicInternalStats.CursorStats;
 import org.apache.pulsar.common.policies.data.PersistentTopicInternalStats.LedgerInfo;
@@ -970,6 +974,109 @@ public class PersistentTopic implements Topic, AddEntryCallback {
         messageDeduplication.purgeInactiveProducers();
     }
 
+    /**
+     * Offload the closed ledgers of the topic which are eligible according to the offload policies of its namespace,
+     * or the broker defaults, and trigger the deletion of the bookkeeper copy of the offloaded ledgers.
+     */
+    public void checkOffload() {
+        if (ledger.getConfig().getLedgerOffloader() == NullLedgerOffloader.INSTANCE) {
+            return;
+        }
+        TopicName name = TopicName.get(topic);
+        OffloadPolicies offloadPolicies;
+        try {
+            offloadPolicies = brokerService.pulsar().getConfigurationCache().policiesCache()
+                    .get(AdminResource.path(POLICIES, name.getNamespace()))
+                    .map(policies -> policies.offload_policies).orElse(null);
+        } catch (Exception e) {
+            if (log.isDebugEnabled()) {
+                log.debug("[{}] Error getting policies", topic);
+            }
+            return;
+        }
+
+        ServiceConfiguration config = brokerService.pulsar().getConfiguration();
+        long thresholdInBytes = config.getManagedLedgerOffloadThresholdInBytes();
+        long ledgerAgeInSeconds = config.getManagedLedgerOffloadLedgerAgeInSeconds();
+        long deletionLagInMillis = config.getManagedLedgerOffloadDeletionLagInMillis();
+        if (offloadPolicies != null) {
+            thresholdInBytes = offloadPolicies.getOffloadThresholdInBytes();
+            ledgerAgeInSeconds = offloadPolicies.getOffloadLedgerAgeInSeconds();
+            if (offloadPolicies.getOffloadDeletionLagInMillis() >= 0) {
+                deletionLagInMillis = offloadPolicies.getOffloadDeletionLagInMillis();
+            }
+        }
+        ledger.getConfig().setOffloadLedgerDeletionLag(deletionLagInMillis, TimeUnit.MILLISECONDS);
+
+        ManagedLedgerImpl ml = (ManagedLedgerImpl) ledger;
+        List<ManagedLedgerInfo.LedgerInfo> ledgers = ml.getLedgersInfoAsList();
+        if (ledgers.stream().anyMatch(info -> info.getOffloadContext().getComplete()
+                && !info.getOffloadContext().getBookkeeperDeleted())) {
+            // The trim deletes the bookkeeper copy of the offloaded ledgers once their deletion lag has elapsed
+            ml.trimConsumedLedgersInBackground();
+        }
+
+        PositionImpl offloadTo = getAutoOffloadPosition(ledgers, (PositionImpl) ml.getLastConfirmedEntry(),
+                ml.getCurrentLedgerSize(), thresholdInBytes, ledgerAgeInSeconds, System.currentTimeMillis());
+        if (offloadTo == null) {
+            return;
+        }
+        try {
+            triggerOffload(new MessageIdImpl(offloadTo.getLedgerId(), offloadTo.getEntryId(), -1));
+            if (log.isDebugEnabled()) {
+                log.debug("[{}] Triggered offload of the ledgers before {}", topic, offloadTo);
+            }
+        } catch (AlreadyRunningException e) {
+            // The ledgers will be checked again once the running offload is done
+        }
+    }
+
+    /**
+     * Get the position to offload the topic up to, so that the bytes of the topic stored in bookkeeper do not
+     * exceed thresholdInBytes and no closed ledger is older than ledgerAgeInSeconds.
+     *
+     * @return the position before which ledgers should be offloaded, or null if there is none to offload
+     */
+    static PositionImpl getAutoOffloadPosition(List<ManagedLedgerInfo.LedgerInfo> ledgers,
+                                               PositionImpl lastConfirmedEntry, long currentLedgerSize,
+                                               long thresholdInBytes, long ledgerAgeInSeconds, long now) {
+        if (thresholdInBytes < 0 && ledgerAgeInSeconds < 0) {
+            return null;
+        }
+        long bookkeeperBytes = currentLedgerSize;
+        for (ManagedLedgerInfo.LedgerInfo info : ledgers) {
+            if (!info.getOffloadContext().getComplete()) {
+                bookkeeperBytes += info.getSize();
+            }
+        }
+
+        PositionImpl offloadTo = null;
+        boolean foundLedgerToOffload = false;
+        // The last ledger is the one being written to, it is never offloaded
+        for (int i = 0; i < ledgers.size() - 1; i++) {
+            ManagedLedgerInfo.LedgerInfo info = ledgers.get(i);
+            if (!info.getOffloadContext().getComplete()) {
+                boolean overThreshold = thresholdInBytes >= 0 && bookkeeperBytes > thresholdInBytes;
+                boolean tooOld = ledgerAgeInSeconds >= 0 && info.getTimestamp() > 0
+                        && now - info.getTimestamp() > TimeUnit.SECONDS.toMillis(ledgerAgeInSeconds);
+                if (!overThreshold && !tooOld) {
+                    // Offloads are done on a prefix of the ledgers, so none of the newer ones can be offloaded
+                    break;
+                }
+                bookkeeperBytes -= info.getSize();
+                foundLedgerToOffload = true;
+            }
+
+            // An offload request must point to an existing entry, or right after the last one
+            ManagedLedgerInfo.LedgerInfo next = ledgers.get(i + 1);
+            if (foundLedgerToOffload
+                    && (next.getEntries() > 0 || next.getLedgerId() == lastConfirmedEntry.getLedgerId())) {
+                offloadTo = PositionImpl.get(next.getLedgerId(), 0);
+            }
+        }
+        return offloadTo;
+    }
+
     CompletableFuture<Void> startReplicator(String remoteCluster) {
         log.info("[{}] Starting replicator to remote: {}", topic, remoteCluster);
         final CompletableFuture<Void> future = new CompletableFuture<>();
@@ -1170,6 +1277,8 @@ public class PersistentTopic implements Topic, AddEntryCallback {
             topicStatsStream.writePair("msgThroughputOut", rStat.msgThroughputOut);
             topicStatsStream.writePair("replicationBacklog", rStat.replicationBacklog);
             topicStatsStream.writePair("replicationDelayInSeconds", rStat.replicationDelayInSeconds);
+            topicStatsStream.writePair("inFlightBytes", rStat.inFlightBytes);
+            topicStatsStream.writePair("replicationRttMillis", rStat.replicationRttMillis);
             topicStatsStream.writePair("inboundConnection", rStat.inboundConnection);
             topicStatsStream.writePair("inboundConnectedSince", rStat.inboundConnectedSince);
             topicStatsStream.writePair("outboundConnection", rStat.outboundConnection);
@@ -76,6 +76,8 @@ public class AggregatedNamespaceStats {
             replStats.msgThroughputIn += as.msgThroughputIn;
             replStats.msgThroughputOut += as.msgThroughputOut;
             replStats.replicationBacklog += as.replicationBacklog;
+            replStats.inFlightBytes += as.inFlightBytes;
+            replStats.replicationRttMillis = Math.max(replStats.replicationRttMillis, as.replicationRttMillis);
         });
     }
 
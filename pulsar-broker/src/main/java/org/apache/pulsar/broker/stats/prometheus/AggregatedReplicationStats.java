@@ -33,4 +33,10 @@ public class AggregatedReplicationStats {
     /** Number of messages pending to be replicated to remote cluster */
     public long replicationBacklog;
 
+    /** Size of the messages sent to the remote cluster and not yet acknowledged. bytes */
+    public long inFlightBytes;
+
+    /** Highest average time for the remote cluster to acknowledge a replicated message. ms */
+    public double replicationRttMillis;
+
 }
@@ -123,6 +123,9 @@ public class NamespaceStatsAggregator {
             aggReplStats.msgRateOut += replStats.msgRateOut;
             aggReplStats.msgThroughputOut += replStats.msgThroughputOut;
             aggReplStats.replicationBacklog += replStats.replicationBacklog;
+            aggReplStats.inFlightBytes += replStats.inFlightBytes;
+            aggReplStats.replicationRttMillis = Math.max(aggReplStats.replicationRttMillis,
+                    replStats.replicationRttMillis);
         });
     }
 
@@ -187,6 +190,10 @@ public class NamespaceStatsAggregator {
                         replStats.msgThroughputOut);
                 metricWithRemoteCluster(stream, cluster, namespace, "pulsar_replication_backlog", remoteCluster,
                         replStats.replicationBacklog);
+                metricWithRemoteCluster(stream, cluster, namespace, "pulsar_replication_in_flight_bytes",
+                        remoteCluster, replStats.inFlightBytes);
+                metricWithRemoteCluster(stream, cluster, namespace, "pulsar_replication_rtt_ms", remoteCluster,
+                        replStats.replicationRttMillis);
             });
         }
     }
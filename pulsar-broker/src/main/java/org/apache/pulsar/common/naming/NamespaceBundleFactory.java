@@ -29,6 +29,7 @@ import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map.Entry;
+import java.util.NavigableMap;
 import java.util.Optional;
 import java.util.SortedSet;
 import java.util.concurrent.CompletableFuture;
@@ -217,11 +218,43 @@ public class NamespaceBundleFactory implements ZooKeeperCacheListener<LocalPolic
      */
     public Pair<NamespaceBundles, List<NamespaceBundle>> splitBundles(NamespaceBundle targetBundle, int numBundles) {
         checkArgument(canSplitBundle(targetBundle), "%s bundle can't be split further", targetBundle);
+        final Range<Long> range = targetBundle.getKeyRange();
+        final long segSize = (range.upperEndpoint() - range.lowerEndpoint()) / numBundles;
+        final long[] splitPoints = new long[numBundles - 1];
+        long curPartition = range.lowerEndpoint() + segSize;
+        for (int j = 0; j < numBundles - 1; j++) {
+            splitPoints[j] = curPartition;
+            curPartition += segSize;
+        }
+        return splitBundles(targetBundle, splitPoints);
+    }
+
+    /**
+     * Split a bundle in two at the given hash, which becomes the lower boundary of the second bundle.
+     *
+     * @param targetBundle
+     *            the bundle to split
+     * @param splitPoint
+     *            a hash strictly inside the range of the bundle
+     * @return the new bundles of the namespace and the two bundles created, or null if the bundle is not part of the
+     *         bundles of the namespace
+     */
+    public Pair<NamespaceBundles, List<NamespaceBundle>> splitBundleAt(NamespaceBundle targetBundle, long splitPoint) {
+        checkArgument(canSplitBundle(targetBundle), "%s bundle can't be split further", targetBundle);
+        final Range<Long> range = targetBundle.getKeyRange();
+        checkArgument(splitPoint > range.lowerEndpoint() && splitPoint < range.upperEndpoint(),
+                "split point %s is not inside bundle %s", splitPoint, targetBundle);
+        return splitBundles(targetBundle, new long[] { splitPoint });
+    }
+
+    private Pair<NamespaceBundles, List<NamespaceBundle>> splitBundles(NamespaceBundle targetBundle,
+            long[] splitPoints) {
         checkNotNull(targetBundle, "can't split null bundle");
         checkNotNull(targetBundle.getNamespaceObject(), "namespace must be present");
         NamespaceName nsname = targetBundle.getNamespaceObject();
         NamespaceBundles sourceBundle = bundlesCache.synchronous().get(nsname);
 
+        final int numBundles = splitPoints.length + 1;
         final int lastIndex = sourceBundle.partitions.length - 1;
 
         final long[] partitions = new long[sourceBundle.partitions.length + (numBundles - 1)];
@@ -232,14 +265,9 @@ public class NamespaceBundleFactory implements ZooKeeperCacheListener<LocalPolic
             if (sourceBundle.partitions[i] == range.lowerEndpoint()
                     && (range.upperEndpoint() == sourceBundle.partitions[i + 1])) {
                 splitPartition = i;
-                Long maxVal = sourceBundle.partitions[i + 1];
-                Long minVal = sourceBundle.partitions[i];
-                Long segSize = (maxVal - minVal) / numBundles;
-                partitions[pos++] = minVal;
-                Long curPartition = minVal + segSize;
-                for (int j = 0; j < numBundles - 1; j++) {
-                    partitions[pos++] = curPartition;
-                    curPartition += segSize;
+                partitions[pos++] = sourceBundle.partitions[i];
+                for (long splitPoint : splitPoints) {
+                    partitions[pos++] = splitPoint;
                 }
             } else {
                 partitions[pos++] = sourceBundle.partitions[i];
@@ -256,6 +284,49 @@ public class NamespaceBundleFactory implements ZooKeeperCacheListener<LocalPolic
         return null;
     }
 
+    /**
+     * Find the hash at which to split a bundle so that the load of its topics is balanced between the two resulting
+     * bundles. The split point is placed between the hashes of two topics, so a topic carrying most of the load of the
+     * bundle ends up in a bundle with as few other topics as possible, rather than in a half of the range which is as
+     * hot as the original bundle.
+     *
+     * @param targetBundle
+     *            the bundle to split
+     * @param topicLoads
+     *            the load of each topic of the bundle, by the hash of its name
+     * @return the split point, or empty if there is no load or fewer than two distinct topic hashes to split between
+     */
+    public static Optional<Long> getLoadBalancedSplitPoint(NamespaceBundle targetBundle,
+            NavigableMap<Long, Double> topicLoads) {
+        final Range<Long> range = targetBundle.getKeyRange();
+        double totalLoad = 0;
+        for (double load : topicLoads.values()) {
+            totalLoad += load;
+        }
+        if (totalLoad <= 0 || topicLoads.size() < 2) {
+            return Optional.empty();
+        }
+
+        Optional<Long> splitPoint = Optional.empty();
+        double minMaxLoad = Double.POSITIVE_INFINITY;
+        double lowerLoad = 0;
+        Long previousHash = null;
+        for (Entry<Long, Double> entry : topicLoads.entrySet()) {
+            if (previousHash != null) {
+                // Split between the previous topic and this one
+                long candidate = previousHash + (entry.getKey() - previousHash) / 2 + 1;
+                double maxLoad = Math.max(lowerLoad, totalLoad - lowerLoad);
+                if (maxLoad < minMaxLoad && candidate > range.lowerEndpoint() && candidate < range.upperEndpoint()) {
+                    minMaxLoad = maxLoad;
+                    splitPoint = Optional.of(candidate);
+                }
+            }
+            lowerLoad += entry.getValue();
+            previousHash = entry.getKey();
+        }
+        return splitPoint;
+    }
+
     public boolean canSplitBundle(NamespaceBundle bundle) {
         Range<Long> range = bundle.getKeyRange();
         return range.upperEndpoint() - range.lowerEndpoint() > 1;
@@ -0,0 +1,196 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.broker.fsoffload;
+
+import static org.apache.pulsar.broker.offload.OffloadTestUtils.assertEntriesEquals;
+
+import io.netty.util.concurrent.DefaultThreadFactory;
+
+import java.io.File;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.stream.Stream;
+
+import org.apache.bookkeeper.client.MockBookKeeper;
+import org.apache.bookkeeper.client.api.LastConfirmedAndEntry;
+import org.apache.bookkeeper.client.api.LedgerEntries;
+import org.apache.bookkeeper.client.api.ReadHandle;
+import org.apache.bookkeeper.mledger.LedgerOffloader;
+
+import org.apache.pulsar.broker.PulsarServerException;
+import org.apache.pulsar.broker.ServiceConfiguration;
+import org.apache.pulsar.broker.auth.MockedPulsarServiceBaseTest;
+import org.apache.pulsar.broker.offload.OffloadTestUtils;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+class FileSystemManagedLedgerOffloaderTest {
+    final ScheduledExecutorService scheduler;
+    final MockBookKeeper bk;
+    Path directory = null;
+
+    FileSystemManagedLedgerOffloaderTest() throws Exception {
+        scheduler = Executors.newScheduledThreadPool(1, new DefaultThreadFactory("offloader-"));
+        bk = new MockBookKeeper(MockedPulsarServiceBaseTest.createMockZooKeeper());
+    }
+
+    @BeforeMethod
+    public void start() throws Exception {
+        directory = Files.createTempDirectory("fs-offload-test");
+    }
+
+    @AfterMethod
+    public void stop() throws Exception {
+        if (directory != null) {
+            try (Stream<Path> files = Files.walk(directory)) {
+                files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+            }
+        }
+    }
+
+    @Test
+    public void testNoDirectoryConfigured() throws Exception {
+        ServiceConfiguration conf = new ServiceConfiguration();
+        conf.setManagedLedgerOffloadDriver(FileSystemManagedLedgerOffloader.DRIVER_NAME);
+
+        try {
+            new FileSystemManagedLedgerOffloader(conf, scheduler);
+            Assert.fail("Should have thrown exception");
+        } catch (PulsarServerException pse) {
+            // correct
+        }
+    }
+
+    @Test
+    public void testOffloadAndRead() throws Exception {
+        // ~1.5MB ledger, written as several segments of at most 256KB
+        ReadHandle toWrite = OffloadTestUtils.buildReadHandle(bk, 100, 10 * 1024);
+        LedgerOffloader offloader = new FileSystemManagedLedgerOffloader(directory.toString(), scheduler,
+                256 * 1024);
+        UUID uuid = UUID.randomUUID();
+        offloader.offload(toWrite, uuid, new HashMap<>()).get();
+
+        Assert.assertTrue(Files.exists(directory.resolve(
+                FileSystemManagedLedgerOffloader.indexFileName(toWrite.getId(), uuid))));
+        Assert.assertTrue(Files.exists(directory.resolve(
+                FileSystemManagedLedgerOffloader.segmentFileName(toWrite.getId(), uuid, 1))));
+
+        ReadHandle toTest = offloader.readOffloaded(toWrite.getId(), uuid).get();
+        Assert.assertEquals(toTest.getLastAddConfirmed(), toWrite.getLastAddConfirmed());
+        Assert.assertEquals(toTest.getLength(), toWrite.getLength());
+
+        try (LedgerEntries toWriteEntries = toWrite.read(0, toWrite.getLastAddConfirmed());
+             LedgerEntries toTestEntries = toTest.read(0, toWrite.getLastAddConfirmed())) {
+            assertEntriesEquals(toWriteEntries, toTestEntries);
+        }
+
+        // Random reads, across groups and segments
+        Random r = new Random(0);
+        for (int i = 0; i < 20; i++) {
+            long first = r.nextInt((int) toWrite.getLastAddConfirmed() + 1);
+            long last = Math.min(first + r.nextInt(30), toWrite.getLastAddConfirmed());
+            try (LedgerEntries toWriteEntries = toWrite.read(first, last);
+                 LedgerEntries toTestEntries = toTest.read(first, last)) {
+                assertEntriesEquals(toWriteEntries, toTestEntries);
+            }
+        }
+
+        try {
+            toTest.read(0, toWrite.getLastAddConfirmed() + 1);
+            Assert.fail("Shouldn't be able to read past the last entry");
+        } catch (Exception e) {
+            // correct
+        }
+        toTest.close();
+    }
+
+    @Test
+    public void testReadLastAddConfirmedAndEntry() throws Exception {
+        ReadHandle toWrite = OffloadTestUtils.buildReadHandle(bk, 10, 1024);
+        LedgerOffloader offloader = new FileSystemManagedLedgerOffloader(directory.toString(), scheduler,
+                256 * 1024);
+        UUID uuid = UUID.randomUUID();
+        offloader.offload(toWrite, uuid, new HashMap<>()).get();
+        ReadHandle toTest = offloader.readOffloaded(toWrite.getId(), uuid).get();
+
+        long lac = toWrite.getLastAddConfirmed();
+        try (LastConfirmedAndEntry lastConfirmedAndEntry = toTest.readLastAddConfirmedAndEntry(lac, 1000, false);
+             LedgerEntries toWriteEntries = toWrite.read(lac, lac)) {
+            Assert.assertEquals(lastConfirmedAndEntry.getLastAddConfirmed(), lac);
+            Assert.assertTrue(lastConfirmedAndEntry.hasEntry());
+            Assert.assertEquals(lastConfirmedAndEntry.getEntry().getEntryId(), lac);
+            Assert.assertEquals(lastConfirmedAndEntry.getEntry().getEntryBytes(),
+                    toWriteEntries.getEntry(lac).getEntryBytes());
+        }
+
+        // The ledger is closed, nothing comes after the last add confirmed
+        try (LastConfirmedAndEntry lastConfirmedAndEntry = toTest.readLastAddConfirmedAndEntry(lac + 1, 1000,
+                false)) {
+            Assert.assertEquals(lastConfirmedAndEntry.getLastAddConfirmed(), lac);
+            Assert.assertFalse(lastConfirmedAndEntry.hasEntry());
+        }
+        toTest.close();
+    }
+
+    @Test
+    public void testExtraMetadata() throws Exception {
+        ReadHandle toWrite = OffloadTestUtils.buildReadHandle(bk, 10, 1024);
+        LedgerOffloader offloader = new FileSystemManagedLedgerOffloader(directory.toString(), scheduler,
+                256 * 1024);
+        UUID uuid = UUID.randomUUID();
+        Map<String, String> extraMetadata = new HashMap<>();
+        extraMetadata.put("ManagedLedgerName", "my-property/my-ns/persistent/my-topic");
+        offloader.offload(toWrite, uuid, extraMetadata).get();
+
+        Properties metadata = new Properties();
+        try (InputStream metadataStream = Files.newInputStream(directory.resolve(
+                FileSystemManagedLedgerOffloader.metadataFileName(toWrite.getId(), uuid)))) {
+            metadata.load(metadataStream);
+        }
+        Assert.assertEquals(metadata.size(), 1);
+        Assert.assertEquals(metadata.getProperty("ManagedLedgerName"), "my-property/my-ns/persistent/my-topic");
+    }
+
+    @Test
+    public void testDeleteOffloaded() throws Exception {
+        ReadHandle toWrite = OffloadTestUtils.buildReadHandle(bk, 10, 1024);
+        LedgerOffloader offloader = new FileSystemManagedLedgerOffloader(directory.toString(), scheduler,
+                256 * 1024);
+        UUID uuid = UUID.randomUUID();
+        offloader.offload(toWrite, uuid, new HashMap<>()).get();
+        Assert.assertTrue(Files.exists(directory.resolve(
+                FileSystemManagedLedgerOffloader.indexFileName(toWrite.getId(), uuid))));
+
+        offloader.deleteOffloaded(toWrite.getId(), uuid).get();
+        try (Stream<Path> files = Files.list(directory)) {
+            Assert.assertEquals(files.count(), 0);
+        }
+    }
+}
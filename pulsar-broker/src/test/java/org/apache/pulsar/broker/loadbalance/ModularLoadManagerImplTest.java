@@ -78,6 +78,7 @@ import org.apache.pulsar.policies.data.loadbalancer.SystemResourceUsage;
 import org.apache.pulsar.zookeeper.LocalBookkeeperEnsemble;
 import org.apache.zookeeper.CreateMode;
 import org.apache.zookeeper.ZooDefs;
+import org.apache.zookeeper.data.Stat;
 import org.mockito.Mockito;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -616,4 +617,58 @@ public class ModularLoadManagerImplTest {
 
         pulsar.close();
     }
+
+    @Test
+    public void testBundleDataBinaryFormat() throws Exception {
+        final NamespaceBundleStats stats = new NamespaceBundleStats();
+        stats.msgRateIn = 100;
+        stats.msgRateOut = 200;
+        stats.msgThroughputIn = 1000;
+        stats.msgThroughputOut = 2000;
+        stats.topics = 5;
+        final BundleData bundleData = new BundleData(10, 1000, stats);
+
+        for (byte[] data : new byte[][] { bundleData.toBinary(), bundleData.getJsonBytes() }) {
+            final BundleData read = BundleData.fromBytes(data);
+            assertEquals(read.getTopics(), 5);
+            assertEquals(read.getShortTermData().getMaxSamples(), 10);
+            assertEquals(read.getShortTermData().getMsgRateIn(), 100.0);
+            assertEquals(read.getShortTermData().getMsgThroughputOut(), 2000.0);
+            assertEquals(read.getLongTermData().getMaxSamples(), 1000);
+            assertEquals(read.getLongTermData().getMsgRateOut(), 200.0);
+            assertEquals(read.getLongTermData().getNumSamples(), bundleData.getLongTermData().getNumSamples());
+        }
+        assertTrue(bundleData.toBinary().length < bundleData.getJsonBytes().length);
+    }
+
+    // Test that the leader only writes the data of the bundles which changed enough since they were last written.
+    @Test
+    public void testBundleDataWrittenOnChange() throws Exception {
+        pulsar1.getConfiguration().setLoadBalancerBundleDataBinaryFormatEnabled(true);
+        final LoadData loadData = (LoadData) getField(primaryLoadManager, "loadData");
+        final String bundle = mockBundleName(1);
+        final BundleData bundleData = new BundleData(10, 1000);
+        bundleData.getShortTermData().setMsgRateIn(100);
+        loadData.getBundleData().put(bundle, bundleData);
+        final String bundleDataPath = String.format("%s/%s", ModularLoadManagerImpl.BUNDLE_DATA_ZPATH, bundle);
+
+        primaryLoadManager.writeBundleDataOnZooKeeper();
+        final Stat stat = new Stat();
+        final BundleData written = BundleData.fromBytes(pulsar1.getZkClient().getData(bundleDataPath, false, stat));
+        assertEquals(written.getShortTermData().getMsgRateIn(), 100.0);
+        final int version = stat.getVersion();
+
+        // Change below the threshold: not written again.
+        bundleData.getShortTermData().setMsgRateIn(105);
+        primaryLoadManager.writeBundleDataOnZooKeeper();
+        pulsar1.getZkClient().getData(bundleDataPath, false, stat);
+        assertEquals(stat.getVersion(), version);
+
+        // Change above the threshold: written again.
+        bundleData.getShortTermData().setMsgRateIn(200);
+        primaryLoadManager.writeBundleDataOnZooKeeper();
+        assertEquals(BundleData.fromBytes(pulsar1.getZkClient().getData(bundleDataPath, false, stat))
+                .getShortTermData().getMsgRateIn(), 200.0);
+        assertNotEquals(stat.getVersion(), version);
+    }
 }
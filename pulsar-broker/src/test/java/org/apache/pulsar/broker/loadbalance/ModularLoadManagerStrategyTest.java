@@ -19,6 +19,7 @@
 package org.apache.pulsar.broker.loadbalance;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
 
 import java.util.Map;
 import java.util.Optional;
@@ -28,6 +29,7 @@ import org.apache.pulsar.broker.BundleData;
 import org.apache.pulsar.broker.ServiceConfiguration;
 import org.apache.pulsar.broker.TimeAverageBrokerData;
 import org.apache.pulsar.broker.loadbalance.impl.LeastLongTermMessageRate;
+import org.apache.pulsar.broker.loadbalance.impl.LeastProjectedResourceUsage;
 import org.apache.pulsar.policies.data.loadbalancer.LocalBrokerData;
 import org.apache.pulsar.policies.data.loadbalancer.ResourceUsage;
 import org.testng.annotations.Test;
@@ -57,6 +59,130 @@ public class ModularLoadManagerStrategyTest {
         assertEquals(strategy.selectBroker(brokerDataMap.keySet(), bundleData, loadData, conf), Optional.of("3"));
     }
 
+    // Test that least projected resource usage accounts for the bundle to assign and for the usage trend.
+    @Test
+    public void testLeastProjectedResourceUsage() {
+        // 10 MB/s, that is 80 Mbps
+        BundleData bundleData = new BundleData(10, 1000);
+        bundleData.getShortTermData().setMsgThroughputIn(10 * 1024 * 1024);
+        BrokerData brokerData1 = initBrokerData();
+        BrokerData brokerData2 = initBrokerData();
+        BrokerData brokerData3 = initBrokerData();
+        brokerData1.getLocalData().setCpu(new ResourceUsage(10, 100));
+        brokerData2.getLocalData().setCpu(new ResourceUsage(20, 100));
+        brokerData3.getLocalData().setCpu(new ResourceUsage(30, 100));
+        for (BrokerData brokerData : new BrokerData[] { brokerData1, brokerData2, brokerData3 }) {
+            brokerData.getLocalData().setBandwidthIn(new ResourceUsage(0, 1024 * 1024));
+        }
+        LoadData loadData = new LoadData();
+        Map<String, BrokerData> brokerDataMap = loadData.getBrokerData();
+        brokerDataMap.put("1", brokerData1);
+        brokerDataMap.put("2", brokerData2);
+        brokerDataMap.put("3", brokerData3);
+        ServiceConfiguration conf = new ServiceConfiguration();
+        ModularLoadManagerStrategy strategy = new LeastProjectedResourceUsage(conf);
+        assertEquals(strategy.selectBroker(brokerDataMap.keySet(), bundleData, loadData, conf), Optional.of("1"));
+
+        // The bundle would use all the bandwidth of broker 1.
+        brokerData1.getLocalData().setBandwidthIn(new ResourceUsage(0, 80 * 1024));
+        assertEquals(strategy.selectBroker(brokerDataMap.keySet(), bundleData, loadData, conf), Optional.of("2"));
+
+        // The cpu usage of broker 2 increased by 15% since its previous load report.
+        LocalBrokerData localData2 = brokerData2.getLocalData();
+        localData2.setCpu(new ResourceUsage(35, 100));
+        localData2.setLastUpdate(localData2.getLastUpdate() + 60000);
+        assertEquals(strategy.selectBroker(brokerDataMap.keySet(), bundleData, loadData, conf), Optional.of("3"));
+    }
+
+    // Test that least projected resource usage doesn't count both the preallocated bundles and the usage trend.
+    @Test
+    public void testLeastProjectedResourceUsagePreallocatedAndTrend() {
+        BundleData bundleData = new BundleData(10, 1000);
+        BrokerData brokerData1 = initBrokerData();
+        BrokerData brokerData2 = initBrokerData();
+        for (BrokerData brokerData : new BrokerData[] { brokerData1, brokerData2 }) {
+            brokerData.getLocalData().setBandwidthIn(new ResourceUsage(0, 800 * 1024));
+        }
+        LoadData loadData = new LoadData();
+        Map<String, BrokerData> brokerDataMap = loadData.getBrokerData();
+        brokerDataMap.put("1", brokerData1);
+        brokerDataMap.put("2", brokerData2);
+        ServiceConfiguration conf = new ServiceConfiguration();
+        ModularLoadManagerStrategy strategy = new LeastProjectedResourceUsage(conf);
+        strategy.selectBroker(brokerDataMap.keySet(), bundleData, loadData, conf);
+
+        // Broker 1 uses 10% more of its bandwidth since its previous load report, and 10 MB/s, that is another 10%,
+        // is preallocated to it.
+        LocalBrokerData localData1 = brokerData1.getLocalData();
+        localData1.setBandwidthIn(new ResourceUsage(80 * 1024, 800 * 1024));
+        localData1.setLastUpdate(localData1.getLastUpdate() + 60000);
+        BundleData preallocatedBundle = new BundleData(10, 1000);
+        preallocatedBundle.getShortTermData().setMsgThroughputIn(10 * 1024 * 1024);
+        brokerData1.getPreallocatedBundleData().put("preallocated", preallocatedBundle);
+        brokerData2.getLocalData().setCpu(new ResourceUsage(25, 100));
+        assertEquals(strategy.selectBroker(brokerDataMap.keySet(), bundleData, loadData, conf), Optional.of("1"));
+    }
+
+    // Test that least projected resource usage prefers the brokers which would not be overloaded, and still assigns
+    // the bundle when all of them would be.
+    @Test
+    public void testLeastProjectedResourceUsageOverloaded() {
+        BundleData bundleData = new BundleData(10, 1000);
+        BrokerData brokerData1 = initBrokerData();
+        BrokerData brokerData2 = initBrokerData();
+        brokerData1.getLocalData().setCpu(new ResourceUsage(90, 100));
+        brokerData2.getLocalData().setCpu(new ResourceUsage(80, 100));
+        LoadData loadData = new LoadData();
+        Map<String, BrokerData> brokerDataMap = loadData.getBrokerData();
+        brokerDataMap.put("1", brokerData1);
+        brokerDataMap.put("2", brokerData2);
+        ServiceConfiguration conf = new ServiceConfiguration();
+        ModularLoadManagerStrategy strategy = new LeastProjectedResourceUsage(conf);
+        assertEquals(strategy.selectBroker(brokerDataMap.keySet(), bundleData, loadData, conf), Optional.of("2"));
+
+        brokerData2.getLocalData().setCpu(new ResourceUsage(95, 100));
+        Optional<String> selected = strategy.selectBroker(brokerDataMap.keySet(), bundleData, loadData, conf);
+        assertTrue(selected.isPresent() && brokerDataMap.containsKey(selected.get()));
+    }
+
+    // Test that least projected resource usage avoids the brokers with a slow storage.
+    @Test
+    public void testLeastProjectedResourceUsageStorageLatency() {
+        BundleData bundleData = new BundleData(10, 1000);
+        BrokerData brokerData1 = initBrokerData();
+        BrokerData brokerData2 = initBrokerData();
+        brokerData1.getLocalData().setStorageWriteLatencyMs(50);
+        brokerData2.getLocalData().setStorageWriteLatencyMs(5);
+        LoadData loadData = new LoadData();
+        Map<String, BrokerData> brokerDataMap = loadData.getBrokerData();
+        brokerDataMap.put("1", brokerData1);
+        brokerDataMap.put("2", brokerData2);
+        ServiceConfiguration conf = new ServiceConfiguration();
+        ModularLoadManagerStrategy strategy = new LeastProjectedResourceUsage(conf);
+        assertEquals(strategy.selectBroker(brokerDataMap.keySet(), bundleData, loadData, conf), Optional.of("2"));
+
+        // Resource usage matters more than the latency.
+        brokerData2.getLocalData().setCpu(new ResourceUsage(50, 100));
+        assertEquals(strategy.selectBroker(brokerDataMap.keySet(), bundleData, loadData, conf), Optional.of("1"));
+    }
+
+    // Test that the placement strategy is created from the configuration.
+    @Test
+    public void testCreateFromConfiguration() {
+        ServiceConfiguration conf = new ServiceConfiguration();
+        assertTrue(ModularLoadManagerStrategy.create(conf) instanceof LeastLongTermMessageRate);
+        conf.setLoadBalancerLoadPlacementStrategy(LeastProjectedResourceUsage.class.getName());
+        assertTrue(ModularLoadManagerStrategy.create(conf) instanceof LeastProjectedResourceUsage);
+    }
+
+    // Test that a mistyped placement strategy fails the configuration.
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testCreateUnknownStrategy() {
+        ServiceConfiguration conf = new ServiceConfiguration();
+        conf.setLoadBalancerLoadPlacementStrategy("org.apache.pulsar.NotAStrategy");
+        ModularLoadManagerStrategy.create(conf);
+    }
+
     private BrokerData initBrokerData() {
         LocalBrokerData localBrokerData = new LocalBrokerData();
         localBrokerData.setCpu(new ResourceUsage());
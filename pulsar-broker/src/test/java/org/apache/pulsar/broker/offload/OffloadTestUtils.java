@@ -0,0 +1,67 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.broker.offload;
+
+import java.util.Iterator;
+import java.util.Random;
+
+import org.apache.bookkeeper.client.BookKeeper;
+import org.apache.bookkeeper.client.LedgerHandle;
+import org.apache.bookkeeper.client.api.LedgerEntries;
+import org.apache.bookkeeper.client.api.LedgerEntry;
+import org.apache.bookkeeper.client.api.ReadHandle;
+import org.testng.Assert;
+
+/**
+ * Helpers shared by the tests of the ledger offloaders.
+ */
+public class OffloadTestUtils {
+
+    private OffloadTestUtils() {
+    }
+
+    /**
+     * Write a closed ledger of random entries of entrySize to 2 * entrySize bytes.
+     */
+    public static ReadHandle buildReadHandle(BookKeeper bk, int numEntries, int entrySize) throws Exception {
+        LedgerHandle lh = bk.createLedger(1,1,1, BookKeeper.DigestType.CRC32, "foobar".getBytes());
+        Random r = new Random(lh.getId());
+        for (int i = 0; i < numEntries; i++) {
+            byte[] entry = new byte[entrySize + r.nextInt(entrySize)];
+            r.nextBytes(entry);
+            lh.addEntry(entry);
+        }
+        lh.close();
+        return lh;
+    }
+
+    public static void assertEntriesEquals(LedgerEntries expected, LedgerEntries actual) {
+        Iterator<LedgerEntry> expectedIterator = expected.iterator();
+        Iterator<LedgerEntry> actualIterator = actual.iterator();
+        while (expectedIterator.hasNext()) {
+            Assert.assertTrue(actualIterator.hasNext());
+            LedgerEntry expectedEntry = expectedIterator.next();
+            LedgerEntry actualEntry = actualIterator.next();
+            Assert.assertEquals(actualEntry.getEntryId(), expectedEntry.getEntryId());
+            Assert.assertEquals(actualEntry.getLength(), expectedEntry.getLength());
+            Assert.assertEquals(actualEntry.getEntryBytes(), expectedEntry.getEntryBytes());
+        }
+        Assert.assertFalse(actualIterator.hasNext());
+    }
+}
@@ -0,0 +1,95 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.broker.offload;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import org.apache.bookkeeper.client.api.ReadHandle;
+import org.apache.bookkeeper.mledger.LedgerOffloader;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.Test;
+
+public class ThrottledLedgerOffloaderTest {
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor();
+
+    @AfterClass
+    public void cleanup() {
+        timer.shutdownNow();
+    }
+
+    @Test
+    public void testMaxConcurrentOffloads() throws Exception {
+        List<CompletableFuture<Void>> running = new ArrayList<>();
+        LedgerOffloader offloader = mock(LedgerOffloader.class);
+        doAnswer(invocation -> {
+                CompletableFuture<Void> future = new CompletableFuture<>();
+                running.add(future);
+                return future;
+            }).when(offloader).offload(any(), any(), any());
+
+        ThrottledLedgerOffloader throttled = new ThrottledLedgerOffloader(offloader, 2, 0, timer);
+        List<CompletableFuture<Void>> offloads = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            offloads.add(throttled.offload(mock(ReadHandle.class), UUID.randomUUID(), new HashMap<>()));
+        }
+
+        verify(offloader, times(2)).offload(any(), any(), any());
+        assertEquals(throttled.getPendingOffloadsCount(), 3);
+
+        // A failed offload releases its slot as well
+        running.get(0).completeExceptionally(new Exception("failed"));
+        running.get(1).complete(null);
+        verify(offloader, times(4)).offload(any(), any(), any());
+        assertEquals(throttled.getPendingOffloadsCount(), 1);
+        try {
+            offloads.get(0).get();
+            fail("Offload should have failed");
+        } catch (ExecutionException e) {
+            assertEquals(e.getCause().getMessage(), "failed");
+        }
+        assertTrue(offloads.get(1).isDone());
+        assertFalse(offloads.get(2).isDone());
+
+        running.get(2).complete(null);
+        running.get(3).complete(null);
+        running.get(4).complete(null);
+        verify(offloader, times(5)).offload(any(), any(), any());
+        assertEquals(throttled.getPendingOffloadsCount(), 0);
+        for (int i = 1; i < offloads.size(); i++) {
+            offloads.get(i).get();
+        }
+    }
+}
@@ -18,6 +18,8 @@
  */
 package org.apache.pulsar.broker.s3offload;
 
+import static org.apache.pulsar.broker.offload.OffloadTestUtils.assertEntriesEquals;
+
 import com.amazonaws.client.builder.AwsClientBuilder.EndpointConfiguration;
 import com.amazonaws.services.s3.AmazonS3;
 import com.amazonaws.services.s3.AmazonS3ClientBuilder;
@@ -26,31 +28,40 @@ import io.findify.s3mock.S3Mock;
 import io.netty.util.concurrent.DefaultThreadFactory;
 
 import java.util.HashMap;
+import java.util.Random;
 import java.util.UUID;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.bookkeeper.client.BookKeeper;
 import org.apache.bookkeeper.client.LedgerHandle;
 import org.apache.bookkeeper.client.MockBookKeeper;
 import org.apache.bookkeeper.client.api.DigestType;
+import org.apache.bookkeeper.client.api.LastConfirmedAndEntry;
+import org.apache.bookkeeper.client.api.LedgerEntries;
 import org.apache.bookkeeper.client.api.ReadHandle;
 import org.apache.bookkeeper.mledger.LedgerOffloader;
 
 import org.apache.pulsar.broker.PulsarServerException;
 import org.apache.pulsar.broker.ServiceConfiguration;
 import org.apache.pulsar.broker.auth.MockedPulsarServiceBaseTest;
+import org.apache.pulsar.broker.offload.OffloadTestUtils;
 import org.testng.Assert;
 import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 class S3ManagedLedgerOffloaderTest {
+    private static final Logger log = LoggerFactory.getLogger(S3ManagedLedgerOffloaderTest.class);
 
     final ScheduledExecutorService scheduler;
     final MockBookKeeper bk;
     S3Mock s3mock = null;
+    AmazonS3 s3client = null;
     String endpoint = null;
 
     final static String REGION = "foobar";
@@ -67,11 +78,11 @@ class S3ManagedLedgerOffloaderTest {
         int port = s3mock.start().localAddress().getPort();
         endpoint = "http://localhost:" + port;
 
-        AmazonS3 client = AmazonS3ClientBuilder.standard()
+        s3client = AmazonS3ClientBuilder.standard()
             .withRegion(REGION)
             .withEndpointConfiguration(new EndpointConfiguration(endpoint, REGION))
             .withPathStyleAccessEnabled(true).build();
-        client.createBucket(BUCKET);
+        s3client.createBucket(BUCKET);
     }
 
     @AfterMethod
@@ -147,5 +158,115 @@ class S3ManagedLedgerOffloaderTest {
             // correct
         }
     }
-}
 
+    @Test
+    public void testOffloadAndRead() throws Exception {
+        // ~15MB ledger, written as 3 blocks
+        ReadHandle toWrite = OffloadTestUtils.buildReadHandle(bk, 1000, 10 * 1024);
+        LedgerOffloader offloader = new S3ManagedLedgerOffloader(s3client, BUCKET, scheduler,
+                S3ManagedLedgerOffloader.MIN_BLOCK_SIZE, 2, 64 * 1024);
+        UUID uuid = UUID.randomUUID();
+
+        long start = System.nanoTime();
+        offloader.offload(toWrite, uuid, new HashMap<>()).get();
+        long offloadNanos = System.nanoTime() - start;
+        Assert.assertTrue(s3client.doesObjectExist(BUCKET, S3ManagedLedgerOffloader.dataBlockOffloadKey(
+                toWrite.getId(), uuid)));
+        Assert.assertTrue(s3client.doesObjectExist(BUCKET, S3ManagedLedgerOffloader.indexBlockOffloadKey(
+                toWrite.getId(), uuid)));
+
+        ReadHandle toTest = offloader.readOffloaded(toWrite.getId(), uuid).get();
+        Assert.assertEquals(toTest.getLastAddConfirmed(), toWrite.getLastAddConfirmed());
+        Assert.assertEquals(toTest.getLength(), toWrite.getLength());
+
+        // Sequential cold read
+        start = System.nanoTime();
+        for (long entryId = 0; entryId <= toWrite.getLastAddConfirmed(); entryId += 100) {
+            long lastEntryId = Math.min(entryId + 99, toWrite.getLastAddConfirmed());
+            try (LedgerEntries toWriteEntries = toWrite.read(entryId, lastEntryId);
+                 LedgerEntries toTestEntries = toTest.read(entryId, lastEntryId)) {
+                assertEntriesEquals(toWriteEntries, toTestEntries);
+            }
+        }
+        long readNanos = System.nanoTime() - start;
+
+        log.info("Offloaded {} bytes in {} ms ({} MB/s), read back in {} ms ({} MB/s)", toWrite.getLength(),
+                TimeUnit.NANOSECONDS.toMillis(offloadNanos), toWrite.getLength() * 1000.0 / offloadNanos,
+                TimeUnit.NANOSECONDS.toMillis(readNanos), toWrite.getLength() * 1000.0 / readNanos);
+
+        // Random reads, across blocks
+        Random r = new Random(0);
+        for (int i = 0; i < 20; i++) {
+            long first = r.nextInt((int) toWrite.getLastAddConfirmed() + 1);
+            long last = Math.min(first + r.nextInt(200), toWrite.getLastAddConfirmed());
+            try (LedgerEntries toWriteEntries = toWrite.read(first, last);
+                 LedgerEntries toTestEntries = toTest.read(first, last)) {
+                assertEntriesEquals(toWriteEntries, toTestEntries);
+            }
+        }
+
+        try {
+            toTest.read(0, toWrite.getLastAddConfirmed() + 1);
+            Assert.fail("Shouldn't be able to read past the last entry");
+        } catch (Exception e) {
+            // correct
+        }
+        toTest.close();
+    }
+
+    @Test
+    public void testReadLastAddConfirmedAndEntry() throws Exception {
+        ReadHandle toWrite = OffloadTestUtils.buildReadHandle(bk, 10, 1024);
+        LedgerOffloader offloader = new S3ManagedLedgerOffloader(s3client, BUCKET, scheduler,
+                S3ManagedLedgerOffloader.MIN_BLOCK_SIZE, 2, 64 * 1024);
+        UUID uuid = UUID.randomUUID();
+        offloader.offload(toWrite, uuid, new HashMap<>()).get();
+        ReadHandle toTest = offloader.readOffloaded(toWrite.getId(), uuid).get();
+
+        long lac = toWrite.getLastAddConfirmed();
+        try (LastConfirmedAndEntry lastConfirmedAndEntry = toTest.readLastAddConfirmedAndEntry(lac, 1000, false);
+             LedgerEntries toWriteEntries = toWrite.read(lac, lac)) {
+            Assert.assertEquals(lastConfirmedAndEntry.getLastAddConfirmed(), lac);
+            Assert.assertTrue(lastConfirmedAndEntry.hasEntry());
+            Assert.assertEquals(lastConfirmedAndEntry.getEntry().getEntryId(), lac);
+            Assert.assertEquals(lastConfirmedAndEntry.getEntry().getEntryBytes(),
+                    toWriteEntries.getEntry(lac).getEntryBytes());
+        }
+
+        // The ledger is closed, nothing comes after the last add confirmed
+        try (LastConfirmedAndEntry lastConfirmedAndEntry = toTest.readLastAddConfirmedAndEntry(lac + 1, 1000,
+                false)) {
+            Assert.assertEquals(lastConfirmedAndEntry.getLastAddConfirmed(), lac);
+            Assert.assertFalse(lastConfirmedAndEntry.hasEntry());
+        }
+        toTest.close();
+    }
+
+    @Test
+    public void testDeleteOffloaded() throws Exception {
+        ReadHandle toWrite = OffloadTestUtils.buildReadHandle(bk, 10, 1024);
+        LedgerOffloader offloader = new S3ManagedLedgerOffloader(s3client, BUCKET, scheduler,
+                S3ManagedLedgerOffloader.MIN_BLOCK_SIZE, 2, 64 * 1024);
+        UUID uuid = UUID.randomUUID();
+        offloader.offload(toWrite, uuid, new HashMap<>()).get();
+
+        String dataKey = S3ManagedLedgerOffloader.dataBlockOffloadKey(toWrite.getId(), uuid);
+        String indexKey = S3ManagedLedgerOffloader.indexBlockOffloadKey(toWrite.getId(), uuid);
+        Assert.assertTrue(s3client.doesObjectExist(BUCKET, dataKey));
+        Assert.assertTrue(s3client.doesObjectExist(BUCKET, indexKey));
+
+        offloader.deleteOffloaded(toWrite.getId(), uuid).get();
+        Assert.assertFalse(s3client.doesObjectExist(BUCKET, dataKey));
+        Assert.assertFalse(s3client.doesObjectExist(BUCKET, indexKey));
+    }
+
+    @Test
+    public void testBlockSizeTooSmall() throws Exception {
+        try {
+            new S3ManagedLedgerOffloader(s3client, BUCKET, scheduler, 1024, 2, 1024);
+            Assert.fail("Should have thrown exception");
+        } catch (PulsarServerException pse) {
+            // correct
+        }
+    }
+}
@@ -0,0 +1,139 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.broker.service;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertTrue;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.apache.pulsar.client.api.Consumer;
+import org.apache.pulsar.client.api.Message;
+import org.apache.pulsar.client.api.MessageId;
+import org.apache.pulsar.client.api.Producer;
+import org.apache.pulsar.client.api.PulsarClient;
+import org.apache.pulsar.common.api.Commands;
+import org.apache.pulsar.common.api.proto.PulsarApi.CompressionType;
+import org.apache.pulsar.common.api.proto.PulsarApi.MessageMetadata;
+import org.apache.pulsar.common.naming.TopicName;
+import org.apache.pulsar.common.util.FutureUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import org.testng.collections.Lists;
+
+public class ReplicatorBatchingTest extends ReplicatorTestBase {
+
+    @Override
+    @BeforeClass
+    void setup() throws Exception {
+        config1.setReplicationBatchingEnabled(true);
+        config2.setReplicationBatchingEnabled(true);
+        config3.setReplicationBatchingEnabled(true);
+        super.setup();
+    }
+
+    @Override
+    @AfterClass
+    void shutdown() throws Exception {
+        super.shutdown();
+    }
+
+    @Test
+    public void testBatchSerialization() throws Exception {
+        ReplicatedEntriesBatch batch = new ReplicatedEntriesBatch(1024);
+        for (int i = 0; i < 10; i++) {
+            MessageMetadata msgMetadata = MessageMetadata.newBuilder().setProducerName("prod")
+                    .setSequenceId(i).setPublishTime(i).setReplicatedFrom("r1").build();
+            batch.add(msgMetadata, Unpooled.wrappedBuffer(("test-" + i).getBytes()));
+            msgMetadata.recycle();
+        }
+        assertEquals(batch.getNumEntries(), 10);
+        assertEquals(batch.getNumMessages(), 10);
+
+        ByteBuf headersAndPayload = batch.build("r1", CompressionType.LZ4);
+        MessageMetadata batchMetadata = Commands.parseMessageMetadata(headersAndPayload);
+        assertTrue(ReplicatedEntriesBatch.isBatch(batchMetadata));
+        assertEquals(batchMetadata.getSequenceId(), 9);
+        assertEquals(batchMetadata.getCompression(), CompressionType.LZ4);
+
+        List<ByteBuf> entries = ReplicatedEntriesBatch.getEntries(batchMetadata, headersAndPayload);
+        assertEquals(entries.size(), 10);
+        for (int i = 0; i < entries.size(); i++) {
+            ByteBuf entry = entries.get(i);
+            MessageMetadata msgMetadata = Commands.parseMessageMetadata(entry);
+            assertFalse(ReplicatedEntriesBatch.isBatch(msgMetadata));
+            assertEquals(msgMetadata.getSequenceId(), i);
+            assertEquals(msgMetadata.getReplicatedFrom(), "r1");
+            byte[] payload = new byte[entry.readableBytes()];
+            entry.readBytes(payload);
+            assertEquals(new String(payload), "test-" + i);
+            msgMetadata.recycle();
+            entry.release();
+        }
+        batchMetadata.recycle();
+        headersAndPayload.release();
+    }
+
+    @Test(timeOut = 30000)
+    public void testReplicationWithBatching() throws Exception {
+        log.info("--- Starting ReplicatorBatchingTest::testReplicationWithBatching ---");
+
+        final TopicName dest = TopicName
+                .get(String.format("persistent://pulsar/ns/replbatching-%d", System.currentTimeMillis()));
+
+        PulsarClient client1 = PulsarClient.builder().serviceUrl(url1.toString()).statsInterval(0, TimeUnit.SECONDS)
+                .build();
+        PulsarClient client2 = PulsarClient.builder().serviceUrl(url2.toString()).statsInterval(0, TimeUnit.SECONDS)
+                .build();
+        Producer<byte[]> producer1 = client1.newProducer().topic(dest.toString()).enableBatching(false).create();
+        Consumer<byte[]> consumer2 = client2.newConsumer().topic(dest.toString()).subscriptionName("sub-id")
+                .subscribe();
+
+        List<CompletableFuture<MessageId>> futures = Lists.newArrayList();
+        for (int i = 0; i < 50; i++) {
+            futures.add(producer1.sendAsync(("test-" + i).getBytes()));
+        }
+        FutureUtil.waitForAll(futures).get();
+
+        // The entries sent in batches are stored one by one in the remote cluster
+        MessageId previousId = null;
+        for (int i = 0; i < 50; i++) {
+            Message<byte[]> msg = consumer2.receive();
+            assertEquals(new String(msg.getData()), "test-" + i);
+            assertNotEquals(msg.getMessageId(), previousId);
+            previousId = msg.getMessageId();
+            consumer2.acknowledge(msg);
+        }
+
+        producer1.close();
+        consumer2.close();
+        client1.close();
+        client2.close();
+    }
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicatorBatchingTest.class);
+}
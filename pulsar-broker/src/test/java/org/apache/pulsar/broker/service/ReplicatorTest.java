@@ -51,7 +51,9 @@ import org.apache.pulsar.broker.service.BrokerServiceException.NamingException;
 import org.apache.pulsar.broker.service.persistent.PersistentReplicator;
 import org.apache.pulsar.broker.service.persistent.PersistentTopic;
 import org.apache.pulsar.client.admin.PulsarAdminException.PreconditionFailedException;
+import org.apache.pulsar.client.api.CompressionType;
 import org.apache.pulsar.client.api.MessageBuilder;
+import org.apache.pulsar.client.api.MessageId;
 import org.apache.pulsar.client.api.MessageRoutingMode;
 import org.apache.pulsar.client.api.Producer;
 import org.apache.pulsar.client.api.PulsarClient;
@@ -68,6 +70,7 @@ import org.apache.pulsar.common.naming.TopicName;
 import org.apache.pulsar.common.policies.data.BacklogQuota;
 import org.apache.pulsar.common.policies.data.BacklogQuota.RetentionPolicy;
 import org.apache.pulsar.common.policies.data.ReplicatorStats;
+import org.apache.pulsar.common.util.FutureUtil;
 import org.apache.pulsar.common.util.collections.ConcurrentOpenHashMap;
 import org.mockito.Mockito;
 import org.slf4j.Logger;
@@ -648,6 +651,55 @@ public class ReplicatorTest extends ReplicatorTestBase {
         }
     }
 
+    /**
+     * It verifies that batched and compressed entries are replicated as they were stored, and that the replicator
+     * reports its in-flight bytes and the ack time of the remote cluster.
+     *
+     * @throws Exception
+     */
+    @Test(timeOut = 30000)
+    public void testReplicationForCompressedBatchMessages() throws Exception {
+        log.info("--- Starting ReplicatorTest::testReplicationForCompressedBatchMessages ---");
+
+        final TopicName dest = TopicName
+                .get(String.format("persistent://pulsar/ns/repltopiccompressed-%d", System.currentTimeMillis()));
+
+        PulsarClient client1 = PulsarClient.builder().serviceUrl(url1.toString()).statsInterval(0, TimeUnit.SECONDS)
+                .build();
+        Producer<byte[]> producer1 = client1.newProducer().topic(dest.toString())
+                .enableBatching(true)
+                .batchingMaxPublishDelay(1, TimeUnit.SECONDS)
+                .batchingMaxMessages(5)
+                .compressionType(CompressionType.LZ4)
+                .create();
+
+        MessageConsumer consumer2 = new MessageConsumer(url2, dest);
+
+        List<CompletableFuture<MessageId>> futures = Lists.newArrayList();
+        for (int i = 0; i < 20; i++) {
+            futures.add(producer1.sendAsync(("test-" + i).getBytes()));
+        }
+        FutureUtil.waitForAll(futures).get();
+
+        consumer2.receive(20);
+
+        PersistentTopic topic = (PersistentTopic) pulsar1.getBrokerService().getTopicReference(dest.toString()).get();
+        PersistentReplicator replicator = (PersistentReplicator) topic.getPersistentReplicator("r2");
+        // The acks of the remote cluster may still be on their way
+        int retry = 10;
+        for (int i = 0; i < retry && replicator.getStats().inFlightBytes > 0; i++) {
+            Thread.sleep(100);
+        }
+        replicator.updateRates();
+        ReplicatorStats stats = replicator.getStats();
+        assertEquals(stats.inFlightBytes, 0);
+        assertTrue(stats.replicationRttMillis > 0);
+
+        producer1.close();
+        client1.close();
+        consumer2.close();
+    }
+
     /**
      * It verifies that: if it fails while removing replicator-cluster-cursor: it should not restart the replicator and
      * it should have cleaned up from the list
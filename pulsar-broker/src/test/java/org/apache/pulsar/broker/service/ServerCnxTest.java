@@ -23,12 +23,14 @@ import static org.apache.pulsar.broker.auth.MockedPulsarServiceBaseTest.createMo
 import static org.apache.pulsar.broker.cache.ConfigurationCacheService.POLICIES;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyObject;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Matchers.matches;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertNotNull;
@@ -46,7 +48,9 @@ import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
 import java.io.IOException;
 import java.lang.reflect.Field;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CountDownLatch;
@@ -56,6 +60,7 @@ import javax.naming.AuthenticationException;
 
 import org.apache.bookkeeper.mledger.AsyncCallbacks.AddEntryCallback;
 import org.apache.bookkeeper.mledger.AsyncCallbacks.CloseCallback;
+import org.apache.bookkeeper.mledger.AsyncCallbacks.DeleteCallback;
 import org.apache.bookkeeper.mledger.AsyncCallbacks.DeleteCursorCallback;
 import org.apache.bookkeeper.mledger.AsyncCallbacks.OpenCursorCallback;
 import org.apache.bookkeeper.mledger.AsyncCallbacks.OpenLedgerCallback;
@@ -64,7 +69,9 @@ import org.apache.bookkeeper.mledger.ManagedLedger;
 import org.apache.bookkeeper.mledger.ManagedLedgerConfig;
 import org.apache.bookkeeper.mledger.ManagedLedgerException;
 import org.apache.bookkeeper.mledger.ManagedLedgerFactory;
+import org.apache.bookkeeper.mledger.Position;
 import org.apache.bookkeeper.mledger.impl.PositionImpl;
+import org.apache.commons.lang3.tuple.Pair;
 import org.apache.pulsar.broker.PulsarService;
 import org.apache.pulsar.broker.ServiceConfiguration;
 import org.apache.pulsar.broker.admin.AdminResource;
@@ -89,6 +96,7 @@ import org.apache.pulsar.common.api.proto.PulsarApi.CommandAck.AckType;
 import org.apache.pulsar.common.api.proto.PulsarApi.CommandConnected;
 import org.apache.pulsar.common.api.proto.PulsarApi.CommandError;
 import org.apache.pulsar.common.api.proto.PulsarApi.CommandLookupTopicResponse;
+import org.apache.pulsar.common.api.proto.PulsarApi.CommandLookupTopicsResponse;
 import org.apache.pulsar.common.api.proto.PulsarApi.CommandProducerSuccess;
 import org.apache.pulsar.common.api.proto.PulsarApi.CommandSendError;
 import org.apache.pulsar.common.api.proto.PulsarApi.CommandSendReceipt;
@@ -1227,6 +1235,42 @@ public class ServerCnxTest {
         channel.finish();
     }
 
+    @Test(timeOut = 30000)
+    public void testAckRangesCommand() throws Exception {
+        svcConfig.setMaxMessagesPerAckRange(4);
+        resetChannel();
+        setChannelConnected();
+
+        ByteBuf clientCommand = Commands.newSubscribe(successTopicName, successSubName, 1 /* consumer id */,
+                1 /* request id */, SubType.Exclusive, 0, "test" /* consumer name */);
+        channel.writeInbound(clientCommand);
+        assertTrue(getResponse() instanceof CommandSuccess);
+
+        clientCommand = Commands.newAckRanges(1 /* consumer id */,
+                Arrays.asList(Pair.of(3L, 0L), Pair.of(3L, 1L), Pair.of(3L, 2L), Pair.of(4L, 7L)));
+        channel.writeInbound(clientCommand);
+
+        // verify nothing is sent out on the wire after ack, and the ranges are passed as-is to the cursor
+        assertNull(channel.outboundMessages().peek());
+        verify(cursorMock).asyncDeleteRanges(
+                eq(Arrays.<Pair<Position, Position>> asList(Pair.of(new PositionImpl(3, 0), new PositionImpl(3, 2)),
+                        Pair.of(new PositionImpl(4, 7), new PositionImpl(4, 7)))),
+                any(DeleteCallback.class), anyObject());
+
+        // a range over the configured limit is ignored, the other ranges of the command are still acked
+        List<Pair<Long, Long>> entries = new ArrayList<>();
+        for (long entryId = 0; entryId < 5; entryId++) {
+            entries.add(Pair.of(5L, entryId));
+        }
+        entries.add(Pair.of(6L, 1L));
+        channel.writeInbound(Commands.newAckRanges(1 /* consumer id */, entries));
+        assertNull(channel.outboundMessages().peek());
+        verify(cursorMock).asyncDeleteRanges(
+                eq(Arrays.<Pair<Position, Position>> asList(Pair.of(new PositionImpl(6, 1), new PositionImpl(6, 1)))),
+                any(DeleteCallback.class), anyObject());
+        channel.finish();
+    }
+
     @Test(timeOut = 30000)
     public void testFlowCommand() throws Exception {
         resetChannel();
@@ -1519,6 +1563,27 @@ public class ServerCnxTest {
         channel.finish();
     }
 
+    @Test(timeOut = 30000)
+    public void testInvalidTopicsOnBulkLookup() throws Exception {
+        resetChannel();
+        setChannelConnected();
+
+        channel.writeInbound(Commands.newLookupTopics(Arrays.asList("xx/ass/aa/aaa", "yy/ass/aa/aaa"), 1));
+        Object obj = getResponse();
+        assertEquals(obj.getClass(), CommandLookupTopicsResponse.class);
+        CommandLookupTopicsResponse res = (CommandLookupTopicsResponse) obj;
+        assertEquals(res.getRequestId(), 1);
+        // One failed lookup for each topic, in request order
+        assertEquals(res.getLookupsCount(), 2);
+        for (CommandLookupTopicResponse lookup : res.getLookupsList()) {
+            assertEquals(lookup.getResponse(), CommandLookupTopicResponse.LookupType.Failed);
+            assertEquals(lookup.getError(), ServerError.InvalidTopicName);
+            assertEquals(lookup.getRequestId(), 1);
+        }
+
+        channel.finish();
+    }
+
     @Test(timeOut = 30000)
     public void testInvalidTopicOnProducer() throws Exception {
         resetChannel();
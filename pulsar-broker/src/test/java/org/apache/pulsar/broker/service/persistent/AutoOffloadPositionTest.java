@@ -0,0 +1,94 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.broker.service.persistent;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.bookkeeper.mledger.impl.PositionImpl;
+import org.apache.bookkeeper.mledger.proto.MLDataFormats.ManagedLedgerInfo.LedgerInfo;
+import org.apache.bookkeeper.mledger.proto.MLDataFormats.OffloadContext;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.Lists;
+
+public class AutoOffloadPositionTest {
+    private static final long NOW = TimeUnit.DAYS.toMillis(100);
+
+    private static LedgerInfo ledger(long ledgerId, long size, long ageInSeconds, boolean offloaded) {
+        LedgerInfo.Builder builder = LedgerInfo.newBuilder().setLedgerId(ledgerId).setEntries(10).setSize(size)
+                .setTimestamp(NOW - TimeUnit.SECONDS.toMillis(ageInSeconds));
+        if (offloaded) {
+            builder.setOffloadContext(OffloadContext.newBuilder().setComplete(true));
+        }
+        return builder.build();
+    }
+
+    private static LedgerInfo currentLedger(long ledgerId) {
+        return LedgerInfo.newBuilder().setLedgerId(ledgerId).setTimestamp(0).build();
+    }
+
+    @Test
+    public void testDisabled() {
+        List<LedgerInfo> ledgers = Lists.newArrayList(ledger(1, 100, 1000, false), currentLedger(2));
+        assertNull(PersistentTopic.getAutoOffloadPosition(ledgers, PositionImpl.get(2, 5), 0, -1, -1, NOW));
+    }
+
+    @Test
+    public void testThreshold() {
+        List<LedgerInfo> ledgers = Lists.newArrayList(ledger(1, 100, 0, false), ledger(2, 100, 0, false),
+                ledger(3, 100, 0, false), currentLedger(4));
+
+        // 350 bytes in bookkeeper, the two oldest ledgers have to be offloaded to go under 200
+        assertEquals(PersistentTopic.getAutoOffloadPosition(ledgers, PositionImpl.get(4, 5), 50, 200, -1, NOW),
+                PositionImpl.get(3, 0));
+        assertNull(PersistentTopic.getAutoOffloadPosition(ledgers, PositionImpl.get(4, 5), 50, 350, -1, NOW));
+
+        // Offloaded ledgers do not count
+        ledgers.set(0, ledger(1, 100, 0, true));
+        assertEquals(PersistentTopic.getAutoOffloadPosition(ledgers, PositionImpl.get(4, 5), 50, 200, -1, NOW),
+                PositionImpl.get(3, 0));
+        assertNull(PersistentTopic.getAutoOffloadPosition(ledgers, PositionImpl.get(4, 5), 50, 250, -1, NOW));
+    }
+
+    @Test
+    public void testLedgerAge() {
+        List<LedgerInfo> ledgers = Lists.newArrayList(ledger(1, 100, 500, false), ledger(2, 100, 300, false),
+                ledger(3, 100, 100, false), currentLedger(4));
+
+        assertEquals(PersistentTopic.getAutoOffloadPosition(ledgers, PositionImpl.get(4, 5), 0, -1, 200, NOW),
+                PositionImpl.get(3, 0));
+        assertEquals(PersistentTopic.getAutoOffloadPosition(ledgers, PositionImpl.get(4, 5), 0, -1, 50, NOW),
+                PositionImpl.get(4, 0));
+        assertNull(PersistentTopic.getAutoOffloadPosition(ledgers, PositionImpl.get(4, 5), 0, -1, 1000, NOW));
+    }
+
+    @Test
+    public void testEmptyCurrentLedger() {
+        List<LedgerInfo> ledgers = Lists.newArrayList(ledger(1, 100, 500, false), ledger(2, 100, 300, false),
+                currentLedger(3));
+
+        // The current ledger is empty, the last confirmed entry is in ledger 2 which can't be offloaded yet
+        assertEquals(PersistentTopic.getAutoOffloadPosition(ledgers, PositionImpl.get(2, 9), 0, -1, 50, NOW),
+                PositionImpl.get(2, 0));
+    }
+}
@@ -29,6 +29,7 @@ import org.apache.pulsar.common.api.proto.PulsarApi.CommandConnected;
 import org.apache.pulsar.common.api.proto.PulsarApi.CommandError;
 import org.apache.pulsar.common.api.proto.PulsarApi.CommandFlow;
 import org.apache.pulsar.common.api.proto.PulsarApi.CommandLookupTopicResponse;
+import org.apache.pulsar.common.api.proto.PulsarApi.CommandLookupTopicsResponse;
 import org.apache.pulsar.common.api.proto.PulsarApi.CommandMessage;
 import org.apache.pulsar.common.api.proto.PulsarApi.CommandProducer;
 import org.apache.pulsar.common.api.proto.PulsarApi.CommandProducerSuccess;
@@ -152,6 +153,11 @@ public class ClientChannelHelper {
         protected void handleLookupResponse(CommandLookupTopicResponse connection) {
             queue.offer(CommandLookupTopicResponse.newBuilder(connection).build());
         }
+
+        @Override
+        protected void handleLookupTopicsResponse(CommandLookupTopicsResponse lookupTopicsResponse) {
+            queue.offer(CommandLookupTopicsResponse.newBuilder(lookupTopicsResponse).build());
+        }
     };
 
 }
@@ -1011,6 +1011,104 @@ public class BrokerServiceLookupTest extends ProducerConsumerBase {
 
     }
 
+    /**
+     * <pre>
+     * When a bundle is unloaded with bundle handoff enabled, the producers and consumers of its topics reconnect to the
+     * new owner announced by the previous one, which acquires the bundle and loads its topics.
+     *
+     * (1) Start broker-2, broker-1 is the leader and assigns the bundle to itself
+     * (2) Create a producer and a consumer, served by broker-1
+     * (3) Unload the bundle, the leader (broker-1) selecting broker-2 as its new owner, which acquires the bundle
+     * before the clients are told to reconnect
+     * (4) The producer and consumer keep working, and are now served by broker-2
+     * </pre>
+     *
+     * @throws Exception
+     */
+    @Test(timeOut = 20000)
+    public void testBundleHandoff() throws Exception {
+        log.info("-- Starting {} test --", methodName);
+
+        final String namespace = "my-property/my-ns";
+        final String topic = "persistent://" + namespace + "/handoff-topic";
+        conf.setLoadBalancerBundleHandoffEnabled(true);
+
+        try {
+            // (1) Start broker-2
+            ServiceConfiguration conf2 = new ServiceConfiguration();
+            conf2.setAdvertisedAddress("localhost");
+            conf2.setBrokerServicePort(PortManager.nextFreePort());
+            conf2.setBrokerServicePortTls(PortManager.nextFreePort());
+            conf2.setWebServicePort(PortManager.nextFreePort());
+            conf2.setWebServicePortTls(PortManager.nextFreePort());
+            conf2.setClusterName(conf.getClusterName());
+            conf2.setZookeeperServers("localhost:2181");
+            PulsarService pulsar2 = startBroker(conf2);
+            pulsar.getLoadManager().get().writeLoadReportOnZookeeper();
+            pulsar2.getLoadManager().get().writeLoadReportOnZookeeper();
+
+            LoadManager loadManager1 = spy(pulsar.getLoadManager().get());
+            LoadManager loadManager2 = spy(pulsar2.getLoadManager().get());
+            Field loadManagerField = NamespaceService.class.getDeclaredField("loadManager");
+            loadManagerField.setAccessible(true);
+
+            // mock: broker-2 redirects lookups to the leader
+            doReturn(true).when(loadManager2).isCentralized();
+            loadManagerField.set(pulsar2.getNamespaceService(), new AtomicReference<>(loadManager2));
+            // mock: the leader assigns the bundle to broker-1
+            doReturn(true).when(loadManager1).isCentralized();
+            SimpleResourceUnit resourceUnit1 = new SimpleResourceUnit(pulsar.getWebServiceAddress(), null);
+            doReturn(Optional.of(resourceUnit1)).when(loadManager1).getLeastLoaded(any(ServiceUnitId.class));
+            loadManagerField.set(pulsar.getNamespaceService(), new AtomicReference<>(loadManager1));
+
+            // (2) Create a producer and a consumer, served by broker-1
+            Consumer<byte[]> consumer = pulsarClient.newConsumer().topic(topic).subscriptionName("my-subscriber-name")
+                    .subscribe();
+            Producer<byte[]> producer = pulsarClient.newProducer().topic(topic).create();
+            for (int i = 0; i < 5; i++) {
+                producer.send(("my-message-" + i).getBytes());
+            }
+            assertTrue(pulsar.getBrokerService().getTopicReference(topic).isPresent());
+
+            // (3) Unload the bundle, the leader selects broker-2 as the new owner
+            SimpleResourceUnit resourceUnit2 = new SimpleResourceUnit(pulsar2.getWebServiceAddress(), null);
+            doReturn(Optional.of(resourceUnit2)).when(loadManager1).getLeastLoaded(any(ServiceUnitId.class));
+            admin.namespaces().unloadNamespaceBundle(namespace, "0x00000000_0xffffffff");
+
+            // the clients are told to reconnect once broker-2 owns the bundle
+            retryStrategically((test) -> !pulsar.getBrokerService().getBundleHandoff(topic).isPresent(), 50, 100);
+            assertFalse(pulsar.getBrokerService().getBundleHandoff(topic).isPresent());
+            assertTrue(pulsar2.getNamespaceService().isServiceUnitOwned(
+                    pulsar2.getNamespaceService().getBundle(TopicName.get(topic))));
+
+            // (4) The producer and consumer reconnect to broker-2
+            for (int i = 5; i < 10; i++) {
+                producer.send(("my-message-" + i).getBytes());
+            }
+            Set<String> messageSet = Sets.newHashSet();
+            for (int i = 0; i < 10; i++) {
+                Message<byte[]> msg = consumer.receive(5, TimeUnit.SECONDS);
+                assertNotNull(msg);
+                testMessageOrderAndDuplicates(messageSet, new String(msg.getData()), "my-message-" + i);
+                consumer.acknowledge(msg);
+            }
+
+            assertFalse(pulsar.getBrokerService().getTopicReference(topic).isPresent());
+            Optional<org.apache.pulsar.broker.service.Topic> topicOnBroker2 = pulsar2.getBrokerService()
+                    .getTopicReference(topic);
+            assertTrue(topicOnBroker2.isPresent());
+            assertEquals(topicOnBroker2.get().getProducers().size(), 1);
+            assertTrue(pulsar2.getNamespaceService().isServiceUnitOwned(
+                    pulsar2.getNamespaceService().getBundle(TopicName.get(topic))));
+
+            consumer.close();
+            producer.close();
+            pulsar2.close();
+        } finally {
+            conf.setLoadBalancerBundleHandoffEnabled(false);
+        }
+    }
+
     @Test
     public void testPartitionedMetadataWithDeprecatedVersion() throws Exception {
 
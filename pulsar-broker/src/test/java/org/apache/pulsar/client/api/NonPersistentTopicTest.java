@@ -26,10 +26,12 @@ import static org.testng.Assert.assertNull;
 import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.fail;
 
+import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 
 import java.lang.reflect.Field;
 import java.net.URL;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
@@ -41,6 +43,7 @@ import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.bookkeeper.test.PortManager;
+import org.apache.pulsar.broker.NonPersistentDropPolicy;
 import org.apache.pulsar.broker.PulsarService;
 import org.apache.pulsar.broker.ServiceConfiguration;
 import org.apache.pulsar.broker.loadbalance.LoadManager;
@@ -276,6 +279,56 @@ public class NonPersistentTopicTest extends ProducerConsumerBase {
 
     }
 
+    /**
+     * It verifies that broker keeps the configured number of messages while the consumer has no permits, and drops the
+     * oldest ones once it keeps as many
+     */
+    @Test
+    public void testPendingMessagesDropOldest() throws Exception {
+        log.info("-- Starting {} test --", methodName);
+
+        final String topic = "non-persistent://my-property/my-ns/pending-topic";
+        final int queueSize = 10;
+        final int maxPendingMessages = 5;
+        conf.setNonPersistentDispatcherMaxPendingMessages(maxPendingMessages);
+        conf.setNonPersistentDispatcherDropPolicy(NonPersistentDropPolicy.Oldest);
+        try {
+            Consumer<byte[]> consumer = pulsarClient.newConsumer().topic(topic).receiverQueueSize(queueSize)
+                    .subscriptionName("subscriber-1").subscribe();
+            Producer<byte[]> producer = pulsarClient.newProducer().topic(topic).enableBatching(false).create();
+
+            int totalProduceMsg = 50;
+            for (int i = 0; i < totalProduceMsg; i++) {
+                producer.send(("my-message-" + i).getBytes());
+            }
+
+            List<String> received = Lists.newArrayList();
+            Message<byte[]> msg;
+            while ((msg = consumer.receive(1, TimeUnit.SECONDS)) != null) {
+                received.add(new String(msg.getData()));
+            }
+            assertEquals(received.size(), queueSize + maxPendingMessages);
+            for (int i = 0; i < queueSize; i++) {
+                assertEquals(received.get(i), "my-message-" + i);
+            }
+            for (int i = 0; i < maxPendingMessages; i++) {
+                assertEquals(received.get(queueSize + i),
+                        "my-message-" + (totalProduceMsg - maxPendingMessages + i));
+            }
+
+            NonPersistentTopic topicRef = (NonPersistentTopic) pulsar.getBrokerService().getTopicReference(topic).get();
+            assertEquals(topicRef.getStats().getSubscriptions().get("subscriber-1").msgDropCount,
+                    totalProduceMsg - queueSize - maxPendingMessages);
+
+            producer.close();
+            consumer.close();
+        } finally {
+            conf.setNonPersistentDispatcherMaxPendingMessages(0);
+            conf.setNonPersistentDispatcherDropPolicy(NonPersistentDropPolicy.Newest);
+        }
+        log.info("-- Exiting {} test --", methodName);
+    }
+
     /**
      * Verifies that broker should failed to publish message if producer publishes messages more than rate limit
      */
@@ -814,6 +867,8 @@ public class NonPersistentTopicTest extends ProducerConsumerBase {
             assertTrue(npStats.msgDropRate > 0);
             assertTrue(sub1Stats.msgDropRate > 0);
             assertTrue(sub2Stats.msgDropRate > 0);
+            assertTrue(sub1Stats.msgDropCount > 0);
+            assertTrue(sub2Stats.msgDropCount > 0);
             // make sure producer connection not disconnected due to unordered ack
             assertEquals(firstTimeConnected, producer.getConnectedSince());
 
@@ -23,6 +23,7 @@ import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertNotNull;
 import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.fail;
@@ -31,7 +32,10 @@ import java.lang.reflect.Field;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.NavigableMap;
+import java.util.Optional;
 import java.util.SortedSet;
+import java.util.TreeMap;
 import java.util.concurrent.CompletableFuture;
 
 import org.apache.commons.lang3.tuple.Pair;
@@ -248,6 +252,55 @@ public class NamespaceBundlesTest {
 
     }
 
+    @Test
+    public void testSplitBundleAt() throws Exception {
+        NamespaceName nsname = NamespaceName.get("pulsar/global/ns1");
+        NamespaceBundles bundles = factory.getBundles(nsname);
+        NamespaceBundle bundle = bundles.getFullBundle();
+
+        Pair<NamespaceBundles, List<NamespaceBundle>> splitBundles = factory.splitBundleAt(bundle, 0x10000000L);
+        assertNotNull(splitBundles);
+        assertEquals(splitBundles.getRight().size(), 2);
+        assertEquals(splitBundles.getRight().get(0).getBundleRange(), "0x00000000_0x10000000");
+        assertEquals(splitBundles.getRight().get(1).getBundleRange(), "0x10000000_0xffffffff");
+        validateSplitBundlesRange(bundle, splitBundles.getRight());
+
+        try {
+            factory.splitBundleAt(bundle, 0L);
+            fail("should have failed to split at the lower boundary of the bundle");
+        } catch (IllegalArgumentException e) {
+            // Ok
+        }
+    }
+
+    @Test
+    public void testLoadBalancedSplitPoint() throws Exception {
+        NamespaceBundle bundle = factory.getBundles(NamespaceName.get("pulsar/global/ns1")).getFullBundle();
+        NavigableMap<Long, Double> topicLoads = new TreeMap<>();
+
+        // No load to balance
+        assertFalse(NamespaceBundleFactory.getLoadBalancedSplitPoint(bundle, topicLoads).isPresent());
+        topicLoads.put(0x10000000L, 100.0);
+        assertFalse(NamespaceBundleFactory.getLoadBalancedSplitPoint(bundle, topicLoads).isPresent());
+
+        // A hot topic is isolated from the others, even though they are all in the lower half of the range
+        topicLoads.put(0x20000000L, 1.0);
+        topicLoads.put(0x30000000L, 1.0);
+        Optional<Long> splitPoint = NamespaceBundleFactory.getLoadBalancedSplitPoint(bundle, topicLoads);
+        assertTrue(splitPoint.isPresent());
+        assertTrue(splitPoint.get() > 0x10000000L && splitPoint.get() <= 0x20000000L);
+
+        // Balanced load
+        topicLoads.clear();
+        topicLoads.put(0x10000000L, 10.0);
+        topicLoads.put(0x20000000L, 10.0);
+        topicLoads.put(0x30000000L, 10.0);
+        topicLoads.put(0xe0000000L, 30.0);
+        splitPoint = NamespaceBundleFactory.getLoadBalancedSplitPoint(bundle, topicLoads);
+        assertTrue(splitPoint.isPresent());
+        assertTrue(splitPoint.get() > 0x30000000L && splitPoint.get() <= 0xe0000000L);
+    }
+
     private void validateSplitBundlesRange(NamespaceBundle fullBundle, List<NamespaceBundle> splitBundles) {
         assertNotNull(fullBundle);
         assertNotNull(splitBundles);
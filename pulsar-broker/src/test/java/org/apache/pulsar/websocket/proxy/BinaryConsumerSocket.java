@@ -0,0 +1,84 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.websocket.proxy;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.annotations.OnWebSocketConnect;
+import org.eclipse.jetty.websocket.api.annotations.OnWebSocketMessage;
+import org.eclipse.jetty.websocket.api.annotations.WebSocket;
+
+/**
+ * Consumer client using the binary frames, acknowledging every frame with a binary frame.
+ */
+@WebSocket(maxBinaryMessageSize = 1024 * 1024)
+public class BinaryConsumerSocket {
+    private Session session;
+    private final List<String> payloads = new ArrayList<>();
+    private final List<Integer> frameSizes = new ArrayList<>();
+
+    @OnWebSocketConnect
+    public void onConnect(Session session) {
+        this.session = session;
+    }
+
+    @OnWebSocketMessage
+    public synchronized void onMessage(byte[] buffer, int offset, int length) throws IOException {
+        ByteBuffer frame = ByteBuffer.wrap(buffer, offset, length);
+        int numEntries = frame.getInt();
+        frameSizes.add(numEntries);
+
+        ByteBuffer ack = ByteBuffer.allocate(length + 4);
+        ack.putInt(numEntries);
+        for (int i = 0; i < numEntries; i++) {
+            int metadataLength = frame.getInt();
+            int metadataEnd = frame.position() + metadataLength;
+            byte[] messageId = new byte[frame.getInt()];
+            frame.get(messageId);
+            // skip the rest of the metadata
+            frame.position(metadataEnd);
+            byte[] payload = new byte[frame.getInt()];
+            frame.get(payload);
+            payloads.add(new String(payload));
+
+            ack.putInt(4 + messageId.length);
+            ack.putInt(messageId.length);
+            ack.put(messageId);
+            ack.putInt(0);
+        }
+        ack.flip();
+        session.getRemote().sendBytes(ack);
+    }
+
+    public Session getSession() {
+        return session;
+    }
+
+    public synchronized List<String> getPayloads() {
+        return new ArrayList<>(payloads);
+    }
+
+    public synchronized List<Integer> getFrameSizes() {
+        return new ArrayList<>(frameSizes);
+    }
+}
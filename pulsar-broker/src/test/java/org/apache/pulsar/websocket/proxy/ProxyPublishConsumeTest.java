@@ -27,6 +27,7 @@ import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
 
 import java.net.URI;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -43,6 +44,7 @@ import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 
 import org.apache.bookkeeper.test.PortManager;
+import org.apache.pulsar.client.api.Producer;
 import org.apache.pulsar.client.api.ProducerConsumerBase;
 import org.apache.pulsar.common.policies.data.BacklogQuota;
 import org.apache.pulsar.common.stats.Metrics;
@@ -488,6 +490,44 @@ public class ProxyPublishConsumeTest extends ProducerConsumerBase {
         Assert.assertNotNull(producerStats.remoteConnection);
     }
 
+    @Test(timeOut = 20000)
+    public void binaryConsumerTest() throws Exception {
+        final String topic = "my-property/my-ns/my-binary-topic";
+        final String consumerUri = "ws://localhost:" + port + "/ws/v2/consumer/persistent/" + topic
+                + "/my-sub?subscriptionType=Failover&frameFormat=binary&maxBatchSize=10&maxBatchDelayMs=0";
+        final int numMessages = 200;
+
+        WebSocketClient consumeClient = new WebSocketClient();
+        BinaryConsumerSocket consumeSocket = new BinaryConsumerSocket();
+
+        try {
+            consumeClient.start();
+            Future<Session> consumerFuture = consumeClient.connect(consumeSocket, URI.create(consumerUri),
+                    new ClientUpgradeRequest());
+            Assert.assertTrue(consumerFuture.get().isOpen());
+
+            List<String> sent = new ArrayList<>();
+            Producer<byte[]> producer = pulsarClient.newProducer().topic("persistent://" + topic)
+                    .enableBatching(false).create();
+            for (int i = 0; i < numMessages; i++) {
+                String payload = "message-" + i;
+                producer.send(payload.getBytes());
+                sent.add(payload);
+            }
+
+            while (consumeSocket.getPayloads().size() < numMessages) {
+                Thread.sleep(10);
+            }
+
+            // Partial frames flushed by the timer never overtake the full ones
+            Assert.assertEquals(consumeSocket.getPayloads(), sent);
+            consumeSocket.getFrameSizes().forEach(size -> Assert.assertTrue(size > 0 && size <= 10));
+            producer.close();
+        } finally {
+            stopWebSocketClient(consumeClient);
+        }
+    }
+
     private void stopWebSocketClient(WebSocketClient... clients) {
         ExecutorService executor = newFixedThreadPool(1);
         try {
@@ -30,6 +30,7 @@ import org.apache.pulsar.common.policies.data.AuthAction;
 import org.apache.pulsar.common.policies.data.BacklogQuota;
 import org.apache.pulsar.common.policies.data.BundlesData;
 import org.apache.pulsar.common.policies.data.DispatchRate;
+import org.apache.pulsar.common.policies.data.OffloadPolicies;
 import org.apache.pulsar.common.policies.data.PersistencePolicies;
 import org.apache.pulsar.common.policies.data.Policies;
 import org.apache.pulsar.common.policies.data.RetentionPolicies;
@@ -801,6 +802,56 @@ public interface Namespaces {
      */
     RetentionPolicies getRetention(String namespace) throws PulsarAdminException;
 
+    /**
+     * Set the offload configuration for all the topics on a namespace.
+     * <p/>
+     * The closed ledgers of the topics are automatically offloaded to long term storage once they are older than
+     * the ledger age, or once the bytes of the topic stored in bookkeeper exceed the threshold. A negative value
+     * disables the corresponding trigger.
+     * <p/>
+     * Request parameter example:
+     * <p/>
+     *
+     * <pre>
+     * <code>
+     * {
+     *     "offloadThresholdInBytes" : 10737418240,  // bytes of a topic kept in bookkeeper
+     *     "offloadLedgerAgeInSeconds" : 86400,      // age of the ledgers kept in bookkeeper
+     *     "offloadDeletionLagInMillis" : 14400000,  // delay before deleting offloaded ledgers from bookkeeper
+     * }
+     * </code>
+     * </pre>
+     *
+     * @param namespace
+     *            Namespace name
+     *
+     * @throws NotAuthorizedException
+     *             Don't have admin permission
+     * @throws NotFoundException
+     *             Namespace does not exist
+     * @throws ConflictException
+     *             Concurrent modification
+     * @throws PulsarAdminException
+     *             Unexpected error
+     */
+    void setOffloadPolicies(String namespace, OffloadPolicies offloadPolicies) throws PulsarAdminException;
+
+    /**
+     * Get the offload configuration for a namespace.
+     * <p/>
+     * Returns the broker defaults if the namespace does not have any offload configuration.
+     *
+     * @param namespace
+     *            Namespace name
+     * @throws NotAuthorizedException
+     *             Don't have admin permission
+     * @throws NotFoundException
+     *             Namespace does not exist
+     * @throws PulsarAdminException
+     *             Unexpected error
+     */
+    OffloadPolicies getOffloadPolicies(String namespace) throws PulsarAdminException;
+
     /**
      * Unload a namespace from the current serving broker.
      *
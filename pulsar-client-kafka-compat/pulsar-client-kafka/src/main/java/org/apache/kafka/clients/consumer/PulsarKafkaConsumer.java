@@ -73,6 +73,11 @@ public class PulsarKafkaConsumer<K, V> implements Consumer<K, V>, MessageListene
 
     private final String groupId;
     private final boolean isAutoCommit;
+    private final long autoCommitIntervalMs;
+    private final int maxPollRecords;
+
+    // Only accessed by the polling thread
+    private long nextAutoCommitTime = 0;
 
     private final ConcurrentMap<TopicPartition, org.apache.pulsar.client.api.Consumer<byte[]>> consumers = new ConcurrentHashMap<>();
 
@@ -84,11 +89,11 @@ public class PulsarKafkaConsumer<K, V> implements Consumer<K, V>, MessageListene
     private final Properties properties;
 
     private static class QueueItem {
-        final org.apache.pulsar.client.api.Consumer<byte[]> consumer;
+        final TopicPartition topicPartition;
         final Message<byte[]> message;
 
-        QueueItem(org.apache.pulsar.client.api.Consumer<byte[]> consumer, Message<byte[]> message) {
-            this.consumer = consumer;
+        QueueItem(TopicPartition topicPartition, Message<byte[]> message) {
+            this.topicPartition = topicPartition;
             this.message = message;
         }
     }
@@ -141,6 +146,8 @@ public class PulsarKafkaConsumer<K, V> implements Consumer<K, V>, MessageListene
 
         groupId = config.getString(ConsumerConfig.GROUP_ID_CONFIG);
         isAutoCommit = config.getBoolean(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG);
+        autoCommitIntervalMs = config.getInt(ConsumerConfig.AUTO_COMMIT_INTERVAL_MS_CONFIG);
+        maxPollRecords = Math.max(1, config.getInt(ConsumerConfig.MAX_POLL_RECORDS_CONFIG));
 
         String serviceUrl = config.getList(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG).get(0);
 
@@ -159,9 +166,15 @@ public class PulsarKafkaConsumer<K, V> implements Consumer<K, V>, MessageListene
 
     @Override
     public void received(org.apache.pulsar.client.api.Consumer<byte[]> consumer, Message<byte[]> msg) {
+        TopicName topicName = TopicName.get(consumer.getTopic());
+        int partition = topicName.isPartitioned() ? topicName.getPartitionIndex() : 0;
+        received(new TopicPartition(topicName.getPartitionedTopicName(), partition), msg);
+    }
+
+    private void received(TopicPartition topicPartition, Message<byte[]> msg) {
         // Block listener thread if the application is slowing down
         try {
-            receivedMessages.put(new QueueItem(consumer, msg));
+            receivedMessages.put(new QueueItem(topicPartition, msg));
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
             if (closed) {
@@ -206,26 +219,27 @@ public class PulsarKafkaConsumer<K, V> implements Consumer<K, V>, MessageListene
 
                 ConsumerBuilder<byte[]> consumerBuilder = PulsarConsumerKafkaConfig.getConsumerBuilder(client, properties);
                 consumerBuilder.subscriptionType(SubscriptionType.Failover);
-                consumerBuilder.messageListener(this);
                 consumerBuilder.subscriptionName(groupId);
                 if (numberOfPartitions > 1) {
                     // Subscribe to each partition
                     consumerBuilder.consumerName(ConsumerName.generateRandomName());
                     for (int i = 0; i < numberOfPartitions; i++) {
                         String partitionName = TopicName.get(topic).getPartition(i).toString();
-                        CompletableFuture<org.apache.pulsar.client.api.Consumer<byte[]>> future = consumerBuilder.clone()
-                                .topic(partitionName).subscribeAsync();
                         int partitionIndex = i;
                         TopicPartition tp = new TopicPartition(topic, partitionIndex);
+                        // Each listener knows its partition, so that the messages need no further lookup
+                        CompletableFuture<org.apache.pulsar.client.api.Consumer<byte[]>> future = consumerBuilder.clone()
+                                .topic(partitionName).messageListener((consumer, msg) -> received(tp, msg))
+                                .subscribeAsync();
                         future.thenAccept(consumer -> consumers.putIfAbsent(tp, consumer));
                         futures.add(future);
                         topicPartitions.add(tp);
                     }
                 } else {
                     // Topic has a single partition
-                    CompletableFuture<org.apache.pulsar.client.api.Consumer<byte[]>> future = consumerBuilder.topic(topic)
-                            .subscribeAsync();
                     TopicPartition tp = new TopicPartition(topic, 0);
+                    CompletableFuture<org.apache.pulsar.client.api.Consumer<byte[]>> future = consumerBuilder.topic(topic)
+                            .messageListener((consumer, msg) -> received(tp, msg)).subscribeAsync();
                     future.thenAccept(consumer -> consumers.putIfAbsent(tp, consumer));
                     futures.add(future);
                     topicPartitions.add(tp);
@@ -275,8 +289,6 @@ public class PulsarKafkaConsumer<K, V> implements Consumer<K, V>, MessageListene
         });
     }
 
-    private static final int MAX_RECORDS_IN_SINGLE_POLL = 1000;
-
     @SuppressWarnings("unchecked")
     @Override
     public ConsumerRecords<K, V> poll(long timeoutMillis) {
@@ -286,20 +298,21 @@ public class PulsarKafkaConsumer<K, V> implements Consumer<K, V>, MessageListene
                 return (ConsumerRecords<K, V>) ConsumerRecords.EMPTY;
             }
 
-            Map<TopicPartition, List<ConsumerRecord<K, V>>> records = new HashMap<>();
+            // Take at once all the messages already received from all the partitions
+            List<QueueItem> items = new ArrayList<>(Math.min(maxPollRecords, receivedMessages.size() + 1));
+            items.add(item);
+            receivedMessages.drainTo(items, maxPollRecords - 1);
 
-            int numberOfRecords = 0;
+            Map<TopicPartition, List<ConsumerRecord<K, V>>> records = new HashMap<>();
 
-            while (item != null && ++numberOfRecords < MAX_RECORDS_IN_SINGLE_POLL) {
-                TopicName topicName = TopicName.get(item.consumer.getTopic());
-                String topic = topicName.getPartitionedTopicName();
-                int partition = topicName.isPartitioned() ? topicName.getPartitionIndex() : 0;
-                Message<byte[]> msg = item.message;
+            for (QueueItem queueItem : items) {
+                TopicPartition tp = queueItem.topicPartition;
+                String topic = tp.topic();
+                int partition = tp.partition();
+                Message<byte[]> msg = queueItem.message;
                 MessageIdImpl msgId = (MessageIdImpl) msg.getMessageId();
                 long offset = MessageIdUtils.getOffset(msgId);
 
-                TopicPartition tp = new TopicPartition(topic, partition);
-
                 K key = getKey(topic, msg);
                 V value = valueDeserializer.deserialize(topic, msg.getData());
 
@@ -316,17 +329,19 @@ public class PulsarKafkaConsumer<K, V> implements Consumer<K, V>, MessageListene
                         timestampType, -1, msg.hasKey() ? msg.getKey().length() : 0, msg.getData().length, key, value);
 
                 records.computeIfAbsent(tp, k -> new ArrayList<>()).add(consumerRecord);
-
-                // Update last offset seen by application
-                lastReceivedOffset.put(tp, offset);
-
-                // Check if we have an item already available
-                item = receivedMessages.poll(0, TimeUnit.MILLISECONDS);
             }
 
+            // Update last offset seen by application
+            records.forEach((tp, partitionRecords) -> lastReceivedOffset.put(tp,
+                    partitionRecords.get(partitionRecords.size() - 1).offset()));
+
             if (isAutoCommit) {
-                // Commit the offset of previously dequeued messages
-                commitAsync();
+                long now = System.currentTimeMillis();
+                if (now >= nextAutoCommitTime) {
+                    // Commit the offset of previously dequeued messages
+                    commitAsync();
+                    nextAutoCommitTime = now + autoCommitIntervalMs;
+                }
             }
 
             return new ConsumerRecords<>(records);
@@ -397,7 +412,14 @@ public class PulsarKafkaConsumer<K, V> implements Consumer<K, V>, MessageListene
             org.apache.pulsar.client.api.Consumer<byte[]> consumer = consumers.get(topicPartition);
 
             lastCommittedOffset.put(topicPartition, offsetAndMetadata);
-            futures.add(consumer.acknowledgeCumulativeAsync(MessageIdUtils.getMessageId(offsetAndMetadata.offset())));
+            CompletableFuture<Void> future = consumer
+                    .acknowledgeCumulativeAsync(MessageIdUtils.getMessageId(offsetAndMetadata.offset()));
+            future.exceptionally(ex -> {
+                // Commit the offset again next time
+                lastCommittedOffset.remove(topicPartition, offsetAndMetadata);
+                return null;
+            });
+            futures.add(future);
         });
 
         return FutureUtil.waitForAll(futures);
@@ -406,6 +428,11 @@ public class PulsarKafkaConsumer<K, V> implements Consumer<K, V>, MessageListene
     private Map<TopicPartition, OffsetAndMetadata> getCurrentOffsetsMap() {
         Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
         lastReceivedOffset.forEach((topicPartition, offset) -> {
+            OffsetAndMetadata committed = lastCommittedOffset.get(topicPartition);
+            if (committed != null && committed.offset() == offset) {
+                // Nothing new to commit on this partition
+                return;
+            }
             OffsetAndMetadata om = new OffsetAndMetadata(offset);
             offsets.put(topicPartition, om);
         });
@@ -19,6 +19,7 @@
 package org.apache.pulsar.client.kafka.compat.tests;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -134,6 +135,50 @@ public class KafkaConsumerTest extends BrokerTestBase {
         consumer2.close();
     }
 
+    @Test
+    public void testConsumerMaxPollRecords() throws Exception {
+        String topic = "persistent://prop/ns-abc/testConsumerMaxPollRecords";
+
+        Properties props = new Properties();
+        props.put("bootstrap.servers", lookupUrl.toString());
+        props.put("group.id", "my-subscription-name");
+        props.put("enable.auto.commit", "true");
+        props.put("auto.commit.interval.ms", "60000");
+        props.put("max.poll.records", "5");
+        props.put("key.deserializer", StringDeserializer.class.getName());
+        props.put("value.deserializer", StringDeserializer.class.getName());
+
+        Consumer<String, String> consumer = new PulsarKafkaConsumer<>(props);
+        consumer.subscribe(Arrays.asList(topic));
+
+        Producer<byte[]> pulsarProducer = pulsarClient.newProducer().topic(topic).create();
+
+        for (int i = 0; i < 20; i++) {
+            pulsarProducer.newMessage().key(Integer.toString(i)).value(("hello-" + i).getBytes()).send();
+        }
+
+        AtomicInteger received = new AtomicInteger();
+        while (received.get() < 20) {
+            ConsumerRecords<String, String> records = consumer.poll(100);
+            assertTrue(records.count() <= 5);
+            records.forEach(record -> {
+                assertEquals(record.key(), Integer.toString(received.get()));
+                assertEquals(record.value(), "hello-" + received.get());
+                received.incrementAndGet();
+            });
+        }
+
+        // The offsets not committed yet by the auto-commit are committed on close
+        consumer.close();
+
+        Consumer<String, String> consumer2 = new PulsarKafkaConsumer<>(props);
+        consumer2.subscribe(Arrays.asList(topic));
+
+        ConsumerRecords<String, String> records = consumer2.poll(100);
+        assertEquals(records.count(), 0);
+        consumer2.close();
+    }
+
     @Test
     public void testConsumerManualOffsetCommit() throws Exception {
         String topic = "persistent://sample/standalone/ns/testConsumerManualOffsetCommit";
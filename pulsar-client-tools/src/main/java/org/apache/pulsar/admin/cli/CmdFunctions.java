@@ -219,6 +219,12 @@ public class CmdFunctions extends CmdBase {
         protected String userConfigString;
         @Parameter(names = "--parallelism", description = "The function's parallelism factor (i.e. the number of function instances to run)")
         protected String parallelism;
+        @Parameter(names = "--processingThreads", description = "The number of threads processing messages concurrently in each function instance (Java functions only). "
+                + "The function must be thread-safe when greater than 1. With EFFECTIVELY_ONCE the messages of an input partition are processed in order, "
+                + "otherwise messages are processed, and their results published, in no particular order")
+        protected Integer processingThreads;
+        @Parameter(names = "--stateUpdateWindow", description = "The number of messages whose state updates are committed together by each function instance (Java functions only)")
+        protected Integer stateUpdateWindow;
 
         protected FunctionConfig functionConfig;
         protected String userCodeFile;
@@ -316,6 +322,20 @@ public class CmdFunctions extends CmdBase {
                 functionConfig.setParallelism(num);
             }
 
+            if (null != processingThreads) {
+                if (processingThreads <= 0) {
+                    throw new IllegalArgumentException("The number of processing threads for the function must be positive");
+                }
+                functionConfig.setProcessingThreads(processingThreads);
+            }
+
+            if (null != stateUpdateWindow) {
+                if (stateUpdateWindow <= 0) {
+                    throw new IllegalArgumentException("The state update window for the function must be positive");
+                }
+                functionConfig.setStateUpdateWindow(stateUpdateWindow);
+            }
+
             if (functionConfig.getSubscriptionType() != null
                     && functionConfig.getSubscriptionType() != FunctionConfig.SubscriptionType.FAILOVER
                     && functionConfig.getProcessingGuarantees() != null
@@ -616,6 +636,8 @@ public class CmdFunctions extends CmdBase {
             }
             functionDetailsBuilder.setAutoAck(functionConfig.isAutoAck());
             functionDetailsBuilder.setParallelism(functionConfig.getParallelism());
+            functionDetailsBuilder.setProcessingThreads(functionConfig.getProcessingThreads());
+            functionDetailsBuilder.setStateUpdateWindow(functionConfig.getStateUpdateWindow());
             return functionDetailsBuilder.build();
         }
 
@@ -29,6 +29,7 @@ import java.io.IOException;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.pulsar.admin.cli.utils.IOUtils;
 import org.apache.pulsar.client.admin.PulsarAdmin;
@@ -37,6 +38,7 @@ import org.apache.pulsar.common.naming.NamespaceName;
 import org.apache.pulsar.common.policies.data.BacklogQuota;
 import org.apache.pulsar.common.policies.data.BundlesData;
 import org.apache.pulsar.common.policies.data.DispatchRate;
+import org.apache.pulsar.common.policies.data.OffloadPolicies;
 import org.apache.pulsar.common.policies.data.PersistencePolicies;
 import org.apache.pulsar.common.policies.data.Policies;
 import org.apache.pulsar.common.policies.data.RetentionPolicies;
@@ -369,6 +371,49 @@ public class CmdNamespaces extends CmdBase {
         }
     }
 
+    @Parameters(commandDescription = "Set the offload policy for a namespace")
+    private class SetOffloadPolicies extends CliCommand {
+        @Parameter(description = "tenant/namespace", required = true)
+        private java.util.List<String> params;
+
+        @Parameter(names = { "--threshold", "-t" }, description = "Bytes of a topic kept in bookkeeper before older "
+                + "ledgers are offloaded (eg: 10M, 16G, 3T). -1 disables it")
+        private String thresholdStr = "-1";
+
+        @Parameter(names = { "--age", "-a" }, description = "Age after which closed ledgers are offloaded "
+                + "(eg: 100m, 3h, 2d, 5w). -1 disables it")
+        private String ledgerAgeStr = "-1";
+
+        @Parameter(names = { "--deletion-lag", "-d" }, description = "Delay before deleting the bookkeeper copy of "
+                + "offloaded ledgers (eg: 100m, 3h, 2d, 5w). -1 uses the broker default")
+        private String deletionLagStr = "-1";
+
+        @Override
+        void run() throws PulsarAdminException {
+            String namespace = validateNamespace(params);
+            long threshold = validateSizeString(thresholdStr);
+            int ledgerAgeInMin = validateTimeString(ledgerAgeStr);
+            int deletionLagInMin = validateTimeString(deletionLagStr);
+
+            long ledgerAgeInSeconds = ledgerAgeInMin < 0 ? -1 : TimeUnit.MINUTES.toSeconds(ledgerAgeInMin);
+            long deletionLagInMillis = deletionLagInMin < 0 ? -1 : TimeUnit.MINUTES.toMillis(deletionLagInMin);
+            admin.namespaces().setOffloadPolicies(namespace,
+                    new OffloadPolicies(threshold < 0 ? -1 : threshold, ledgerAgeInSeconds, deletionLagInMillis));
+        }
+    }
+
+    @Parameters(commandDescription = "Get the offload policy for a namespace")
+    private class GetOffloadPolicies extends CliCommand {
+        @Parameter(description = "tenant/namespace\n", required = true)
+        private java.util.List<String> params;
+
+        @Override
+        void run() throws PulsarAdminException {
+            String namespace = validateNamespace(params);
+            print(admin.namespaces().getOffloadPolicies(namespace));
+        }
+    }
+
     @Parameters(commandDescription = "Get message TTL for a namspace")
     private class GetMessageTTL extends CliCommand {
         @Parameter(description = "tenant/namespace\n", required = true)
@@ -854,6 +899,9 @@ public class CmdNamespaces extends CmdBase {
         jcommander.addCommand("get-retention", new GetRetention());
         jcommander.addCommand("set-retention", new SetRetention());
 
+        jcommander.addCommand("get-offload-policies", new GetOffloadPolicies());
+        jcommander.addCommand("set-offload-policies", new SetOffloadPolicies());
+
         jcommander.addCommand("unload", new Unload());
 
         jcommander.addCommand("split-bundle", new SplitBundle());
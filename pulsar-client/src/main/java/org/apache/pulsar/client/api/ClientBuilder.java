@@ -264,6 +264,19 @@ public interface ClientBuilder extends Serializable, Cloneable {
      */
     ClientBuilder maxLookupRequests(int maxLookupRequests);
 
+    /**
+     * Set the time for which the result of a topic lookup and of a partitioned topic metadata request are cached by
+     * the client <i>(default: 0, disabled)</i>.
+     * <p>
+     * Cached broker addresses are dropped as soon as the connection to the broker fails or the broker closes the
+     * producer/consumer. Identical lookups that are in progress at the same time are always shared, independently of
+     * this setting.
+     *
+     * @param lookupCacheTtl
+     * @param unit time unit for {@code lookupCacheTtl}
+     */
+    ClientBuilder lookupCacheTtl(long lookupCacheTtl, TimeUnit unit);
+
     /**
      * Set max number of broker-rejected requests in a certain time-frame (30 seconds) after which current connection
      * will be closed and client creates a new connection that give chance to connect a different broker <i>(default:
@@ -134,6 +134,21 @@ public interface ConsumerBuilder<T> extends Serializable, Cloneable {
      */
     ConsumerBuilder<T> ackTimeout(long ackTimeout, TimeUnit timeUnit);
 
+    /**
+     * Define the granularity of the ack-timeout redelivery.
+     * <p>
+     * By default, the tick time is set to the ack timeout, so unacked messages are redelivered after a time between
+     * the ack timeout and twice the ack timeout. Using a smaller tick time makes the redelivery happen closer to the
+     * ack timeout, at the cost of a slightly higher memory usage to track the messages.
+     *
+     * @param tickTime
+     *            the min precision for the ack timeout messages tracker
+     * @param timeUnit
+     *            unit in which the tick time is provided.
+     * @return the consumer builder instance
+     */
+    ConsumerBuilder<T> ackTimeoutTickTime(long tickTime, TimeUnit timeUnit);
+
     /**
      * Select the subscription type to be used when subscribing to the topic.
      * <p>
@@ -272,6 +272,41 @@ public interface ProducerBuilder<T> extends Serializable, Cloneable {
      */
     ProducerBuilder<T> batchingMaxMessages(int batchMessagesMaxMessagesPerBatch);
 
+    /**
+     * Control whether the producer adapts the batching parameters to the load <i>default: false</i>.
+     * <p>
+     * When enabled, the producer uses the recent publish rate and broker ack latency to choose the batch publish delay
+     * and the max number of messages per batch. The values configured with
+     * {@link #batchingMaxPublishDelay(long, TimeUnit)} and {@link #batchingMaxMessages(int)} are used as upper bounds.
+     * At low publish rates messages are sent with little or no batching delay, while at high rates batches grow up to
+     * the configured limits.
+     * <p>
+     * The values currently in use are reported by {@link ProducerStats#getBatchingMaxMessages()} and
+     * {@link ProducerStats#getBatchingMaxPublishDelayMicros()}.
+     *
+     * @param adaptiveBatchingEnabled
+     *            whether to enable adaptive batching
+     * @return producer builder.
+     */
+    ProducerBuilder<T> enableAdaptiveBatching(boolean adaptiveBatchingEnabled);
+
+    /**
+     * Control whether the producer groups messages in batches by key <i>default: false</i>.
+     * <p>
+     * By default a batch contains messages with different keys and, since a batch is always dispatched to a single
+     * consumer, messages cannot be routed to consumers by key. When key based batching is enabled, messages with the
+     * same key are grouped in their own batch and the key is set on the batch metadata. Messages without key are
+     * grouped together.
+     * <p>
+     * {@link #batchingMaxMessages(int)} and the max batch size apply to the total of the batches being accumulated,
+     * and all the batches are sent together when one of the limits is reached or the publish delay has elapsed.
+     *
+     * @param keyBasedBatchingEnabled
+     *            whether to group the messages in batches by key
+     * @return producer builder.
+     */
+    ProducerBuilder<T> enableKeyBasedBatching(boolean keyBasedBatchingEnabled);
+
     /**
      * Set the baseline for the sequence ids for messages published by the producer.
      * <p>
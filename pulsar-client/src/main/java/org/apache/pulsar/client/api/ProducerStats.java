@@ -107,4 +107,16 @@ public interface ProducerStats extends Serializable {
      */
     long getTotalAcksReceived();
 
+    /**
+     * @return the max number of messages per batch currently used by the producer. This is the configured value unless
+     *         adaptive batching is enabled
+     */
+    int getBatchingMaxMessages();
+
+    /**
+     * @return the max publish delay of a batch, in microseconds, currently used by the producer. This is the
+     *         configured value unless adaptive batching is enabled
+     */
+    long getBatchingMaxPublishDelayMicros();
+
 }
@@ -26,7 +26,6 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentSkipListSet;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
@@ -38,6 +37,8 @@ import org.apache.pulsar.client.api.MessageId;
 import org.apache.pulsar.client.impl.conf.ConsumerConfigurationData;
 import org.apache.pulsar.common.api.Commands;
 import org.apache.pulsar.common.api.proto.PulsarApi.CommandAck.AckType;
+import org.apache.pulsar.common.util.collections.ConcurrentLongPairSet;
+import org.apache.pulsar.common.util.collections.ConcurrentLongPairSet.LongPair;
 
 /**
  * Group the acknowledgments for a certain time and then sends them out in a single protobuf command.
@@ -64,16 +65,16 @@ public class AcknowledgmentsGroupingTracker implements Closeable {
 
     /**
      * This is a set of all the individual acks that the application has issued and that were not already sent to
-     * broker.
+     * broker. Acks are kept as (ledgerId, entryId) pairs, to avoid retaining a message id object per pending ack.
      */
-    private final ConcurrentSkipListSet<MessageIdImpl> pendingIndividualAcks;
+    private final ConcurrentLongPairSet pendingIndividualAcks;
 
     private final ScheduledFuture<?> scheduledTask;
 
     public AcknowledgmentsGroupingTracker(ConsumerImpl<?> consumer, ConsumerConfigurationData<?> conf,
             EventLoopGroup eventLoopGroup) {
         this.consumer = consumer;
-        this.pendingIndividualAcks = new ConcurrentSkipListSet<>();
+        this.pendingIndividualAcks = new ConcurrentLongPairSet(MAX_ACK_GROUP_SIZE);
         this.acknowledgementGroupTimeMicros = conf.getAcknowledgementsGroupTimeMicros();
 
         if (acknowledgementGroupTimeMicros > 0) {
@@ -93,7 +94,8 @@ public class AcknowledgmentsGroupingTracker implements Closeable {
             // Already included in a cumulative ack
             return true;
         } else {
-            return pendingIndividualAcks.contains(messageId);
+            MessageIdImpl msgId = (MessageIdImpl) messageId;
+            return pendingIndividualAcks.contains(msgId.getLedgerId(), msgId.getEntryId());
         }
     }
 
@@ -106,7 +108,7 @@ public class AcknowledgmentsGroupingTracker implements Closeable {
             doCumulativeAck(msgId);
         } else {
             // Individual ack
-            pendingIndividualAcks.add(msgId);
+            pendingIndividualAcks.add(msgId.getLedgerId(), msgId.getEntryId());
             if (pendingIndividualAcks.size() >= MAX_ACK_GROUP_SIZE) {
                 flush();
             }
@@ -169,29 +171,21 @@ public class AcknowledgmentsGroupingTracker implements Closeable {
 
         // Flush all individual acks
         if (!pendingIndividualAcks.isEmpty()) {
-            if (Commands.peerSupportsMultiMessageAcknowledgment(cnx.getRemoteEndpointProtocolVersion())) {
-                // We can send 1 single protobuf command with all individual acks
-                List<Pair<Long, Long>> entriesToAck = new ArrayList<>(pendingIndividualAcks.size());
-                while (true) {
-                    MessageIdImpl msgId = pendingIndividualAcks.pollFirst();
-                    if (msgId == null) {
-                        break;
-                    }
-
-                    entriesToAck.add(Pair.of(msgId.getLedgerId(), msgId.getEntryId()));
-                }
-
+            List<Pair<Long, Long>> entriesToAck = pollPendingIndividualAcks();
+            int protocolVersion = cnx.getRemoteEndpointProtocolVersion();
+            if (!entriesToAck.isEmpty() && Commands.peerSupportsAckRanges(protocolVersion)) {
+                // Entries are sorted, consecutive acks are sent as a single range
+                cnx.ctx().write(Commands.newAckRanges(consumer.consumerId, entriesToAck), cnx.ctx().voidPromise());
+            } else if (!entriesToAck.isEmpty()
+                    && Commands.peerSupportsMultiMessageAcknowledgment(protocolVersion)) {
+                // We can send 1 single protobuf command with all individual acks. Entries are sorted so that the broker
+                // can apply consecutive acks as a single range
                 cnx.ctx().write(Commands.newMultiMessageAck(consumer.consumerId, entriesToAck),
                         cnx.ctx().voidPromise());
             } else {
                 // When talking to older brokers, send the acknowledgments individually
-                while (true) {
-                    MessageIdImpl msgId = pendingIndividualAcks.pollFirst();
-                    if (msgId == null) {
-                        break;
-                    }
-
-                    cnx.ctx().write(Commands.newAck(consumer.consumerId, msgId.getLedgerId(), msgId.getEntryId(),
+                for (Pair<Long, Long> entry : entriesToAck) {
+                    cnx.ctx().write(Commands.newAck(consumer.consumerId, entry.getLeft(), entry.getRight(),
                             AckType.Individual, null, Collections.emptyMap()), cnx.ctx().voidPromise());
                 }
             }
@@ -200,6 +194,24 @@ public class AcknowledgmentsGroupingTracker implements Closeable {
         cnx.ctx().flush();
     }
 
+    /**
+     * Removes the pending individual acks and returns them sorted by (ledgerId, entryId). Acks added concurrently are
+     * either included or left for the next flush.
+     */
+    private List<Pair<Long, Long>> pollPendingIndividualAcks() {
+        List<LongPair> pendingAcks = new ArrayList<>(pendingIndividualAcks.items());
+        Collections.sort(pendingAcks);
+
+        List<Pair<Long, Long>> entriesToAck = new ArrayList<>(pendingAcks.size());
+        for (LongPair entry : pendingAcks) {
+            // Only send the acks that were not already taken by a concurrent flush
+            if (pendingIndividualAcks.remove(entry.first, entry.second)) {
+                entriesToAck.add(Pair.of(entry.first, entry.second));
+            }
+        }
+        return entriesToAck;
+    }
+
     @Override
     public void close() {
         flush();
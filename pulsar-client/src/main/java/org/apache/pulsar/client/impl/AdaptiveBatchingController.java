@@ -0,0 +1,116 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.client.impl;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Chooses the batching parameters of a producer from the observed publish rate and broker ack latency, within the
+ * bounds configured on the producer.
+ * <ul>
+ * <li><b>publish delay:</b> follows the broker ack latency. While a batch is being persisted, holding the next batch
+ * for up to one round trip adds little to the end-to-end latency and lets it accumulate more messages</li>
+ * <li><b>max messages:</b> the number of messages expected to be published during the publish delay, so that batches
+ * are closed as soon as they are full instead of waiting for the timer</li>
+ * </ul>
+ * With a low publish rate, batches shrink down to a single message and are sent right away. With a high publish rate
+ * or a slow broker, batches grow up to the configured max messages and max publish delay.
+ *
+ * Methods are not thread-safe and are called while holding the producer lock. Getters can be used from any thread.
+ */
+class AdaptiveBatchingController {
+
+    // Weight of the latest sample in the moving averages
+    private static final double EWMA_ALPHA = 0.2;
+
+    // The publish delay is never reduced below this fraction of the configured max publish delay
+    private static final int MIN_PUBLISH_DELAY_DIVIDER = 10;
+
+    private final int maxMessagesUpperBound;
+    private final long maxPublishDelayUpperBoundMicros;
+    private final long minPublishDelayMicros;
+
+    private double msgRateEwma = -1;
+    private double ackLatencyMicrosEwma = -1;
+    private long lastBatchClosedNanos;
+
+    private volatile int batchingMaxMessages;
+    private volatile long batchingMaxPublishDelayMicros;
+
+    AdaptiveBatchingController(int maxMessagesUpperBound, long maxPublishDelayUpperBoundMicros) {
+        this.maxMessagesUpperBound = Math.max(1, maxMessagesUpperBound);
+        this.maxPublishDelayUpperBoundMicros = maxPublishDelayUpperBoundMicros;
+        this.minPublishDelayMicros = Math.max(1, maxPublishDelayUpperBoundMicros / MIN_PUBLISH_DELAY_DIVIDER);
+        this.lastBatchClosedNanos = System.nanoTime();
+
+        // Start with the configured values, until we have some samples
+        this.batchingMaxMessages = this.maxMessagesUpperBound;
+        this.batchingMaxPublishDelayMicros = maxPublishDelayUpperBoundMicros;
+    }
+
+    /**
+     * Records a batch being closed and sent out.
+     *
+     * @param numMessages
+     *            number of messages in the batch
+     */
+    void batchClosed(int numMessages) {
+        batchClosed(numMessages, System.nanoTime());
+    }
+
+    void batchClosed(int numMessages, long nowNanos) {
+        long elapsedNanos = Math.max(nowNanos - lastBatchClosedNanos, 1);
+        lastBatchClosedNanos = nowNanos;
+
+        double msgRate = numMessages * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+        msgRateEwma = msgRateEwma < 0 ? msgRate : EWMA_ALPHA * msgRate + (1 - EWMA_ALPHA) * msgRateEwma;
+        update();
+    }
+
+    /**
+     * Records the time the broker took to persist a batch.
+     *
+     * @param latencyNanos
+     *            time elapsed between the batch being sent and the ack from the broker
+     */
+    void ackReceived(long latencyNanos) {
+        double latencyMicros = TimeUnit.NANOSECONDS.toMicros(latencyNanos);
+        ackLatencyMicrosEwma = ackLatencyMicrosEwma < 0 ? latencyMicros
+                : EWMA_ALPHA * latencyMicros + (1 - EWMA_ALPHA) * ackLatencyMicrosEwma;
+    }
+
+    private void update() {
+        long publishDelayMicros = ackLatencyMicrosEwma < 0 ? maxPublishDelayUpperBoundMicros
+                : Math.max(minPublishDelayMicros,
+                        Math.min(maxPublishDelayUpperBoundMicros, Math.round(ackLatencyMicrosEwma)));
+
+        long expectedMessages = (long) Math.ceil(msgRateEwma * publishDelayMicros / TimeUnit.SECONDS.toMicros(1));
+
+        this.batchingMaxPublishDelayMicros = publishDelayMicros;
+        this.batchingMaxMessages = (int) Math.max(1, Math.min(maxMessagesUpperBound, expectedMessages));
+    }
+
+    int getBatchingMaxMessages() {
+        return batchingMaxMessages;
+    }
+
+    long getBatchingMaxPublishDelayMicros() {
+        return batchingMaxPublishDelayMicros;
+    }
+}
@@ -45,13 +45,16 @@ class BatchMessageContainer {
     private final String topicName;
     private final String producerName;
 
-    final int maxNumMessagesInBatch;
+    // Can be updated by the producer when using adaptive batching
+    int maxNumMessagesInBatch;
 
     PulsarApi.MessageMetadata.Builder messageMetadata = PulsarApi.MessageMetadata.newBuilder();
     int numMessagesInBatch = 0;
     long currentBatchSizeBytes = 0;
     // sequence id for this batch which will be persisted as a single entry by broker
     long sequenceId = -1;
+    // highest sequence id of the messages in this batch. Messages are not contiguous when batching by key
+    long highestSequenceId = -1;
     ByteBuf batchedMessageMetadataAndPayload;
     List<MessageImpl<?>> messages = Lists.newArrayList();
     // keep track of callbacks for individual messages being published in a batch
@@ -60,9 +63,11 @@ class BatchMessageContainer {
     private static final int INITIAL_BATCH_BUFFER_SIZE = 1024;
     protected static final int MAX_MESSAGE_BATCH_SIZE_BYTES = 128 * 1024;
 
-    // This will be the largest size for a batch sent from this particular producer. This is used as a baseline to
-    // allocate a new buffer that can hold the entire batch without needing costly reallocations
+    // This will be the largest size of the recent batches sent from this particular producer. This is used as a
+    // baseline to allocate a new buffer that can hold the entire batch without needing costly reallocations. The size
+    // slowly decays, so that a single large batch does not keep oversized buffers allocated for all the next batches.
     private int maxBatchSize = INITIAL_BATCH_BUFFER_SIZE;
+    private static final double BATCH_SIZE_DECAY = 0.99;
 
     BatchMessageContainer(int maxNumMessagesInBatch, PulsarApi.CompressionType compressionType, String topicName,
             String producerName) {
@@ -102,6 +107,7 @@ class BatchMessageContainer {
 
         currentBatchSizeBytes += msg.getDataBuffer().readableBytes();
         PulsarApi.MessageMetadata.Builder msgBuilder = msg.getMessageBuilder();
+        highestSequenceId = Math.max(highestSequenceId, msgBuilder.getSequenceId());
         batchedMessageMetadataAndPayload = Commands.serializeSingleMessageInBatchWithPayload(msgBuilder,
                 msg.getDataBuffer(), batchedMessageMetadataAndPayload);
         messages.add(msg);
@@ -119,7 +125,8 @@ class BatchMessageContainer {
 
         // Update the current max batch size using the uncompressed size, which is what we need in any case to
         // accumulate the batch content
-        maxBatchSize = Math.max(maxBatchSize, uncompressedSize);
+        maxBatchSize = Math.max(INITIAL_BATCH_BUFFER_SIZE,
+                Math.max(uncompressedSize, (int) (maxBatchSize * BATCH_SIZE_DECAY)));
         return compressedPayload;
     }
 
@@ -144,6 +151,7 @@ class BatchMessageContainer {
         numMessagesInBatch = 0;
         currentBatchSizeBytes = 0;
         sequenceId = -1;
+        highestSequenceId = -1;
         batchedMessageMetadataAndPayload = null;
     }
 
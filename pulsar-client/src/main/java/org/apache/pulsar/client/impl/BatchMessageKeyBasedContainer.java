@@ -0,0 +1,120 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.client.impl;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.pulsar.common.api.proto.PulsarApi;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Container for messages being published until they are batched and sent to broker, keeping a separate batch for each
+ * message key.
+ * <p>
+ * Since the broker dispatches a whole batch to a single consumer, this allows consumers to be selected by key while
+ * still using batching. The key is set on the metadata of each batch. The limits on the number of messages and on the
+ * size apply to the total of the batches, which are all sent together, ordered by sequence id.
+ */
+class BatchMessageKeyBasedContainer {
+
+    private final PulsarApi.CompressionType compressionType;
+    private final String topicName;
+    private final String producerName;
+
+    // Batches by message key. Messages without key are grouped under the null key
+    private final Map<String, BatchMessageContainer> batches = new HashMap<>();
+
+    // Can be updated by the producer when using adaptive batching
+    int maxNumMessagesInBatch;
+
+    int numMessagesInBatch = 0;
+    long currentBatchSizeBytes = 0;
+
+    BatchMessageKeyBasedContainer(int maxNumMessagesInBatch, PulsarApi.CompressionType compressionType,
+            String topicName, String producerName) {
+        this.maxNumMessagesInBatch = maxNumMessagesInBatch;
+        this.compressionType = compressionType;
+        this.topicName = topicName;
+        this.producerName = producerName;
+    }
+
+    boolean hasSpaceInBatch(MessageImpl<?> msg) {
+        int messageSize = msg.getDataBuffer().readableBytes();
+        return ((messageSize + currentBatchSizeBytes) <= BatchMessageContainer.MAX_MESSAGE_BATCH_SIZE_BYTES
+                && numMessagesInBatch < maxNumMessagesInBatch);
+    }
+
+    boolean isFull() {
+        return numMessagesInBatch >= maxNumMessagesInBatch
+                || currentBatchSizeBytes >= BatchMessageContainer.MAX_MESSAGE_BATCH_SIZE_BYTES;
+    }
+
+    void add(MessageImpl<?> msg, SendCallback callback) {
+        // Read the key before adding, since the message metadata builder is recycled once serialized in the batch
+        boolean hasKey = msg.hasKey();
+        String key = hasKey ? msg.getKey() : null;
+        int messageSize = msg.getDataBuffer().readableBytes();
+
+        BatchMessageContainer batch = batches.get(key);
+        if (batch == null) {
+            // The limits are enforced on the total of the batches
+            batch = new BatchMessageContainer(Integer.MAX_VALUE, compressionType, topicName, producerName);
+            batches.put(key, batch);
+            if (log.isDebugEnabled()) {
+                log.debug("[{}] [{}] Opening batch for key '{}', {} batches open", topicName, producerName, key,
+                        batches.size());
+            }
+        }
+
+        batch.add(msg, callback);
+        if (batch.numMessagesInBatch == 1 && hasKey) {
+            batch.messageMetadata.setPartitionKey(key);
+        }
+
+        numMessagesInBatch++;
+        currentBatchSizeBytes += messageSize;
+    }
+
+    /**
+     * @return the open batches, ordered by the sequence id of their first message
+     */
+    List<BatchMessageContainer> getBatches() {
+        List<BatchMessageContainer> list = new ArrayList<>(batches.values());
+        list.sort(Comparator.comparingLong(batch -> batch.sequenceId));
+        return list;
+    }
+
+    void clear() {
+        // Batches are discarded rather than reused, to not retain one container for every key ever published
+        batches.clear();
+        numMessagesInBatch = 0;
+        currentBatchSizeBytes = 0;
+    }
+
+    boolean isEmpty() {
+        return numMessagesInBatch == 0;
+    }
+
+    private static final Logger log = LoggerFactory.getLogger(BatchMessageKeyBasedContainer.class);
+}
@@ -31,6 +31,7 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
 import org.apache.commons.lang3.tuple.Pair;
 import org.apache.pulsar.client.api.PulsarClientException;
 import org.apache.pulsar.common.api.Commands;
@@ -46,6 +47,9 @@ import io.netty.buffer.ByteBuf;
 
 public class BinaryProtoLookupService implements LookupService {
 
+    // Keeps the bulk lookup request and response frames well below the max frame size
+    private static final int MAX_TOPICS_PER_BULK_LOOKUP = 500;
+
     private final PulsarClientImpl client;
     protected final InetSocketAddress serviceAddress;
     private final boolean useTls;
@@ -80,6 +84,76 @@ public class BinaryProtoLookupService implements LookupService {
         return findBroker(serviceAddress, false, topicName);
     }
 
+    /**
+     * Finds the brokers that serve the given topics with bulk lookups, or with one lookup per topic if the broker does
+     * not support bulk lookups. Topics that are redirected are looked up again individually.
+     */
+    @Override
+    public List<CompletableFuture<Pair<InetSocketAddress, InetSocketAddress>>> getBrokers(List<TopicName> topicNames) {
+        List<CompletableFuture<Pair<InetSocketAddress, InetSocketAddress>>> addressFutures = topicNames.stream()
+                .map(topicName -> new CompletableFuture<Pair<InetSocketAddress, InetSocketAddress>>())
+                .collect(Collectors.toList());
+
+        client.getCnxPool().getConnection(serviceAddress).thenAccept(clientCnx -> {
+            if (!Commands.peerSupportsBulkLookup(clientCnx.getRemoteEndpointProtocolVersion())) {
+                for (int i = 0; i < topicNames.size(); i++) {
+                    CompletableFuture<Pair<InetSocketAddress, InetSocketAddress>> addressFuture = addressFutures.get(i);
+                    findBroker(serviceAddress, false, topicNames.get(i)).whenComplete((addressPair, exception) -> {
+                        if (exception != null) {
+                            addressFuture.completeExceptionally(exception);
+                        } else {
+                            addressFuture.complete(addressPair);
+                        }
+                    });
+                }
+                return;
+            }
+
+            for (int from = 0; from < topicNames.size(); from += MAX_TOPICS_PER_BULK_LOOKUP) {
+                int to = Math.min(from + MAX_TOPICS_PER_BULK_LOOKUP, topicNames.size());
+                findBrokers(clientCnx, topicNames.subList(from, to), addressFutures.subList(from, to));
+            }
+        }).exceptionally(connectionException -> {
+            addressFutures.forEach(addressFuture -> addressFuture.completeExceptionally(connectionException));
+            return null;
+        });
+        return addressFutures;
+    }
+
+    private void findBrokers(ClientCnx clientCnx, List<TopicName> topicNames,
+            List<CompletableFuture<Pair<InetSocketAddress, InetSocketAddress>>> addressFutures) {
+        long requestId = client.newRequestId();
+        ByteBuf request = Commands.newLookupTopics(
+                topicNames.stream().map(TopicName::toString).collect(Collectors.toList()), requestId);
+        clientCnx.newLookupTopics(request, requestId).whenComplete((lookupDataResults, sendException) -> {
+            if (sendException != null) {
+                log.warn("Failed to send bulk lookup request for {} topics : {}", topicNames.size(),
+                        sendException.getMessage(), sendException instanceof ClosedChannelException ? null
+                                : sendException);
+                addressFutures.forEach(addressFuture -> addressFuture.completeExceptionally(sendException));
+                return;
+            }
+
+            for (int i = 0; i < topicNames.size(); i++) {
+                TopicName topicName = topicNames.get(i);
+                CompletableFuture<Pair<InetSocketAddress, InetSocketAddress>> addressFuture = addressFutures.get(i);
+                if (i >= lookupDataResults.size()) {
+                    addressFuture.completeExceptionally(
+                            new PulsarClientException.LookupException("Missing lookup response for " + topicName));
+                    continue;
+                }
+                lookupDataResults.get(i).whenComplete((lookupDataResult, lookupException) -> {
+                    if (lookupException != null) {
+                        log.warn("[{}] lookup failed : {}", topicName, lookupException.getMessage());
+                        addressFuture.completeExceptionally(lookupException);
+                    } else {
+                        handleLookupResult(topicName, lookupDataResult, addressFuture);
+                    }
+                });
+            }
+        });
+    }
+
     /**
      * calls broker binaryProto-lookup api to get metadata of partitioned-topic.
      *
@@ -96,47 +170,7 @@ public class BinaryProtoLookupService implements LookupService {
             long requestId = client.newRequestId();
             ByteBuf request = Commands.newLookup(topicName.toString(), authoritative, requestId);
             clientCnx.newLookup(request, requestId).thenAccept(lookupDataResult -> {
-                URI uri = null;
-                try {
-                    // (1) build response broker-address
-                    if (useTls) {
-                        uri = new URI(lookupDataResult.brokerUrlTls);
-                    } else {
-                        String serviceUrl = lookupDataResult.brokerUrl;
-                        uri = new URI(serviceUrl);
-                    }
-
-                    InetSocketAddress responseBrokerAddress = InetSocketAddress.createUnresolved(uri.getHost(), uri.getPort());
-
-                    // (2) redirect to given address if response is: redirect
-                    if (lookupDataResult.redirect) {
-                        findBroker(responseBrokerAddress, lookupDataResult.authoritative, topicName)
-                                .thenAccept(addressPair -> {
-                                    addressFuture.complete(addressPair);
-                                }).exceptionally((lookupException) -> {
-                                    // lookup failed
-                                    log.warn("[{}] lookup failed : {}", topicName.toString(),
-                                            lookupException.getMessage(), lookupException);
-                                    addressFuture.completeExceptionally(lookupException);
-                                    return null;
-                                });
-                    } else {
-                        // (3) received correct broker to connect
-                        if (lookupDataResult.proxyThroughServiceUrl) {
-                            // Connect through proxy
-                            addressFuture.complete(Pair.of(responseBrokerAddress, serviceAddress));
-                        } else {
-                            // Normal result with direct connection to broker
-                            addressFuture.complete(Pair.of(responseBrokerAddress, responseBrokerAddress));
-                        }
-                    }
-
-                } catch (Exception parseUrlException) {
-                    // Failed to parse url
-                    log.warn("[{}] invalid url {} : {}", topicName.toString(), uri, parseUrlException.getMessage(),
-                            parseUrlException);
-                    addressFuture.completeExceptionally(parseUrlException);
-                }
+                handleLookupResult(topicName, lookupDataResult, addressFuture);
             }).exceptionally((sendException) -> {
                 // lookup failed
                 log.warn("[{}] failed to send lookup request : {}", topicName.toString(), sendException.getMessage(),
@@ -151,6 +185,51 @@ public class BinaryProtoLookupService implements LookupService {
         return addressFuture;
     }
 
+    private void handleLookupResult(TopicName topicName, LookupDataResult lookupDataResult,
+            CompletableFuture<Pair<InetSocketAddress, InetSocketAddress>> addressFuture) {
+        URI uri = null;
+        try {
+            // (1) build response broker-address
+            if (useTls) {
+                uri = new URI(lookupDataResult.brokerUrlTls);
+            } else {
+                String serviceUrl = lookupDataResult.brokerUrl;
+                uri = new URI(serviceUrl);
+            }
+
+            InetSocketAddress responseBrokerAddress = InetSocketAddress.createUnresolved(uri.getHost(), uri.getPort());
+
+            // (2) redirect to given address if response is: redirect
+            if (lookupDataResult.redirect) {
+                findBroker(responseBrokerAddress, lookupDataResult.authoritative, topicName)
+                        .thenAccept(addressPair -> {
+                            addressFuture.complete(addressPair);
+                        }).exceptionally((lookupException) -> {
+                            // lookup failed
+                            log.warn("[{}] lookup failed : {}", topicName.toString(),
+                                    lookupException.getMessage(), lookupException);
+                            addressFuture.completeExceptionally(lookupException);
+                            return null;
+                        });
+            } else {
+                // (3) received correct broker to connect
+                if (lookupDataResult.proxyThroughServiceUrl) {
+                    // Connect through proxy
+                    addressFuture.complete(Pair.of(responseBrokerAddress, serviceAddress));
+                } else {
+                    // Normal result with direct connection to broker
+                    addressFuture.complete(Pair.of(responseBrokerAddress, responseBrokerAddress));
+                }
+            }
+
+        } catch (Exception parseUrlException) {
+            // Failed to parse url
+            log.warn("[{}] invalid url {} : {}", topicName.toString(), uri, parseUrlException.getMessage(),
+                    parseUrlException);
+            addressFuture.completeExceptionally(parseUrlException);
+        }
+    }
+
     private CompletableFuture<PartitionedTopicMetadata> getPartitionedTopicMetadata(InetSocketAddress socketAddress,
             TopicName topicName) {
 
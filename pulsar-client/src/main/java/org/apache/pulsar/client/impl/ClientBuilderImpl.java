@@ -18,6 +18,8 @@
  */
 package org.apache.pulsar.client.impl;
 
+import static com.google.common.base.Preconditions.checkArgument;
+
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
@@ -155,6 +157,13 @@ public class ClientBuilderImpl implements ClientBuilder {
         return this;
     }
 
+    @Override
+    public ClientBuilder lookupCacheTtl(long lookupCacheTtl, TimeUnit unit) {
+        checkArgument(lookupCacheTtl >= 0, "lookupCacheTtl needs to be >= 0");
+        conf.setLookupCacheTtlMs(unit.toMillis(lookupCacheTtl));
+        return this;
+    }
+
     @Override
     public ClientBuilder maxNumberOfRejectedRequestPerConnection(int maxNumberOfRejectedRequestPerConnection) {
         conf.setMaxNumberOfRejectedRequestPerConnection(maxNumberOfRejectedRequestPerConnection);
@@ -33,14 +33,18 @@ import io.netty.handler.ssl.SslHandler;
 import io.netty.util.concurrent.Promise;
 import java.net.InetSocketAddress;
 import java.net.SocketAddress;
+import java.net.URI;
 import java.nio.channels.ClosedChannelException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 import javax.net.ssl.SSLSession;
+import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.tuple.Pair;
 import org.apache.http.conn.ssl.DefaultHostnameVerifier;
 import org.apache.pulsar.client.api.Authentication;
@@ -58,6 +62,7 @@ import org.apache.pulsar.common.api.proto.PulsarApi.CommandError;
 import org.apache.pulsar.common.api.proto.PulsarApi.CommandGetLastMessageIdResponse;
 import org.apache.pulsar.common.api.proto.PulsarApi.CommandGetTopicsOfNamespaceResponse;
 import org.apache.pulsar.common.api.proto.PulsarApi.CommandLookupTopicResponse;
+import org.apache.pulsar.common.api.proto.PulsarApi.CommandLookupTopicsResponse;
 import org.apache.pulsar.common.api.proto.PulsarApi.CommandMessage;
 import org.apache.pulsar.common.api.proto.PulsarApi.CommandPartitionedTopicMetadataResponse;
 import org.apache.pulsar.common.api.proto.PulsarApi.CommandProducerSuccess;
@@ -86,6 +91,8 @@ public class ClientCnx extends PulsarHandler {
         new ConcurrentLongHashMap<>(16, 1);
     private final ConcurrentLongHashMap<CompletableFuture<List<String>>> pendingGetTopicsRequests =
         new ConcurrentLongHashMap<>(16, 1);
+    private final ConcurrentLongHashMap<CompletableFuture<List<CompletableFuture<LookupDataResult>>>> pendingLookupTopicsRequests =
+        new ConcurrentLongHashMap<>(16, 1);
 
     private final ConcurrentLongHashMap<ProducerImpl<?>> producers = new ConcurrentLongHashMap<>(16, 1);
     private final ConcurrentLongHashMap<ConsumerImpl<?>> consumers = new ConcurrentLongHashMap<>(16, 1);
@@ -106,6 +113,7 @@ public class ClientCnx extends PulsarHandler {
     // Remote hostName with which client is connected
     private String remoteHostName = null;
     private boolean isTlsHostnameVerificationEnable;
+    private final boolean useTls;
     private DefaultHostnameVerifier hostnameVerifier;
 
     enum State {
@@ -124,6 +132,7 @@ public class ClientCnx extends PulsarHandler {
         this.operationTimeoutMs = conf.getOperationTimeoutMs();
         this.state = State.None;
         this.isTlsHostnameVerificationEnable = conf.isTlsHostnameVerificationEnable();
+        this.useTls = conf.isUseTls();
         this.hostnameVerifier = new DefaultHostnameVerifier();
     }
 
@@ -178,6 +187,7 @@ public class ClientCnx extends PulsarHandler {
         waitingLookupRequests.forEach(pair -> pair.getRight().getRight().completeExceptionally(e));
         pendingGetLastMessageIdRequests.forEach((key, future) -> future.completeExceptionally(e));
         pendingGetTopicsRequests.forEach((key, future) -> future.completeExceptionally(e));
+        pendingLookupTopicsRequests.forEach((key, future) -> future.completeExceptionally(e));
 
         // Notify all attached producers/consumers so they have a chance to reconnect
         producers.forEach((id, producer) -> producer.connectionClosed(this));
@@ -188,6 +198,7 @@ public class ClientCnx extends PulsarHandler {
         waitingLookupRequests.clear();
         pendingGetLastMessageIdRequests.clear();
         pendingGetTopicsRequests.clear();
+        pendingLookupTopicsRequests.clear();
 
         producers.clear();
         consumers.clear();
@@ -354,25 +365,70 @@ public class ClientCnx extends PulsarHandler {
                 }
                 return;
             }
-            // Complete future with exception if : Result.response=fail/null
-            if (!lookupResult.hasResponse()
-                    || CommandLookupTopicResponse.LookupType.Failed.equals(lookupResult.getResponse())) {
-                if (lookupResult.hasError()) {
-                    checkServerError(lookupResult.getError(), lookupResult.getMessage());
-                    requestFuture.completeExceptionally(
-                            getPulsarClientException(lookupResult.getError(), lookupResult.getMessage()));
-                } else {
-                    requestFuture
-                            .completeExceptionally(new PulsarClientException.LookupException("Empty lookup response"));
-                }
-            } else {
-                requestFuture.complete(new LookupDataResult(lookupResult));
+            if (isFailedLookup(lookupResult) && lookupResult.hasError()) {
+                checkServerError(lookupResult.getError(), lookupResult.getMessage());
             }
+            completeLookup(lookupResult, requestFuture);
         } else {
             log.warn("{} Received unknown request id from server: {}", ctx.channel(), lookupResult.getRequestId());
         }
     }
 
+    @Override
+    protected void handleLookupTopicsResponse(CommandLookupTopicsResponse lookupTopicsResult) {
+        checkArgument(state == State.Ready);
+
+        long requestId = lookupTopicsResult.getRequestId();
+        if (log.isDebugEnabled()) {
+            log.debug("{} Received bulk lookup response from server: {} - lookups.size: {}", ctx.channel(),
+                    requestId, lookupTopicsResult.getLookupsCount());
+        }
+
+        CompletableFuture<List<CompletableFuture<LookupDataResult>>> requestFuture = pendingLookupTopicsRequests
+                .remove(requestId);
+        if (requestFuture == null) {
+            log.warn("{} Received unknown request id from server: {}", ctx.channel(), requestId);
+            return;
+        }
+
+        List<CompletableFuture<LookupDataResult>> results = new ArrayList<>(lookupTopicsResult.getLookupsCount());
+        ServerError error = null;
+        String errorMsg = null;
+        for (CommandLookupTopicResponse lookupResult : lookupTopicsResult.getLookupsList()) {
+            if (error == null && isFailedLookup(lookupResult) && lookupResult.hasError()) {
+                error = lookupResult.getError();
+                errorMsg = lookupResult.getMessage();
+            }
+            CompletableFuture<LookupDataResult> future = new CompletableFuture<>();
+            completeLookup(lookupResult, future);
+            results.add(future);
+        }
+        // A single bulk response counts once against the rejected requests of this connection
+        if (error != null) {
+            checkServerError(error, errorMsg);
+        }
+        requestFuture.complete(results);
+    }
+
+    private static boolean isFailedLookup(CommandLookupTopicResponse lookupResult) {
+        return !lookupResult.hasResponse()
+                || CommandLookupTopicResponse.LookupType.Failed.equals(lookupResult.getResponse());
+    }
+
+    private void completeLookup(CommandLookupTopicResponse lookupResult, CompletableFuture<LookupDataResult> future) {
+        // Complete future with exception if : Result.response=fail/null
+        if (isFailedLookup(lookupResult)) {
+            if (lookupResult.hasError()) {
+                future.completeExceptionally(
+                        getPulsarClientException(lookupResult.getError(), lookupResult.getMessage()));
+            } else {
+                future.completeExceptionally(new PulsarClientException.LookupException("Empty lookup response"));
+            }
+        } else {
+            future.complete(new LookupDataResult(lookupResult));
+        }
+    }
+
     @Override
     protected void handlePartitionResponse(CommandPartitionedTopicMetadataResponse lookupResult) {
         if (log.isDebugEnabled()) {
@@ -506,7 +562,8 @@ public class ClientCnx extends PulsarHandler {
         final long producerId = closeProducer.getProducerId();
         ProducerImpl<?> producer = producers.get(producerId);
         if (producer != null) {
-            producer.connectionClosed(this);
+            producer.connectionClosed(this, getAssignedBrokerAddress(closeProducer.getAssignedBrokerServiceUrl(),
+                    closeProducer.getAssignedBrokerServiceUrlTls()));
         } else {
             log.warn("Producer with id {} not found while closing producer ", producerId);
         }
@@ -518,12 +575,37 @@ public class ClientCnx extends PulsarHandler {
         final long consumerId = closeConsumer.getConsumerId();
         ConsumerImpl<?> consumer = consumers.get(consumerId);
         if (consumer != null) {
-            consumer.connectionClosed(this);
+            consumer.connectionClosed(this, getAssignedBrokerAddress(closeConsumer.getAssignedBrokerServiceUrl(),
+                    closeConsumer.getAssignedBrokerServiceUrlTls()));
         } else {
             log.warn("Consumer with id {} not found while closing consumer ", consumerId);
         }
     }
 
+    /**
+     * Get the logical and physical addresses of the broker a topic is being moved to, as announced by the broker
+     * closing the producer or consumer, so that the client can reconnect to it without a lookup.
+     */
+    private Optional<Pair<InetSocketAddress, InetSocketAddress>> getAssignedBrokerAddress(String brokerServiceUrl,
+            String brokerServiceUrlTls) {
+        String serviceUrl = useTls ? brokerServiceUrlTls : brokerServiceUrl;
+        if (StringUtils.isBlank(serviceUrl)) {
+            return Optional.empty();
+        }
+        try {
+            URI uri = new URI(serviceUrl);
+            InetSocketAddress logicalAddress = InetSocketAddress.createUnresolved(uri.getHost(), uri.getPort());
+            if (proxyToTargetBrokerAddress != null && ctx.channel().remoteAddress() instanceof InetSocketAddress) {
+                // Keep connecting through the same proxy
+                return Optional.of(Pair.of(logicalAddress, (InetSocketAddress) ctx.channel().remoteAddress()));
+            }
+            return Optional.of(Pair.of(logicalAddress, logicalAddress));
+        } catch (Exception e) {
+            log.warn("[{}] Invalid assigned broker url {}: {}", remoteAddress, serviceUrl, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
     @Override
     protected boolean isHandshakeCompleted() {
         return state == State.Ready;
@@ -559,6 +641,33 @@ public class ClientCnx extends PulsarHandler {
         return future;
     }
 
+    /**
+     * Sends a bulk lookup built with {@link Commands#newLookupTopics}. The returned future completes with one lookup
+     * result for each of the requested topics, in request order, once the broker replies.
+     */
+    public CompletableFuture<List<CompletableFuture<LookupDataResult>>> newLookupTopics(ByteBuf request,
+            long requestId) {
+        CompletableFuture<List<CompletableFuture<LookupDataResult>>> future = new CompletableFuture<>();
+
+        pendingLookupTopicsRequests.put(requestId, future);
+        eventLoopGroup.schedule(() -> {
+            if (pendingLookupTopicsRequests.remove(requestId, future)) {
+                future.completeExceptionally(new TimeoutException(
+                    requestId + " bulk lookup request timedout after ms " + operationTimeoutMs));
+            }
+        }, operationTimeoutMs, TimeUnit.MILLISECONDS);
+        ctx.writeAndFlush(request).addListener(writeFuture -> {
+            if (!writeFuture.isSuccess()) {
+                log.warn("{} Failed to send request {} to broker: {}", ctx.channel(), requestId,
+                    writeFuture.cause().getMessage());
+                pendingLookupTopicsRequests.remove(requestId);
+                future.completeExceptionally(writeFuture.cause());
+            }
+        });
+
+        return future;
+    }
+
     public CompletableFuture<List<String>> newGetTopicsOfNamespace(ByteBuf request, long requestId) {
         CompletableFuture<List<String>> future = new CompletableFuture<>();
 
@@ -18,8 +18,12 @@
  */
 package org.apache.pulsar.client.impl;
 
+import java.net.InetSocketAddress;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import org.apache.commons.lang3.tuple.Pair;
 import org.apache.pulsar.client.api.PulsarClientException;
 import org.apache.pulsar.client.impl.HandlerState.State;
 import org.slf4j.Logger;
@@ -31,6 +35,10 @@ class ConnectionHandler {
     @SuppressWarnings("unused")
     private volatile ClientCnx clientCnx = null;
 
+    // Logical and physical addresses of the broker the topic was moved to, as announced by the broker which closed
+    // the producer or consumer. Used once, instead of a lookup, for the next connection attempt
+    private volatile Pair<InetSocketAddress, InetSocketAddress> assignedBrokerAddress = null;
+
     protected final HandlerState state;
     protected final Backoff backoff;
 
@@ -61,8 +69,17 @@ class ConnectionHandler {
         }
 
         try {
-            state.client.getConnection(state.topic) //
-                    .thenAccept(cnx -> connection.connectionOpened(cnx)) //
+            Pair<InetSocketAddress, InetSocketAddress> brokerAddress = assignedBrokerAddress;
+            assignedBrokerAddress = null;
+            CompletableFuture<ClientCnx> cnxFuture;
+            if (brokerAddress != null) {
+                log.info("[{}] [{}] Connecting to the broker the topic was moved to: {}", state.topic,
+                        state.getHandlerName(), brokerAddress.getLeft());
+                cnxFuture = state.client.getCnxPool().getConnection(brokerAddress.getLeft(), brokerAddress.getRight());
+            } else {
+                cnxFuture = state.client.getConnection(state.topic);
+            }
+            cnxFuture.thenAccept(cnx -> connection.connectionOpened(cnx)) //
                     .exceptionally(this::handleConnectionError);
         } catch (Throwable t) {
             log.warn("[{}] [{}] Exception thrown while getting connection: ", state.topic, state.getHandlerName(), t);
@@ -85,6 +102,7 @@ class ConnectionHandler {
 
     protected void reconnectLater(Throwable exception) {
         CLIENT_CNX_UPDATER.set(this, null);
+        state.client.invalidateLookup(state.topic);
         if (!isValidStateForReconnection()) {
             log.info("[{}] [{}] Ignoring reconnection request (state: {})", state.topic, state.getHandlerName(), state.getState());
             return;
@@ -101,6 +119,8 @@ class ConnectionHandler {
 
     protected void connectionClosed(ClientCnx cnx) {
         if (CLIENT_CNX_UPDATER.compareAndSet(this, cnx, null)) {
+            // Topic might have been unloaded or moved, don't reuse the cached owner
+            state.client.invalidateLookup(state.topic);
             if (!isValidStateForReconnection()) {
                 log.info("[{}] [{}] Ignoring reconnection request (state: {})", state.topic, state.getHandlerName(), state.getState());
                 return;
@@ -116,6 +136,14 @@ class ConnectionHandler {
         }
     }
 
+    protected void connectionClosed(ClientCnx cnx,
+            Optional<Pair<InetSocketAddress, InetSocketAddress>> assignedBrokerAddress) {
+        if (CLIENT_CNX_UPDATER.get(this) == cnx) {
+            this.assignedBrokerAddress = assignedBrokerAddress.orElse(null);
+        }
+        connectionClosed(cnx);
+    }
+
     protected void resetBackoff() {
         backoff.reset();
     }
@@ -0,0 +1,245 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.client.impl;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.apache.pulsar.common.naming.TopicName;
+import org.apache.pulsar.common.partition.PartitionedTopicMetadata;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Client side cache in front of a {@link LookupService}.
+ * <ul>
+ * <li>Identical lookups that are in flight at the same time share a single request to the broker</li>
+ * <li>Successful results are kept for the configured ttl (a ttl of 0 only coalesces in-flight requests), expired
+ * results are evicted at most once per ttl when new topics are looked up, so that the cache only holds the topics
+ * looked up recently</li>
+ * <li>Cached broker addresses are invalidated when the connection to the broker fails or the broker closes the
+ * producer/consumer, so that the next attempt does a fresh lookup</li>
+ * </ul>
+ */
+class LookupCache {
+
+    private final LookupService lookup;
+    private final long ttlNanos;
+    private final AtomicLong nextEvictionNanos;
+
+    private final ConcurrentHashMap<TopicName, CacheEntry<Pair<InetSocketAddress, InetSocketAddress>>> brokers =
+            new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<TopicName, CacheEntry<PartitionedTopicMetadata>> partitions =
+            new ConcurrentHashMap<>();
+
+    private static class CacheEntry<T> {
+        final CompletableFuture<T> future;
+        // Only set once the lookup has succeeded
+        volatile boolean cached = false;
+        volatile long expirationNanos;
+
+        CacheEntry(CompletableFuture<T> future) {
+            this.future = future;
+        }
+
+        boolean isExpired(long now) {
+            return cached && now - expirationNanos >= 0;
+        }
+    }
+
+    LookupCache(LookupService lookup, long ttl, TimeUnit unit) {
+        this.lookup = lookup;
+        this.ttlNanos = unit.toNanos(ttl);
+        this.nextEvictionNanos = new AtomicLong(System.nanoTime() + ttlNanos);
+    }
+
+    CompletableFuture<Pair<InetSocketAddress, InetSocketAddress>> getBroker(TopicName topicName) {
+        return get(brokers, topicName, lookup::getBroker);
+    }
+
+    /**
+     * Looks up the owners of all the given topics that are not cached yet in one go, eg: before creating the
+     * producers/consumers of all the partitions of a partitioned topic. Following {@link #getBroker} calls for these
+     * topics share the in-flight bulk lookup.
+     */
+    void prefetchBrokers(List<TopicName> topicNames) {
+        long now = System.nanoTime();
+        List<TopicName> missingTopics = new ArrayList<>();
+        List<CacheEntry<Pair<InetSocketAddress, InetSocketAddress>>> newEntries = new ArrayList<>();
+        for (TopicName topicName : topicNames) {
+            CacheEntry<Pair<InetSocketAddress, InetSocketAddress>> newEntry = tryInsert(brokers, topicName, now);
+            if (newEntry != null) {
+                missingTopics.add(topicName);
+                newEntries.add(newEntry);
+            }
+        }
+        if (missingTopics.isEmpty()) {
+            return;
+        }
+
+        List<CompletableFuture<Pair<InetSocketAddress, InetSocketAddress>>> loadFutures;
+        try {
+            loadFutures = lookup.getBrokers(missingTopics);
+        } catch (Throwable t) {
+            for (int i = 0; i < missingTopics.size(); i++) {
+                brokers.remove(missingTopics.get(i), newEntries.get(i));
+                newEntries.get(i).future.completeExceptionally(t);
+            }
+            return;
+        }
+        for (int i = 0; i < missingTopics.size(); i++) {
+            complete(brokers, missingTopics.get(i), newEntries.get(i), loadFutures.get(i));
+        }
+    }
+
+    CompletableFuture<PartitionedTopicMetadata> getPartitionedTopicMetadata(TopicName topicName) {
+        return get(partitions, topicName, lookup::getPartitionedTopicMetadata);
+    }
+
+    /**
+     * Drops the cached owner of the topic, eg: after a redirect or when the broker reports the service is not ready.
+     */
+    void invalidate(TopicName topicName) {
+        CacheEntry<Pair<InetSocketAddress, InetSocketAddress>> entry = brokers.get(topicName);
+        // Do not drop a lookup that is still in progress, it was triggered after the failure
+        if (entry != null && entry.future.isDone()) {
+            brokers.remove(topicName, entry);
+            if (log.isDebugEnabled()) {
+                log.debug("[{}] Invalidated cached lookup result", topicName);
+            }
+        }
+    }
+
+    /**
+     * Drops the cached partitions of a partitioned topic, eg: when the topic might have been deleted or re-created.
+     */
+    void invalidatePartitionedTopicMetadata(TopicName topicName) {
+        CacheEntry<PartitionedTopicMetadata> entry = partitions.get(topicName);
+        if (entry != null && entry.future.isDone()) {
+            partitions.remove(topicName, entry);
+        }
+    }
+
+    void clear() {
+        brokers.clear();
+        partitions.clear();
+    }
+
+    int size() {
+        return brokers.size() + partitions.size();
+    }
+
+    private <T> CompletableFuture<T> get(ConcurrentHashMap<TopicName, CacheEntry<T>> cache, TopicName topicName,
+            Function<TopicName, CompletableFuture<T>> loader) {
+        long now = System.nanoTime();
+        CacheEntry<T> entry = cache.get(topicName);
+        if (entry != null && !entry.isExpired(now)) {
+            return entry.future;
+        }
+
+        CacheEntry<T> newEntry = tryInsert(cache, topicName, now);
+        if (newEntry == null) {
+            // Someone else started a lookup for the same topic concurrently
+            CacheEntry<T> current = cache.get(topicName);
+            return current != null ? current.future : loader.apply(topicName);
+        }
+
+        CompletableFuture<T> loadFuture;
+        try {
+            loadFuture = loader.apply(topicName);
+        } catch (Throwable t) {
+            // Don't leave a lookup that never completes in the cache
+            cache.remove(topicName, newEntry);
+            newEntry.future.completeExceptionally(t);
+            return newEntry.future;
+        }
+        complete(cache, topicName, newEntry, loadFuture);
+        return newEntry.future;
+    }
+
+    /**
+     * Inserts a pending entry for the topic, unless there is already a valid or in-flight one.
+     *
+     * @return the inserted entry, or null if the caller must not load the topic
+     */
+    private <T> CacheEntry<T> tryInsert(ConcurrentHashMap<TopicName, CacheEntry<T>> cache,
+            TopicName topicName, long now) {
+        CacheEntry<T> entry = cache.get(topicName);
+        if (entry != null && !entry.isExpired(now)) {
+            return null;
+        }
+
+        CacheEntry<T> newEntry = new CacheEntry<>(new CompletableFuture<>());
+        if (entry != null) {
+            return cache.replace(topicName, entry, newEntry) ? newEntry : null;
+        }
+        if (cache.putIfAbsent(topicName, newEntry) != null) {
+            return null;
+        }
+        // The cache grows, drop the topics not looked up again since their results expired
+        evictExpired(now);
+        return newEntry;
+    }
+
+    private void evictExpired(long now) {
+        long next = nextEvictionNanos.get();
+        if (ttlNanos <= 0 || now - next < 0 || !nextEvictionNanos.compareAndSet(next, now + ttlNanos)) {
+            return;
+        }
+        evictExpired(brokers, now);
+        evictExpired(partitions, now);
+    }
+
+    private static <T> void evictExpired(ConcurrentHashMap<TopicName, CacheEntry<T>> cache, long now) {
+        cache.forEach((topicName, entry) -> {
+            if (entry.isExpired(now)) {
+                // Keep an entry which was replaced concurrently
+                cache.remove(topicName, entry);
+            }
+        });
+    }
+
+    private <T> void complete(ConcurrentHashMap<TopicName, CacheEntry<T>> cache, TopicName topicName,
+            CacheEntry<T> newEntry, CompletableFuture<T> loadFuture) {
+        loadFuture.whenComplete((result, exception) -> {
+            if (exception != null || ttlNanos <= 0) {
+                // Never cache failures: the next attempt must go to the broker again
+                cache.remove(topicName, newEntry);
+            } else {
+                newEntry.expirationNanos = System.nanoTime() + ttlNanos;
+                newEntry.cached = true;
+            }
+
+            if (exception != null) {
+                newEntry.future.completeExceptionally(exception);
+            } else {
+                newEntry.future.complete(result);
+            }
+        });
+    }
+
+    private static final Logger log = LoggerFactory.getLogger(LookupCache.class);
+}
@@ -21,6 +21,7 @@ package org.apache.pulsar.client.impl;
 import java.net.InetSocketAddress;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
 
 import org.apache.commons.lang3.tuple.Pair;
 import org.apache.pulsar.common.naming.NamespaceName;
@@ -50,6 +51,19 @@ interface LookupService extends AutoCloseable {
      */
     public CompletableFuture<Pair<InetSocketAddress, InetSocketAddress>> getBroker(TopicName topicName);
 
+    /**
+     * Finds the brokers that serve each of the given topics. Implementations may resolve all of them in a single
+     * round trip, by default there is one {@link #getBroker(TopicName)} lookup per topic.
+     *
+     * @param topicNames
+     *            topic-names
+     * @return one future for each of the given topics, in the same order
+     */
+    default List<CompletableFuture<Pair<InetSocketAddress, InetSocketAddress>>> getBrokers(
+            List<TopicName> topicNames) {
+        return topicNames.stream().map(this::getBroker).collect(Collectors.toList());
+    }
+
 	/**
 	 * Returns {@link PartitionedTopicMetadata} for a given topic.
 	 *
@@ -98,7 +98,8 @@ public class MultiTopicsConsumerImpl<T> extends ConsumerBase<T> {
         this.allTopicPartitionsNumber = new AtomicInteger(0);
 
         if (conf.getAckTimeoutMillis() != 0) {
-            this.unAckedMessageTracker = new UnAckedTopicMessageTracker(client, this, conf.getAckTimeoutMillis());
+            this.unAckedMessageTracker = new UnAckedTopicMessageTracker(client, this, conf.getAckTimeoutMillis(),
+                    conf.getTickDurationMillis());
         } else {
             this.unAckedMessageTracker = UnAckedMessageTracker.UNACKED_MESSAGE_TRACKER_DISABLED;
         }
@@ -691,6 +692,9 @@ public class MultiTopicsConsumerImpl<T> extends ConsumerBase<T> {
         if (partitionNumber > 1) {
             this.topics.putIfAbsent(topicName, partitionNumber);
             allTopicPartitionsNumber.addAndGet(partitionNumber);
+            client.prefetchLookups(IntStream.range(0, partitionNumber)
+                .mapToObj(partitionIndex -> TopicName.get(topicName).getPartition(partitionIndex).toString())
+                .collect(Collectors.toList()));
 
             futureList = IntStream
                 .range(0, partitionNumber)
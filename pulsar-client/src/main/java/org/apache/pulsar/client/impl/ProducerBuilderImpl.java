@@ -190,6 +190,18 @@ public class ProducerBuilderImpl<T> implements ProducerBuilder<T> {
         return this;
     }
 
+    @Override
+    public ProducerBuilder<T> enableAdaptiveBatching(boolean adaptiveBatchingEnabled) {
+        conf.setAdaptiveBatchingEnabled(adaptiveBatchingEnabled);
+        return this;
+    }
+
+    @Override
+    public ProducerBuilder<T> enableKeyBasedBatching(boolean keyBasedBatchingEnabled) {
+        conf.setKeyBasedBatchingEnabled(keyBasedBatchingEnabled);
+        return this;
+    }
+
     @Override
     public ProducerBuilder<T> initialSequenceId(long initialSequenceId) {
         conf.setInitialSequenceId(initialSequenceId);
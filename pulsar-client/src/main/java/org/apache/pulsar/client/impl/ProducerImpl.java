@@ -27,6 +27,7 @@ import static org.apache.pulsar.common.api.Commands.readChecksum;
 
 import com.google.protobuf.ByteString;
 import java.io.IOException;
+import java.net.InetSocketAddress;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -40,6 +41,7 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLongFieldUpdater;
 
+import org.apache.commons.lang3.tuple.Pair;
 import org.apache.pulsar.client.api.CompressionType;
 import org.apache.pulsar.client.api.Message;
 import org.apache.pulsar.client.api.MessageId;
@@ -89,6 +91,10 @@ public class ProducerImpl<T> extends ProducerBase<T> implements TimerTask, Conne
     private long createProducerTimeout;
     private final int maxNumMessagesInBatch;
     private final BatchMessageContainer batchMessageContainer;
+    // Only set when key based batching is enabled, in place of the batch message container
+    private final BatchMessageKeyBasedContainer keyBasedBatchMessageContainer;
+    // Only set when adaptive batching is enabled
+    private final AdaptiveBatchingController batchingController;
 
     // Globally unique producer name
     private String producerName;
@@ -162,11 +168,23 @@ public class ProducerImpl<T> extends ProducerBase<T> implements TimerTask, Conne
         this.createProducerTimeout = System.currentTimeMillis() + client.getConfiguration().getOperationTimeoutMs();
         if (conf.isBatchingEnabled()) {
             this.maxNumMessagesInBatch = conf.getBatchingMaxMessages();
-            this.batchMessageContainer = new BatchMessageContainer(maxNumMessagesInBatch,
-                    convertCompressionType(conf.getCompressionType()), topic, producerName);
+            if (conf.isKeyBasedBatchingEnabled()) {
+                this.batchMessageContainer = null;
+                this.keyBasedBatchMessageContainer = new BatchMessageKeyBasedContainer(maxNumMessagesInBatch,
+                        convertCompressionType(conf.getCompressionType()), topic, producerName);
+            } else {
+                this.batchMessageContainer = new BatchMessageContainer(maxNumMessagesInBatch,
+                        convertCompressionType(conf.getCompressionType()), topic, producerName);
+                this.keyBasedBatchMessageContainer = null;
+            }
+            this.batchingController = conf.isAdaptiveBatchingEnabled()
+                    ? new AdaptiveBatchingController(maxNumMessagesInBatch, conf.getBatchingMaxPublishDelayMicros())
+                    : null;
         } else {
             this.maxNumMessagesInBatch = 1;
             this.batchMessageContainer = null;
+            this.keyBasedBatchMessageContainer = null;
+            this.batchingController = null;
         }
         if (client.getConfiguration().getStatsIntervalSeconds() > 0) {
             stats = new ProducerStatsRecorderImpl(client, conf, this);
@@ -267,7 +285,8 @@ public class ProducerImpl<T> extends ProducerBase<T> implements TimerTask, Conne
         int uncompressedSize = payload.readableBytes();
         ByteBuf compressedPayload = payload;
         // batch will be compressed when closed
-        if (!isBatchMessagingEnabled()) {
+        // replicated messages are forwarded as they were stored, already compressed and possibly batched
+        if (!isBatchMessagingEnabled() && !msg.isReplicated()) {
             compressedPayload = compressor.encode(payload);
             payload.release();
         }
@@ -321,11 +340,10 @@ public class ProducerImpl<T> extends ProducerBase<T> implements TimerTask, Conne
                 if (isBatchMessagingEnabled()) {
                     // handle boundary cases where message being added would exceed
                     // batch size and/or max message size
-                    if (batchMessageContainer.hasSpaceInBatch(msg)) {
-                        batchMessageContainer.add(msg, callback);
+                    if (hasSpaceInBatch(msg)) {
+                        addToBatch(msg, callback);
                         payload.release();
-                        if (batchMessageContainer.numMessagesInBatch == maxNumMessagesInBatch
-                                || batchMessageContainer.currentBatchSizeBytes >= BatchMessageContainer.MAX_MESSAGE_BATCH_SIZE_BYTES) {
+                        if (isBatchFull()) {
                             batchMessageAndSend();
                         }
                     } else {
@@ -335,7 +353,9 @@ public class ProducerImpl<T> extends ProducerBase<T> implements TimerTask, Conne
                     ByteBuf encryptedPayload = encryptMessage(msgMetadataBuilder, compressedPayload);
 
                     MessageMetadata msgMetadata = msgMetadataBuilder.build();
-                    ByteBufPair cmd = sendMessage(producerId, sequenceId, 1, msgMetadata, encryptedPayload);
+                    // A replicated entry may hold a batch produced on the source cluster
+                    int numMessages = msg.isReplicated() ? msgMetadata.getNumMessagesInBatch() : 1;
+                    ByteBufPair cmd = sendMessage(producerId, sequenceId, numMessages, msgMetadata, encryptedPayload);
                     msgMetadataBuilder.recycle();
                     msgMetadata.recycle();
 
@@ -416,10 +436,31 @@ public class ProducerImpl<T> extends ProducerBase<T> implements TimerTask, Conne
                     msg.getDataBuffer().readableBytes());
         }
         batchMessageAndSend();
-        batchMessageContainer.add(msg, callback);
+        addToBatch(msg, callback);
         payload.release();
     }
 
+    private boolean hasSpaceInBatch(MessageImpl<T> msg) {
+        return keyBasedBatchMessageContainer != null ? keyBasedBatchMessageContainer.hasSpaceInBatch(msg)
+                : batchMessageContainer.hasSpaceInBatch(msg);
+    }
+
+    private void addToBatch(MessageImpl<T> msg, SendCallback callback) {
+        if (keyBasedBatchMessageContainer != null) {
+            keyBasedBatchMessageContainer.add(msg, callback);
+        } else {
+            batchMessageContainer.add(msg, callback);
+        }
+    }
+
+    private boolean isBatchFull() {
+        if (keyBasedBatchMessageContainer != null) {
+            return keyBasedBatchMessageContainer.isFull();
+        }
+        return batchMessageContainer.numMessagesInBatch >= batchMessageContainer.maxNumMessagesInBatch
+                || batchMessageContainer.currentBatchSizeBytes >= BatchMessageContainer.MAX_MESSAGE_BATCH_SIZE_BYTES;
+    }
+
     private boolean isValidProducerState(SendCallback callback) {
         switch (getState()) {
         case Ready:
@@ -646,6 +687,9 @@ public class ProducerImpl<T> extends ProducerBase<T> implements TimerTask, Conne
                 }
                 pendingMessages.remove();
                 semaphore.release(op.numMessagesInBatch);
+                if (batchingController != null) {
+                    batchingController.ackReceived(System.nanoTime() - op.createdAtNanos);
+                }
                 callback = true;
                 pendingCallbacks.add(op);
             }
@@ -653,7 +697,7 @@ public class ProducerImpl<T> extends ProducerBase<T> implements TimerTask, Conne
         if (callback) {
             op = pendingCallbacks.poll();
             if (op != null) {
-                lastSequenceIdPublished = op.sequenceId + op.numMessagesInBatch - 1;
+                lastSequenceIdPublished = Math.max(lastSequenceIdPublished, op.highestSequenceId);
                 op.setMessageId(ledgerId, entryId, partitionIndex);
                 try {
                     // Need to protect ourselves from any exception being thrown in the future handler from the
@@ -770,6 +814,8 @@ public class ProducerImpl<T> extends ProducerBase<T> implements TimerTask, Conne
         SendCallback callback;
         long sequenceId;
         long createdAt;
+        long createdAtNanos;
+        long highestSequenceId;
         long batchSizeByte = 0;
         int numMessagesInBatch = 1;
 
@@ -780,6 +826,8 @@ public class ProducerImpl<T> extends ProducerBase<T> implements TimerTask, Conne
             op.callback = callback;
             op.sequenceId = sequenceId;
             op.createdAt = System.currentTimeMillis();
+            op.createdAtNanos = System.nanoTime();
+            op.highestSequenceId = sequenceId;
             return op;
         }
 
@@ -790,6 +838,8 @@ public class ProducerImpl<T> extends ProducerBase<T> implements TimerTask, Conne
             op.callback = callback;
             op.sequenceId = sequenceId;
             op.createdAt = System.currentTimeMillis();
+            op.createdAtNanos = System.nanoTime();
+            op.highestSequenceId = sequenceId;
             return op;
         }
 
@@ -800,6 +850,8 @@ public class ProducerImpl<T> extends ProducerBase<T> implements TimerTask, Conne
             callback = null;
             sequenceId = -1;
             createdAt = -1;
+            createdAtNanos = -1;
+            highestSequenceId = -1;
             recyclerHandle.recycle(this);
         }
 
@@ -881,7 +933,7 @@ public class ProducerImpl<T> extends ProducerBase<T> implements TimerTask, Conne
 
                         if (!producerCreatedFuture.isDone() && isBatchMessagingEnabled()) {
                             // schedule the first batch message task
-                            client.timer().newTimeout(batchMessageAndSendTask, conf.getBatchingMaxPublishDelayMicros(),
+                            client.timer().newTimeout(batchMessageAndSendTask, getBatchingMaxPublishDelayMicros(),
                                     TimeUnit.MICROSECONDS);
                         }
                         resendMessages(cnx);
@@ -929,6 +981,8 @@ public class ProducerImpl<T> extends ProducerBase<T> implements TimerTask, Conne
                         reconnectLater(cause);
                     } else {
                         setState(State.Failed);
+                        // eg: the topic doesn't exist anymore
+                        client.invalidateLookup(topic);
                         producerCreatedFuture.completeExceptionally(cause);
                         client.cleanupProducer(this);
                     }
@@ -1143,6 +1197,17 @@ public class ProducerImpl<T> extends ProducerBase<T> implements TimerTask, Conne
      *
      */
     private void failPendingBatchMessages(PulsarClientException ex) {
+        if (keyBasedBatchMessageContainer != null) {
+            for (BatchMessageContainer batch : keyBasedBatchMessageContainer.getBatches()) {
+                failPendingBatchMessages(batch, ex);
+            }
+            keyBasedBatchMessageContainer.clear();
+        } else {
+            failPendingBatchMessages(batchMessageContainer, ex);
+        }
+    }
+
+    private void failPendingBatchMessages(BatchMessageContainer batchMessageContainer, PulsarClientException ex) {
         if (batchMessageContainer.isEmpty()) {
             return;
         }
@@ -1180,7 +1245,7 @@ public class ProducerImpl<T> extends ProducerBase<T> implements TimerTask, Conne
                 batchMessageAndSend();
                 // schedule the next batch message task
                 batchMessageAndSendTimeout = client.timer()
-                    .newTimeout(this, conf.getBatchingMaxPublishDelayMicros(), TimeUnit.MICROSECONDS);
+                    .newTimeout(this, getBatchingMaxPublishDelayMicros(), TimeUnit.MICROSECONDS);
             }
         }
     };
@@ -1196,10 +1261,49 @@ public class ProducerImpl<T> extends ProducerBase<T> implements TimerTask, Conne
 
     // must acquire semaphore before enqueuing
     private void batchMessageAndSend() {
+        if (keyBasedBatchMessageContainer != null) {
+            batchKeyBasedMessagesAndSend();
+            return;
+        }
         if (log.isDebugEnabled()) {
             log.debug("[{}] [{}] Batching the messages from the batch container with {} messages", topic, producerName,
                     batchMessageContainer.numMessagesInBatch);
         }
+        int numMessagesSent = batchMessageAndSend(batchMessageContainer);
+        if (numMessagesSent > 0 && batchingController != null) {
+            batchingController.batchClosed(numMessagesSent);
+            batchMessageContainer.maxNumMessagesInBatch = batchingController.getBatchingMaxMessages();
+        }
+    }
+
+    private void batchKeyBasedMessagesAndSend() {
+        if (keyBasedBatchMessageContainer.isEmpty()) {
+            return;
+        }
+        List<BatchMessageContainer> batches = keyBasedBatchMessageContainer.getBatches();
+        if (log.isDebugEnabled()) {
+            log.debug("[{}] [{}] Batching {} messages from the key based batch container in {} batches", topic,
+                    producerName, keyBasedBatchMessageContainer.numMessagesInBatch, batches.size());
+        }
+        keyBasedBatchMessageContainer.clear();
+
+        // Batches are sent in order of sequence id, so that acks are received in the same order as pending messages
+        int numMessagesSent = 0;
+        for (BatchMessageContainer batch : batches) {
+            numMessagesSent += batchMessageAndSend(batch);
+        }
+        if (numMessagesSent > 0 && batchingController != null) {
+            batchingController.batchClosed(numMessagesSent);
+            keyBasedBatchMessageContainer.maxNumMessagesInBatch = batchingController.getBatchingMaxMessages();
+        }
+    }
+
+    /**
+     * Closes out the batch and sends it to the broker.
+     *
+     * @return the number of messages sent, 0 if the batch was empty or could not be sent
+     */
+    private int batchMessageAndSend(BatchMessageContainer batchMessageContainer) {
         OpSendMsg op = null;
         int numMessagesInBatch = 0;
         try {
@@ -1216,6 +1320,7 @@ public class ProducerImpl<T> extends ProducerBase<T> implements TimerTask, Conne
 
                 op.setNumMessagesInBatch(batchMessageContainer.numMessagesInBatch);
                 op.setBatchSizeByte(batchMessageContainer.currentBatchSizeBytes);
+                op.highestSequenceId = batchMessageContainer.highestSequenceId;
 
                 batchMessageContainer.clear();
 
@@ -1233,6 +1338,7 @@ public class ProducerImpl<T> extends ProducerBase<T> implements TimerTask, Conne
                                 sequenceId);
                     }
                 }
+                return numMessagesInBatch;
             }
         } catch (InterruptedException ie) {
             Thread.currentThread().interrupt();
@@ -1253,6 +1359,7 @@ public class ProducerImpl<T> extends ProducerBase<T> implements TimerTask, Conne
                 op.callback.sendComplete(new PulsarClientException(t));
             }
         }
+        return 0;
     }
 
     public long getDelayInMillis() {
@@ -1294,6 +1401,27 @@ public class ProducerImpl<T> extends ProducerBase<T> implements TimerTask, Conne
         return stats;
     }
 
+    /**
+     * @return the max number of messages in a batch currently used by the producer
+     */
+    int getBatchingMaxMessages() {
+        if (!isBatchMessagingEnabled()) {
+            return 1;
+        }
+        return batchingController != null ? batchingController.getBatchingMaxMessages() : maxNumMessagesInBatch;
+    }
+
+    /**
+     * @return the max publish delay of a batch currently used by the producer
+     */
+    long getBatchingMaxPublishDelayMicros() {
+        if (!isBatchMessagingEnabled()) {
+            return 0;
+        }
+        return batchingController != null ? batchingController.getBatchingMaxPublishDelayMicros()
+                : conf.getBatchingMaxPublishDelayMicros();
+    }
+
     public String getProducerName() {
         return producerName;
     }
@@ -1311,6 +1439,10 @@ public class ProducerImpl<T> extends ProducerBase<T> implements TimerTask, Conne
         this.connectionHandler.connectionClosed(cnx);
     }
 
+    void connectionClosed(ClientCnx cnx, Optional<Pair<InetSocketAddress, InetSocketAddress>> assignedBrokerAddress) {
+        this.connectionHandler.connectionClosed(cnx, assignedBrokerAddress);
+    }
+
     ClientCnx getClientCnx() {
         return this.connectionHandler.getClientCnx();
     }
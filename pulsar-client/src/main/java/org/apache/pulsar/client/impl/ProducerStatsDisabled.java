@@ -127,4 +127,14 @@ public class ProducerStatsDisabled implements ProducerStatsRecorder {
     public double getSendLatencyMillisMax() {
         return 0;
     }
+
+    @Override
+    public int getBatchingMaxMessages() {
+        return 0;
+    }
+
+    @Override
+    public long getBatchingMaxPublishDelayMicros() {
+        return 0;
+    }
 }
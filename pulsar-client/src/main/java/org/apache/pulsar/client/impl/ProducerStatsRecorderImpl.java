@@ -60,6 +60,9 @@ public class ProducerStatsRecorderImpl implements ProducerStatsRecorder {
     private volatile double sendMsgsRate;
     private volatile double sendBytesRate;
     private volatile double[] latencyPctValues;
+    // Used for the aggregated stats of partitioned producers
+    private volatile int batchingMaxMessages;
+    private volatile long batchingMaxPublishDelayMicros;
 
     private static final double[] PERCENTILES = { 0.5, 0.75, 0.95, 0.99, 0.999, 1.0 };
 
@@ -204,6 +207,8 @@ public class ProducerStatsRecorderImpl implements ProducerStatsRecorder {
         totalBytesSent.reset();
         totalSendFailed.reset();
         totalAcksReceived.reset();
+        batchingMaxMessages = 0;
+        batchingMaxPublishDelayMicros = 0;
     }
 
     void updateCumulativeStats(ProducerStats stats) {
@@ -218,6 +223,9 @@ public class ProducerStatsRecorderImpl implements ProducerStatsRecorder {
         totalBytesSent.add(stats.getNumBytesSent());
         totalSendFailed.add(stats.getNumSendFailed());
         totalAcksReceived.add(stats.getNumAcksReceived());
+        batchingMaxMessages = Math.max(batchingMaxMessages, stats.getBatchingMaxMessages());
+        batchingMaxPublishDelayMicros = Math.max(batchingMaxPublishDelayMicros,
+                stats.getBatchingMaxPublishDelayMicros());
     }
 
     @Override
@@ -296,6 +304,16 @@ public class ProducerStatsRecorderImpl implements ProducerStatsRecorder {
         return latencyPctValues[5];
     }
 
+    @Override
+    public int getBatchingMaxMessages() {
+        return producer != null ? producer.getBatchingMaxMessages() : batchingMaxMessages;
+    }
+
+    @Override
+    public long getBatchingMaxPublishDelayMicros() {
+        return producer != null ? producer.getBatchingMaxPublishDelayMicros() : batchingMaxPublishDelayMicros;
+    }
+
     public void cancelStatsTimeout() {
         if (statTimeout != null) {
             statTimeout.cancel();
@@ -74,6 +74,7 @@ public class PulsarClientImpl implements PulsarClient {
 
     private final ClientConfigurationData conf;
     private final LookupService lookup;
+    private final LookupCache lookupCache;
     private final ConnectionPool cnxPool;
     private final Timer timer;
     private final ExecutorProvider externalExecutorProvider;
@@ -132,6 +133,7 @@ public class PulsarClientImpl implements PulsarClient {
         } else {
             lookup = new BinaryProtoLookupService(this, conf.getServiceUrl(), conf.isUseTls(), externalExecutorProvider.getExecutor());
         }
+        lookupCache = new LookupCache(lookup, conf.getLookupCacheTtlMs(), TimeUnit.MILLISECONDS);
         timer = new HashedWheelTimer(new DefaultThreadFactory("pulsar-timer"), 1, TimeUnit.MILLISECONDS);
         producers = Maps.newIdentityHashMap();
         consumers = Maps.newIdentityHashMap();
@@ -615,6 +617,7 @@ public class PulsarClientImpl implements PulsarClient {
     @Override
     public void shutdown() throws PulsarClientException {
         try {
+            lookupCache.clear();
             lookup.close();
             cnxPool.close();
             timer.stop();
@@ -628,8 +631,36 @@ public class PulsarClientImpl implements PulsarClient {
 
     protected CompletableFuture<ClientCnx> getConnection(final String topic) {
         TopicName topicName = TopicName.get(topic);
-        return lookup.getBroker(topicName)
-                .thenCompose(pair -> cnxPool.getConnection(pair.getLeft(), pair.getRight()));
+        return lookupCache.getBroker(topicName)
+                .thenCompose(pair -> cnxPool.getConnection(pair.getLeft(), pair.getRight()))
+                .whenComplete((cnx, exception) -> {
+                    if (exception != null) {
+                        // The cached owner might be stale, next attempt will do a fresh lookup
+                        invalidateLookup(topicName);
+                    }
+                });
+    }
+
+    /**
+     * Looks up the owners of many topics at once, eg: all the partitions of a partitioned topic, so that the
+     * producers/consumers created right after don't each send their own lookup request.
+     */
+    void prefetchLookups(List<String> topics) {
+        lookupCache.prefetchBrokers(topics.stream().map(TopicName::get).collect(Collectors.toList()));
+    }
+
+    /**
+     * Drops the cached lookup result for the topic, and the cached partitions of its partitioned topic. Called when
+     * the lookup or the connection to the owner fails, and when the broker rejects or closes a producer/consumer
+     * (eg: ServiceNotReady, TopicNotFound), since the topic might have been moved, deleted or re-partitioned.
+     */
+    void invalidateLookup(String topic) {
+        invalidateLookup(TopicName.get(topic));
+    }
+
+    private void invalidateLookup(TopicName topicName) {
+        lookupCache.invalidate(topicName);
+        lookupCache.invalidatePartitionedTopicMetadata(TopicName.get(topicName.getPartitionedTopicName()));
     }
 
     /** visiable for pulsar-functions **/
@@ -675,7 +706,7 @@ public class PulsarClientImpl implements PulsarClient {
 
         try {
             TopicName topicName = TopicName.get(topic);
-            metadataFuture = lookup.getPartitionedTopicMetadata(topicName);
+            metadataFuture = lookupCache.getPartitionedTopicMetadata(topicName);
         } catch (IllegalArgumentException e) {
             return FutureUtil.failedFuture(new PulsarClientException.InvalidConfigurationException(e.getMessage()));
         }
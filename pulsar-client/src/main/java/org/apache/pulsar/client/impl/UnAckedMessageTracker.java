@@ -24,20 +24,33 @@ import java.io.Closeable;
 import java.util.HashSet;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
 import org.apache.pulsar.client.api.MessageId;
+import org.apache.pulsar.common.util.collections.ConcurrentOpenHashMap;
 import org.apache.pulsar.common.util.collections.ConcurrentOpenHashSet;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Tracks the messages that were delivered to the application and not yet acknowledged, and asks the consumer to
+ * redeliver them once the ack timeout has elapsed.
+ * <p>
+ * Messages are kept in a wheel of time partitions: new messages go in the head partition and, at every tick, the
+ * oldest partition is timed-out and becomes the new head. With a tick duration equal to the ack timeout, this behaves
+ * like the previous two generations tracker; a smaller tick gives a more precise redelivery time.
+ * <p>
+ * The partition of every message is indexed, so that adding and acknowledging a message only touch its partition.
+ * None of the operations take a tracker wide lock: the collections are internally sectioned and only the timer thread
+ * moves the head.
+ */
 public class UnAckedMessageTracker implements Closeable {
     private static final Logger log = LoggerFactory.getLogger(UnAckedMessageTracker.class);
-    protected ConcurrentOpenHashSet<MessageId> currentSet;
-    protected ConcurrentOpenHashSet<MessageId> oldOpenSet;
-    private final ReentrantReadWriteLock readWriteLock;
-    protected final Lock readLock;
-    private final Lock writeLock;
+
+    protected final TimePartition[] timePartitions;
+    // Partition of every tracked message
+    private final ConcurrentOpenHashMap<MessageId, TimePartition> messageIdPartitionMap;
+    // Partition where newly delivered messages are added. The one right after is the next to time out.
+    private volatile int headIndex = 0;
     private Timeout timeout;
 
     public static final UnAckedMessageTrackerDisabled UNACKED_MESSAGE_TRACKER_DISABLED = new UnAckedMessageTrackerDisabled();
@@ -67,129 +80,183 @@ public class UnAckedMessageTracker implements Closeable {
         }
     }
 
+    protected static class TimePartition {
+        // Allocated with the first message of the partition, most partitions stay empty with a short tick
+        volatile ConcurrentOpenHashSet<MessageId> messageIds;
+
+        ConcurrentOpenHashSet<MessageId> getOrCreateMessageIds() {
+            ConcurrentOpenHashSet<MessageId> ids = messageIds;
+            if (ids == null) {
+                synchronized (this) {
+                    ids = messageIds;
+                    if (ids == null) {
+                        ids = new ConcurrentOpenHashSet<>();
+                        messageIds = ids;
+                    }
+                }
+            }
+            return ids;
+        }
+
+        boolean remove(MessageId m) {
+            ConcurrentOpenHashSet<MessageId> ids = messageIds;
+            return ids != null && ids.remove(m);
+        }
+
+        boolean isEmpty() {
+            ConcurrentOpenHashSet<MessageId> ids = messageIds;
+            return ids == null || ids.isEmpty();
+        }
+
+        void clear() {
+            ConcurrentOpenHashSet<MessageId> ids = messageIds;
+            if (ids != null) {
+                ids.clear();
+            }
+        }
+    }
+
     public UnAckedMessageTracker() {
-        readWriteLock = null;
-        readLock = null;
-        writeLock = null;
+        timePartitions = new TimePartition[0];
+        messageIdPartitionMap = null;
     }
 
     public UnAckedMessageTracker(PulsarClientImpl client, ConsumerBase<?> consumerBase, long ackTimeoutMillis) {
-        currentSet = new ConcurrentOpenHashSet<MessageId>();
-        oldOpenSet = new ConcurrentOpenHashSet<MessageId>();
-        readWriteLock = new ReentrantReadWriteLock();
-        readLock = readWriteLock.readLock();
-        writeLock = readWriteLock.writeLock();
-        start(client, consumerBase, ackTimeoutMillis);
+        this(client, consumerBase, ackTimeoutMillis, ackTimeoutMillis);
+    }
+
+    public UnAckedMessageTracker(PulsarClientImpl client, ConsumerBase<?> consumerBase, long ackTimeoutMillis,
+            long tickDurationMillis) {
+        long tickMillis = tickDurationMillis > 0 ? Math.min(tickDurationMillis, ackTimeoutMillis) : ackTimeoutMillis;
+        // One partition receiving new messages, plus enough partitions to cover the ack timeout
+        int numPartitions = (int) Math.ceil((double) ackTimeoutMillis / tickMillis) + 1;
+        timePartitions = new TimePartition[numPartitions];
+        for (int i = 0; i < numPartitions; i++) {
+            timePartitions[i] = new TimePartition();
+        }
+        messageIdPartitionMap = new ConcurrentOpenHashMap<>();
+        start(client, consumerBase, tickMillis);
     }
 
-    public void start(PulsarClientImpl client, ConsumerBase<?> consumerBase, long ackTimeoutMillis) {
+    public void start(PulsarClientImpl client, ConsumerBase<?> consumerBase, long tickDurationMillis) {
         this.stop();
         timeout = client.timer().newTimeout(new TimerTask() {
             @Override
             public void run(Timeout t) throws Exception {
-                if (isAckTimeout()) {
-                    log.warn("[{}] {} messages have timed-out", consumerBase, oldOpenSet.size());
-                    Set<MessageId> messageIds = new HashSet<>();
-                    oldOpenSet.forEach(messageIds::add);
-                    oldOpenSet.clear();
+                Set<MessageId> messageIds = expireOldestPartition();
+                if (!messageIds.isEmpty()) {
+                    log.warn("[{}] {} messages have timed-out", consumerBase, messageIds.size());
                     consumerBase.redeliverUnacknowledgedMessages(messageIds);
                 }
-                toggle();
-                timeout = client.timer().newTimeout(this, ackTimeoutMillis, TimeUnit.MILLISECONDS);
+                timeout = client.timer().newTimeout(this, tickDurationMillis, TimeUnit.MILLISECONDS);
             }
-        }, ackTimeoutMillis, TimeUnit.MILLISECONDS);
+        }, tickDurationMillis, TimeUnit.MILLISECONDS);
     }
 
+    /**
+     * Removes all the messages of the oldest partition and makes it the new head.
+     */
+    private Set<MessageId> expireOldestPartition() {
+        int oldestIndex = (headIndex + 1) % timePartitions.length;
+        TimePartition oldest = timePartitions[oldestIndex];
+        Set<MessageId> messageIds = new HashSet<>();
+        if (!oldest.isEmpty()) {
+            oldest.messageIds.removeIf(m -> {
+                // unless the message was added again to a newer partition meanwhile
+                if (messageIdPartitionMap.remove(m, oldest)) {
+                    messageIds.add(m);
+                }
+                return true;
+            });
+        }
+        headIndex = oldestIndex;
+        return messageIds;
+    }
+
+    /**
+     * Moves the head forward without timing out any message.
+     */
     void toggle() {
-        writeLock.lock();
-        try {
-            ConcurrentOpenHashSet<MessageId> temp = currentSet;
-            currentSet = oldOpenSet;
-            oldOpenSet = temp;
-        } finally {
-            writeLock.unlock();
+        if (timePartitions.length == 0) {
+            return;
         }
+        headIndex = (headIndex + 1) % timePartitions.length;
     }
 
     public void clear() {
-        readLock.lock();
-        try {
-            currentSet.clear();
-            oldOpenSet.clear();
-        } finally {
-            readLock.unlock();
+        messageIdPartitionMap.clear();
+        for (TimePartition partition : timePartitions) {
+            partition.clear();
         }
     }
 
     public boolean add(MessageId m) {
-        readLock.lock();
-        try {
-            oldOpenSet.remove(m);
-            return currentSet.add(m);
-        } finally {
-            readLock.unlock();
+        MessageId id = trackedId(m);
+        TimePartition head = timePartitions[headIndex];
+        TimePartition previous = messageIdPartitionMap.put(id, head);
+        if (previous != null && previous != head) {
+            // reset the timeout of a message that is already tracked
+            previous.remove(id);
         }
-
+        return head.getOrCreateMessageIds().add(id);
     }
 
     boolean isEmpty() {
-        readLock.lock();
-        try {
-            return currentSet.isEmpty() && oldOpenSet.isEmpty();
-        } finally {
-            readLock.unlock();
-        }
+        return messageIdPartitionMap.isEmpty();
     }
 
     public boolean remove(MessageId m) {
-        readLock.lock();
-        try {
-            return currentSet.remove(m) || oldOpenSet.remove(m);
-        } finally {
-            readLock.unlock();
+        MessageId id = trackedId(m);
+        TimePartition partition = messageIdPartitionMap.remove(id);
+        if (partition == null) {
+            return false;
         }
+        partition.remove(id);
+        return true;
     }
 
     long size() {
-        readLock.lock();
-        try {
-            return currentSet.size() + oldOpenSet.size();
-        } finally {
-            readLock.unlock();
-        }
+        return messageIdPartitionMap.size();
     }
 
-    private boolean isAckTimeout() {
-        readLock.lock();
-        try {
-            return !oldOpenSet.isEmpty();
-        } finally {
-            readLock.unlock();
-        }
+    public int removeMessagesTill(MessageId msgId) {
+        return removeMessageIdsIf(m -> m.compareTo(msgId) <= 0);
     }
 
-    public int removeMessagesTill(MessageId msgId) {
-        readLock.lock();
-        try {
-            int currentSetRemovedMsgCount = currentSet.removeIf(m -> (m.compareTo(msgId) <= 0));
-            int oldSetRemovedMsgCount = oldOpenSet.removeIf(m -> (m.compareTo(msgId) <= 0));
+    protected int removeMessageIdsIf(Predicate<MessageId> filter) {
+        int removed = 0;
+        for (TimePartition partition : timePartitions) {
+            if (partition.isEmpty()) {
+                continue;
+            }
+            removed += partition.messageIds.removeIf(m -> {
+                if (filter.test(m)) {
+                    messageIdPartitionMap.remove(m, partition);
+                    return true;
+                }
+                return false;
+            });
+        }
+        return removed;
+    }
 
-            return currentSetRemovedMsgCount + oldSetRemovedMsgCount;
-        } finally {
-            readLock.unlock();
+    /**
+     * Returns the id a message is tracked with: a batch is tracked by the id of its entry, and acknowledged with the
+     * id of one of its messages.
+     */
+    private static MessageId trackedId(MessageId m) {
+        if (m instanceof BatchMessageIdImpl) {
+            BatchMessageIdImpl id = (BatchMessageIdImpl) m;
+            return new MessageIdImpl(id.getLedgerId(), id.getEntryId(), id.getPartitionIndex());
         }
+        return m;
     }
 
     private void stop() {
-        writeLock.lock();
-        try {
-            if (timeout != null && !timeout.isCancelled()) {
-                timeout.cancel();
-            }
-            this.clear();
-        } finally {
-            writeLock.unlock();
+        if (timeout != null && !timeout.isCancelled()) {
+            timeout.cancel();
         }
+        this.clear();
     }
 
     @Override
@@ -26,24 +26,17 @@ public class UnAckedTopicMessageTracker extends UnAckedMessageTracker {
         super(client, consumerBase, ackTimeoutMillis);
     }
 
-    public int removeTopicMessages(String topicName) {
-        readLock.lock();
-        try {
-            int currentSetRemovedMsgCount = currentSet.removeIf(m -> {
-                checkState(m instanceof TopicMessageIdImpl,
-                    "message should be of type TopicMessageIdImpl");
-                return ((TopicMessageIdImpl)m).getTopicName().contains(topicName);
-            });
-            int oldSetRemovedMsgCount = oldOpenSet.removeIf(m -> {
-                checkState(m instanceof TopicMessageIdImpl,
-                    "message should be of type TopicMessageIdImpl");
-                return ((TopicMessageIdImpl)m).getTopicName().contains(topicName);
-            });
+    public UnAckedTopicMessageTracker(PulsarClientImpl client, ConsumerBase<?> consumerBase, long ackTimeoutMillis,
+            long tickDurationMillis) {
+        super(client, consumerBase, ackTimeoutMillis, tickDurationMillis);
+    }
 
-            return currentSetRemovedMsgCount + oldSetRemovedMsgCount;
-        } finally {
-            readLock.unlock();
-        }
+    public int removeTopicMessages(String topicName) {
+        return removeMessageIdsIf(m -> {
+            checkState(m instanceof TopicMessageIdImpl,
+                "message should be of type TopicMessageIdImpl");
+            return ((TopicMessageIdImpl)m).getTopicName().contains(topicName);
+        });
     }
 
 }
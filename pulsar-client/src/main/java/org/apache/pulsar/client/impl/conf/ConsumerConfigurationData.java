@@ -67,6 +67,8 @@ public class ConsumerConfigurationData<T> implements Serializable, Cloneable {
 
     private long ackTimeoutMillis = 0;
 
+    private long tickDurationMillis = 0;
+
     private int priorityLevel = 0;
 
     @JsonIgnore
@@ -61,6 +61,8 @@ public class ProducerConfigurationData implements Serializable, Cloneable {
     private long batchingMaxPublishDelayMicros = TimeUnit.MILLISECONDS.toMicros(1);
     private int batchingMaxMessages = 1000;
     private boolean batchingEnabled = true; // enabled by default
+    private boolean adaptiveBatchingEnabled = false;
+    private boolean keyBasedBatchingEnabled = false;
 
     @JsonIgnore
     private CryptoKeyReader cryptoKeyReader;
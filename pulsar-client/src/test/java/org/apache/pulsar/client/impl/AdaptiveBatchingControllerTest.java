@@ -0,0 +1,97 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.client.impl;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.testng.annotations.Test;
+
+public class AdaptiveBatchingControllerTest {
+
+    private static final int MAX_MESSAGES = 1000;
+    private static final long MAX_DELAY_MICROS = TimeUnit.MILLISECONDS.toMicros(10);
+
+    @Test
+    public void testInitialValues() {
+        AdaptiveBatchingController controller = new AdaptiveBatchingController(MAX_MESSAGES, MAX_DELAY_MICROS);
+        assertEquals(controller.getBatchingMaxMessages(), MAX_MESSAGES);
+        assertEquals(controller.getBatchingMaxPublishDelayMicros(), MAX_DELAY_MICROS);
+    }
+
+    @Test
+    public void testLowRate() {
+        AdaptiveBatchingController controller = new AdaptiveBatchingController(MAX_MESSAGES, MAX_DELAY_MICROS);
+        long now = System.nanoTime();
+
+        // 1 message every 100ms, broker acks in 2ms
+        for (int i = 0; i < 20; i++) {
+            now += TimeUnit.MILLISECONDS.toNanos(100);
+            controller.ackReceived(TimeUnit.MILLISECONDS.toNanos(2));
+            controller.batchClosed(1, now);
+        }
+
+        assertEquals(controller.getBatchingMaxMessages(), 1);
+        assertEquals(controller.getBatchingMaxPublishDelayMicros(), TimeUnit.MILLISECONDS.toMicros(2));
+    }
+
+    @Test
+    public void testHighRate() {
+        AdaptiveBatchingController controller = new AdaptiveBatchingController(MAX_MESSAGES, MAX_DELAY_MICROS);
+        long now = System.nanoTime();
+
+        // 100K msg/s, broker acks in 5ms
+        for (int i = 0; i < 50; i++) {
+            now += TimeUnit.MILLISECONDS.toNanos(5);
+            controller.ackReceived(TimeUnit.MILLISECONDS.toNanos(5));
+            controller.batchClosed(500, now);
+        }
+
+        assertEquals(controller.getBatchingMaxPublishDelayMicros(), TimeUnit.MILLISECONDS.toMicros(5));
+        int maxMessages = controller.getBatchingMaxMessages();
+        assertTrue(maxMessages >= 500 && maxMessages <= 501, "Unexpected max messages: " + maxMessages);
+
+        // Broker slows down, batches are capped by the configured bounds
+        for (int i = 0; i < 50; i++) {
+            now += TimeUnit.MILLISECONDS.toNanos(5);
+            controller.ackReceived(TimeUnit.MILLISECONDS.toNanos(50));
+            controller.batchClosed(500, now);
+        }
+
+        assertEquals(controller.getBatchingMaxPublishDelayMicros(), MAX_DELAY_MICROS);
+        assertEquals(controller.getBatchingMaxMessages(), MAX_MESSAGES);
+    }
+
+    @Test
+    public void testMinDelay() {
+        AdaptiveBatchingController controller = new AdaptiveBatchingController(MAX_MESSAGES, MAX_DELAY_MICROS);
+        long now = System.nanoTime();
+
+        for (int i = 0; i < 50; i++) {
+            now += TimeUnit.MILLISECONDS.toNanos(1);
+            controller.ackReceived(TimeUnit.MICROSECONDS.toNanos(10));
+            controller.batchClosed(10, now);
+        }
+
+        assertEquals(controller.getBatchingMaxPublishDelayMicros(), MAX_DELAY_MICROS / 10);
+        assertTrue(controller.getBatchingMaxMessages() >= 1);
+    }
+}
@@ -0,0 +1,106 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.client.impl;
+
+import static org.mockito.Mockito.mock;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import org.apache.pulsar.common.api.proto.PulsarApi.CompressionType;
+import org.apache.pulsar.common.api.proto.PulsarApi.MessageMetadata;
+import org.testng.annotations.Test;
+
+public class BatchMessageKeyBasedContainerTest {
+
+    private static MessageImpl<byte[]> createMessage(String key, long sequenceId) {
+        MessageMetadata.Builder builder = MessageMetadata.newBuilder();
+        builder.setProducerName("producer");
+        builder.setSequenceId(sequenceId);
+        builder.setPublishTime(System.currentTimeMillis());
+        if (key != null) {
+            builder.setPartitionKey(key);
+        }
+        return MessageImpl.create(builder, ByteBuffer.wrap(new byte[10]));
+    }
+
+    @Test
+    public void testBatchesByKey() {
+        BatchMessageKeyBasedContainer container = new BatchMessageKeyBasedContainer(10, CompressionType.NONE,
+                "persistent://prop/ns/topic", "producer");
+        assertTrue(container.isEmpty());
+
+        String[] keys = { "key-1", "key-2", "key-1", null, "key-2", null };
+        for (int i = 0; i < keys.length; i++) {
+            MessageImpl<byte[]> msg = createMessage(keys[i], i);
+            assertTrue(container.hasSpaceInBatch(msg));
+            container.add(msg, mock(SendCallback.class));
+        }
+
+        assertFalse(container.isEmpty());
+        assertEquals(container.numMessagesInBatch, 6);
+        assertEquals(container.currentBatchSizeBytes, 60);
+
+        List<BatchMessageContainer> batches = container.getBatches();
+        assertEquals(batches.size(), 3);
+
+        // Ordered by the sequence id of the first message
+        assertEquals(batches.get(0).sequenceId, 0);
+        assertEquals(batches.get(0).highestSequenceId, 2);
+        assertEquals(batches.get(0).numMessagesInBatch, 2);
+        assertEquals(batches.get(0).messageMetadata.getPartitionKey(), "key-1");
+
+        assertEquals(batches.get(1).sequenceId, 1);
+        assertEquals(batches.get(1).highestSequenceId, 4);
+        assertEquals(batches.get(1).messageMetadata.getPartitionKey(), "key-2");
+
+        assertEquals(batches.get(2).sequenceId, 3);
+        assertEquals(batches.get(2).highestSequenceId, 5);
+        assertFalse(batches.get(2).messageMetadata.hasPartitionKey());
+
+        for (BatchMessageContainer batch : batches) {
+            batch.getBatchedSingleMessageMetadataAndPayload().release();
+        }
+        container.clear();
+        assertTrue(container.isEmpty());
+        assertTrue(container.getBatches().isEmpty());
+    }
+
+    @Test
+    public void testLimitsApplyToAllBatches() {
+        BatchMessageKeyBasedContainer container = new BatchMessageKeyBasedContainer(3, CompressionType.NONE,
+                "persistent://prop/ns/topic", "producer");
+
+        for (int i = 0; i < 3; i++) {
+            assertFalse(container.isFull());
+            container.add(createMessage("key-" + i, i), mock(SendCallback.class));
+        }
+
+        assertTrue(container.isFull());
+        assertFalse(container.hasSpaceInBatch(createMessage("key-0", 3)));
+
+        for (BatchMessageContainer batch : container.getBatches()) {
+            batch.getBatchedSingleMessageMetadataAndPayload().release();
+        }
+        container.clear();
+    }
+}
@@ -0,0 +1,207 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.client.impl;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.apache.pulsar.common.naming.TopicName;
+import org.apache.pulsar.common.partition.PartitionedTopicMetadata;
+import org.apache.pulsar.common.util.FutureUtil;
+import org.testng.annotations.Test;
+
+public class LookupCacheTest {
+
+    private static final TopicName topic = TopicName.get("persistent://prop/ns/my-topic");
+    private static final Pair<InetSocketAddress, InetSocketAddress> broker = Pair.of(
+            InetSocketAddress.createUnresolved("broker-1", 6650), InetSocketAddress.createUnresolved("broker-1", 6650));
+
+    @Test
+    public void testCoalesceInflightLookups() throws Exception {
+        LookupService lookup = mock(LookupService.class);
+        CompletableFuture<Pair<InetSocketAddress, InetSocketAddress>> pending = new CompletableFuture<>();
+        when(lookup.getBroker(topic)).thenReturn(pending);
+
+        LookupCache cache = new LookupCache(lookup, 0, TimeUnit.MILLISECONDS);
+        CompletableFuture<Pair<InetSocketAddress, InetSocketAddress>> f1 = cache.getBroker(topic);
+        CompletableFuture<Pair<InetSocketAddress, InetSocketAddress>> f2 = cache.getBroker(topic);
+        assertSame(f1, f2);
+        verify(lookup, times(1)).getBroker(topic);
+
+        pending.complete(broker);
+        assertEquals(f1.get(), broker);
+
+        // Cache is disabled, the completed lookup is not retained
+        assertEquals(cache.size(), 0);
+        when(lookup.getBroker(topic)).thenReturn(CompletableFuture.completedFuture(broker));
+        cache.getBroker(topic).get();
+        verify(lookup, times(2)).getBroker(topic);
+    }
+
+    @Test
+    public void testCacheAndInvalidate() throws Exception {
+        LookupService lookup = mock(LookupService.class);
+        when(lookup.getBroker(topic)).thenReturn(CompletableFuture.completedFuture(broker));
+        when(lookup.getPartitionedTopicMetadata(topic))
+                .thenReturn(CompletableFuture.completedFuture(new PartitionedTopicMetadata(4)));
+
+        LookupCache cache = new LookupCache(lookup, 1, TimeUnit.HOURS);
+        for (int i = 0; i < 10; i++) {
+            assertEquals(cache.getBroker(topic).get(), broker);
+            assertEquals(cache.getPartitionedTopicMetadata(topic).get().partitions, 4);
+        }
+        verify(lookup, times(1)).getBroker(topic);
+        verify(lookup, times(1)).getPartitionedTopicMetadata(topic);
+
+        cache.invalidate(topic);
+        cache.getBroker(topic).get();
+        verify(lookup, times(2)).getBroker(topic);
+
+        cache.invalidatePartitionedTopicMetadata(topic);
+        cache.getPartitionedTopicMetadata(topic).get();
+        verify(lookup, times(2)).getPartitionedTopicMetadata(topic);
+    }
+
+    @Test
+    public void testExpiration() throws Exception {
+        LookupService lookup = mock(LookupService.class);
+        when(lookup.getBroker(topic)).thenReturn(CompletableFuture.completedFuture(broker));
+
+        LookupCache cache = new LookupCache(lookup, 10, TimeUnit.MILLISECONDS);
+        cache.getBroker(topic).get();
+        cache.getBroker(topic).get();
+        verify(lookup, times(1)).getBroker(topic);
+
+        Thread.sleep(50);
+        cache.getBroker(topic).get();
+        verify(lookup, times(2)).getBroker(topic);
+    }
+
+    @Test
+    public void testExpiredTopicsEvicted() throws Exception {
+        LookupService lookup = mock(LookupService.class);
+        when(lookup.getBroker(any(TopicName.class))).thenReturn(CompletableFuture.completedFuture(broker));
+
+        LookupCache cache = new LookupCache(lookup, 10, TimeUnit.MILLISECONDS);
+        for (int i = 0; i < 10; i++) {
+            cache.getBroker(TopicName.get("persistent://prop/ns/topic-" + i)).get();
+        }
+
+        // Expired topics which are not looked up again don't stay in the cache
+        Thread.sleep(50);
+        cache.getBroker(topic).get();
+        assertEquals(cache.size(), 1);
+    }
+
+    @Test
+    public void testFailuresAreNotCached() throws Exception {
+        LookupService lookup = mock(LookupService.class);
+        when(lookup.getBroker(topic)).thenReturn(FutureUtil.failedFuture(new Exception("ServiceNotReady")));
+
+        LookupCache cache = new LookupCache(lookup, 1, TimeUnit.HOURS);
+        assertTrue(cache.getBroker(topic).isCompletedExceptionally());
+        assertEquals(cache.size(), 0);
+
+        when(lookup.getBroker(topic)).thenReturn(CompletableFuture.completedFuture(broker));
+        CompletableFuture<Pair<InetSocketAddress, InetSocketAddress>> future = cache.getBroker(topic);
+        assertFalse(future.isCompletedExceptionally());
+        assertEquals(future.get(), broker);
+        verify(lookup, times(2)).getBroker(topic);
+    }
+
+    @Test
+    public void testLoaderThrowing() throws Exception {
+        LookupService lookup = mock(LookupService.class);
+        when(lookup.getBroker(topic)).thenThrow(new IllegalStateException("client closed"));
+
+        LookupCache cache = new LookupCache(lookup, 1, TimeUnit.HOURS);
+        assertTrue(cache.getBroker(topic).isCompletedExceptionally());
+        assertEquals(cache.size(), 0);
+
+        when(lookup.getBroker(topic)).thenReturn(CompletableFuture.completedFuture(broker));
+        assertEquals(cache.getBroker(topic).get(), broker);
+    }
+
+    @Test
+    public void testPrefetchBrokers() throws Exception {
+        TopicName partition0 = topic.getPartition(0);
+        TopicName partition1 = topic.getPartition(1);
+        TopicName partition2 = topic.getPartition(2);
+        LookupService lookup = mock(LookupService.class);
+        when(lookup.getBroker(partition0)).thenReturn(CompletableFuture.completedFuture(broker));
+        CompletableFuture<Pair<InetSocketAddress, InetSocketAddress>> pending1 = new CompletableFuture<>();
+        CompletableFuture<Pair<InetSocketAddress, InetSocketAddress>> pending2 = new CompletableFuture<>();
+        when(lookup.getBrokers(Arrays.asList(partition1, partition2))).thenReturn(Arrays.asList(pending1, pending2));
+
+        LookupCache cache = new LookupCache(lookup, 1, TimeUnit.HOURS);
+        cache.getBroker(partition0).get();
+
+        // Only the topics that are not cached yet are looked up
+        cache.prefetchBrokers(Arrays.asList(partition0, partition1, partition2));
+        verify(lookup, times(1)).getBrokers(Arrays.asList(partition1, partition2));
+
+        // Lookups share the in-flight bulk lookup
+        CompletableFuture<Pair<InetSocketAddress, InetSocketAddress>> f1 = cache.getBroker(partition1);
+        CompletableFuture<Pair<InetSocketAddress, InetSocketAddress>> f2 = cache.getBroker(partition2);
+        verify(lookup, never()).getBroker(partition1);
+        verify(lookup, never()).getBroker(partition2);
+
+        pending1.complete(broker);
+        pending2.completeExceptionally(new Exception("ServiceNotReady"));
+        assertEquals(f1.get(), broker);
+        assertTrue(f2.isCompletedExceptionally());
+
+        // The failed topic is looked up again, the others are cached
+        when(lookup.getBrokers(Collections.singletonList(partition2)))
+                .thenReturn(Collections.singletonList(CompletableFuture.completedFuture(broker)));
+        cache.prefetchBrokers(Arrays.asList(partition0, partition1, partition2));
+        verify(lookup, times(1)).getBrokers(Collections.singletonList(partition2));
+        verify(lookup, times(2)).getBrokers(any());
+    }
+
+    @Test
+    public void testPrefetchBrokersThrowing() throws Exception {
+        LookupService lookup = mock(LookupService.class);
+        List<TopicName> topics = Collections.singletonList(topic);
+        when(lookup.getBrokers(topics)).thenThrow(new IllegalStateException("client closed"));
+
+        LookupCache cache = new LookupCache(lookup, 1, TimeUnit.HOURS);
+        cache.prefetchBrokers(topics);
+        assertEquals(cache.size(), 0);
+
+        when(lookup.getBroker(topic)).thenReturn(CompletableFuture.completedFuture(broker));
+        assertEquals(cache.getBroker(topic).get(), broker);
+    }
+}
@@ -0,0 +1,197 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.client.impl;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timer;
+import io.netty.util.concurrent.DefaultThreadFactory;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.pulsar.client.api.MessageId;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class UnAckedMessageTrackerTest {
+
+    private Timer timer;
+    private PulsarClientImpl client;
+
+    @BeforeClass
+    public void setup() {
+        timer = new HashedWheelTimer(new DefaultThreadFactory("pulsar-timer"), 1, TimeUnit.MILLISECONDS);
+        client = mock(PulsarClientImpl.class);
+        when(client.timer()).thenReturn(timer);
+    }
+
+    @AfterClass
+    public void teardown() {
+        timer.stop();
+    }
+
+    @Test
+    public void testAddAndRemove() throws Exception {
+        ConsumerBase<?> consumer = mock(ConsumerBase.class);
+        UnAckedMessageTracker tracker = new UnAckedMessageTracker(client, consumer, TimeUnit.HOURS.toMillis(1),
+                TimeUnit.MINUTES.toMillis(1));
+        assertTrue(tracker.isEmpty());
+
+        for (int i = 0; i < 10; i++) {
+            assertTrue(tracker.add(new MessageIdImpl(1, i, 3)));
+        }
+        // Same entry in a different partition
+        assertTrue(tracker.add(new MessageIdImpl(1, 0, 4)));
+        assertEquals(tracker.size(), 11);
+
+        // Re-adding a message resets its timeout, it is not tracked twice
+        tracker.toggle();
+        tracker.add(new MessageIdImpl(1, 0, 3));
+        assertEquals(tracker.size(), 11);
+
+        assertTrue(tracker.remove(new MessageIdImpl(1, 9, 3)));
+        assertFalse(tracker.remove(new MessageIdImpl(1, 9, 3)));
+        assertEquals(tracker.size(), 10);
+
+        // Whole batch acked
+        assertTrue(tracker.remove(new BatchMessageIdImpl(1, 8, 3, 0)));
+        assertEquals(tracker.size(), 9);
+
+        assertEquals(tracker.removeMessagesTill(new MessageIdImpl(1, 4, 3)), 6);
+        assertEquals(tracker.size(), 3);
+
+        tracker.clear();
+        assertTrue(tracker.isEmpty());
+        tracker.close();
+    }
+
+    @Test
+    public void testRedeliveryPrecision() throws Exception {
+        Set<MessageId> redelivered = ConcurrentHashMap.newKeySet();
+        CountDownLatch latch = new CountDownLatch(1);
+        ConsumerBase<?> consumer = mock(ConsumerBase.class);
+        doAnswer(invocation -> {
+            @SuppressWarnings("unchecked")
+            Set<MessageId> ids = (Set<MessageId>) invocation.getArguments()[0];
+            redelivered.addAll(ids);
+            latch.countDown();
+            return null;
+        }).when(consumer).redeliverUnacknowledgedMessages(any());
+
+        long ackTimeoutMillis = 500;
+        UnAckedMessageTracker tracker = new UnAckedMessageTracker(client, consumer, ackTimeoutMillis, 50);
+        long start = System.nanoTime();
+        tracker.add(new MessageIdImpl(1, 1, -1));
+        tracker.add(new MessageIdImpl(1, 2, -1));
+        tracker.remove(new MessageIdImpl(1, 2, -1));
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue(elapsedMillis >= ackTimeoutMillis, "Redelivered too early: " + elapsedMillis);
+
+        assertEquals(redelivered.size(), 1);
+        assertTrue(redelivered.contains(new MessageIdImpl(1, 1, -1)));
+        assertTrue(tracker.isEmpty());
+        tracker.close();
+    }
+
+    @Test
+    public void testReAddedMessageMovesToHead() throws Exception {
+        ConsumerBase<?> consumer = mock(ConsumerBase.class);
+        UnAckedMessageTracker tracker = new UnAckedMessageTracker(client, consumer, TimeUnit.HOURS.toMillis(1),
+                TimeUnit.MINUTES.toMillis(1));
+        // Partition sets are allocated with their first message
+        for (UnAckedMessageTracker.TimePartition partition : tracker.timePartitions) {
+            assertNull(partition.messageIds);
+        }
+
+        MessageIdImpl id = new MessageIdImpl(1, 1, -1);
+        tracker.add(id);
+        tracker.toggle();
+        tracker.add(id);
+        assertEquals(tracker.size(), 1);
+        assertTrue(tracker.timePartitions[0].isEmpty());
+        assertFalse(tracker.timePartitions[1].isEmpty());
+        assertNull(tracker.timePartitions[2].messageIds);
+
+        assertTrue(tracker.remove(id));
+        assertTrue(tracker.timePartitions[1].isEmpty());
+        assertTrue(tracker.isEmpty());
+        tracker.close();
+    }
+
+    /**
+     * 16 listener threads add and ack messages concurrently, while the timer thread keeps moving the time partitions.
+     */
+    @Test
+    public void testConcurrentListeners() throws Exception {
+        final int numThreads = 16;
+        final int messagesPerThread = 10_000;
+
+        ConsumerBase<?> consumer = mock(ConsumerBase.class);
+        UnAckedMessageTracker tracker = new UnAckedMessageTracker(client, consumer, TimeUnit.SECONDS.toMillis(1),
+                100);
+
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+        CyclicBarrier barrier = new CyclicBarrier(numThreads);
+        CountDownLatch done = new CountDownLatch(numThreads);
+        for (int t = 0; t < numThreads; t++) {
+            final long ledgerId = t;
+            executor.execute(() -> {
+                try {
+                    barrier.await();
+                    for (int i = 0; i < messagesPerThread; i++) {
+                        MessageIdImpl id = new MessageIdImpl(ledgerId, i, -1);
+                        tracker.add(id);
+                        tracker.remove(id);
+                    }
+                } catch (Exception e) {
+                    log.error("Listener failed", e);
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+
+        assertTrue(done.await(1, TimeUnit.MINUTES));
+        executor.shutdown();
+
+        assertTrue(tracker.isEmpty());
+        tracker.close();
+    }
+
+    private static final Logger log = LoggerFactory.getLogger(UnAckedMessageTrackerTest.class);
+}
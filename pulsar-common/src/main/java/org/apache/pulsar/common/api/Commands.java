@@ -41,6 +41,7 @@ import org.apache.pulsar.common.api.proto.PulsarApi.BaseCommand.Type;
 import org.apache.pulsar.common.api.proto.PulsarApi.CommandAck;
 import org.apache.pulsar.common.api.proto.PulsarApi.CommandAck.AckType;
 import org.apache.pulsar.common.api.proto.PulsarApi.CommandAck.ValidationError;
+import org.apache.pulsar.common.api.proto.PulsarApi.CommandAckRanges;
 import org.apache.pulsar.common.api.proto.PulsarApi.CommandActiveConsumerChange;
 import org.apache.pulsar.common.api.proto.PulsarApi.CommandCloseConsumer;
 import org.apache.pulsar.common.api.proto.PulsarApi.CommandCloseProducer;
@@ -55,6 +56,8 @@ import org.apache.pulsar.common.api.proto.PulsarApi.CommandGetTopicsOfNamespaceR
 import org.apache.pulsar.common.api.proto.PulsarApi.CommandLookupTopic;
 import org.apache.pulsar.common.api.proto.PulsarApi.CommandLookupTopicResponse;
 import org.apache.pulsar.common.api.proto.PulsarApi.CommandLookupTopicResponse.LookupType;
+import org.apache.pulsar.common.api.proto.PulsarApi.CommandLookupTopics;
+import org.apache.pulsar.common.api.proto.PulsarApi.CommandLookupTopicsResponse;
 import org.apache.pulsar.common.api.proto.PulsarApi.CommandMessage;
 import org.apache.pulsar.common.api.proto.PulsarApi.CommandPartitionedTopicMetadata;
 import org.apache.pulsar.common.api.proto.PulsarApi.CommandPartitionedTopicMetadataResponse;
@@ -74,6 +77,7 @@ import org.apache.pulsar.common.api.proto.PulsarApi.CommandSubscribe.SubType;
 import org.apache.pulsar.common.api.proto.PulsarApi.CommandSuccess;
 import org.apache.pulsar.common.api.proto.PulsarApi.CommandUnsubscribe;
 import org.apache.pulsar.common.api.proto.PulsarApi.MessageIdData;
+import org.apache.pulsar.common.api.proto.PulsarApi.MessageIdRange;
 import org.apache.pulsar.common.api.proto.PulsarApi.MessageMetadata;
 import org.apache.pulsar.common.api.proto.PulsarApi.ProtocolVersion;
 import org.apache.pulsar.common.api.proto.PulsarApi.ServerError;
@@ -397,9 +401,20 @@ public class Commands {
     }
 
     public static ByteBuf newCloseConsumer(long consumerId, long requestId) {
+        return newCloseConsumer(consumerId, requestId, null, null);
+    }
+
+    public static ByteBuf newCloseConsumer(long consumerId, long requestId, String assignedBrokerServiceUrl,
+            String assignedBrokerServiceUrlTls) {
         CommandCloseConsumer.Builder closeConsumerBuilder = CommandCloseConsumer.newBuilder();
         closeConsumerBuilder.setConsumerId(consumerId);
         closeConsumerBuilder.setRequestId(requestId);
+        if (assignedBrokerServiceUrl != null) {
+            closeConsumerBuilder.setAssignedBrokerServiceUrl(assignedBrokerServiceUrl);
+        }
+        if (assignedBrokerServiceUrlTls != null) {
+            closeConsumerBuilder.setAssignedBrokerServiceUrlTls(assignedBrokerServiceUrlTls);
+        }
         CommandCloseConsumer closeConsumer = closeConsumerBuilder.build();
         ByteBuf res = serializeWithSize(
                 BaseCommand.newBuilder().setType(Type.CLOSE_CONSUMER).setCloseConsumer(closeConsumer));
@@ -420,9 +435,20 @@ public class Commands {
     }
 
     public static ByteBuf newCloseProducer(long producerId, long requestId) {
+        return newCloseProducer(producerId, requestId, null, null);
+    }
+
+    public static ByteBuf newCloseProducer(long producerId, long requestId, String assignedBrokerServiceUrl,
+            String assignedBrokerServiceUrlTls) {
         CommandCloseProducer.Builder closeProducerBuilder = CommandCloseProducer.newBuilder();
         closeProducerBuilder.setProducerId(producerId);
         closeProducerBuilder.setRequestId(requestId);
+        if (assignedBrokerServiceUrl != null) {
+            closeProducerBuilder.setAssignedBrokerServiceUrl(assignedBrokerServiceUrl);
+        }
+        if (assignedBrokerServiceUrlTls != null) {
+            closeProducerBuilder.setAssignedBrokerServiceUrlTls(assignedBrokerServiceUrlTls);
+        }
         CommandCloseProducer closeProducer = closeProducerBuilder.build();
         ByteBuf res = serializeWithSize(
                 BaseCommand.newBuilder().setType(Type.CLOSE_PRODUCER).setCloseProducer(closeProducerBuilder));
@@ -554,8 +580,55 @@ public class Commands {
         return res;
     }
 
+    public static ByteBuf newLookupTopics(List<String> topics, long requestId) {
+        CommandLookupTopics.Builder lookupTopicsBuilder = CommandLookupTopics.newBuilder();
+        lookupTopicsBuilder.setRequestId(requestId).addAllTopics(topics);
+        CommandLookupTopics lookupTopics = lookupTopicsBuilder.build();
+        ByteBuf res = serializeWithSize(
+                BaseCommand.newBuilder().setType(Type.LOOKUP_TOPICS).setLookupTopics(lookupTopics));
+        lookupTopicsBuilder.recycle();
+        lookupTopics.recycle();
+        return res;
+    }
+
+    /**
+     * Serializes the lookup results of a {@link CommandLookupTopics}, in the same order as the requested topics. The
+     * lookups are still owned by the caller.
+     */
+    public static ByteBuf newLookupTopicsResponse(List<CommandLookupTopicResponse> lookups, long requestId) {
+        CommandLookupTopicsResponse.Builder lookupTopicsResponseBuilder = CommandLookupTopicsResponse.newBuilder();
+        lookupTopicsResponseBuilder.setRequestId(requestId).addAllLookups(lookups);
+        CommandLookupTopicsResponse lookupTopicsResponse = lookupTopicsResponseBuilder.build();
+        ByteBuf res = serializeWithSize(BaseCommand.newBuilder().setType(Type.LOOKUP_TOPICS_RESPONSE)
+                .setLookupTopicsResponse(lookupTopicsResponse));
+        lookupTopicsResponseBuilder.recycle();
+        lookupTopicsResponse.recycle();
+        return res;
+    }
+
     public static ByteBuf newLookupResponse(String brokerServiceUrl, String brokerServiceUrlTls, boolean authoritative,
             LookupType response, long requestId, boolean proxyThroughServiceUrl) {
+        return newLookupResponse(newLookupResponseCommand(brokerServiceUrl, brokerServiceUrlTls, authoritative,
+                response, requestId, proxyThroughServiceUrl));
+    }
+
+    public static ByteBuf newLookupErrorResponse(ServerError error, String errorMsg, long requestId) {
+        return newLookupResponse(newLookupErrorResponseCommand(error, errorMsg, requestId));
+    }
+
+    /**
+     * Serializes a lookup result as a single {@link CommandLookupTopicResponse} and recycles it.
+     */
+    public static ByteBuf newLookupResponse(CommandLookupTopicResponse commandLookupTopicResponse) {
+        ByteBuf res = serializeWithSize(BaseCommand.newBuilder().setType(Type.LOOKUP_RESPONSE)
+                .setLookupTopicResponse(commandLookupTopicResponse));
+        commandLookupTopicResponse.recycle();
+        return res;
+    }
+
+    public static CommandLookupTopicResponse newLookupResponseCommand(String brokerServiceUrl,
+            String brokerServiceUrlTls, boolean authoritative, LookupType response, long requestId,
+            boolean proxyThroughServiceUrl) {
         CommandLookupTopicResponse.Builder commandLookupTopicResponseBuilder = CommandLookupTopicResponse.newBuilder();
         commandLookupTopicResponseBuilder.setBrokerServiceUrl(brokerServiceUrl);
         if (brokerServiceUrlTls != null) {
@@ -567,14 +640,12 @@ public class Commands {
         commandLookupTopicResponseBuilder.setProxyThroughServiceUrl(proxyThroughServiceUrl);
 
         CommandLookupTopicResponse commandLookupTopicResponse = commandLookupTopicResponseBuilder.build();
-        ByteBuf res = serializeWithSize(BaseCommand.newBuilder().setType(Type.LOOKUP_RESPONSE)
-                .setLookupTopicResponse(commandLookupTopicResponse));
         commandLookupTopicResponseBuilder.recycle();
-        commandLookupTopicResponse.recycle();
-        return res;
+        return commandLookupTopicResponse;
     }
 
-    public static ByteBuf newLookupErrorResponse(ServerError error, String errorMsg, long requestId) {
+    public static CommandLookupTopicResponse newLookupErrorResponseCommand(ServerError error, String errorMsg,
+            long requestId) {
         CommandLookupTopicResponse.Builder connectionBuilder = CommandLookupTopicResponse.newBuilder();
         connectionBuilder.setRequestId(requestId);
         connectionBuilder.setError(error);
@@ -584,10 +655,8 @@ public class Commands {
         connectionBuilder.setResponse(LookupType.Failed);
 
         CommandLookupTopicResponse connectionBroker = connectionBuilder.build();
-        ByteBuf res = serializeWithSize(BaseCommand.newBuilder().setType(Type.LOOKUP_RESPONSE).setLookupTopicResponse(connectionBroker));
         connectionBuilder.recycle();
-        connectionBroker.recycle();
-        return res;
+        return connectionBroker;
     }
 
     public static ByteBuf newMultiMessageAck(long consumerId, List<Pair<Long, Long>> entries) {
@@ -621,6 +690,44 @@ public class Commands {
         return res;
     }
 
+    /**
+     * Individual acks of the given entries, which must be sorted by (ledgerId, entryId). Consecutive entries of the
+     * same ledger are sent as a single range.
+     */
+    public static ByteBuf newAckRanges(long consumerId, List<Pair<Long, Long>> entries) {
+        CommandAckRanges.Builder ackRangesBuilder = CommandAckRanges.newBuilder();
+        ackRangesBuilder.setConsumerId(consumerId);
+
+        int entriesCount = entries.size();
+        int i = 0;
+        while (i < entriesCount) {
+            long ledgerId = entries.get(i).getLeft();
+            long lastEntryId = entries.get(i).getRight();
+            MessageIdRange.Builder rangeBuilder = MessageIdRange.newBuilder();
+            rangeBuilder.setLedgerId(ledgerId);
+            rangeBuilder.setFirstEntryId(lastEntryId);
+            for (i++; i < entriesCount; i++) {
+                Pair<Long, Long> entry = entries.get(i);
+                if (entry.getLeft() != ledgerId || entry.getRight() != lastEntryId + 1) {
+                    break;
+                }
+                lastEntryId++;
+            }
+            rangeBuilder.setLastEntryId(lastEntryId);
+            ackRangesBuilder.addRanges(rangeBuilder.build());
+            rangeBuilder.recycle();
+        }
+
+        CommandAckRanges ackRanges = ackRangesBuilder.build();
+        ByteBuf res = serializeWithSize(BaseCommand.newBuilder().setType(Type.ACK_RANGES).setAckRanges(ackRanges));
+        for (int j = 0; j < ackRanges.getRangesCount(); j++) {
+            ackRanges.getRanges(j).recycle();
+        }
+        ackRanges.recycle();
+        ackRangesBuilder.recycle();
+        return res;
+    }
+
     public static ByteBuf newAck(long consumerId, long ledgerId, long entryId, AckType ackType,
                                  ValidationError validationError, Map<String,Long> properties) {
         CommandAck.Builder ackBuilder = CommandAck.newBuilder();
@@ -1061,4 +1168,12 @@ public class Commands {
         return peerVersion >= ProtocolVersion.v12.getNumber();
     }
 
+    public static boolean peerSupportsBulkLookup(int peerVersion) {
+        return peerVersion >= ProtocolVersion.v13.getNumber();
+    }
+
+    public static boolean peerSupportsAckRanges(int peerVersion) {
+        return peerVersion >= ProtocolVersion.v14.getNumber();
+    }
+
 }
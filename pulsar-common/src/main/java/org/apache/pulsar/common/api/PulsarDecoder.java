@@ -23,6 +23,7 @@ import static com.google.common.base.Preconditions.checkArgument;
 import org.apache.pulsar.common.api.proto.PulsarApi;
 import org.apache.pulsar.common.api.proto.PulsarApi.BaseCommand;
 import org.apache.pulsar.common.api.proto.PulsarApi.CommandAck;
+import org.apache.pulsar.common.api.proto.PulsarApi.CommandAckRanges;
 import org.apache.pulsar.common.api.proto.PulsarApi.CommandActiveConsumerChange;
 import org.apache.pulsar.common.api.proto.PulsarApi.CommandCloseConsumer;
 import org.apache.pulsar.common.api.proto.PulsarApi.CommandCloseProducer;
@@ -36,6 +37,8 @@ import org.apache.pulsar.common.api.proto.PulsarApi.CommandGetTopicsOfNamespace;
 import org.apache.pulsar.common.api.proto.PulsarApi.CommandGetTopicsOfNamespaceResponse;
 import org.apache.pulsar.common.api.proto.PulsarApi.CommandLookupTopic;
 import org.apache.pulsar.common.api.proto.PulsarApi.CommandLookupTopicResponse;
+import org.apache.pulsar.common.api.proto.PulsarApi.CommandLookupTopics;
+import org.apache.pulsar.common.api.proto.PulsarApi.CommandLookupTopicsResponse;
 import org.apache.pulsar.common.api.proto.PulsarApi.CommandMessage;
 import org.apache.pulsar.common.api.proto.PulsarApi.CommandPartitionedTopicMetadata;
 import org.apache.pulsar.common.api.proto.PulsarApi.CommandPartitionedTopicMetadataResponse;
@@ -288,6 +291,28 @@ public abstract class PulsarDecoder extends ChannelInboundHandlerAdapter {
                 handleGetTopicsOfNamespaceSuccess(cmd.getGetTopicsOfNamespaceResponse());
                 cmd.getGetTopicsOfNamespaceResponse().recycle();
                 break;
+
+            case LOOKUP_TOPICS:
+                checkArgument(cmd.hasLookupTopics());
+                handleLookupTopics(cmd.getLookupTopics());
+                cmd.getLookupTopics().recycle();
+                break;
+
+            case LOOKUP_TOPICS_RESPONSE:
+                checkArgument(cmd.hasLookupTopicsResponse());
+                handleLookupTopicsResponse(cmd.getLookupTopicsResponse());
+                cmd.getLookupTopicsResponse().recycle();
+                break;
+
+            case ACK_RANGES:
+                checkArgument(cmd.hasAckRanges());
+                CommandAckRanges ackRanges = cmd.getAckRanges();
+                handleAckRanges(ackRanges);
+                for (int i = 0; i < ackRanges.getRangesCount(); i++) {
+                    ackRanges.getRanges(i).recycle();
+                }
+                ackRanges.recycle();
+                break;
             }
         } finally {
             if (cmdBuilder != null) {
@@ -431,5 +456,17 @@ public abstract class PulsarDecoder extends ChannelInboundHandlerAdapter {
         throw new UnsupportedOperationException();
     }
 
+    protected void handleLookupTopics(CommandLookupTopics lookupTopics) {
+        throw new UnsupportedOperationException();
+    }
+
+    protected void handleLookupTopicsResponse(CommandLookupTopicsResponse lookupTopicsResponse) {
+        throw new UnsupportedOperationException();
+    }
+
+    protected void handleAckRanges(CommandAckRanges ackRanges) {
+        throw new UnsupportedOperationException();
+    }
+
     private static final Logger log = LoggerFactory.getLogger(PulsarDecoder.class);
 }
@@ -30,9 +30,15 @@ public class NonPersistentSubscriptionStats extends SubscriptionStats{
      **/
     public double msgDropRate;
 
+    /**
+     * Number of messages dropped for the subscription since it was created.
+     */
+    public long msgDropCount;
+
     public void reset() {
         super.reset();
         msgDropRate = 0;
+        msgDropCount = 0;
     }
 
     // if the stats are added for the 1st time, we will need to make a copy of these stats and add it to the current
@@ -41,6 +47,7 @@ public class NonPersistentSubscriptionStats extends SubscriptionStats{
         checkNotNull(stats);
         super.add(stats);
         this.msgDropRate += stats.msgDropRate;
+        this.msgDropCount += stats.msgDropCount;
         return this;
     }
 }
@@ -0,0 +1,85 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.common.policies.data;
+
+import com.google.common.base.MoreObjects;
+import java.util.Objects;
+
+/**
+ * Policies driving the automatic offload of the closed ledgers of the topics of a namespace to long term storage.
+ * <p>
+ * A ledger is offloaded as soon as it is older than offloadLedgerAgeInSeconds, or when more than
+ * offloadThresholdInBytes of the topic are stored in bookkeeper. A negative value disables the corresponding trigger.
+ * Once offloaded, the bookkeeper copy of a ledger is deleted after offloadDeletionLagInMillis, or after the broker
+ * default lag if it is negative.
+ */
+public class OffloadPolicies {
+    private long offloadThresholdInBytes;
+    private long offloadLedgerAgeInSeconds;
+    private long offloadDeletionLagInMillis;
+
+    public OffloadPolicies() {
+        this(-1, -1, -1);
+    }
+
+    public OffloadPolicies(long offloadThresholdInBytes, long offloadLedgerAgeInSeconds,
+                           long offloadDeletionLagInMillis) {
+        this.offloadThresholdInBytes = offloadThresholdInBytes;
+        this.offloadLedgerAgeInSeconds = offloadLedgerAgeInSeconds;
+        this.offloadDeletionLagInMillis = offloadDeletionLagInMillis;
+    }
+
+    public long getOffloadThresholdInBytes() {
+        return offloadThresholdInBytes;
+    }
+
+    public long getOffloadLedgerAgeInSeconds() {
+        return offloadLedgerAgeInSeconds;
+    }
+
+    public long getOffloadDeletionLagInMillis() {
+        return offloadDeletionLagInMillis;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        OffloadPolicies that = (OffloadPolicies) o;
+        return offloadThresholdInBytes == that.offloadThresholdInBytes
+                && offloadLedgerAgeInSeconds == that.offloadLedgerAgeInSeconds
+                && offloadDeletionLagInMillis == that.offloadDeletionLagInMillis;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(offloadThresholdInBytes, offloadLedgerAgeInSeconds, offloadDeletionLagInMillis);
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this).add("offloadThresholdInBytes", offloadThresholdInBytes)
+                .add("offloadLedgerAgeInSeconds", offloadLedgerAgeInSeconds)
+                .add("offloadDeletionLagInMillis", offloadDeletionLagInMillis).toString();
+    }
+}
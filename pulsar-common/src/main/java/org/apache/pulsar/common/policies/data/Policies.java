@@ -44,6 +44,7 @@ public class Policies {
     public Map<String, Integer> latency_stats_sample_rate = Maps.newHashMap();
     public int message_ttl_in_seconds = 0;
     public RetentionPolicies retention_policies = null;
+    public OffloadPolicies offload_policies = null;
     public boolean deleted = false;
     public String antiAffinityGroup;
 
@@ -70,6 +71,7 @@ public class Policies {
                     && Objects.equals(latency_stats_sample_rate, other.latency_stats_sample_rate)
                     && message_ttl_in_seconds == other.message_ttl_in_seconds
                     && Objects.equals(retention_policies, other.retention_policies)
+                    && Objects.equals(offload_policies, other.offload_policies)
                     && Objects.equals(encryption_required, other.encryption_required)
                     && Objects.equals(subscription_auth_mode, other.subscription_auth_mode)
                     && Objects.equals(antiAffinityGroup, other.antiAffinityGroup)
@@ -100,6 +102,7 @@ public class Policies {
                 .add("latency_stats_sample_rate", latency_stats_sample_rate)
                 .add("antiAffinityGroup", antiAffinityGroup)
                 .add("message_ttl_in_seconds", message_ttl_in_seconds).add("retention_policies", retention_policies)
+                .add("offload_policies", offload_policies)
                 .add("deleted", deleted)
                 .add("encryption_required", encryption_required)
                 .add("subscription_auth_mode", subscription_auth_mode)
@@ -46,6 +46,12 @@ public class ReplicatorStats {
     /** Time in seconds from the time a message was produced to the time when it is about to be replicated */
     public long replicationDelayInSeconds;
 
+    /** Size of the messages sent to the remote cluster and not yet acknowledged. bytes */
+    public long inFlightBytes;
+
+    /** Average time for the remote cluster to acknowledge a replicated message. ms */
+    public double replicationRttMillis;
+
     /** Address of incoming replication connection */
     public String inboundConnection;
 
@@ -68,6 +74,8 @@ public class ReplicatorStats {
         this.replicationBacklog += stats.replicationBacklog;
         this.connected &= stats.connected;
         this.replicationDelayInSeconds = Math.max(this.replicationDelayInSeconds, stats.replicationDelayInSeconds);
+        this.inFlightBytes += stats.inFlightBytes;
+        this.replicationRttMillis = Math.max(this.replicationRttMillis, stats.replicationRttMillis);
         return this;
     }
 }
@@ -55,6 +55,9 @@ public class LocalBrokerData extends JSONWritable implements LoadManagerReport {
     private double msgRateIn;
     private double msgRateOut;
 
+    // Average latency of the writes to the bookies, weighted by the add rate of each managed ledger.
+    private double storageWriteLatencyMs;
+
     // Timestamp of last update.
     private long lastUpdate;
 
@@ -131,6 +134,7 @@ public class LocalBrokerData extends JSONWritable implements LoadManagerReport {
         updateSystemResourceUsage(other.cpu, other.memory, other.directMemory, other.bandwidthIn, other.bandwidthOut);
         updateBundleData(other.lastStats);
         lastStats = other.lastStats;
+        storageWriteLatencyMs = other.storageWriteLatencyMs;
     }
 
     // Set the cpu, memory, and direct memory to that of the new system resource usage data.
@@ -374,6 +378,14 @@ public class LocalBrokerData extends JSONWritable implements LoadManagerReport {
         this.msgRateOut = msgRateOut;
     }
 
+    public double getStorageWriteLatencyMs() {
+        return storageWriteLatencyMs;
+    }
+
+    public void setStorageWriteLatencyMs(double storageWriteLatencyMs) {
+        this.storageWriteLatencyMs = storageWriteLatencyMs;
+    }
+
     public void setBrokerVersionString(String brokerVersionString) {
         this.brokerVersionString = brokerVersionString;
     }
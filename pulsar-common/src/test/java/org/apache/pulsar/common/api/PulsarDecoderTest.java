@@ -20,14 +20,22 @@ package org.apache.pulsar.common.api;
 
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.CALLS_REAL_METHODS;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.testng.Assert.assertEquals;
 
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.apache.commons.lang3.tuple.Pair;
+import org.apache.pulsar.common.api.proto.PulsarApi.CommandAckRanges;
 import org.apache.pulsar.common.api.proto.PulsarApi.CommandActiveConsumerChange;
+import org.apache.pulsar.common.api.proto.PulsarApi.MessageIdRange;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
@@ -56,5 +64,27 @@ public class PulsarDecoderTest {
             .handleActiveConsumerChange(any(CommandActiveConsumerChange.class));
     }
 
+    @Test
+    public void testAckRanges() throws Exception {
+        long consumerId = 1234L;
+        List<Pair<Long, Long>> entries = Arrays.asList(Pair.of(1L, 0L), Pair.of(1L, 1L), Pair.of(1L, 2L),
+                Pair.of(1L, 5L), Pair.of(2L, 6L), Pair.of(2L, 7L));
+        ByteBuf ackBuf = Commands.newAckRanges(consumerId, entries);
+        ByteBuf cmdBuf = ackBuf.slice(4, ackBuf.writerIndex() - 4);
+
+        List<String> ranges = new ArrayList<>();
+        doAnswer(invocation -> {
+            CommandAckRanges ackRanges = (CommandAckRanges) invocation.getArguments()[0];
+            assertEquals(ackRanges.getConsumerId(), consumerId);
+            for (MessageIdRange range : ackRanges.getRangesList()) {
+                ranges.add(range.getLedgerId() + ":" + range.getFirstEntryId() + "-" + range.getLastEntryId());
+            }
+            return null;
+        }).when(decoder).handleAckRanges(any(CommandAckRanges.class));
+        decoder.channelRead(mock(ChannelHandlerContext.class), cmdBuf);
+
+        // Consecutive entries of the same ledger are merged in a single range
+        assertEquals(ranges, Arrays.asList("1:0-2", "1:5-5", "2:6-7"));
+    }
 
 }
@@ -46,6 +46,8 @@ public class ReplicatorStatsTest {
         replicatorStats.replicationBacklog = 4;
         replicatorStats.connected = true;
         replicatorStats.replicationDelayInSeconds = 3;
+        replicatorStats.inFlightBytes = 100;
+        replicatorStats.replicationRttMillis = 20;
         replicatorStats.add(replicatorStats);
         Assert.assertEquals(replicatorStats.msgRateIn, 10.0);
         Assert.assertEquals(replicatorStats.msgThroughputIn, 20.0);
@@ -55,5 +57,7 @@ public class ReplicatorStatsTest {
         Assert.assertEquals(replicatorStats.replicationBacklog, 8);
         Assert.assertTrue(replicatorStats.connected);
         Assert.assertEquals(replicatorStats.replicationDelayInSeconds, 3);
+        Assert.assertEquals(replicatorStats.inFlightBytes, 200);
+        Assert.assertEquals(replicatorStats.replicationRttMillis, 20.0);
     }
 }
@@ -113,6 +113,14 @@ public interface Context {
      */
     void incrCounter(String key, long amount);
 
+    /**
+     * Retrieve the value of the builtin distributed counter refered by key,
+     * including the increments of this instance not committed yet
+     * @param key The name of the key
+     * @return the amount of the counter
+     */
+    long getCounter(String key);
+
     /**
      * Get a map of all user-defined key/value configs for the function
      * @return The full map of user-defined config values
@@ -38,7 +38,6 @@ import org.slf4j.Logger;
 import java.io.IOException;
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
@@ -53,9 +52,9 @@ class ContextImpl implements Context {
     private InstanceConfig config;
     private Logger logger;
 
-    // Per Message related
-    private MessageId messageId;
-    private String currentTopicName;
+    // Per Message related, per thread since messages may be processed by several threads
+    private final ThreadLocal<MessageId> messageId = new ThreadLocal<>();
+    private final ThreadLocal<String> currentTopicName = new ThreadLocal<>();
 
     @Getter
     @Setter
@@ -70,7 +69,7 @@ class ContextImpl implements Context {
             max = Double.MIN_VALUE;
             min = Double.MAX_VALUE;
         }
-        public void update(double value) {
+        public synchronized void update(double value) {
             count++;
             sum += value;
             if (max < value) {
@@ -90,9 +89,7 @@ class ContextImpl implements Context {
     private PulsarClient pulsarClient;
     private ClassLoader classLoader;
     Consumer inputConsumer;
-    @Getter
-    @Setter
-    private StateContextImpl stateContext;
+    private final ThreadLocal<StateContextImpl> stateContext = new ThreadLocal<>();
 
     public ContextImpl(InstanceConfig config, Logger logger, PulsarClient client,
                        ClassLoader classLoader, Consumer inputConsumer) {
@@ -101,8 +98,8 @@ class ContextImpl implements Context {
         this.pulsarClient = client;
         this.classLoader = classLoader;
         this.accumulatedMetrics = new ConcurrentHashMap<>();
-        this.publishProducers = new HashMap<>();
-        this.publishSerializers = new HashMap<>();
+        this.publishProducers = new ConcurrentHashMap<>();
+        this.publishSerializers = new ConcurrentHashMap<>();
         this.inputConsumer = inputConsumer;
         producerConfiguration = new ProducerConfiguration();
         producerConfiguration.setBlockIfQueueFull(true);
@@ -112,18 +109,26 @@ class ContextImpl implements Context {
     }
 
     public void setCurrentMessageContext(MessageId messageId, String topicName) {
-        this.messageId = messageId;
-        this.currentTopicName = topicName;
+        this.messageId.set(messageId);
+        this.currentTopicName.set(topicName);
+    }
+
+    public StateContextImpl getStateContext() {
+        return stateContext.get();
+    }
+
+    public void setStateContext(StateContextImpl stateContext) {
+        this.stateContext.set(stateContext);
     }
 
     @Override
     public byte[] getMessageId() {
-        return messageId.toByteArray();
+        return messageId.get().toByteArray();
     }
 
     @Override
     public String getCurrentMessageTopicName() {
-        return currentTopicName;
+        return currentTopicName.get();
     }
 
     @Override
@@ -197,6 +202,7 @@ class ContextImpl implements Context {
 
     @Override
     public void incrCounter(String key, long amount) {
+        StateContextImpl stateContext = this.stateContext.get();
         if (null != stateContext) {
             stateContext.incr(key, amount);
         } else {
@@ -204,6 +210,16 @@ class ContextImpl implements Context {
         }
     }
 
+    @Override
+    public long getCounter(String key) {
+        StateContextImpl stateContext = this.stateContext.get();
+        if (null != stateContext) {
+            return stateContext.getCounter(key).join();
+        } else {
+            throw new RuntimeException("State is not enabled.");
+        }
+    }
+
     @Override
     public <O> CompletableFuture<Void> publish(String topicName, O object) {
         return publish(topicName, object, DefaultSerDe.class.getName());
@@ -212,12 +228,16 @@ class ContextImpl implements Context {
     @Override
     public <O> CompletableFuture<Void> publish(String topicName, O object, String serDeClassName) {
         if (!publishProducers.containsKey(topicName)) {
-            try {
-                publishProducers.put(topicName, pulsarClient.createProducer(topicName, producerConfiguration));
-            } catch (PulsarClientException ex) {
-                CompletableFuture<Void> retval = new CompletableFuture<>();
-                retval.completeExceptionally(ex);
-                return retval;
+            synchronized (publishProducers) {
+                if (!publishProducers.containsKey(topicName)) {
+                    try {
+                        publishProducers.put(topicName, pulsarClient.createProducer(topicName, producerConfiguration));
+                    } catch (PulsarClientException ex) {
+                        CompletableFuture<Void> retval = new CompletableFuture<>();
+                        retval.completeExceptionally(ex);
+                        return retval;
+                    }
+                }
             }
         }
 
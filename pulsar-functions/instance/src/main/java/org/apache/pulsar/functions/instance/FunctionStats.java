@@ -104,6 +104,7 @@ public class FunctionStats {
         }
     }
 
+    // Updated by all the threads processing messages
     private Stats currentStats;
     private Stats totalStats;
 
@@ -112,32 +113,32 @@ public class FunctionStats {
         totalStats = new Stats();
     }
 
-    public void incrementProcessed(long processedAt) {
+    public synchronized void incrementProcessed(long processedAt) {
         currentStats.incrementProcessed(processedAt);
         totalStats.incrementProcessed(processedAt);
     }
 
-    public void incrementSuccessfullyProcessed(long latency) {
+    public synchronized void incrementSuccessfullyProcessed(long latency) {
         currentStats.incrementSuccessfullyProcessed(latency);
         totalStats.incrementSuccessfullyProcessed(latency);
     }
-    public void incrementUserExceptions(Exception ex) {
+    public synchronized void incrementUserExceptions(Exception ex) {
         currentStats.incrementUserExceptions(ex);
         totalStats.incrementUserExceptions(ex);
     }
-    public void incrementSystemExceptions(Exception ex) {
+    public synchronized void incrementSystemExceptions(Exception ex) {
         currentStats.incrementSystemExceptions(ex);
         totalStats.incrementSystemExceptions(ex);
     }
-    public void incrementDeserializationExceptions(String topic) {
+    public synchronized void incrementDeserializationExceptions(String topic) {
         currentStats.incrementDeserializationExceptions(topic);
         totalStats.incrementDeserializationExceptions(topic);
     }
-    public void incrementSerializationExceptions() {
+    public synchronized void incrementSerializationExceptions() {
         currentStats.incrementSerializationExceptions();
         totalStats.incrementSerializationExceptions();
     }
-    public void resetCurrent() {
+    public synchronized void resetCurrent() {
         currentStats.reset();
     }
 }
@@ -29,6 +29,11 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
 import lombok.AccessLevel;
 import lombok.Getter;
@@ -55,6 +60,7 @@ import org.apache.pulsar.functions.api.utils.IdentityFunction;
 import org.apache.pulsar.functions.proto.InstanceCommunication;
 import org.apache.pulsar.functions.proto.Function.SourceSpec;
 import org.apache.pulsar.functions.proto.Function.SinkSpec;
+import org.apache.pulsar.functions.sink.BatchingRuntimeSink;
 import org.apache.pulsar.functions.sink.DefaultRuntimeSink;
 import org.apache.pulsar.functions.sink.PulsarSink;
 import org.apache.pulsar.functions.sink.PulsarSinkConfig;
@@ -65,8 +71,10 @@ import org.apache.pulsar.functions.source.PulsarSourceConfig;
 import org.apache.pulsar.functions.utils.FunctionConfig;
 import org.apache.pulsar.functions.utils.functioncache.FunctionCacheManager;
 import org.apache.pulsar.functions.instance.state.StateContextImpl;
+import org.apache.pulsar.functions.instance.state.StateUpdateBatcher;
 import org.apache.pulsar.functions.utils.FunctionDetailsUtils;
 import org.apache.pulsar.functions.utils.Reflections;
+import org.apache.pulsar.io.core.BatchSink;
 import org.apache.pulsar.io.core.Record;
 import org.apache.pulsar.io.core.Sink;
 import org.apache.pulsar.io.core.Source;
@@ -77,6 +85,10 @@ import org.apache.pulsar.io.core.Source;
 @Slf4j
 public class JavaInstanceRunnable implements AutoCloseable, Runnable {
 
+    // Longest time the state updates of a message wait for their window to be full
+    private static final long STATE_UPDATE_MAX_DELAY_MS = 100;
+    private static final int STATE_COUNTER_CACHE_SIZE = 10000;
+
     // The class loader that used for loading functions
     private ClassLoader fnClassLoader;
     private final InstanceConfig instanceConfig;
@@ -94,6 +106,8 @@ public class JavaInstanceRunnable implements AutoCloseable, Runnable {
     private StorageClient storageClient;
     @Getter(AccessLevel.PACKAGE)
     private Table<ByteBuf, ByteBuf> stateTable;
+    private StateUpdateBatcher stateUpdateBatcher;
+    private int stateUpdateWindow = 1;
 
     private JavaInstance javaInstance;
     @Getter
@@ -104,6 +118,17 @@ public class JavaInstanceRunnable implements AutoCloseable, Runnable {
 
     private Record currentRecord;
 
+    // Threads processing the records when the function has several processing threads, null otherwise
+    private ExecutorService[] processingThreads;
+    private int nextProcessingThread = 0;
+    // Records handed to the processing threads whose result is not processed yet
+    private Semaphore pendingRecords;
+    // Result of the last record handled by processAvailable, when records are processed one at a time
+    private CompletableFuture<Void> lastRecordProcessed;
+    // Result of the last record, when the state updates of a window of records are committed together. The results
+    // are processed in the order of the records, whenever their updates are committed.
+    private CompletableFuture<Void> lastResultProcessed;
+
     private Source source;
     private RuntimeSink sink;
 
@@ -160,70 +185,269 @@ public class JavaInstanceRunnable implements AutoCloseable, Runnable {
     public void run() {
         try {
             javaInstance = setupJavaInstance();
+            setupProcessingThreads();
             while (true) {
+                handleRecord(readInput());
+            }
+        } catch (Exception ex) {
+            log.error("Uncaught exception in Java Instance", ex);
+            deathException = ex;
+            return;
+        } finally {
+            close();
+        }
+    }
 
-                currentRecord = readInput();
+    /**
+     * Initialize the instance for it to be driven by {@link #processAvailable(int)} rather than by {@link #run()}.
+     * The context class loader and the thread context of the calling thread are left as they were.
+     */
+    public void setup() throws Exception {
+        ClassLoader callerClassLoader = Thread.currentThread().getContextClassLoader();
+        try {
+            javaInstance = setupJavaInstance();
+            setupProcessingThreads();
+        } finally {
+            Thread.currentThread().setContextClassLoader(callerClassLoader);
+            ThreadContext.remove("function");
+            ThreadContext.remove("instance");
+        }
+        if (!(source instanceof PulsarSource)) {
+            throw new RuntimeException("Only functions reading from Pulsar topics can share threads");
+        }
+    }
 
-                if (instanceConfig.getFunctionDetails().getProcessingGuarantees() == org.apache.pulsar.functions
-                        .proto.Function.ProcessingGuarantees.ATMOST_ONCE) {
-                    if (instanceConfig.getFunctionDetails().getAutoAck()) {
-                        currentRecord.ack();
-                    }
+    /**
+     * Process the records already received by the source, at most maxRecords of them, without waiting for more.
+     * This lets a thread take turns between several instances, the instance must be {@link #setup()} first.
+     * <p>
+     * The calling thread isn't held while the state updates of a record are persisted, or while the processing
+     * threads are busy: the method returns instead, and the next records are processed by a later call.
+     *
+     * @return the number of records processed
+     */
+    public int processAvailable(int maxRecords) throws Exception {
+        Thread currentThread = Thread.currentThread();
+        ClassLoader callerClassLoader = currentThread.getContextClassLoader();
+        currentThread.setContextClassLoader(fnClassLoader);
+        ThreadContext.put("function", FunctionDetailsUtils.getFullyQualifiedName(instanceConfig.getFunctionDetails()));
+        ThreadContext.put("instance", instanceConfig.getInstanceId());
+        try {
+            int processed = 0;
+            while (processed < maxRecords && tryReserveRecord()) {
+                Record record = ((PulsarSource) source).read(0, TimeUnit.MILLISECONDS);
+                if (null == record) {
+                    releaseRecord();
+                    break;
                 }
+                handleRecord(record, true);
+                processed++;
+            }
+            return processed;
+        } finally {
+            currentThread.setContextClassLoader(callerClassLoader);
+            ThreadContext.remove("function");
+            ThreadContext.remove("instance");
+        }
+    }
 
-                // state object is per function, because we need to have the ability to know what updates
-                // are made in this function and ensure we only acknowledge after the state is persisted.
-                StateContextImpl stateContext;
-                if (null != stateTable) {
-                    stateContext = new StateContextImpl(stateTable);
-                    javaInstance.getContext().setStateContext(stateContext);
-                } else {
-                    stateContext = null;
-                }
+    /**
+     * Reserve room for one more record without waiting.
+     *
+     * @return false if the records being processed must complete first
+     */
+    private boolean tryReserveRecord() {
+        if (null != pendingRecords) {
+            return pendingRecords.tryAcquire();
+        }
+        return null == lastRecordProcessed || lastRecordProcessed.isDone();
+    }
 
-                // process the message
-                long processAt = System.currentTimeMillis();
-                stats.incrementProcessed(processAt);
-                addLogTopicHandler();
-                JavaExecutionResult result;
-                MessageId messageId = null;
-                String topicName = null;
-
-                if (currentRecord instanceof PulsarRecord) {
-                    PulsarRecord pulsarRecord = (PulsarRecord) currentRecord;
-                     messageId = pulsarRecord.getMessageId();
-                     topicName = pulsarRecord.getTopicName();
-                }
-                result = javaInstance.handleMessage(messageId, topicName, currentRecord.getValue());
+    private void releaseRecord() {
+        if (null != pendingRecords) {
+            pendingRecords.release();
+        }
+    }
 
-                removeLogTopicHandler();
+    private void handleRecord(Record record) throws InterruptedException {
+        handleRecord(record, false);
+    }
 
-                long doneProcessing = System.currentTimeMillis();
-                log.debug("Got result: {}", result.getResult());
+    /**
+     * @param reserved whether room for the record was reserved with {@link #tryReserveRecord()}, the record is
+     *                 handled without waiting then
+     */
+    private void handleRecord(Record record, boolean reserved) throws InterruptedException {
+        currentRecord = record;
 
-                if (null != stateContext) {
-                    CompletableFuture completableFuture = stateContext.flush();
+        if (instanceConfig.getFunctionDetails().getProcessingGuarantees() == org.apache.pulsar.functions
+                .proto.Function.ProcessingGuarantees.ATMOST_ONCE) {
+            if (instanceConfig.getFunctionDetails().getAutoAck()) {
+                record.ack();
+            }
+        }
 
-                    try {
-                        completableFuture.join();
-                    } catch (Exception e) {
-                        log.error("Failed to flush the state updates of message {}", currentRecord, e);
-                        currentRecord.fail();
-                    }
-                }
-                try {
-                    processResult(currentRecord, result, processAt, doneProcessing);
-                } catch (Exception e) {
-                    log.warn("Failed to process result of message {}", currentRecord, e);
-                    currentRecord.fail();
-                }
+        if (null != processingThreads) {
+            dispatchRecord(record, reserved);
+        } else if (null != pendingRecords) {
+            // move on to the next record, its state updates are committed with the ones of this record
+            if (!reserved) {
+                pendingRecords.acquire();
+            }
+            lastResultProcessed = processRecord(record, lastResultProcessed);
+            lastResultProcessed.whenComplete((ignored, cause) -> pendingRecords.release());
+        } else if (reserved) {
+            lastRecordProcessed = processRecord(record);
+        } else {
+            processRecord(record).join();
+        }
+    }
+
+    private CompletableFuture<Void> processRecord(Record record) {
+        return processRecord(record, null);
+    }
+
+    /**
+     * Process a record on the current thread.
+     *
+     * @param previousResult if not null, the result of the record is processed only after this one
+     * @return a future completed once the result of the record is processed
+     */
+    private CompletableFuture<Void> processRecord(Record record, CompletableFuture<Void> previousResult) {
+        // state object is per function, because we need to have the ability to know what updates
+        // are made in this function and ensure we only acknowledge after the state is persisted.
+        StateContextImpl stateContext;
+        if (null != stateTable) {
+            stateContext = new StateContextImpl(stateUpdateBatcher);
+            javaInstance.getContext().setStateContext(stateContext);
+        } else {
+            stateContext = null;
+        }
+
+        // process the message
+        long processAt = System.currentTimeMillis();
+        stats.incrementProcessed(processAt);
+        if (null == processingThreads) {
+            addLogTopicHandler();
+        }
+        JavaExecutionResult result;
+        MessageId messageId = null;
+        String topicName = null;
+
+        if (record instanceof PulsarRecord) {
+            PulsarRecord pulsarRecord = (PulsarRecord) record;
+             messageId = pulsarRecord.getMessageId();
+             topicName = pulsarRecord.getTopicName();
+        }
+        result = javaInstance.handleMessage(messageId, topicName, record.getValue());
+
+        if (null == processingThreads) {
+            removeLogTopicHandler();
+        }
+
+        long doneProcessing = System.currentTimeMillis();
+        log.debug("Got result: {}", result.getResult());
+
+        CompletableFuture<Void> stateFlushed;
+        if (null != stateContext) {
+            stateFlushed = stateContext.flush();
+        } else {
+            stateFlushed = CompletableFuture.completedFuture(null);
+        }
+        CompletableFuture<Void> resultReady;
+        if (null != previousResult) {
+            // the previous result always completes normally
+            resultReady = previousResult.thenCompose(ignored -> stateFlushed);
+        } else {
+            resultReady = stateFlushed;
+        }
+        // the result is processed, and the record acknowledged, once its state updates are persisted
+        return resultReady.handle((ignored, cause) -> {
+            if (null != cause) {
+                log.error("Failed to flush the state updates of message {}", record, cause);
+                record.fail();
+            }
+            try {
+                processResult(record, result, processAt, doneProcessing);
+            } catch (Exception e) {
+                log.warn("Failed to process result of message {}", record, e);
+                record.fail();
+            }
+            return null;
+        });
+    }
+
+    private void setupProcessingThreads() {
+        int numThreads = instanceConfig.getFunctionDetails().getProcessingThreads();
+        if (numThreads <= 1) {
+            if (stateUpdateWindow > 1) {
+                pendingRecords = new Semaphore(Math.max(stateUpdateWindow, instanceConfig.getMaxBufferedTuples()));
             }
-        } catch (Exception ex) {
-            log.error("Uncaught exception in Java Instance", ex);
-            deathException = ex;
             return;
-        } finally {
-            close();
+        }
+        log.info("Processing messages with {} threads", numThreads);
+        processingThreads = new ExecutorService[numThreads];
+        for (int i = 0; i < numThreads; i++) {
+            final String threadName = String.format("%s-processing-%d",
+                    FunctionDetailsUtils.getFullyQualifiedName(instanceConfig.getFunctionDetails()), i);
+            processingThreads[i] = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(() -> {
+                    ThreadContext.put("function",
+                            FunctionDetailsUtils.getFullyQualifiedName(instanceConfig.getFunctionDetails()));
+                    ThreadContext.put("instance", instanceConfig.getInstanceId());
+                    runnable.run();
+                }, threadName);
+                thread.setContextClassLoader(fnClassLoader);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        pendingRecords = new Semaphore(Math.max(Math.max(numThreads, stateUpdateWindow),
+                instanceConfig.getMaxBufferedTuples()));
+        // logs of all the threads go to the log topic, the appender can't be toggled around each message
+        addLogTopicHandler();
+    }
+
+    /**
+     * Hand a record to a processing thread, waiting while too many records are being processed unless room for the
+     * record was reserved.
+     * <p>
+     * With effectively once processing, the records of an input partition are processed by the same thread, and the
+     * result of a record is processed before the next record, so that results are published in order. Otherwise
+     * records are spread over the threads, and the threads move on to the next record while the state updates and
+     * the result of a record are persisted.
+     */
+    private void dispatchRecord(Record record, boolean reserved) throws InterruptedException {
+        if (!reserved) {
+            pendingRecords.acquire();
+        }
+        final boolean ordered = instanceConfig.getFunctionDetails().getProcessingGuarantees()
+                == org.apache.pulsar.functions.proto.Function.ProcessingGuarantees.EFFECTIVELY_ONCE;
+        final int thread;
+        if (ordered && null != record.getPartitionId()) {
+            thread = (record.getPartitionId().hashCode() & Integer.MAX_VALUE) % processingThreads.length;
+        } else {
+            thread = nextProcessingThread;
+            nextProcessingThread = (nextProcessingThread + 1) % processingThreads.length;
+        }
+        try {
+            processingThreads[thread].execute(() -> {
+                CompletableFuture<Void> processed;
+                try {
+                    processed = processRecord(record);
+                } catch (Throwable t) {
+                    log.error("Failed to process message {}", record, t);
+                    record.fail();
+                    processed = CompletableFuture.completedFuture(null);
+                }
+                if (ordered) {
+                    processed.join();
+                }
+                processed.whenComplete((ignored, cause) -> pendingRecords.release());
+            });
+        } catch (RejectedExecutionException e) {
+            pendingRecords.release();
+            throw e;
         }
     }
 
@@ -287,6 +511,16 @@ public class JavaInstanceRunnable implements AutoCloseable, Runnable {
                 .withNamespace(tableNs)
                 .build();
         this.stateTable = result(storageClient.openTable(tableName));
+
+        stateUpdateWindow = Math.max(1, instanceConfig.getFunctionDetails().getStateUpdateWindow());
+        if (stateUpdateWindow > 1 && instanceConfig.getFunctionDetails().getProcessingGuarantees()
+                == org.apache.pulsar.functions.proto.Function.ProcessingGuarantees.EFFECTIVELY_ONCE) {
+            // results are published in order, one message at a time
+            log.warn("State updates are committed per message with effectively once processing guarantees");
+            stateUpdateWindow = 1;
+        }
+        this.stateUpdateBatcher = new StateUpdateBatcher(stateTable, stateUpdateWindow,
+                STATE_UPDATE_MAX_DELAY_MS, STATE_COUNTER_CACHE_SIZE);
     }
 
     private void processResult(Record srcRecord,
@@ -295,7 +529,7 @@ public class JavaInstanceRunnable implements AutoCloseable, Runnable {
         if (result.getUserException() != null) {
             log.info("Encountered user exception when processing message {}", srcRecord, result.getUserException());
             stats.incrementUserExceptions(result.getUserException());
-            this.currentRecord.fail();
+            srcRecord.fail();
         } else if (result.getSystemException() != null) {
             log.info("Encountered system exception when processing message {}", srcRecord, result.getSystemException());
             stats.incrementSystemExceptions(result.getSystemException());
@@ -331,6 +565,19 @@ public class JavaInstanceRunnable implements AutoCloseable, Runnable {
 
     @Override
     public void close() {
+        if (null != processingThreads) {
+            for (ExecutorService processingThread : processingThreads) {
+                processingThread.shutdownNow();
+            }
+            removeLogTopicHandler();
+        }
+
+        // commit the state updates of the processed messages, before the output is closed
+        if (null != stateUpdateBatcher) {
+            stateUpdateBatcher.close();
+            stateUpdateBatcher = null;
+        }
+
         try {
             source.close();
         } catch (Exception e) {
@@ -513,6 +760,8 @@ public class JavaInstanceRunnable implements AutoCloseable, Runnable {
 
         if (object instanceof RuntimeSink) {
             this.sink = (RuntimeSink) object;
+        } else if (object instanceof BatchSink) {
+            this.sink = BatchingRuntimeSink.of((BatchSink) object);
         } else if (object instanceof Sink) {
             this.sink = DefaultRuntimeSink.of((Sink) object);
         } else {
@@ -27,6 +27,8 @@ public interface StateContext {
 
     void incr(String key, long amount);
 
+    CompletableFuture<Long> getCounter(String key);
+
     CompletableFuture<Void> flush();
 
 }
@@ -18,38 +18,40 @@
  */
 package org.apache.pulsar.functions.instance.state;
 
-import static java.nio.charset.StandardCharsets.UTF_8;
-
-import io.netty.buffer.ByteBuf;
-import io.netty.buffer.Unpooled;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
-import org.apache.bookkeeper.api.kv.Table;
 import org.apache.bookkeeper.common.concurrent.FutureUtils;
 
 /**
  * This class accumulates the state updates from one function.
  *
  * <p>currently it exposes incr operations. but we can expose other key/values operations if needed.
+ * The updates are committed by a {@link StateUpdateBatcher}, together with the ones of the other messages
+ * of its window.
  */
 public class StateContextImpl implements StateContext {
 
-    private final Table<ByteBuf, ByteBuf> table;
-    // the list
+    private final StateUpdateBatcher batcher;
+    // the windows holding the updates of this function
     private final List<CompletableFuture<Void>> updates;
 
-    public StateContextImpl(Table<ByteBuf, ByteBuf> table) {
-        this.table = table;
+    public StateContextImpl(StateUpdateBatcher batcher) {
+        this.batcher = batcher;
         this.updates = new ArrayList<>();
     }
 
     @Override
     public void incr(String key, long amount) {
-        // TODO: this can be optimized with a batch operation.
-        updates.add(table.increment(
-            Unpooled.wrappedBuffer(key.getBytes(UTF_8)),
-            amount));
+        CompletableFuture<Void> committed = batcher.incr(key, amount);
+        if (updates.isEmpty() || updates.get(updates.size() - 1) != committed) {
+            updates.add(committed);
+        }
+    }
+
+    @Override
+    public CompletableFuture<Long> getCounter(String key) {
+        return batcher.getCounter(key);
     }
 
     /**
@@ -57,6 +59,7 @@ public class StateContextImpl implements StateContext {
      */
     @Override
     public CompletableFuture<Void> flush() {
+        batcher.messageProcessed();
         return FutureUtils.collect(updates).thenApply(ignored -> null);
     }
 }
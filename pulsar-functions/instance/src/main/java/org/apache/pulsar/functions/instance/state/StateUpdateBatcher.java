@@ -0,0 +1,213 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.functions.instance.state;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.bookkeeper.api.kv.Table;
+import org.apache.bookkeeper.common.concurrent.FutureUtils;
+
+/**
+ * This class commits the state updates of the messages processed by a function instance in batches.
+ *
+ * <p>The increments made while processing a window of messages are merged per key, and sent to the table once
+ * the window is full or its first update is older than maxDelayMs. The messages of a window can be acknowledged
+ * once its updates are committed. The committed values of the recently read counters are cached, a cached value
+ * is dropped when an update of this instance to it is committed and at most {@link #COUNTER_CACHE_EXPIRY_MS} after
+ * it was read.
+ */
+@Slf4j
+public class StateUpdateBatcher implements AutoCloseable {
+
+    static final long COUNTER_CACHE_EXPIRY_MS = 1000;
+
+    private final Table<ByteBuf, ByteBuf> table;
+    private final int windowSize;
+    private final long maxDelayMs;
+    private final ScheduledExecutorService timer;
+    // Reads of the committed values, a read started before an update is committed is dropped with the cached value
+    private final Cache<String, CompletableFuture<Long>> counters;
+
+    // Guarded by this
+    private Window currentWindow = new Window();
+    // Increments sent to the table and not committed yet, guarded by this
+    private final Map<String, Long> committing = new HashMap<>();
+
+    private static class Window {
+        final Map<String, Long> increments = new HashMap<>();
+        final CompletableFuture<Void> committed = new CompletableFuture<>();
+        int numMessages = 0;
+        ScheduledFuture<?> timeout;
+    }
+
+    public StateUpdateBatcher(Table<ByteBuf, ByteBuf> table, int windowSize, long maxDelayMs, int counterCacheSize) {
+        this.table = table;
+        this.windowSize = Math.max(1, windowSize);
+        this.maxDelayMs = maxDelayMs;
+        if (this.windowSize > 1) {
+            this.timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "function-state-updates");
+                thread.setDaemon(true);
+                return thread;
+            });
+        } else {
+            this.timer = null;
+        }
+        this.counters = CacheBuilder.newBuilder()
+                .maximumSize(counterCacheSize)
+                .expireAfterWrite(COUNTER_CACHE_EXPIRY_MS, TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    /**
+     * Add an increment to the current window.
+     *
+     * @return a future completed once the increment is committed
+     */
+    public CompletableFuture<Void> incr(String key, long amount) {
+        synchronized (this) {
+            Window window = currentWindow;
+            if (window.increments.isEmpty() && null != timer) {
+                window.timeout = timer.schedule(() -> commit(window), maxDelayMs, TimeUnit.MILLISECONDS);
+            }
+            window.increments.merge(key, amount, Long::sum);
+            return window.committed;
+        }
+    }
+
+    /**
+     * Get the value of a counter, including the increments of this instance not committed yet.
+     */
+    public CompletableFuture<Long> getCounter(String key) {
+        return getCounter(key, true);
+    }
+
+    private CompletableFuture<Long> getCounter(String key, boolean retryIfCommitted) {
+        long pending;
+        CompletableFuture<Long> read;
+        synchronized (this) {
+            pending = currentWindow.increments.getOrDefault(key, 0L) + committing.getOrDefault(key, 0L);
+            read = counters.getIfPresent(key);
+            if (null == read) {
+                read = table.getNumber(Unpooled.wrappedBuffer(key.getBytes(UTF_8)))
+                        .thenApply(value -> null == value ? 0L : value);
+                counters.put(key, read);
+            }
+        }
+        final CompletableFuture<Long> committedRead = read;
+        committedRead.exceptionally(cause -> {
+            counters.asMap().remove(key, committedRead);
+            return null;
+        });
+        return committedRead.thenCompose(committed -> {
+            synchronized (this) {
+                if (!retryIfCommitted || counters.getIfPresent(key) == committedRead) {
+                    return CompletableFuture.completedFuture(committed + pending);
+                }
+            }
+            // an update was committed during the read, the value read might already count some pending increments
+            return getCounter(key, false);
+        });
+    }
+
+    /**
+     * Count a processed message in the current window, and commit the window once it is full.
+     */
+    public void messageProcessed() {
+        Window window;
+        synchronized (this) {
+            window = currentWindow;
+            window.numMessages++;
+            if (window.numMessages < windowSize) {
+                return;
+            }
+            if (window.increments.isEmpty()) {
+                // nothing to commit, start counting again
+                window.numMessages = 0;
+                return;
+            }
+        }
+        commit(window);
+    }
+
+    private void commit(Window window) {
+        synchronized (this) {
+            if (window != currentWindow) {
+                // already committed
+                return;
+            }
+            currentWindow = new Window();
+            window.increments.forEach((key, amount) -> committing.merge(key, amount, Long::sum));
+        }
+        if (null != window.timeout) {
+            window.timeout.cancel(false);
+        }
+
+        List<CompletableFuture<Void>> updates = new ArrayList<>(window.increments.size());
+        window.increments.forEach((key, amount) -> updates.add(
+                table.increment(Unpooled.wrappedBuffer(key.getBytes(UTF_8)), amount)
+                        .whenComplete((ignored, cause) -> incrementCompleted(key, amount))));
+        FutureUtils.collect(updates).whenComplete((ignored, cause) -> {
+            if (null != cause) {
+                log.error("Failed to commit the state updates of {} keys", window.increments.size(), cause);
+                window.committed.completeExceptionally(cause);
+            } else {
+                window.committed.complete(null);
+            }
+        });
+    }
+
+    private synchronized void incrementCompleted(String key, long amount) {
+        committing.computeIfPresent(key, (k, total) -> total == amount ? null : total - amount);
+        counters.invalidate(key);
+    }
+
+    /**
+     * Commit the pending updates.
+     */
+    @Override
+    public void close() {
+        Window window;
+        boolean pending;
+        synchronized (this) {
+            window = currentWindow;
+            pending = !window.increments.isEmpty();
+        }
+        if (pending) {
+            commit(window);
+        }
+        if (null != timer) {
+            timer.shutdownNow();
+        }
+    }
+}
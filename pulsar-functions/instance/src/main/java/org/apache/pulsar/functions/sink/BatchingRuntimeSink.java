@@ -0,0 +1,142 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.functions.sink;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.pulsar.io.core.BatchSink;
+import org.apache.pulsar.io.core.RecordContext;
+
+/**
+ * The runtime sink wrapping up a user provided {@link BatchSink}.
+ *
+ * <p>The values are accumulated until the batch is full or its first value waited for the maximum delay of
+ * the sink, then written at once. The input records of a batch are acked, or failed, when its write completes.
+ *
+ * @param <T>
+ */
+@Slf4j
+public class BatchingRuntimeSink<T> implements RuntimeSink<T> {
+
+    public static <T> BatchingRuntimeSink<T> of(BatchSink<T> sink) {
+        return new BatchingRuntimeSink<>(sink);
+    }
+
+    private final BatchSink<T> sink;
+    private int maxBatchSize;
+    private long maxBatchDelayMs;
+    private ScheduledExecutorService timer;
+
+    // Guarded by this
+    private Batch currentBatch;
+
+    private class Batch {
+        final List<T> values = new ArrayList<>();
+        final List<RecordContext> recordContexts = new ArrayList<>();
+        ScheduledFuture<?> timeout;
+    }
+
+    private BatchingRuntimeSink(BatchSink<T> sink) {
+        this.sink = sink;
+    }
+
+    @Override
+    public void open(final Map<String, Object> config) throws Exception {
+        sink.open(config);
+        this.maxBatchSize = Math.max(1, sink.getMaxBatchSize());
+        this.maxBatchDelayMs = sink.getMaxBatchDelayMs();
+        this.timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "batch-sink-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.currentBatch = new Batch();
+    }
+
+    @Override
+    public CompletableFuture<Void> write(T value) {
+        return sink.write(value);
+    }
+
+    @Override
+    public void write(RecordContext inputRecordContext, T value) throws Exception {
+        Batch batch;
+        synchronized (this) {
+            batch = currentBatch;
+            if (batch.values.isEmpty() && maxBatchSize > 1) {
+                batch.timeout = timer.schedule(() -> flush(batch), maxBatchDelayMs, TimeUnit.MILLISECONDS);
+            }
+            batch.values.add(value);
+            batch.recordContexts.add(inputRecordContext);
+            if (batch.values.size() < maxBatchSize) {
+                return;
+            }
+        }
+        flush(batch);
+    }
+
+    private void flush(Batch batch) {
+        synchronized (this) {
+            if (batch != currentBatch || batch.values.isEmpty()) {
+                // already written
+                return;
+            }
+            currentBatch = new Batch();
+        }
+        if (null != batch.timeout) {
+            batch.timeout.cancel(false);
+        }
+
+        CompletableFuture<Void> written;
+        try {
+            written = sink.writeBatch(batch.values);
+        } catch (Exception e) {
+            written = new CompletableFuture<>();
+            written.completeExceptionally(e);
+        }
+        written.whenComplete((ignored, cause) -> {
+            if (null != cause) {
+                log.warn("Failed to write a batch of {} values", batch.values.size(), cause);
+                batch.recordContexts.forEach(RecordContext::fail);
+            } else {
+                batch.recordContexts.forEach(RecordContext::ack);
+            }
+        });
+    }
+
+    @Override
+    public void close() throws Exception {
+        if (null != timer) {
+            Batch batch;
+            synchronized (this) {
+                batch = currentBatch;
+            }
+            flush(batch);
+            timer.shutdownNow();
+        }
+        sink.close();
+    }
+}
@@ -69,8 +69,23 @@ public class PulsarSource<T> implements Source<T> {
 
     @Override
     public Record<T> read() throws Exception {
-        org.apache.pulsar.client.api.Message<T> message = this.inputConsumer.receive();
+        return toRecord(this.inputConsumer.receive());
+    }
+
+    /**
+     * Read the next message, waiting at most for the given timeout.
+     *
+     * @return the next message, or null if none was received in time
+     */
+    public Record<T> read(int timeout, TimeUnit unit) throws Exception {
+        org.apache.pulsar.client.api.Message<T> message = this.inputConsumer.receive(timeout, unit);
+        if (null == message) {
+            return null;
+        }
+        return toRecord(message);
+    }
 
+    private Record<T> toRecord(org.apache.pulsar.client.api.Message<T> message) {
         String topicName;
         String partitionId;
 
@@ -0,0 +1,207 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.functions.instance;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import org.apache.pulsar.functions.api.Context;
+import org.apache.pulsar.functions.api.Function;
+import org.apache.pulsar.functions.proto.Function.FunctionDetails;
+import org.apache.pulsar.functions.proto.Function.ProcessingGuarantees;
+import org.apache.pulsar.functions.sink.RuntimeSink;
+import org.apache.pulsar.functions.utils.functioncache.FunctionCacheManager;
+import org.apache.pulsar.io.core.Record;
+import org.apache.pulsar.io.core.RecordContext;
+import org.apache.pulsar.io.core.Source;
+import org.powermock.reflect.Whitebox;
+import org.testng.annotations.Test;
+
+/**
+ * Test the processing of the messages of a {@link JavaInstanceRunnable} by several processing threads.
+ */
+public class JavaInstanceRunnableThreadsTest {
+
+    private static final int MAX_BUFFERED_TUPLES = 1024;
+
+    private RuntimeSink sink;
+
+    private JavaInstanceRunnable createRunnable(ProcessingGuarantees processingGuarantees, int processingThreads,
+                                                Object function) throws Exception {
+        FunctionDetails functionDetails = FunctionDetails.newBuilder()
+                .setTenant("test-tenant")
+                .setNamespace("test-namespace")
+                .setName("test-function")
+                .setProcessingGuarantees(processingGuarantees)
+                .setProcessingThreads(processingThreads)
+                .build();
+        InstanceConfig config = new InstanceConfig();
+        config.setFunctionId("test-function-id");
+        config.setInstanceId("test-instance-id");
+        config.setMaxBufferedTuples(MAX_BUFFERED_TUPLES);
+        config.setFunctionDetails(functionDetails);
+
+        JavaInstanceRunnable runnable = new JavaInstanceRunnable(
+                config, mock(FunctionCacheManager.class), null, null, null);
+        sink = mock(RuntimeSink.class);
+        Whitebox.setInternalState(runnable, "javaInstance",
+                new JavaInstance(config, function, getClass().getClassLoader(), null, null));
+        Whitebox.setInternalState(runnable, "source", mock(Source.class));
+        Whitebox.setInternalState(runnable, "sink", sink);
+        Whitebox.invokeMethod(runnable, "setupProcessingThreads");
+        return runnable;
+    }
+
+    private static Record record(String partitionId, String value) {
+        Record record = mock(Record.class);
+        when(record.getPartitionId()).thenReturn(partitionId);
+        when(record.getValue()).thenReturn(value);
+        return record;
+    }
+
+    private static void handleRecord(JavaInstanceRunnable runnable, Record record) throws Exception {
+        Whitebox.invokeMethod(runnable, "handleRecord", record);
+    }
+
+    private static void waitForPendingRecords(JavaInstanceRunnable runnable) throws Exception {
+        Semaphore pendingRecords = Whitebox.getInternalState(runnable, "pendingRecords");
+        assertTrue(pendingRecords.tryAcquire(MAX_BUFFERED_TUPLES, 30, TimeUnit.SECONDS));
+        pendingRecords.release(MAX_BUFFERED_TUPLES);
+    }
+
+    @Test
+    public void testRecordsOfAPartitionProcessedInOrder() throws Exception {
+        final int numPartitions = 5;
+        final int numRecords = 100;
+        java.util.function.Function<String, String> function = input -> input;
+        JavaInstanceRunnable runnable = createRunnable(ProcessingGuarantees.EFFECTIVELY_ONCE, 3, function);
+
+        Map<String, List<Integer>> written = new ConcurrentHashMap<>();
+        doAnswer(invocation -> {
+            String[] output = ((String) invocation.getArguments()[1]).split(":");
+            written.computeIfAbsent(output[0], partition -> Collections.synchronizedList(new ArrayList<>()))
+                    .add(Integer.parseInt(output[1]));
+            return null;
+        }).when(sink).write(any(RecordContext.class), any());
+
+        List<Record> records = new ArrayList<>();
+        for (int i = 0; i < numRecords; i++) {
+            for (int partition = 0; partition < numPartitions; partition++) {
+                records.add(record("partition-" + partition, "partition-" + partition + ":" + i));
+            }
+        }
+        for (Record record : records) {
+            handleRecord(runnable, record);
+        }
+        waitForPendingRecords(runnable);
+
+        assertEquals(written.size(), numPartitions);
+        for (List<Integer> outputs : written.values()) {
+            assertEquals(outputs.size(), numRecords);
+            for (int i = 0; i < numRecords; i++) {
+                assertEquals(outputs.get(i).intValue(), i);
+            }
+        }
+        runnable.close();
+    }
+
+    @Test
+    public void testRecordsAckedOnce() throws Exception {
+        Function<String, String> function = (input, context) -> {
+            if (Integer.parseInt(input) % 2 == 1) {
+                throw new Exception("Failed to process " + input);
+            }
+            return null;
+        };
+        JavaInstanceRunnable runnable = createRunnable(ProcessingGuarantees.ATLEAST_ONCE, 4, function);
+
+        List<Record> records = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            records.add(record(null, Integer.toString(i)));
+        }
+        for (Record record : records) {
+            handleRecord(runnable, record);
+        }
+        waitForPendingRecords(runnable);
+
+        for (int i = 0; i < records.size(); i++) {
+            Record record = records.get(i);
+            if (i % 2 == 1) {
+                verify(record, never()).ack();
+                verify(record, times(1)).fail();
+            } else {
+                verify(record, times(1)).ack();
+                verify(record, never()).fail();
+            }
+        }
+        verify(sink, never()).write(any(RecordContext.class), any());
+        runnable.close();
+    }
+
+    @Test
+    public void testClose() throws Exception {
+        CountDownLatch started = new CountDownLatch(2);
+        CountDownLatch release = new CountDownLatch(1);
+        Function<String, String> function = (String input, Context context) -> {
+            started.countDown();
+            release.await();
+            return input;
+        };
+        JavaInstanceRunnable runnable = createRunnable(ProcessingGuarantees.ATLEAST_ONCE, 2, function);
+
+        Record record1 = record(null, "message-1");
+        Record record2 = record(null, "message-2");
+        handleRecord(runnable, record1);
+        handleRecord(runnable, record2);
+        assertTrue(started.await(30, TimeUnit.SECONDS));
+
+        // the records being processed are interrupted and failed, so that they are redelivered
+        runnable.close();
+        waitForPendingRecords(runnable);
+        verify(record1, times(1)).fail();
+        verify(record2, times(1)).fail();
+        verify(sink, never()).write(any(RecordContext.class), any());
+
+        // no more records are taken once closed
+        try {
+            handleRecord(runnable, record(null, "message-3"));
+            fail("Should not process records once closed");
+        } catch (RejectedExecutionException e) {
+            // expected
+        }
+        waitForPendingRecords(runnable);
+    }
+}
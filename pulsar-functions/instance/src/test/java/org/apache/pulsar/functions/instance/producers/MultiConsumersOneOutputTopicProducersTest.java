@@ -146,6 +146,16 @@ public class MultiConsumersOneOutputTopicProducersTest {
             return this;
         }
 
+        @Override
+        public ProducerBuilder<byte[]> enableAdaptiveBatching(boolean adaptiveBatchingEnabled) {
+            return this;
+        }
+
+        @Override
+        public ProducerBuilder<byte[]> enableKeyBasedBatching(boolean keyBasedBatchingEnabled) {
+            return this;
+        }
+
         @Override
         public ProducerBuilder<byte[]> cryptoKeyReader(CryptoKeyReader cryptoKeyReader) {
             return this;
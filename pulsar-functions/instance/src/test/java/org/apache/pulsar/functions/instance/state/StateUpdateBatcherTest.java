@@ -0,0 +1,161 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.functions.instance.state;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import java.util.concurrent.CompletableFuture;
+import org.apache.bookkeeper.api.kv.Table;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class StateUpdateBatcherTest {
+
+    private Table<ByteBuf, ByteBuf> table;
+
+    @SuppressWarnings("unchecked")
+    @BeforeMethod
+    public void setup() {
+        table = mock(Table.class);
+        when(table.increment(any(ByteBuf.class), anyLong())).thenReturn(CompletableFuture.completedFuture(null));
+    }
+
+    private static ByteBuf key(String key) {
+        return Unpooled.wrappedBuffer(key.getBytes(UTF_8));
+    }
+
+    @Test
+    public void testUpdatesCommittedPerWindow() throws Exception {
+        StateUpdateBatcher batcher = new StateUpdateBatcher(table, 3, 60000, 100);
+
+        CompletableFuture<Void> flushed1 = null;
+        CompletableFuture<Void> flushed2 = null;
+        for (int i = 0; i < 2; i++) {
+            StateContextImpl stateContext = new StateContextImpl(batcher);
+            stateContext.incr("key-a", 1);
+            stateContext.incr("key-b", 2);
+            if (i == 0) {
+                flushed1 = stateContext.flush();
+            } else {
+                flushed2 = stateContext.flush();
+            }
+        }
+        // the window is not full yet
+        verify(table, never()).increment(any(ByteBuf.class), anyLong());
+        assertFalse(flushed1.isDone());
+        assertFalse(flushed2.isDone());
+
+        // a message without updates completes the window
+        StateContextImpl stateContext = new StateContextImpl(batcher);
+        assertTrue(stateContext.flush().isDone());
+
+        verify(table, times(1)).increment(eq(key("key-a")), eq(2L));
+        verify(table, times(1)).increment(eq(key("key-b")), eq(4L));
+        flushed1.get();
+        flushed2.get();
+        batcher.close();
+    }
+
+    @Test
+    public void testUpdatesCommittedAfterMaxDelay() throws Exception {
+        StateUpdateBatcher batcher = new StateUpdateBatcher(table, 1000, 10, 100);
+
+        StateContextImpl stateContext = new StateContextImpl(batcher);
+        stateContext.incr("key-a", 5);
+        stateContext.flush().get();
+
+        verify(table, times(1)).increment(eq(key("key-a")), eq(5L));
+        batcher.close();
+    }
+
+    @Test
+    public void testCounterCache() throws Exception {
+        when(table.getNumber(any(ByteBuf.class))).thenReturn(CompletableFuture.completedFuture(10L));
+        StateUpdateBatcher batcher = new StateUpdateBatcher(table, 10, 60000, 100);
+
+        StateContextImpl stateContext = new StateContextImpl(batcher);
+        assertEquals(stateContext.getCounter("key-a").get().longValue(), 10L);
+        stateContext.incr("key-a", 3);
+        // read from the cache, with the pending increment
+        assertEquals(stateContext.getCounter("key-a").get().longValue(), 13L);
+        verify(table, times(1)).getNumber(any(ByteBuf.class));
+
+        // committing the increment drops the cached value
+        batcher.close();
+        stateContext.getCounter("key-a").get();
+        verify(table, times(2)).getNumber(any(ByteBuf.class));
+    }
+
+    @Test
+    public void testCounterWithIncrementsBeingCommitted() throws Exception {
+        CompletableFuture<Void> incremented = new CompletableFuture<>();
+        when(table.increment(any(ByteBuf.class), anyLong())).thenReturn(incremented);
+        when(table.getNumber(any(ByteBuf.class)))
+                .thenReturn(CompletableFuture.completedFuture(10L), CompletableFuture.completedFuture(13L));
+        StateUpdateBatcher batcher = new StateUpdateBatcher(table, 1, 60000, 100);
+
+        StateContextImpl stateContext = new StateContextImpl(batcher);
+        stateContext.incr("key-a", 3);
+        CompletableFuture<Void> flushed = stateContext.flush();
+        verify(table, times(1)).increment(eq(key("key-a")), eq(3L));
+        assertFalse(flushed.isDone());
+        // the increment being committed is counted
+        assertEquals(batcher.getCounter("key-a").get().longValue(), 13L);
+
+        incremented.complete(null);
+        flushed.get();
+        assertEquals(batcher.getCounter("key-a").get().longValue(), 13L);
+        verify(table, times(2)).getNumber(any(ByteBuf.class));
+        batcher.close();
+    }
+
+    @Test
+    public void testStaleReadNotCached() throws Exception {
+        CompletableFuture<Long> staleRead = new CompletableFuture<>();
+        when(table.getNumber(any(ByteBuf.class)))
+                .thenReturn(staleRead, CompletableFuture.completedFuture(13L));
+        StateUpdateBatcher batcher = new StateUpdateBatcher(table, 1, 60000, 100);
+
+        CompletableFuture<Long> counter = batcher.getCounter("key-a");
+        // an increment is committed while the counter is read
+        StateContextImpl stateContext = new StateContextImpl(batcher);
+        stateContext.incr("key-a", 3);
+        stateContext.flush().get();
+        staleRead.complete(10L);
+
+        // the counter is read again, and the new value is the one cached
+        assertEquals(counter.get().longValue(), 13L);
+        assertEquals(batcher.getCounter("key-a").get().longValue(), 13L);
+        verify(table, times(2)).getNumber(any(ByteBuf.class));
+        batcher.close();
+    }
+}
@@ -0,0 +1,117 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.functions.sink;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyList;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import org.apache.pulsar.io.core.BatchSink;
+import org.apache.pulsar.io.core.RecordContext;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Unit test {@link BatchingRuntimeSink}.
+ */
+public class BatchingRuntimeSinkTest {
+
+    private BatchSink<String> mockSink;
+    private RuntimeSink<String> runtimeSink;
+
+    @BeforeMethod
+    public void setup() throws Exception {
+        this.mockSink = mock(BatchSink.class);
+        when(mockSink.getMaxBatchSize()).thenReturn(3);
+        when(mockSink.getMaxBatchDelayMs()).thenReturn(60000L);
+        this.runtimeSink = BatchingRuntimeSink.of(mockSink);
+        this.runtimeSink.open(Collections.emptyMap());
+    }
+
+    @Test
+    public void testOpenAndClose() throws Exception {
+        verify(mockSink, times(1)).open(any(Map.class));
+
+        this.runtimeSink.close();
+        verify(mockSink, times(1)).close();
+    }
+
+    @Test
+    public void testWriteFullBatch() throws Exception {
+        CompletableFuture<Void> writeFuture = new CompletableFuture<>();
+        when(mockSink.writeBatch(anyList())).thenReturn(writeFuture);
+        RecordContext context1 = mock(RecordContext.class);
+        RecordContext context2 = mock(RecordContext.class);
+        RecordContext context3 = mock(RecordContext.class);
+
+        runtimeSink.write(context1, "record-1");
+        runtimeSink.write(context2, "record-2");
+        verify(mockSink, never()).writeBatch(anyList());
+
+        runtimeSink.write(context3, "record-3");
+        verify(mockSink, times(1)).writeBatch(eq(Arrays.asList("record-1", "record-2", "record-3")));
+        verify(context1, never()).ack();
+
+        writeFuture.complete(null);
+        verify(context1, times(1)).ack();
+        verify(context2, times(1)).ack();
+        verify(context3, times(1)).ack();
+    }
+
+    @Test
+    public void testWriteFail() throws Exception {
+        CompletableFuture<Void> writeFuture = new CompletableFuture<>();
+        writeFuture.completeExceptionally(new Exception("test-exception"));
+        when(mockSink.writeBatch(anyList())).thenReturn(writeFuture);
+        RecordContext context = mock(RecordContext.class);
+
+        runtimeSink.write(context, "record-1");
+        runtimeSink.close();
+
+        verify(mockSink, times(1)).writeBatch(eq(Collections.singletonList("record-1")));
+        verify(context, times(1)).fail();
+    }
+
+    @Test
+    public void testWriteAfterMaxDelay() throws Exception {
+        BatchSink<String> sink = mock(BatchSink.class);
+        when(sink.getMaxBatchSize()).thenReturn(100);
+        when(sink.getMaxBatchDelayMs()).thenReturn(10L);
+        when(sink.writeBatch(anyList())).thenReturn(CompletableFuture.completedFuture(null));
+        RuntimeSink<String> runtimeSink = BatchingRuntimeSink.of(sink);
+        runtimeSink.open(Collections.emptyMap());
+        RecordContext context = mock(RecordContext.class);
+
+        runtimeSink.write(context, "record-1");
+
+        verify(sink, timeout(5000).times(1)).writeBatch(eq(Collections.singletonList("record-1")));
+        verify(context, timeout(5000).times(1)).ack();
+        runtimeSink.close();
+    }
+}
@@ -33,8 +33,10 @@ import org.testng.annotations.Test;
 import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.anyList;
 import static org.mockito.Matchers.anyLong;
 import static org.mockito.Matchers.anyString;
@@ -42,6 +44,7 @@ import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
 import static org.testng.AssertJUnit.assertEquals;
 import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertNull;
 import static org.testng.AssertJUnit.assertTrue;
 import static org.testng.AssertJUnit.fail;
 
@@ -215,4 +218,17 @@ public class PulsarSourceTest {
             fail();
         }
     }
+
+    /**
+     * Verify that a timed read returns null when no message is received in time.
+     */
+    @Test
+    public void testTimedReadWithoutMessage() throws Exception {
+        PulsarSourceConfig pulsarConfig = getPulsarConfigs();
+        PulsarSource pulsarSource = new PulsarSource(getPulsarClient(), pulsarConfig);
+        pulsarSource.open(new HashMap<>());
+
+        doReturn(null).when(pulsarSource.getInputConsumer()).receive(anyInt(), any(TimeUnit.class));
+        assertNull(pulsarSource.read(0, TimeUnit.MILLISECONDS));
+    }
 }
@@ -93,6 +93,12 @@ public class JavaInstanceMain {
     @Parameter(names = "--auto_ack", description = "Enable Auto Acking?\n")
     protected String autoAck = "true";
 
+    @Parameter(names = "--processing_threads", description = "Number of threads processing messages\n")
+    protected int processingThreads = 1;
+
+    @Parameter(names = "--state_update_window", description = "Number of messages whose state updates are committed together\n")
+    protected int stateUpdateWindow = 1;
+
     @Parameter(names = "--source_classname", description = "The source classname", required = true)
     protected String sourceClassname;
 
@@ -149,6 +155,8 @@ public class JavaInstanceMain {
         } else {
             functionDetailsBuilder.setAutoAck(false);
         }
+        functionDetailsBuilder.setProcessingThreads(processingThreads);
+        functionDetailsBuilder.setStateUpdateWindow(stateUpdateWindow);
         if (userConfig != null && !userConfig.isEmpty()) {
             Type type = new TypeToken<Map<String, String>>(){}.getType();
             Map<String, String> userConfigMap = new Gson().fromJson(userConfig, type);
@@ -126,6 +126,16 @@ class ProcessRuntime implements Runtime {
         args.add(pulsarServiceUrl);
         args.add("--max_buffered_tuples");
         args.add(String.valueOf(instanceConfig.getMaxBufferedTuples()));
+        if (instanceConfig.getFunctionDetails().getRuntime() == Function.FunctionDetails.Runtime.JAVA
+                && instanceConfig.getFunctionDetails().getProcessingThreads() > 1) {
+            args.add("--processing_threads");
+            args.add(String.valueOf(instanceConfig.getFunctionDetails().getProcessingThreads()));
+        }
+        if (instanceConfig.getFunctionDetails().getRuntime() == Function.FunctionDetails.Runtime.JAVA
+                && instanceConfig.getFunctionDetails().getStateUpdateWindow() > 1) {
+            args.add("--state_update_window");
+            args.add(String.valueOf(instanceConfig.getFunctionDetails().getStateUpdateWindow()));
+        }
         Map<String, String> userConfig = instanceConfig.getFunctionDetails().getUserConfigMap();
         if (userConfig != null && !userConfig.isEmpty()) {
             args.add("--user_config");
@@ -0,0 +1,266 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.pulsar.functions.runtime;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.pulsar.client.api.PulsarClient;
+import org.apache.pulsar.functions.instance.InstanceConfig;
+import org.apache.pulsar.functions.instance.JavaInstanceRunnable;
+import org.apache.pulsar.functions.proto.Function;
+import org.apache.pulsar.functions.proto.InstanceCommunication;
+import org.apache.pulsar.functions.proto.InstanceCommunication.FunctionStatus;
+import org.apache.pulsar.functions.source.PulsarSource;
+import org.apache.pulsar.functions.utils.functioncache.FunctionCacheManager;
+
+/**
+ * A function container taking turns with the other containers of its factory on a shared pool of threads.
+ * <p>
+ * The instance processes the messages its consumer already received, then gives its thread back to the pool.
+ * When no message was received, or while the previous messages are still being persisted, it polls again after a
+ * delay growing up to {@link #MAX_POLL_DELAY_MS}.
+ * <p>
+ * Every start runs a new instance, so that a restarted function doesn't reuse the closed instance of the previous
+ * run. A pool thread is still held while the output producer waits for room in its queue.
+ */
+@Slf4j
+class ThreadPoolRuntime implements Runtime {
+
+    // Most messages processed in a turn, so that busy instances don't starve the other ones
+    static final int MAX_MESSAGES_PER_TURN = 100;
+    static final long MIN_POLL_DELAY_MS = 1;
+    static final long MAX_POLL_DELAY_MS = 100;
+    // How long stop waits for the current turn of the instance to end
+    static final long STOP_TIMEOUT_MS = 10000;
+
+    @Getter
+    private InstanceConfig instanceConfig;
+    private final Supplier<JavaInstanceRunnable> instanceSupplier;
+    private final ScheduledExecutorService executor;
+    private final long stopTimeoutMs;
+
+    // The last run of the instance, null until started
+    private volatile InstanceRun currentRun;
+
+    ThreadPoolRuntime(InstanceConfig instanceConfig,
+                      FunctionCacheManager fnCache,
+                      ScheduledExecutorService executor,
+                      String jarFile,
+                      PulsarClient pulsarClient,
+                      String stateStorageServiceUrl) {
+        this(instanceConfig, executor, () -> new JavaInstanceRunnable(
+            instanceConfig,
+            fnCache,
+            jarFile,
+            pulsarClient,
+            stateStorageServiceUrl), STOP_TIMEOUT_MS);
+    }
+
+    ThreadPoolRuntime(InstanceConfig instanceConfig,
+                      ScheduledExecutorService executor,
+                      Supplier<JavaInstanceRunnable> instanceSupplier,
+                      long stopTimeoutMs) {
+        this.instanceConfig = instanceConfig;
+        if (instanceConfig.getFunctionDetails().getRuntime() != Function.FunctionDetails.Runtime.JAVA) {
+            throw new RuntimeException("Thread Pool Container only supports Java Runtime");
+        }
+        if (!PulsarSource.class.getName().equals(instanceConfig.getFunctionDetails().getSource().getClassName())) {
+            throw new RuntimeException("Thread Pool Container only supports functions reading from Pulsar topics");
+        }
+        if (instanceConfig.getFunctionDetails().getProcessingGuarantees()
+                == Function.ProcessingGuarantees.EFFECTIVELY_ONCE) {
+            // the sink waits for every result to be published
+            throw new RuntimeException("Thread Pool Container doesn't support effectively once processing");
+        }
+        this.instanceSupplier = instanceSupplier;
+        this.executor = executor;
+        this.stopTimeoutMs = stopTimeoutMs;
+    }
+
+    @Override
+    public void start() {
+        log.info("ThreadPoolContainer starting function with instance config {}", instanceConfig);
+        InstanceRun previousRun = currentRun;
+        if (null != previousRun) {
+            previousRun.running = false;
+        }
+        InstanceRun run = new InstanceRun(instanceSupplier.get());
+        currentRun = run;
+        run.submit(run::setup, 0);
+    }
+
+    @Override
+    public void join() throws Exception {
+        InstanceRun run = currentRun;
+        if (null != run) {
+            run.terminated.get();
+        }
+    }
+
+    @Override
+    public void stop() {
+        InstanceRun run = currentRun;
+        if (null == run) {
+            return;
+        }
+        // the instance stops at its next turn
+        run.running = false;
+        try {
+            if (!executor.isTerminated()) {
+                run.terminated.get(stopTimeoutMs, TimeUnit.MILLISECONDS);
+            }
+        } catch (TimeoutException e) {
+            log.warn("Function instance {} didn't stop within {} ms", instanceConfig, stopTimeoutMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            // never completed exceptionally
+        }
+        // the turns of the instance may not run anymore, once the factory is closed
+        run.terminate(null);
+    }
+
+    @Override
+    public CompletableFuture<FunctionStatus> getFunctionStatus() {
+        InstanceRun run = currentRun;
+        if (null == run || run.terminated.isDone()) {
+            FunctionStatus.Builder functionStatusBuilder = FunctionStatus.newBuilder();
+            functionStatusBuilder.setRunning(false);
+            if (null != run && null != run.deathException) {
+                functionStatusBuilder.setFailureException(run.deathException.getMessage());
+            }
+            return CompletableFuture.completedFuture(functionStatusBuilder.build());
+        }
+        FunctionStatus.Builder functionStatusBuilder = run.javaInstanceRunnable.getFunctionStatus();
+        functionStatusBuilder.setRunning(true);
+        return CompletableFuture.completedFuture(functionStatusBuilder.build());
+    }
+
+    @Override
+    public CompletableFuture<InstanceCommunication.MetricsData> getAndResetMetrics() {
+        InstanceRun run = currentRun;
+        if (null == run) {
+            return CompletableFuture.completedFuture(InstanceCommunication.MetricsData.getDefaultInstance());
+        }
+        return CompletableFuture.completedFuture(run.javaInstanceRunnable.getAndResetMetrics());
+    }
+
+    @Override
+    public boolean isAlive() {
+        InstanceRun run = currentRun;
+        return null != run && !run.terminated.isDone();
+    }
+
+    @Override
+    public Exception getDeathException() {
+        InstanceRun run = currentRun;
+        if (null == run || !run.terminated.isDone()) {
+            return null;
+        } else {
+            return run.deathException;
+        }
+    }
+
+    /**
+     * A run of the instance, from its start until it fails or is stopped.
+     */
+    private class InstanceRun {
+        private final JavaInstanceRunnable javaInstanceRunnable;
+        private final CompletableFuture<Void> terminated = new CompletableFuture<>();
+        private volatile boolean running = true;
+        private volatile Exception deathException;
+        // Only updated by the turns of the run, which don't overlap
+        private long pollDelayMs = MIN_POLL_DELAY_MS;
+
+        InstanceRun(JavaInstanceRunnable javaInstanceRunnable) {
+            this.javaInstanceRunnable = javaInstanceRunnable;
+        }
+
+        private void setup() {
+            try {
+                javaInstanceRunnable.setup();
+            } catch (Throwable t) {
+                log.error("Failed to start Java Instance", t);
+                terminate(t);
+                return;
+            }
+            submit(this::takeTurn, 0);
+        }
+
+        private void takeTurn() {
+            if (!running) {
+                terminate(null);
+                return;
+            }
+            int processed;
+            try {
+                processed = javaInstanceRunnable.processAvailable(MAX_MESSAGES_PER_TURN);
+            } catch (Throwable t) {
+                log.error("Uncaught exception in Java Instance", t);
+                terminate(t);
+                return;
+            }
+            if (processed > 0) {
+                pollDelayMs = MIN_POLL_DELAY_MS;
+                submit(this::takeTurn, 0);
+            } else {
+                submit(this::takeTurn, pollDelayMs);
+                pollDelayMs = Math.min(2 * pollDelayMs, MAX_POLL_DELAY_MS);
+            }
+        }
+
+        private void submit(Runnable task, long delayMs) {
+            try {
+                if (delayMs > 0) {
+                    executor.schedule(task, delayMs, TimeUnit.MILLISECONDS);
+                } else {
+                    executor.execute(task);
+                }
+            } catch (RejectedExecutionException e) {
+                // the factory is closed
+                terminate(e);
+            }
+        }
+
+        private synchronized void terminate(Throwable cause) {
+            running = false;
+            if (terminated.isDone()) {
+                return;
+            }
+            if (null != cause) {
+                deathException = cause instanceof Exception ? (Exception) cause : new Exception(cause);
+            }
+            try {
+                javaInstanceRunnable.close();
+            } catch (Throwable t) {
+                log.warn("Failed to close Java Instance {}", instanceConfig, t);
+            }
+            terminated.complete(null);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.pulsar.functions.runtime;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.apache.pulsar.client.api.PulsarClient;
+import org.apache.pulsar.client.api.PulsarClientException;
+import org.apache.pulsar.functions.instance.InstanceConfig;
+import org.apache.pulsar.functions.utils.functioncache.FunctionCacheManager;
+import org.apache.pulsar.functions.utils.functioncache.FunctionCacheManagerImpl;
+
+/**
+ * Function container factory running all its instances on a fixed pool of threads.
+ */
+@Slf4j
+public class ThreadPoolRuntimeFactory implements RuntimeFactory {
+
+    private final ScheduledExecutorService executor;
+    private final FunctionCacheManager fnCache;
+    private final PulsarClient pulsarClient;
+    private final String storageServiceUrl;
+    private volatile boolean closed;
+
+    public ThreadPoolRuntimeFactory(int numThreads,
+                                    String pulsarServiceUrl,
+                                    String storageServiceUrl)
+            throws Exception {
+        this(
+            numThreads,
+            pulsarServiceUrl != null ? PulsarClient.builder().serviceUrl(pulsarServiceUrl).build() : null,
+            storageServiceUrl);
+    }
+
+    @VisibleForTesting
+    ThreadPoolRuntimeFactory(int numThreads,
+                             PulsarClient pulsarClient,
+                             String storageServiceUrl) {
+        if (numThreads <= 0) {
+            numThreads = java.lang.Runtime.getRuntime().availableProcessors();
+        }
+        log.info("Running function instances on {} threads", numThreads);
+        this.executor = Executors.newScheduledThreadPool(numThreads,
+                new ThreadFactoryBuilder().setNameFormat("function-instance-pool-%d").build());
+        this.fnCache = new FunctionCacheManagerImpl();
+        this.pulsarClient = pulsarClient;
+        this.storageServiceUrl = storageServiceUrl;
+    }
+
+    @Override
+    public ThreadPoolRuntime createContainer(InstanceConfig instanceConfig, String jarFile) {
+        return new ThreadPoolRuntime(
+            instanceConfig,
+            fnCache,
+            executor,
+            jarFile,
+            pulsarClient,
+            storageServiceUrl);
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+
+        executor.shutdownNow();
+        fnCache.close();
+        try {
+            pulsarClient.close();
+        } catch (PulsarClientException e) {
+            log.warn("Failed to close pulsar client when closing function container factory", e);
+        }
+    }
+}
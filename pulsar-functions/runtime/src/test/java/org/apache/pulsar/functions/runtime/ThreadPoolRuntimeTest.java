@@ -0,0 +1,130 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.pulsar.functions.runtime;
+
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import org.apache.pulsar.functions.instance.InstanceConfig;
+import org.apache.pulsar.functions.instance.JavaInstanceRunnable;
+import org.apache.pulsar.functions.proto.Function;
+import org.apache.pulsar.functions.proto.Function.FunctionDetails;
+import org.apache.pulsar.functions.source.PulsarSource;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Unit test of {@link ThreadPoolRuntime}.
+ */
+public class ThreadPoolRuntimeTest {
+
+    private ScheduledExecutorService executor;
+
+    @BeforeMethod
+    public void setup() {
+        executor = Executors.newScheduledThreadPool(2);
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private static InstanceConfig createInstanceConfig() {
+        InstanceConfig config = new InstanceConfig();
+        config.setFunctionDetails(FunctionDetails.newBuilder()
+                .setRuntime(FunctionDetails.Runtime.JAVA)
+                .setTenant("test-tenant")
+                .setNamespace("test-namespace")
+                .setName("test-function")
+                .setSource(Function.SourceSpec.newBuilder().setClassName(PulsarSource.class.getName()))
+                .build());
+        config.setFunctionId(java.util.UUID.randomUUID().toString());
+        config.setInstanceId("0");
+        config.setMaxBufferedTuples(1024);
+        return config;
+    }
+
+    private ThreadPoolRuntime createRuntime(JavaInstanceRunnable... instances) {
+        Iterator<JavaInstanceRunnable> runs = Arrays.asList(instances).iterator();
+        return new ThreadPoolRuntime(createInstanceConfig(), executor, runs::next, 1000);
+    }
+
+    @Test(timeOut = 10000)
+    public void testRestartAfterFailure() throws Exception {
+        JavaInstanceRunnable failing = mock(JavaInstanceRunnable.class);
+        when(failing.processAvailable(anyInt())).thenThrow(new RuntimeException("test failure"));
+        JavaInstanceRunnable restarted = mock(JavaInstanceRunnable.class);
+        when(restarted.processAvailable(anyInt())).thenReturn(0);
+
+        ThreadPoolRuntime runtime = createRuntime(failing, restarted);
+        runtime.start();
+        runtime.join();
+        assertFalse(runtime.isAlive());
+        assertEquals(runtime.getDeathException().getMessage(), "test failure");
+        verify(failing, times(1)).close();
+
+        // as done by the runtime spawner
+        runtime.stop();
+        runtime.start();
+        assertTrue(runtime.isAlive());
+        assertNull(runtime.getDeathException());
+        verify(restarted, timeout(5000).atLeast(2)).processAvailable(anyInt());
+        // the failed instance is neither set up again nor polled anymore
+        verify(failing, times(1)).setup();
+        verify(failing, times(1)).processAvailable(anyInt());
+
+        runtime.stop();
+        assertFalse(runtime.isAlive());
+        assertNull(runtime.getDeathException());
+        verify(restarted, times(1)).setup();
+        verify(restarted, times(1)).close();
+    }
+
+    @Test(timeOut = 10000)
+    public void testStopAfterShutdown() throws Exception {
+        JavaInstanceRunnable instance = mock(JavaInstanceRunnable.class);
+        when(instance.processAvailable(anyInt())).thenReturn(0);
+
+        ThreadPoolRuntime runtime = createRuntime(instance);
+        runtime.start();
+        verify(instance, timeout(5000)).processAvailable(anyInt());
+
+        // the pending turn of the instance never runs
+        executor.shutdownNow();
+        runtime.stop();
+        assertFalse(runtime.isAlive());
+        verify(instance, times(1)).close();
+    }
+}
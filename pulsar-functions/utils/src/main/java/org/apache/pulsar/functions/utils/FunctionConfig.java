@@ -79,5 +79,7 @@ public class FunctionConfig {
     private Runtime runtime;
     private boolean autoAck;
     private int parallelism;
+    private int processingThreads;
+    private int stateUpdateWindow;
     private String fqfn;
 }
@@ -18,7 +18,9 @@
  */
 package org.apache.pulsar.functions.worker;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
@@ -26,10 +28,12 @@ import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
 
 import lombok.Setter;
@@ -43,6 +47,7 @@ import org.apache.pulsar.client.api.PulsarClientException;
 import org.apache.pulsar.functions.proto.Function;
 import org.apache.pulsar.functions.proto.Function.Assignment;
 import org.apache.pulsar.functions.proto.Function.FunctionMetaData;
+import org.apache.pulsar.functions.proto.InstanceCommunication.FunctionStatus;
 import org.apache.pulsar.functions.proto.Request;
 import org.apache.pulsar.functions.utils.Reflections;
 import org.apache.pulsar.functions.worker.scheduler.IScheduler;
@@ -67,10 +72,29 @@ public class SchedulerManager implements AutoCloseable {
 
     private final ExecutorService executorService;
 
+    // Queries the status of the instances in parallel, for a load aware scheduler
+    private static final int INSTANCE_STATUS_THREADS = 8;
+    private final ExecutorService instanceStatusExecutor;
+
+    // Last processed count of each instance and last measured load, for a load aware scheduler
+    private final Map<String, ProcessedSample> processedSamples = new HashMap<>();
+    private final Map<String, Double> instanceLoads = new HashMap<>();
+
+    private static class ProcessedSample {
+        final long numProcessed;
+        final long timestamp;
+
+        ProcessedSample(long numProcessed, long timestamp) {
+            this.numProcessed = numProcessed;
+            this.timestamp = timestamp;
+        }
+    }
+
     public SchedulerManager(WorkerConfig workerConfig, PulsarClient pulsarClient) {
         this.workerConfig = workerConfig;
         this.scheduler = Reflections.createInstance(workerConfig.getSchedulerClassName(), IScheduler.class,
                 Thread.currentThread().getContextClassLoader());
+        this.scheduler.initialize(workerConfig);
 
         try {
             this.producer = pulsarClient.newProducer().topic(this.workerConfig.getFunctionAssignmentTopic())
@@ -85,20 +109,96 @@ public class SchedulerManager implements AutoCloseable {
         this.executorService =
                 new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
                         new LinkedBlockingQueue<>());
+        this.instanceStatusExecutor = this.scheduler.isLoadAware()
+                ? Executors.newFixedThreadPool(INSTANCE_STATUS_THREADS,
+                        new ThreadFactoryBuilder().setNameFormat("function-instance-status-%d").setDaemon(true).build())
+                : null;
     }
 
     public Future<?> schedule() {
         return executorService.submit(() -> {
+            if (!membershipManager.isLeader()) {
+                return;
+            }
+            // Query the statuses before taking the lock, some of them might involve other workers
+            Map<String, FunctionStatus> instanceStatuses = getInstanceStatuses();
             synchronized (SchedulerManager.this) {
                 boolean isLeader = membershipManager.isLeader();
                 if (isLeader) {
-                    invokeScheduler();
+                    invokeScheduler(false, instanceStatuses);
                 }
             }
         });
     }
 
-    private void invokeScheduler() {
+    /**
+     * Schedule again to move instances between the workers, the assignments are only published if they change.
+     */
+    public Future<?> rebalance() {
+        return executorService.submit(() -> {
+            if (!membershipManager.isLeader()) {
+                return;
+            }
+            Map<String, FunctionStatus> instanceStatuses = getInstanceStatuses();
+            synchronized (SchedulerManager.this) {
+                boolean isLeader = membershipManager.isLeader();
+                if (isLeader) {
+                    invokeScheduler(true, instanceStatuses);
+                }
+            }
+        });
+    }
+
+    /**
+     * Get the status of the currently assigned instances, for a load aware scheduler. The statuses are queried in
+     * parallel, and the ones that are not received within instanceStatusTimeoutMs are left out: the instance keeps its
+     * previously measured load.
+     */
+    private Map<String, FunctionStatus> getInstanceStatuses() {
+        Map<String, FunctionStatus> instanceStatuses = new HashMap<>();
+        if (!this.scheduler.isLoadAware()) {
+            return instanceStatuses;
+        }
+
+        Map<String, CompletableFuture<FunctionStatus>> statusFutures = new HashMap<>();
+        for (Map<String, Assignment> assignments : this.functionRuntimeManager.getCurrentAssignments().values()) {
+            for (Assignment assignment : assignments.values()) {
+                Function.Instance instance = assignment.getInstance();
+                Function.FunctionDetails functionDetails = instance.getFunctionMetaData().getFunctionDetails();
+                statusFutures.put(Utils.getFullyQualifiedInstanceId(instance), CompletableFuture.supplyAsync(
+                        () -> this.functionRuntimeManager.getFunctionInstanceStatus(functionDetails.getTenant(),
+                                functionDetails.getNamespace(), functionDetails.getName(), instance.getInstanceId()),
+                        instanceStatusExecutor));
+            }
+        }
+
+        try {
+            CompletableFuture.allOf(statusFutures.values().toArray(new CompletableFuture[0]))
+                    .get(this.workerConfig.getInstanceStatusTimeoutMs(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            log.warn("Timed out getting the status of function instances, scheduling with the statuses received");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            // handled per instance below
+        }
+
+        statusFutures.forEach((fullyQualifiedInstanceId, statusFuture) -> {
+            if (!statusFuture.isDone()) {
+                statusFuture.cancel(false);
+                return;
+            }
+            try {
+                instanceStatuses.put(fullyQualifiedInstanceId, statusFuture.join());
+            } catch (Exception e) {
+                log.warn("Failed to get the status of function instance {}", fullyQualifiedInstanceId, e);
+            }
+        });
+        return instanceStatuses;
+    }
+
+    private void invokeScheduler(boolean onlyIfChanged, Map<String, FunctionStatus> instanceStatuses) {
         List<String> currentMembership = this.membershipManager.getCurrentMembership()
                 .stream().map(workerInfo -> workerInfo.getWorkerId()).collect(Collectors.toList());
 
@@ -140,11 +240,23 @@ public class SchedulerManager implements AutoCloseable {
         List<Function.Instance> needsAssignment = this.getUnassignedFunctionInstances(workerIdToAssignments,
                 allInstances);
 
-        List<Assignment> assignments = this.scheduler.schedule(
-                needsAssignment, currentAssignments, currentMembership);
+        List<Assignment> assignments;
+        if (this.scheduler.isLoadAware()) {
+            updateInstanceLoads(instanceStatuses, allInstances);
+            assignments = this.scheduler.schedule(
+                    needsAssignment, currentAssignments, currentMembership, new HashMap<>(instanceLoads));
+        } else {
+            assignments = this.scheduler.schedule(
+                    needsAssignment, currentAssignments, currentMembership);
+        }
 
         log.debug("New assignments computed: {}", assignments);
 
+        if (onlyIfChanged && needsAssignment.isEmpty()
+                && new HashSet<>(assignments).equals(new HashSet<>(currentAssignments))) {
+            return;
+        }
+
         long assignmentVersion = this.functionRuntimeManager.getCurrentAssignmentVersion() + 1;
         Request.AssignmentsUpdate assignmentsUpdate = Request.AssignmentsUpdate.newBuilder()
                 .setVersion(assignmentVersion)
@@ -176,6 +288,35 @@ public class SchedulerManager implements AutoCloseable {
         }
     }
 
+    /**
+     * Measure the load of the assigned instances, as the number of threads they keep busy, from the messages they
+     * processed since the previous measure and their average processing latency.
+     */
+    private void updateInstanceLoads(Map<String, FunctionStatus> instanceStatuses,
+                                     Map<String, Function.Instance> allInstances) {
+        for (Map.Entry<String, FunctionStatus> entry : instanceStatuses.entrySet()) {
+            String fullyQualifiedInstanceId = entry.getKey();
+            FunctionStatus functionStatus = entry.getValue();
+            if (!functionStatus.getRunning()) {
+                continue;
+            }
+
+            long now = System.currentTimeMillis();
+            ProcessedSample previous = processedSamples.put(fullyQualifiedInstanceId,
+                    new ProcessedSample(functionStatus.getNumProcessed(), now));
+            // the count starts over when the instance restarts
+            if (previous != null && now > previous.timestamp
+                    && functionStatus.getNumProcessed() >= previous.numProcessed) {
+                double processedPerMs = (double) (functionStatus.getNumProcessed() - previous.numProcessed)
+                        / (now - previous.timestamp);
+                instanceLoads.put(fullyQualifiedInstanceId, processedPerMs * functionStatus.getAverageLatency());
+            }
+        }
+        // forget the instances that don't exist anymore
+        processedSamples.keySet().retainAll(allInstances.keySet());
+        instanceLoads.keySet().retainAll(allInstances.keySet());
+    }
+
     public static Map<String, Function.Instance> computeAllInstances(List<FunctionMetaData> allFunctions) {
         Map<String, Function.Instance> functionInstances = new HashMap<>();
         for (FunctionMetaData functionMetaData : allFunctions) {
@@ -225,5 +366,8 @@ public class SchedulerManager implements AutoCloseable {
             log.warn("Failed to shutdown scheduler manager assignment producer", e);
         }
         this.executorService.shutdown();
+        if (this.instanceStatusExecutor != null) {
+            this.instanceStatusExecutor.shutdownNow();
+        }
     }
 }
@@ -63,6 +63,12 @@ public class WorkerConfig implements Serializable {
     private int initialBrokerReconnectMaxRetries;
     private int assignmentWriteMaxRetries;
     private long instanceLivenessCheckFreqMs;
+    // Frequency of the rebalancing of the instances between the workers, 0 disables it
+    private long rebalanceCheckFreqMs = 0;
+    // Maximum number of instances moved by a load aware scheduler each time it schedules
+    private int rebalanceMaxInstanceMoves = 2;
+    // Time the leader waits for the status of the instances when measuring their load, for a load aware scheduler
+    private long instanceStatusTimeoutMs = 10000;
 
     @Data
     @Setter
@@ -74,6 +80,17 @@ public class WorkerConfig implements Serializable {
     }
     private ThreadContainerFactory threadContainerFactory;
 
+    @Data
+    @Setter
+    @Getter
+    @EqualsAndHashCode
+    @ToString
+    static class ThreadPoolContainerFactory {
+        // number of threads shared by all the function instances, the number of cpus if not positive
+        private int numThreads;
+    }
+    private ThreadPoolContainerFactory threadPoolContainerFactory;
+
     @Data
     @Setter
     @Getter
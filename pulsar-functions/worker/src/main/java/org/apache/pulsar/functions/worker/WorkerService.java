@@ -113,6 +113,12 @@ public class WorkerService {
                     () -> membershipManager.checkFailures(
                             functionMetaDataManager, functionRuntimeManager, schedulerManager));
 
+            if (this.workerConfig.getRebalanceCheckFreqMs() > 0) {
+                this.clusterServiceCoordinator.addTask("rebalance",
+                        this.workerConfig.getRebalanceCheckFreqMs(),
+                        () -> schedulerManager.rebalance());
+            }
+
             this.clusterServiceCoordinator.start();
 
             // Start function runtime manager
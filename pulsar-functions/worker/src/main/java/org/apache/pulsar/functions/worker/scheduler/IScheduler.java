@@ -20,11 +20,44 @@ package org.apache.pulsar.functions.worker.scheduler;
 
 import org.apache.pulsar.functions.proto.Function.Assignment;
 import org.apache.pulsar.functions.proto.Function.Instance;
+import org.apache.pulsar.functions.worker.WorkerConfig;
 
 import java.util.List;
+import java.util.Map;
 
 public interface IScheduler {
 
     List<Assignment> schedule(List<Instance> unassignedFunctionInstances,
                               List<Assignment> currentAssignments, List<String> workers);
+
+    /**
+     * Initialize the scheduler with the worker config, before any scheduling
+     * @param workerConfig the worker config
+     */
+    default void initialize(WorkerConfig workerConfig) {
+    }
+
+    /**
+     * Whether the scheduler uses the load of the instances. Estimating the loads requires
+     * querying the status of every instance, so it is only done for such a scheduler
+     * @return true if the scheduler uses the load of the instances
+     */
+    default boolean isLoadAware() {
+        return false;
+    }
+
+    /**
+     * Compute the assignments using the load of the instances
+     * @param unassignedFunctionInstances the instances to assign
+     * @param currentAssignments the current assignments
+     * @param workers the workers
+     * @param instanceLoads the last known load of the instances, by fully qualified instance id,
+     *                      as the number of threads kept busy processing messages
+     * @return the new assignments
+     */
+    default List<Assignment> schedule(List<Instance> unassignedFunctionInstances,
+                                      List<Assignment> currentAssignments, List<String> workers,
+                                      Map<String, Double> instanceLoads) {
+        return schedule(unassignedFunctionInstances, currentAssignments, workers);
+    }
 }
@@ -0,0 +1,229 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.functions.worker.scheduler;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.pulsar.functions.proto.Function.Assignment;
+import org.apache.pulsar.functions.proto.Function.Instance;
+import org.apache.pulsar.functions.utils.FunctionDetailsUtils;
+import org.apache.pulsar.functions.worker.Utils;
+import org.apache.pulsar.functions.worker.WorkerConfig;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Scheduler balancing the load of the instances, rather than their number, between the workers.
+ *
+ * <p>The load of an instance is the number of threads it keeps busy processing messages, as last measured by the
+ * leader. The load of an instance not measured yet is estimated from the other instances of its function, or from
+ * all the measured instances. The unassigned instances are assigned from the heaviest to the lightest, each one to
+ * the least loaded worker. Then at most rebalanceMaxInstanceMoves measured instances are moved from the most loaded
+ * worker to the least loaded one, as long as this reduces the gap between them by more than
+ * {@link #REBALANCE_THRESHOLD} of the average worker load.
+ */
+@Slf4j
+public class LoadAwareScheduler implements IScheduler {
+
+    // Load counted for an idle instance, so that idle instances are still spread by count
+    static final double MIN_INSTANCE_LOAD = 0.01;
+    // Load assumed for an instance when no instance was measured
+    static final double DEFAULT_INSTANCE_LOAD = 1.0;
+    // Smallest gap between two workers, relative to the average worker load, worth moving an instance for
+    static final double REBALANCE_THRESHOLD = 0.1;
+
+    private int maxInstanceMoves = 2;
+
+    private static class WorkerLoad {
+        final String workerId;
+        final List<Assignment> assignments = new ArrayList<>();
+        double load = 0;
+
+        WorkerLoad(String workerId) {
+            this.workerId = workerId;
+        }
+    }
+
+    @Override
+    public void initialize(WorkerConfig workerConfig) {
+        this.maxInstanceMoves = Math.max(0, workerConfig.getRebalanceMaxInstanceMoves());
+    }
+
+    void setMaxInstanceMoves(int maxInstanceMoves) {
+        this.maxInstanceMoves = maxInstanceMoves;
+    }
+
+    @Override
+    public boolean isLoadAware() {
+        return true;
+    }
+
+    @Override
+    public List<Assignment> schedule(List<Instance> unassignedFunctionInstances,
+                                     List<Assignment> currentAssignments, List<String> workers) {
+        return schedule(unassignedFunctionInstances, currentAssignments, workers, Collections.emptyMap());
+    }
+
+    @Override
+    public List<Assignment> schedule(List<Instance> unassignedFunctionInstances,
+                                     List<Assignment> currentAssignments, List<String> workers,
+                                     Map<String, Double> instanceLoads) {
+        LoadEstimator estimator = new LoadEstimator(instanceLoads);
+
+        Map<String, WorkerLoad> workerLoads = new LinkedHashMap<>();
+        for (String workerId : workers) {
+            workerLoads.put(workerId, new WorkerLoad(workerId));
+        }
+
+        List<Instance> toAssign = new ArrayList<>(unassignedFunctionInstances);
+        for (Assignment existingAssignment : currentAssignments) {
+            WorkerLoad workerLoad = workerLoads.get(existingAssignment.getWorkerId());
+            if (workerLoad == null) {
+                // the worker is gone
+                toAssign.add(existingAssignment.getInstance());
+            } else {
+                workerLoad.assignments.add(existingAssignment);
+                workerLoad.load += estimator.getLoad(existingAssignment.getInstance());
+            }
+        }
+        if (workerLoads.isEmpty()) {
+            return currentAssignments;
+        }
+
+        // heaviest first, so that the lighter ones fill the gaps
+        toAssign.sort(Comparator.comparingDouble(estimator::getLoad).reversed());
+        for (Instance instance : toAssign) {
+            WorkerLoad target = findLeastLoaded(workerLoads);
+            target.assignments.add(Assignment.newBuilder().setInstance(instance).setWorkerId(target.workerId).build());
+            target.load += estimator.getLoad(instance);
+        }
+
+        rebalance(workerLoads, estimator);
+
+        return workerLoads.values().stream()
+                .flatMap(workerLoad -> workerLoad.assignments.stream()).collect(Collectors.toList());
+    }
+
+    private void rebalance(Map<String, WorkerLoad> workerLoads, LoadEstimator estimator) {
+        double averageLoad = workerLoads.values().stream().mapToDouble(workerLoad -> workerLoad.load).sum()
+                / workerLoads.size();
+        for (int moves = 0; moves < maxInstanceMoves; moves++) {
+            WorkerLoad source = findMostLoaded(workerLoads);
+            WorkerLoad target = findLeastLoaded(workerLoads);
+            double gap = source.load - target.load;
+            if (gap <= REBALANCE_THRESHOLD * averageLoad) {
+                return;
+            }
+
+            // the instance leaving the smallest gap between the two workers once moved
+            Assignment toMove = null;
+            double toMoveLoad = 0;
+            double smallestGap = gap - REBALANCE_THRESHOLD * averageLoad;
+            for (Assignment assignment : source.assignments) {
+                if (!estimator.isMeasured(assignment.getInstance())) {
+                    // don't move instances around on guesses
+                    continue;
+                }
+                double load = estimator.getLoad(assignment.getInstance());
+                double newGap = Math.abs(gap - 2 * load);
+                if (newGap < smallestGap) {
+                    toMove = assignment;
+                    toMoveLoad = load;
+                    smallestGap = newGap;
+                }
+            }
+            if (toMove == null) {
+                return;
+            }
+
+            log.info("Moving instance {} with load {} from worker {} to worker {}",
+                    Utils.getFullyQualifiedInstanceId(toMove.getInstance()), toMoveLoad, source.workerId,
+                    target.workerId);
+            source.assignments.remove(toMove);
+            source.load -= toMoveLoad;
+            target.assignments.add(toMove.toBuilder().setWorkerId(target.workerId).build());
+            target.load += toMoveLoad;
+        }
+    }
+
+    private static WorkerLoad findLeastLoaded(Map<String, WorkerLoad> workerLoads) {
+        WorkerLoad least = null;
+        for (WorkerLoad workerLoad : workerLoads.values()) {
+            if (least == null || workerLoad.load < least.load
+                    || (workerLoad.load == least.load && workerLoad.assignments.size() < least.assignments.size())) {
+                least = workerLoad;
+            }
+        }
+        return least;
+    }
+
+    private static WorkerLoad findMostLoaded(Map<String, WorkerLoad> workerLoads) {
+        WorkerLoad most = null;
+        for (WorkerLoad workerLoad : workerLoads.values()) {
+            if (most == null || workerLoad.load > most.load) {
+                most = workerLoad;
+            }
+        }
+        return most;
+    }
+
+    private static class LoadEstimator {
+        private final Map<String, Double> instanceLoads;
+        private final Map<String, Double> functionLoads = new HashMap<>();
+        private final double defaultLoad;
+
+        LoadEstimator(Map<String, Double> instanceLoads) {
+            this.instanceLoads = instanceLoads;
+            Map<String, double[]> functionTotals = new HashMap<>();
+            double total = 0;
+            for (Map.Entry<String, Double> entry : instanceLoads.entrySet()) {
+                // fully qualified instance ids are <function>:<instance id>
+                String function = entry.getKey().substring(0, entry.getKey().lastIndexOf(':'));
+                double[] totals = functionTotals.computeIfAbsent(function, key -> new double[2]);
+                totals[0] += entry.getValue();
+                totals[1]++;
+                total += entry.getValue();
+            }
+            functionTotals.forEach((function, totals) -> functionLoads.put(function, totals[0] / totals[1]));
+            this.defaultLoad = instanceLoads.isEmpty() ? DEFAULT_INSTANCE_LOAD : total / instanceLoads.size();
+        }
+
+        boolean isMeasured(Instance instance) {
+            return instanceLoads.containsKey(Utils.getFullyQualifiedInstanceId(instance));
+        }
+
+        double getLoad(Instance instance) {
+            Double load = instanceLoads.get(Utils.getFullyQualifiedInstanceId(instance));
+            if (load == null) {
+                load = functionLoads.get(FunctionDetailsUtils.getFullyQualifiedName(
+                        instance.getFunctionMetaData().getFunctionDetails()));
+            }
+            if (load == null) {
+                load = defaultLoad;
+            }
+            return Math.max(MIN_INSTANCE_LOAD, load);
+        }
+    }
+}
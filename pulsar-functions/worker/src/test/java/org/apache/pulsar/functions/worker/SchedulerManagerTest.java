@@ -26,7 +26,9 @@ import org.apache.pulsar.client.api.ProducerBuilder;
 import org.apache.pulsar.client.api.PulsarClient;
 import org.apache.pulsar.client.api.PulsarClientException;
 import org.apache.pulsar.functions.proto.Function;
+import org.apache.pulsar.functions.proto.InstanceCommunication.FunctionStatus;
 import org.apache.pulsar.functions.proto.Request;
+import org.apache.pulsar.functions.worker.scheduler.LoadAwareScheduler;
 import org.apache.pulsar.functions.worker.scheduler.RoundRobinScheduler;
 import org.mockito.Mockito;
 import org.mockito.invocation.Invocation;
@@ -40,6 +42,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
@@ -49,6 +52,7 @@ import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyBoolean;
 import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
@@ -59,6 +63,8 @@ import static org.mockito.Mockito.when;
 @Slf4j
 public class SchedulerManagerTest {
 
+    private WorkerConfig workerConfig;
+    private PulsarClient pulsarClient;
     private SchedulerManager schedulerManager;
     private FunctionMetaDataManager functionMetaDataManager;
     private FunctionRuntimeManager functionRuntimeManager;
@@ -80,7 +86,7 @@ public class SchedulerManagerTest {
 
     @BeforeMethod
     public void setup() throws PulsarClientException {
-        WorkerConfig workerConfig = new WorkerConfig();
+        workerConfig = new WorkerConfig();
         workerConfig.setWorkerId("worker-1");
         workerConfig.setThreadContainerFactory(new WorkerConfig.ThreadContainerFactory().setThreadGroupName("test"));
         workerConfig.setPulsarServiceUrl("pulsar://localhost:6650");
@@ -104,7 +110,7 @@ public class SchedulerManagerTest {
 
         when(builder.create()).thenReturn(producer);
 
-        PulsarClient pulsarClient = mock(PulsarClient.class);
+        pulsarClient = mock(PulsarClient.class);
         when(pulsarClient.newProducer()).thenReturn(builder);
 
         schedulerManager = spy(new SchedulerManager(workerConfig, pulsarClient));
@@ -160,6 +166,67 @@ public class SchedulerManagerTest {
         verify(producer, times(1)).sendAsync(any(byte[].class));
     }
 
+    @Test
+    public void testScheduleWithSlowInstanceStatus() throws Exception {
+        workerConfig.setSchedulerClassName(LoadAwareScheduler.class.getName());
+        workerConfig.setInstanceStatusTimeoutMs(100);
+        schedulerManager = spy(new SchedulerManager(workerConfig, pulsarClient));
+        schedulerManager.setFunctionMetaDataManager(functionMetaDataManager);
+        schedulerManager.setFunctionRuntimeManager(functionRuntimeManager);
+        schedulerManager.setMembershipManager(membershipManager);
+
+        List<Function.FunctionMetaData> functionMetaDataList = new LinkedList<>();
+        long version = 5;
+        Function.FunctionMetaData function1 = Function.FunctionMetaData.newBuilder()
+                .setFunctionDetails(Function.FunctionDetails.newBuilder().setName("func-1")
+                        .setNamespace("namespace-1").setTenant("tenant-1").setParallelism(2)).setVersion(version)
+                .build();
+        functionMetaDataList.add(function1);
+        doReturn(functionMetaDataList).when(functionMetaDataManager).getAllFunctionMetaData();
+
+        Function.Assignment assignment1 = Function.Assignment.newBuilder()
+                .setWorkerId("worker-1")
+                .setInstance(Function.Instance.newBuilder()
+                        .setFunctionMetaData(function1).setInstanceId(0).build())
+                .build();
+        Function.Assignment assignment2 = Function.Assignment.newBuilder()
+                .setWorkerId("worker-1")
+                .setInstance(Function.Instance.newBuilder()
+                        .setFunctionMetaData(function1).setInstanceId(1).build())
+                .build();
+
+        Map<String, Map<String, Function.Assignment>> currentAssignments = new HashMap<>();
+        Map<String, Function.Assignment> assignmentEntry1 = new HashMap<>();
+        assignmentEntry1.put(Utils.getFullyQualifiedInstanceId(assignment1.getInstance()), assignment1);
+        assignmentEntry1.put(Utils.getFullyQualifiedInstanceId(assignment2.getInstance()), assignment2);
+        currentAssignments.put("worker-1", assignmentEntry1);
+        doReturn(currentAssignments).when(functionRuntimeManager).getCurrentAssignments();
+        doReturn(version).when(functionRuntimeManager).getCurrentAssignmentVersion();
+
+        // the status of the first instance never comes back while scheduling
+        CountDownLatch statusLatch = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            statusLatch.await();
+            return FunctionStatus.newBuilder().setRunning(true).build();
+        }).when(functionRuntimeManager).getFunctionInstanceStatus("tenant-1", "namespace-1", "func-1", 0);
+        doReturn(FunctionStatus.newBuilder().setRunning(true).setNumProcessed(10).setAverageLatency(1.0).build())
+                .when(functionRuntimeManager).getFunctionInstanceStatus("tenant-1", "namespace-1", "func-1", 1);
+
+        List<MembershipManager.WorkerInfo> workerInfoList = new LinkedList<>();
+        workerInfoList.add(MembershipManager.WorkerInfo.of("worker-1", "workerHostname-1", 5000));
+        doReturn(workerInfoList).when(membershipManager).getCurrentMembership();
+        doReturn(true).when(membershipManager).isLeader();
+
+        try {
+            callSchedule();
+            // scheduled with the statuses that came back in time
+            verify(producer, times(1)).sendAsync(any(byte[].class));
+        } finally {
+            statusLatch.countDown();
+            schedulerManager.close();
+        }
+    }
+
     @Test
     public void testNothingNewToSchedule() throws Exception {
 
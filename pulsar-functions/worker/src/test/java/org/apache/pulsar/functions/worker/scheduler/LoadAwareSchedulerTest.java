@@ -0,0 +1,211 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.functions.worker.scheduler;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.pulsar.functions.proto.Function;
+import org.apache.pulsar.functions.proto.Function.Assignment;
+import org.apache.pulsar.functions.proto.Function.Instance;
+import org.apache.pulsar.functions.worker.SchedulerManager;
+import org.apache.pulsar.functions.worker.Utils;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Simulation of the scheduling of function instances with skewed loads.
+ */
+@Slf4j
+public class LoadAwareSchedulerTest {
+
+    private static final int NUM_WORKERS = 10;
+    private static final int NUM_FUNCTIONS = 40;
+
+    private static List<String> workers(int numWorkers) {
+        List<String> workers = new LinkedList<>();
+        for (int i = 0; i < numWorkers; i++) {
+            workers.add("worker-" + i);
+        }
+        return workers;
+    }
+
+    /**
+     * Functions with 1 to 5 instances, a few of them much heavier than the others.
+     */
+    private static List<Instance> instances(Random random, Map<String, Double> instanceLoads) {
+        List<Instance> instances = new LinkedList<>();
+        for (int i = 0; i < NUM_FUNCTIONS; i++) {
+            Function.FunctionMetaData functionMetaData = Function.FunctionMetaData.newBuilder()
+                    .setFunctionDetails(Function.FunctionDetails.newBuilder().setTenant("tenant")
+                            .setNamespace("namespace").setName("func-" + i).setParallelism(1 + random.nextInt(5)))
+                    .build();
+            double functionLoad = random.nextInt(10) == 0 ? 2 + random.nextDouble() * 4 : random.nextDouble() * 0.5;
+            for (Instance instance : SchedulerManager.computeInstances(functionMetaData)) {
+                instances.add(instance);
+                instanceLoads.put(Utils.getFullyQualifiedInstanceId(instance), functionLoad);
+            }
+        }
+        return instances;
+    }
+
+    private static Map<String, Double> workerLoads(List<Assignment> assignments, Map<String, Double> instanceLoads) {
+        Map<String, Double> workerLoads = new HashMap<>();
+        for (Assignment assignment : assignments) {
+            workerLoads.merge(assignment.getWorkerId(),
+                    instanceLoads.get(Utils.getFullyQualifiedInstanceId(assignment.getInstance())), Double::sum);
+        }
+        return workerLoads;
+    }
+
+    // Ratio of the load of the most loaded worker to the average worker load
+    private static double imbalance(List<Assignment> assignments, Map<String, Double> instanceLoads, int numWorkers) {
+        Map<String, Double> workerLoads = workerLoads(assignments, instanceLoads);
+        double max = workerLoads.values().stream().mapToDouble(Double::doubleValue).max().orElse(0);
+        double total = workerLoads.values().stream().mapToDouble(Double::doubleValue).sum();
+        return max / (total / numWorkers);
+    }
+
+    private static int countMoves(List<Assignment> before, List<Assignment> after) {
+        Map<String, String> previousWorkers = new HashMap<>();
+        for (Assignment assignment : before) {
+            previousWorkers.put(Utils.getFullyQualifiedInstanceId(assignment.getInstance()), assignment.getWorkerId());
+        }
+        int moves = 0;
+        for (Assignment assignment : after) {
+            String previousWorker = previousWorkers.get(Utils.getFullyQualifiedInstanceId(assignment.getInstance()));
+            if (previousWorker != null && !previousWorker.equals(assignment.getWorkerId())) {
+                moves++;
+            }
+        }
+        return moves;
+    }
+
+    @Test
+    public void testInitialPlacement() {
+        Random random = new Random(1);
+        Map<String, Double> instanceLoads = new HashMap<>();
+        List<Instance> instances = instances(random, instanceLoads);
+        List<String> workers = workers(NUM_WORKERS);
+
+        List<Assignment> roundRobin = new RoundRobinScheduler().schedule(instances, new LinkedList<>(), workers);
+        List<Assignment> loadAware = new LoadAwareScheduler().schedule(instances, new LinkedList<>(), workers,
+                instanceLoads);
+
+        Assert.assertEquals(loadAware.size(), instances.size());
+        double roundRobinImbalance = imbalance(roundRobin, instanceLoads, NUM_WORKERS);
+        double loadAwareImbalance = imbalance(loadAware, instanceLoads, NUM_WORKERS);
+        log.info("Initial placement imbalance: round robin {}, load aware {}", roundRobinImbalance,
+                loadAwareImbalance);
+        Assert.assertTrue(loadAwareImbalance < roundRobinImbalance);
+        Assert.assertTrue(loadAwareImbalance < 1.1);
+    }
+
+    @Test
+    public void testWithoutLoads() {
+        Random random = new Random(2);
+        List<Instance> instances = instances(random, new HashMap<>());
+        List<String> workers = workers(NUM_WORKERS);
+
+        // spread by count, as the round robin scheduler
+        List<Assignment> assignments = new LoadAwareScheduler().schedule(instances, new LinkedList<>(), workers);
+        Map<String, Integer> counts = new HashMap<>();
+        assignments.forEach(assignment -> counts.merge(assignment.getWorkerId(), 1, Integer::sum));
+        int min = counts.values().stream().mapToInt(Integer::intValue).min().getAsInt();
+        int max = counts.values().stream().mapToInt(Integer::intValue).max().getAsInt();
+        Assert.assertEquals(counts.size(), NUM_WORKERS);
+        Assert.assertTrue(max - min <= 1);
+    }
+
+    @Test
+    public void testIncrementalRebalance() {
+        Random random = new Random(3);
+        Map<String, Double> instanceLoads = new HashMap<>();
+        List<Instance> instances = instances(random, instanceLoads);
+        List<String> workers = workers(NUM_WORKERS);
+
+        // instances placed by count, then measured
+        List<Assignment> assignments = new RoundRobinScheduler().schedule(instances, new LinkedList<>(), workers);
+        double imbalance = imbalance(assignments, instanceLoads, NUM_WORKERS);
+
+        LoadAwareScheduler scheduler = new LoadAwareScheduler();
+        scheduler.setMaxInstanceMoves(2);
+        for (int run = 0; run < 50; run++) {
+            List<Assignment> newAssignments = scheduler.schedule(new LinkedList<>(), assignments, workers,
+                    instanceLoads);
+            Assert.assertEquals(newAssignments.size(), instances.size());
+            Assert.assertTrue(countMoves(assignments, newAssignments) <= 2);
+            double newImbalance = imbalance(newAssignments, instanceLoads, NUM_WORKERS);
+            Assert.assertTrue(newImbalance <= imbalance + 1e-9);
+            assignments = newAssignments;
+            imbalance = newImbalance;
+        }
+        log.info("Imbalance after rebalancing: {}", imbalance);
+        Assert.assertTrue(imbalance < 1.2);
+
+        // once balanced, nothing moves anymore
+        List<Assignment> newAssignments = scheduler.schedule(new LinkedList<>(), assignments, workers, instanceLoads);
+        Assert.assertEquals(new HashSet<>(newAssignments), new HashSet<>(assignments));
+    }
+
+    @Test
+    public void testWorkerLoss() {
+        Random random = new Random(4);
+        Map<String, Double> instanceLoads = new HashMap<>();
+        List<Instance> instances = instances(random, instanceLoads);
+        List<String> workers = workers(NUM_WORKERS);
+
+        LoadAwareScheduler scheduler = new LoadAwareScheduler();
+        scheduler.setMaxInstanceMoves(0);
+        List<Assignment> assignments = scheduler.schedule(instances, new LinkedList<>(), workers, instanceLoads);
+
+        // the instances of the lost worker are reassigned, the other ones stay in place
+        List<String> remainingWorkers = new ArrayList<>(workers);
+        String lostWorker = remainingWorkers.remove(0);
+        List<Assignment> remainingAssignments = new LinkedList<>();
+        List<Instance> orphans = new LinkedList<>();
+        for (Assignment assignment : assignments) {
+            if (assignment.getWorkerId().equals(lostWorker)) {
+                orphans.add(assignment.getInstance());
+            } else {
+                remainingAssignments.add(assignment);
+            }
+        }
+        List<Assignment> newAssignments = scheduler.schedule(orphans, remainingAssignments, remainingWorkers,
+                instanceLoads);
+
+        Assert.assertEquals(newAssignments.size(), instances.size());
+        Assert.assertEquals(countMoves(remainingAssignments, newAssignments), 0);
+        Set<String> usedWorkers = new HashSet<>();
+        newAssignments.forEach(assignment -> usedWorkers.add(assignment.getWorkerId()));
+        Assert.assertFalse(usedWorkers.contains(lostWorker));
+        // without moving instances, the orphans can only be spread within the size of the heaviest one
+        double totalLoad = instanceLoads.values().stream().mapToDouble(Double::doubleValue).sum();
+        double maxInstanceLoad = instanceLoads.values().stream().mapToDouble(Double::doubleValue).max().getAsDouble();
+        Assert.assertTrue(imbalance(newAssignments, instanceLoads, NUM_WORKERS - 1)
+                <= 1 + maxInstanceLoad / (totalLoad / (NUM_WORKERS - 1)));
+    }
+}
@@ -32,10 +32,12 @@ import com.aerospike.client.listener.WriteListener;
 import com.aerospike.client.policy.ClientPolicy;
 import com.aerospike.client.policy.WritePolicy;
 import org.apache.pulsar.common.util.KeyValue;
-import org.apache.pulsar.io.core.Sink;
+import org.apache.pulsar.io.core.BatchSink;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CompletableFuture;
@@ -43,14 +45,16 @@ import java.util.concurrent.LinkedBlockingDeque;
 
 /**
  * Simple AeroSpike sink
+ * The KeyValues of a batch are written with pipelined asynchronous puts, at most maxConcurrentRequests
+ * at a time, the batch completes once all of them are written.
  */
-public class AerospikeSink<K, V> implements Sink<KeyValue<K, V>> {
+public class AerospikeSink<K, V> implements BatchSink<KeyValue<K, V>> {
 
     private static final Logger LOG = LoggerFactory.getLogger(AerospikeSink.class);
 
     // ----- Runtime fields
     private AerospikeSinkConfig aerospikeSinkConfig;
-    private AerospikeClient client;
+    AerospikeClient client;
     private WritePolicy writePolicy;
     private BlockingQueue<AWriteListener> queue;
     private EventLoop eventLoop;
@@ -72,7 +76,6 @@ public class AerospikeSink<K, V> implements Sink<KeyValue<K, V>> {
         for (int i = 0; i < aerospikeSinkConfig.getMaxConcurrentRequests(); ++i) {
             queue.put(new AWriteListener(queue));
         }
-        eventLoop = new NioEventLoops(new EventPolicy(), 1).next();
     }
 
     @Override
@@ -98,7 +101,33 @@ public class AerospikeSink<K, V> implements Sink<KeyValue<K, V>> {
         return future;
     }
 
-    private void createClient() {
+    @Override
+    public CompletableFuture<Void> writeBatch(List<KeyValue<K, V>> records) {
+        // The puts of a key could be applied out of order, only its last value is written
+        Map<K, V> values = new LinkedHashMap<>();
+        for (KeyValue<K, V> record : records) {
+            values.put(record.getKey(), record.getValue());
+        }
+        // Each put waits for a free listener, so that no more than maxConcurrentRequests puts are in flight
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[values.size()];
+        int i = 0;
+        for (Map.Entry<K, V> entry : values.entrySet()) {
+            futures[i++] = write(new KeyValue<>(entry.getKey(), entry.getValue()));
+        }
+        return CompletableFuture.allOf(futures);
+    }
+
+    @Override
+    public int getMaxBatchSize() {
+        return aerospikeSinkConfig.getBatchSize();
+    }
+
+    @Override
+    public long getMaxBatchDelayMs() {
+        return aerospikeSinkConfig.getBatchTimeMs();
+    }
+
+    void createClient() {
         String[] hosts = aerospikeSinkConfig.getSeedHosts().split(",");
         if (hosts.length <= 0) {
             throw new RuntimeException("Invalid Seed Hosts");
@@ -115,6 +144,7 @@ public class AerospikeSink<K, V> implements Sink<KeyValue<K, V>> {
             policy.password = aerospikeSinkConfig.getPassword();
         }
         client = new AerospikeClient(policy, aeroSpikeHosts);
+        eventLoop = new NioEventLoops(new EventPolicy(), 1).next();
     }
 
     private class AWriteListener implements WriteListener {
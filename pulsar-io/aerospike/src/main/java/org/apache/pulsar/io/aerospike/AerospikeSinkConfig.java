@@ -50,6 +50,8 @@ public class AerospikeSinkConfig implements Serializable {
     private int maxConcurrentRequests = 100;
     private int timeoutMs = 100;
     private int retries = 1;
+    private int batchSize = 100;
+    private long batchTimeMs = 10;
 
 
     public static AerospikeSinkConfig load(String yamlFile) throws IOException {
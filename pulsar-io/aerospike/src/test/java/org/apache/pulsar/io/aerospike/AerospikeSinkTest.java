@@ -0,0 +1,148 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.io.aerospike;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import com.aerospike.client.AerospikeClient;
+import com.aerospike.client.AerospikeException;
+import com.aerospike.client.Bin;
+import com.aerospike.client.Key;
+import com.aerospike.client.async.EventLoop;
+import com.aerospike.client.listener.WriteListener;
+import com.aerospike.client.policy.WritePolicy;
+import com.google.common.collect.ImmutableMap;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.apache.pulsar.common.util.KeyValue;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Unit test {@link AerospikeSink}.
+ */
+public class AerospikeSinkTest {
+
+    private AerospikeClient client;
+    // The listeners, keys and values of the puts, in the order they were issued
+    private List<WriteListener> listeners;
+    private List<String> keys;
+    private List<Object> values;
+
+    @BeforeMethod
+    public void setup() {
+        listeners = new CopyOnWriteArrayList<>();
+        keys = new CopyOnWriteArrayList<>();
+        values = new CopyOnWriteArrayList<>();
+        client = mock(AerospikeClient.class);
+        doAnswer(invocation -> {
+            Object[] args = invocation.getArguments();
+            keys.add(((Key) args[3]).userKey.toString());
+            values.add(((Bin) args[4]).value.getObject());
+            listeners.add((WriteListener) args[1]);
+            return null;
+        }).when(client).put(any(EventLoop.class), any(WriteListener.class), any(WritePolicy.class), any(Key.class),
+                any(Bin.class));
+    }
+
+    @Test
+    public void testWriteBatchKeepsLastValueOfKeys() throws Exception {
+        AerospikeSink<String, String> sink = newSink(100);
+        CompletableFuture<Void> future = sink.writeBatch(
+                Arrays.asList(new KeyValue<>("a", "1"), new KeyValue<>("b", "2"), new KeyValue<>("a", "3")));
+
+        // The puts of the batch are all issued at once
+        assertEquals(keys, Arrays.asList("a", "b"));
+        assertEquals(values, Arrays.asList("3", "2"));
+
+        succeed(0);
+        assertFalse(future.isDone());
+        succeed(1);
+        future.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test(timeOut = 30000)
+    public void testWriteBatchBoundedByMaxConcurrentRequests() throws Exception {
+        AerospikeSink<String, String> sink = newSink(2);
+        CompletableFuture<CompletableFuture<Void>> batch = CompletableFuture.supplyAsync(() -> sink.writeBatch(
+                Arrays.asList(new KeyValue<>("a", "1"), new KeyValue<>("b", "2"), new KeyValue<>("c", "3"))));
+
+        // The third put waits for one of the first two to complete
+        verify(client, timeout(5000).times(2)).put(any(EventLoop.class), any(WriteListener.class),
+                any(WritePolicy.class), any(Key.class), any(Bin.class));
+        Thread.sleep(100);
+        assertEquals(keys, Arrays.asList("a", "b"));
+        assertFalse(batch.isDone());
+
+        succeed(0);
+        CompletableFuture<Void> future = batch.get(5, TimeUnit.SECONDS);
+        assertEquals(keys, Arrays.asList("a", "b", "c"));
+        succeed(1);
+        succeed(2);
+        future.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testWriteBatchFailure() throws Exception {
+        AerospikeSink<String, String> sink = newSink(100);
+        CompletableFuture<Void> future = sink.writeBatch(
+                Arrays.asList(new KeyValue<>("a", "1"), new KeyValue<>("b", "2")));
+
+        succeed(0);
+        listeners.get(1).onFailure(new AerospikeException("put failed"));
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            fail("The batch should fail when one of its puts fails");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof AerospikeException);
+        }
+    }
+
+    private void succeed(int put) {
+        listeners.get(put).onSuccess(null);
+    }
+
+    private AerospikeSink<String, String> newSink(int maxConcurrentRequests) throws Exception {
+        AerospikeSink<String, String> sink = new AerospikeSink<String, String>() {
+            @Override
+            void createClient() {
+                this.client = AerospikeSinkTest.this.client;
+            }
+        };
+        sink.open(ImmutableMap.<String, Object> builder()
+                .put("seedHosts", "localhost:3000")
+                .put("keyspace", "keyspace")
+                .put("columnName", "value")
+                .put("maxConcurrentRequests", maxConcurrentRequests)
+                .build());
+        return sink;
+    }
+}
@@ -19,33 +19,47 @@
 
 package org.apache.pulsar.io.cassandra;
 
+import com.datastax.driver.core.BatchStatement;
 import com.datastax.driver.core.BoundStatement;
 import com.datastax.driver.core.Cluster;
+import com.datastax.driver.core.CodecRegistry;
+import com.datastax.driver.core.Host;
 import com.datastax.driver.core.PreparedStatement;
+import com.datastax.driver.core.ProtocolVersion;
 import com.datastax.driver.core.ResultSet;
 import com.datastax.driver.core.ResultSetFuture;
 import com.datastax.driver.core.Session;
+import com.datastax.driver.core.Statement;
 import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
 import org.apache.pulsar.common.util.KeyValue;
-import org.apache.pulsar.io.core.Sink;
+import org.apache.pulsar.io.core.BatchSink;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 
 /**
  * Simple Cassandra sink
  * Takes in a KeyValue and writes it to a predefined keyspace/columnfamily/columnname.
+ * The KeyValues of a batch are grouped by the replicas owning their key, each group is written with
+ * a single unlogged batch statement.
  */
-public class CassandraSink<K, V> implements Sink<KeyValue<K, V>> {
+public class CassandraSink<K, V> implements BatchSink<KeyValue<K, V>> {
 
     private static final Logger LOG = LoggerFactory.getLogger(CassandraSink.class);
 
     // ----- Runtime fields
-    private Cluster cluster;
-    private Session session;
+    Cluster cluster;
+    Session session;
     CassandraSinkConfig cassandraSinkConfig;
     private PreparedStatement statement;
 
@@ -73,7 +87,68 @@ public class CassandraSink<K, V> implements Sink<KeyValue<K, V>> {
     @Override
     public CompletableFuture<Void> write(KeyValue<K, V> record) {
         BoundStatement bound = statement.bind(record.getKey(), record.getValue());
-        ResultSetFuture future = session.executeAsync(bound);
+        return execute(session.executeAsync(bound));
+    }
+
+    @Override
+    public CompletableFuture<Void> writeBatch(List<KeyValue<K, V>> records) {
+        if (records.size() == 1) {
+            return write(records.get(0));
+        }
+        // The inserts of a key would get the same timestamp in a batch, only its last value is written
+        Map<K, V> values = new LinkedHashMap<>();
+        for (KeyValue<K, V> record : records) {
+            values.put(record.getKey(), record.getValue());
+        }
+
+        // A batch statement spanning partitions owned by different nodes makes the coordinator forward the rows
+        // itself. The rows are grouped by the replicas of their key instead, the token aware routing of the driver
+        // sends each group to one of these replicas, which writes all of its rows in a single round trip.
+        ProtocolVersion protocolVersion = cluster.getConfiguration().getProtocolOptions().getProtocolVersion();
+        CodecRegistry codecRegistry = cluster.getConfiguration().getCodecRegistry();
+        Map<Set<Host>, List<Statement>> statementsByReplicas = new HashMap<>();
+        List<Statement> unroutedStatements = new ArrayList<>();
+        for (Map.Entry<K, V> entry : values.entrySet()) {
+            BoundStatement bound = statement.bind(entry.getKey(), entry.getValue());
+            ByteBuffer routingKey = bound.getRoutingKey(protocolVersion, codecRegistry);
+            Set<Host> replicas = routingKey != null
+                    ? cluster.getMetadata().getReplicas(cassandraSinkConfig.getKeyspace(), routingKey)
+                    : Collections.emptySet();
+            if (replicas.isEmpty()) {
+                unroutedStatements.add(bound);
+            } else {
+                statementsByReplicas.computeIfAbsent(replicas, r -> new ArrayList<>()).add(bound);
+            }
+        }
+
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (List<Statement> statements : statementsByReplicas.values()) {
+            if (statements.size() == 1) {
+                futures.add(execute(session.executeAsync(statements.get(0))));
+            } else {
+                BatchStatement batch = new BatchStatement(BatchStatement.Type.UNLOGGED);
+                batch.addAll(statements);
+                futures.add(execute(session.executeAsync(batch)));
+            }
+        }
+        // Without the replicas of a key, its row is written on its own
+        for (Statement unrouted : unroutedStatements) {
+            futures.add(execute(session.executeAsync(unrouted)));
+        }
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[futures.size()]));
+    }
+
+    @Override
+    public int getMaxBatchSize() {
+        return cassandraSinkConfig.getBatchSize();
+    }
+
+    @Override
+    public long getMaxBatchDelayMs() {
+        return cassandraSinkConfig.getBatchTimeMs();
+    }
+
+    private static CompletableFuture<Void> execute(ResultSetFuture future) {
         CompletableFuture<Void> completable = new CompletableFuture<Void>();
         Futures.addCallback(future,
                 new FutureCallback<ResultSet>() {
@@ -90,7 +165,7 @@ public class CassandraSink<K, V> implements Sink<KeyValue<K, V>> {
         return completable;
     }
 
-    private void createClient(String roots) {
+    void createClient(String roots) {
         String[] hosts = roots.split(",");
         if (hosts.length <= 0) {
             throw new RuntimeException("Invalid cassandra roots");
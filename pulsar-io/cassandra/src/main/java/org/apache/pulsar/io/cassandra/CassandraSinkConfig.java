@@ -45,6 +45,10 @@ public class CassandraSinkConfig implements Serializable {
     private String columnFamily;
     private String columnName;
 
+    // Optional
+    private int batchSize = 100;
+    private long batchTimeMs = 10;
+
     public static CassandraSinkConfig load(String yamlFile) throws IOException {
         ObjectMapper mapper = new ObjectMapper(new YAMLFactory());
         return mapper.readValue(new File(yamlFile), CassandraSinkConfig.class);
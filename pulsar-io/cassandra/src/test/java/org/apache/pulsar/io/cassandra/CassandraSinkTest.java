@@ -0,0 +1,242 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.io.cassandra;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import com.datastax.driver.core.BatchStatement;
+import com.datastax.driver.core.BoundStatement;
+import com.datastax.driver.core.Cluster;
+import com.datastax.driver.core.CodecRegistry;
+import com.datastax.driver.core.Configuration;
+import com.datastax.driver.core.Host;
+import com.datastax.driver.core.Metadata;
+import com.datastax.driver.core.PreparedStatement;
+import com.datastax.driver.core.ProtocolOptions;
+import com.datastax.driver.core.ProtocolVersion;
+import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.ResultSetFuture;
+import com.datastax.driver.core.Session;
+import com.datastax.driver.core.Statement;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.AbstractFuture;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.apache.pulsar.common.util.KeyValue;
+import org.mockito.ArgumentCaptor;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Unit test {@link CassandraSink}.
+ */
+public class CassandraSinkTest {
+
+    private static final String KEYSPACE = "keyspace";
+
+    private Cluster cluster;
+    private Session session;
+    private PreparedStatement prepared;
+    private Metadata metadata;
+    // The key and value each bound statement was bound to
+    private Map<Statement, String> boundValues;
+    // The replicas of each key, the keys without replicas have no routing key
+    private Map<String, Set<Host>> replicas;
+    // The keys whose write fails
+    private Set<String> failedKeys;
+
+    @BeforeMethod
+    public void setup() {
+        boundValues = new HashMap<>();
+        replicas = new HashMap<>();
+        failedKeys = new HashSet<>();
+
+        ProtocolOptions protocolOptions = mock(ProtocolOptions.class);
+        when(protocolOptions.getProtocolVersion()).thenReturn(ProtocolVersion.V4);
+        Configuration configuration = mock(Configuration.class);
+        when(configuration.getProtocolOptions()).thenReturn(protocolOptions);
+        when(configuration.getCodecRegistry()).thenReturn(CodecRegistry.DEFAULT_INSTANCE);
+        metadata = mock(Metadata.class);
+        when(metadata.getReplicas(anyString(), any(ByteBuffer.class))).thenAnswer(invocation -> {
+            String key = StandardCharsets.UTF_8.decode((ByteBuffer) invocation.getArguments()[1]).toString();
+            return replicas.get(key);
+        });
+        cluster = mock(Cluster.class);
+        when(cluster.getConfiguration()).thenReturn(configuration);
+        when(cluster.getMetadata()).thenReturn(metadata);
+
+        prepared = mock(PreparedStatement.class);
+        when(prepared.bind(any(), any())).thenAnswer(invocation -> {
+            String key = (String) invocation.getArguments()[0];
+            String value = (String) invocation.getArguments()[1];
+            BoundStatement bound = mock(BoundStatement.class);
+            if (replicas.containsKey(key)) {
+                when(bound.getRoutingKey(ProtocolVersion.V4, CodecRegistry.DEFAULT_INSTANCE))
+                        .thenReturn(ByteBuffer.wrap(key.getBytes(StandardCharsets.UTF_8)));
+            }
+            boundValues.put(bound, key + "=" + value);
+            return bound;
+        });
+
+        session = mock(Session.class);
+        when(session.prepare(anyString())).thenReturn(prepared);
+        when(session.executeAsync(any(Statement.class))).thenAnswer(invocation -> {
+            Statement statement = (Statement) invocation.getArguments()[0];
+            boolean failed = values(statement).stream()
+                    .anyMatch(value -> failedKeys.contains(value.substring(0, value.indexOf('='))));
+            return new CompletedResultSetFuture(failed ? new Exception("write failed") : null);
+        });
+    }
+
+    @Test
+    public void testWriteBatchGroupsKeysByReplicas() throws Exception {
+        Host host1 = mock(Host.class);
+        Host host2 = mock(Host.class);
+        replicas.put("a", Collections.singleton(host1));
+        replicas.put("b", Collections.singleton(host2));
+        replicas.put("c", Collections.singleton(host1));
+
+        CassandraSink<String, String> sink = newSink();
+        sink.writeBatch(Arrays.asList(new KeyValue<>("a", "1"), new KeyValue<>("b", "2"), new KeyValue<>("c", "3"),
+                new KeyValue<>("a", "4"))).get();
+
+        // The keys of the same replicas are written with one batch statement, and only the last value of a key
+        List<Statement> executed = executedStatements(2);
+        assertEquals(values(executed), Sets.newHashSet(Arrays.asList("a=4", "c=3"), Arrays.asList("b=2")));
+        assertTrue(executed.stream()
+                .anyMatch(statement -> statement instanceof BatchStatement && values(statement).size() == 2));
+        verify(prepared, never()).bind("a", "1");
+    }
+
+    @Test
+    public void testWriteBatchWithoutReplicas() throws Exception {
+        CassandraSink<String, String> sink = newSink();
+        sink.writeBatch(Arrays.asList(new KeyValue<>("a", "1"), new KeyValue<>("b", "2"))).get();
+
+        // Without the replicas of the keys, each one is written on its own
+        List<Statement> executed = executedStatements(2);
+        assertEquals(values(executed), Sets.newHashSet(Arrays.asList("a=1"), Arrays.asList("b=2")));
+        assertTrue(executed.stream().noneMatch(statement -> statement instanceof BatchStatement));
+    }
+
+    @Test
+    public void testWriteBatchFailure() throws Exception {
+        Host host1 = mock(Host.class);
+        Host host2 = mock(Host.class);
+        replicas.put("a", Collections.singleton(host1));
+        replicas.put("b", Collections.singleton(host2));
+        failedKeys.add("b");
+
+        CassandraSink<String, String> sink = newSink();
+        CompletableFuture<Void> future = sink.writeBatch(
+                Arrays.asList(new KeyValue<>("a", "1"), new KeyValue<>("b", "2")));
+        try {
+            future.get();
+            fail("The batch should fail when one of its writes fails");
+        } catch (ExecutionException e) {
+            assertEquals(e.getCause().getMessage(), "write failed");
+        }
+    }
+
+    private CassandraSink<String, String> newSink() throws Exception {
+        CassandraSink<String, String> sink = new CassandraSink<String, String>() {
+            @Override
+            void createClient(String roots) {
+                this.cluster = CassandraSinkTest.this.cluster;
+                this.session = CassandraSinkTest.this.session;
+            }
+        };
+        sink.open(ImmutableMap.<String, Object> builder()
+                .put("roots", "localhost")
+                .put("keyspace", KEYSPACE)
+                .put("keyname", "key")
+                .put("columnFamily", "cf")
+                .put("columnName", "value")
+                .build());
+        return sink;
+    }
+
+    private List<Statement> executedStatements(int count) {
+        ArgumentCaptor<Statement> captor = ArgumentCaptor.forClass(Statement.class);
+        verify(session, times(count)).executeAsync(captor.capture());
+        return captor.getAllValues();
+    }
+
+    private Set<List<String>> values(List<Statement> statements) {
+        Set<List<String>> values = new HashSet<>();
+        for (Statement statement : statements) {
+            values.add(values(statement));
+        }
+        return values;
+    }
+
+    private List<String> values(Statement statement) {
+        List<String> values = new ArrayList<>();
+        if (statement instanceof BatchStatement) {
+            for (Statement inner : ((BatchStatement) statement).getStatements()) {
+                values.add(boundValues.get(inner));
+            }
+        } else {
+            values.add(boundValues.get(statement));
+        }
+        return values;
+    }
+
+    private static class CompletedResultSetFuture extends AbstractFuture<ResultSet> implements ResultSetFuture {
+
+        CompletedResultSetFuture(Throwable failure) {
+            if (failure == null) {
+                set(null);
+            } else {
+                setException(failure);
+            }
+        }
+
+        @Override
+        public ResultSet getUninterruptibly() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public ResultSet getUninterruptibly(long timeout, TimeUnit unit) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
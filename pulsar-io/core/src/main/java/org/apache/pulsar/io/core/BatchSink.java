@@ -0,0 +1,64 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.io.core;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A Sink writing the messages to the external system in batches.
+ * The runtime accumulates the messages and hands them to the sink once
+ * it has getMaxBatchSize messages, or after getMaxBatchDelayMs since the
+ * first one, whichever comes first. The messages of a batch are acknowledged
+ * together once it is written.
+ */
+public interface BatchSink<T> extends Sink<T> {
+
+    /**
+     * Attempt to publish a batch of messages
+     *
+     * @param values output values
+     * @return Completable future completed once all the values are published
+     */
+    CompletableFuture<Void> writeBatch(List<T> values);
+
+    @Override
+    default CompletableFuture<Void> write(T value) {
+        return writeBatch(Collections.singletonList(value));
+    }
+
+    /**
+     * Maximum number of messages written at once, called after the sink is opened
+     *
+     * @return the maximum size of a batch
+     */
+    default int getMaxBatchSize() {
+        return 100;
+    }
+
+    /**
+     * Longest time a message waits for its batch to be written, called after the sink is opened
+     *
+     * @return the maximum delay of a batch in milliseconds
+     */
+    default long getMaxBatchDelayMs() {
+        return 10;
+    }
+}
@@ -22,6 +22,7 @@ package org.apache.pulsar.proxy.server;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.security.cert.X509Certificate;
+import java.util.concurrent.TimeUnit;
 
 import javax.net.ssl.SSLSession;
 
@@ -44,12 +45,15 @@ import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelOption;
+import io.netty.channel.epoll.EpollChannelOption;
+import io.netty.channel.epoll.EpollMode;
+import io.netty.channel.epoll.EpollSocketChannel;
 import io.netty.channel.socket.SocketChannel;
 import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
 import io.netty.handler.ssl.SslContext;
 import io.netty.handler.ssl.SslHandler;
-import io.netty.util.concurrent.Future;
-import io.netty.util.concurrent.FutureListener;
+import io.prometheus.client.Counter;
+import io.prometheus.client.Summary;
 
 public class DirectProxyHandler {
 
@@ -62,6 +66,31 @@ public class DirectProxyHandler {
 
     private final Authentication authentication;
 
+    private final long connectStartTime = System.nanoTime();
+    // Set once the handshake with the broker is done and the bytes are passed through as they are
+    private boolean forwarding = false;
+    // Set when the bytes are spliced from one connection to the other by the kernel
+    private boolean zeroCopy = false;
+    private long bytesToBroker = 0;
+    private long bytesToClient = 0;
+
+    // Bytes spliced at once, the spliced bytes are counted when a chunk completes. The last partial chunk of each
+    // direction is not counted when the connection closes
+    private static final int SPLICE_CHUNK_SIZE = 64 * 1024;
+
+    private static final Counter bytesToBrokers = Counter
+            .build("pulsar_proxy_bytes_to_brokers", "Counter of bytes forwarded from the clients to the brokers")
+            .create().register();
+
+    private static final Counter bytesToClients = Counter
+            .build("pulsar_proxy_bytes_to_clients", "Counter of bytes forwarded from the brokers to the clients")
+            .create().register();
+
+    private static final Summary brokerHandshakeLatency = Summary
+            .build("pulsar_proxy_broker_handshake_latency_ms",
+                    "Time to connect and complete the handshake with the broker, in milliseconds")
+            .quantile(0.5, 0.01).quantile(0.99, 0.001).create().register();
+
     public DirectProxyHandler(ProxyService service, ProxyConnection proxyConnection, String targetBrokerUrl) {
         this.authentication = proxyConnection.getClientAuthentication();
         this.inboundChannel = proxyConnection.ctx().channel();
@@ -77,6 +106,10 @@ public class DirectProxyHandler {
         // connections
         b.option(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT);
         b.group(inboundChannel.eventLoop()).channel(inboundChannel.getClass()).option(ChannelOption.AUTO_READ, false);
+        if (inboundChannel instanceof EpollSocketChannel) {
+            // Same mode as the client connections, as required to splice between the 2
+            b.option(EpollChannelOption.EPOLL_MODE, EpollMode.LEVEL_TRIGGERED);
+        }
         b.handler(new ChannelInitializer<SocketChannel>() {
             @Override
             protected void initChannel(SocketChannel ch) throws Exception {
@@ -115,7 +148,8 @@ public class DirectProxyHandler {
         outboundChannel = f.channel();
         f.addListener(future -> {
             if (!future.isSuccess()) {
-                // Close the connection if the connection attempt has failed.
+                // Close the connection if the connection attempt has failed, and stop handing out this broker
+                service.getLookupCache().invalidateBroker(targetBrokerUrl);
                 inboundChannel.close();
                 return;
             }
@@ -125,11 +159,115 @@ public class DirectProxyHandler {
         });
     }
 
+    /**
+     * Queue a buffer received from the client, it gets written with the other ones of the same read in
+     * {@link #flushToBroker()}.
+     */
+    void forwardToBroker(ByteBuf buffer) {
+        int size = buffer.readableBytes();
+        bytesToBroker += size;
+        bytesToBrokers.inc(size);
+        // Write failures are fired as exceptions on the broker connection, closing both connections
+        outboundChannel.write(buffer, outboundChannel.voidPromise());
+    }
+
+    /**
+     * Invoked when the current read from the client is complete.
+     */
+    void flushToBroker() {
+        if (zeroCopy || outboundChannel == null) {
+            return;
+        }
+        outboundChannel.flush();
+        if (!outboundChannel.isWritable()) {
+            // Stop reading from the client until the broker connection catches up
+            inboundChannel.config().setAutoRead(false);
+        }
+    }
+
+    /**
+     * Invoked when the writability of the client connection changes.
+     */
+    void clientWritabilityChanged() {
+        if (forwarding && !zeroCopy && inboundChannel.isWritable()) {
+            // The client caught up, resume reading from the broker
+            outboundChannel.read();
+        }
+    }
+
+    long getBytesToBroker() {
+        return bytesToBroker;
+    }
+
+    long getBytesToClient() {
+        return bytesToClient;
+    }
+
+    private boolean isZeroCopyModeAvailable() {
+        // Splicing bypasses the pipelines, so it is only possible when no handler transforms the bytes
+        return inboundChannel instanceof EpollSocketChannel && outboundChannel instanceof EpollSocketChannel
+                && inboundChannel.pipeline().get(ServiceChannelInitializer.TLS_HANDLER) == null
+                && outboundChannel.pipeline().get(TLS_HANDLER) == null
+                && ((EpollSocketChannel) inboundChannel).config().getEpollMode() == EpollMode.LEVEL_TRIGGERED
+                && ((EpollSocketChannel) outboundChannel).config().getEpollMode() == EpollMode.LEVEL_TRIGGERED;
+    }
+
+    private void spliceConnections() {
+        // Both connections are on the same event loop, so the splices and the byte counts don't need any locking
+        spliceToBroker();
+        spliceToClient();
+
+        // The splice pauses the reads by itself while the other connection is not writable
+        inboundChannel.config().setAutoRead(true);
+        outboundChannel.config().setAutoRead(true);
+    }
+
+    /**
+     * Splice the next chunk of bytes from the client to the broker. The splice is re-armed from the listener, before
+     * the connection goes back to reading into its pipeline, so that each completed chunk can be counted.
+     */
+    private void spliceToBroker() {
+        ((EpollSocketChannel) inboundChannel).spliceTo((EpollSocketChannel) outboundChannel, SPLICE_CHUNK_SIZE)
+                .addListener(future -> {
+                    if (!future.isSuccess()) {
+                        spliceFailed(future.cause());
+                        return;
+                    }
+                    bytesToBroker += SPLICE_CHUNK_SIZE;
+                    bytesToBrokers.inc(SPLICE_CHUNK_SIZE);
+                    spliceToBroker();
+                });
+    }
+
+    /**
+     * Splice the next chunk of bytes from the broker to the client, see {@link #spliceToBroker()}.
+     */
+    private void spliceToClient() {
+        ((EpollSocketChannel) outboundChannel).spliceTo((EpollSocketChannel) inboundChannel, SPLICE_CHUNK_SIZE)
+                .addListener(future -> {
+                    if (!future.isSuccess()) {
+                        spliceFailed(future.cause());
+                        return;
+                    }
+                    bytesToClient += SPLICE_CHUNK_SIZE;
+                    bytesToClients.inc(SPLICE_CHUNK_SIZE);
+                    spliceToClient();
+                });
+    }
+
+    private void spliceFailed(Throwable cause) {
+        if (log.isDebugEnabled()) {
+            log.debug("[{}] [{}] Stopped splicing connections", inboundChannel, outboundChannel, cause);
+        }
+        inboundChannel.close();
+        outboundChannel.close();
+    }
+
     enum BackendState {
         Init, HandshakeCompleted
     }
 
-    public class ProxyBackendHandler extends PulsarDecoder implements FutureListener<Void> {
+    public class ProxyBackendHandler extends PulsarDecoder {
 
         private BackendState state = BackendState.Init;
         private String remoteHostName;
@@ -169,7 +307,12 @@ public class DirectProxyHandler {
                 break;
 
             case HandshakeCompleted:
-                inboundChannel.writeAndFlush(msg).addListener(this);
+                ByteBuf buffer = (ByteBuf) msg;
+                int size = buffer.readableBytes();
+                bytesToClient += size;
+                bytesToClients.inc(size);
+                // Write failures are fired as exceptions on the client connection, closing both connections
+                inboundChannel.write(buffer, inboundChannel.voidPromise());
                 break;
 
             default:
@@ -179,16 +322,27 @@ public class DirectProxyHandler {
         }
 
         @Override
-        public void operationComplete(Future<Void> future) throws Exception {
-            // This is invoked when the write operation on the paired connection
-            // is completed
-            if (future.isSuccess()) {
+        public void channelReadComplete(ChannelHandlerContext ctx) throws Exception {
+            if (state != BackendState.HandshakeCompleted || zeroCopy) {
+                super.channelReadComplete(ctx);
+                return;
+            }
+
+            // A single flush for all the buffers of this read
+            inboundChannel.flush();
+            if (inboundChannel.isWritable()) {
                 outboundChannel.read();
-            } else {
-                log.warn("[{}] [{}] Failed to write on proxy connection. Closing both connections.", inboundChannel,
-                        outboundChannel, future.cause());
-                inboundChannel.close();
             }
+            // Otherwise the next read is scheduled once the client connection is writable again
+        }
+
+        @Override
+        public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+            if (forwarding && !zeroCopy && ctx.channel().isWritable()) {
+                // The broker caught up, resume reading from the client
+                inboundChannel.config().setAutoRead(true);
+            }
+            super.channelWritabilityChanged(ctx);
         }
 
         @Override
@@ -212,6 +366,8 @@ public class DirectProxyHandler {
             }
 
             state = BackendState.HandshakeCompleted;
+            brokerHandshakeLatency
+                    .observe(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - connectStartTime) / 1000.0);
 
             inboundChannel.writeAndFlush(Commands.newConnected(connected.getProtocolVersion())).addListener(future -> {
                 if (log.isDebugEnabled()) {
@@ -219,6 +375,16 @@ public class DirectProxyHandler {
                 }
                 inboundChannel.pipeline().remove("frameDecoder");
                 outboundChannel.pipeline().remove("frameDecoder");
+                forwarding = true;
+
+                if (config.isProxyZeroCopyModeEnabled() && isZeroCopyModeAvailable()) {
+                    if (log.isDebugEnabled()) {
+                        log.debug("[{}] [{}] Splicing connections", inboundChannel, outboundChannel);
+                    }
+                    zeroCopy = true;
+                    spliceConnections();
+                    return;
+                }
 
                 // Start reading from both connections
                 inboundChannel.read();
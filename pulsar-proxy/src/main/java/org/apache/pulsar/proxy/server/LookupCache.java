@@ -0,0 +1,176 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.proxy.server;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import io.prometheus.client.Counter;
+
+/**
+ * Topic lookups and partitions metadata resolved by the proxy, shared by all the client connections.
+ *
+ * <p>The results are kept for a short time, so that many clients reconnecting at once, for instance after a broker
+ * restart, do not all reach the brokers. Identical requests made while the first one is pending share its result.
+ * Failures are not cached, and the lookups resolved to a broker the proxy fails to connect to are dropped.
+ *
+ * <p>The entries are per client role, as the brokers authorize the requests on behalf of the clients.
+ */
+public class LookupCache {
+
+    static final String LOOKUP = "lookup";
+    static final String PARTITIONS_METADATA = "partitions_metadata";
+
+    // Requests answered with a cached result, the hit ratio being hits / (hits + misses)
+    static final Counter cacheHits = Counter
+            .build("pulsar_proxy_lookup_cache_hits",
+                    "Counter of lookup and partitions metadata requests answered from the proxy cache")
+            .labelNames("type").create().register();
+
+    static final Counter cacheMisses = Counter
+            .build("pulsar_proxy_lookup_cache_misses",
+                    "Counter of lookup and partitions metadata requests forwarded to the brokers")
+            .labelNames("type").create().register();
+
+    static final Counter coalescedRequests = Counter
+            .build("pulsar_proxy_coalesced_lookup_requests",
+                    "Counter of lookup and partitions metadata requests waiting for an identical pending request")
+            .labelNames("type").create().register();
+
+    private final boolean enabled;
+    private final Cache<Pair<String, String>, CompletableFuture<String>> lookups;
+    private final Cache<Pair<String, String>, CompletableFuture<Integer>> partitionsMetadata;
+
+    public LookupCache(long ttlMs, int maxEntries) {
+        this.enabled = ttlMs > 0 && maxEntries > 0;
+        this.lookups = CacheBuilder.newBuilder().maximumSize(Math.max(0, maxEntries))
+                .expireAfterWrite(Math.max(0, ttlMs), TimeUnit.MILLISECONDS).build();
+        this.partitionsMetadata = CacheBuilder.newBuilder().maximumSize(Math.max(0, maxEntries))
+                .expireAfterWrite(Math.max(0, ttlMs), TimeUnit.MILLISECONDS).build();
+    }
+
+    /**
+     * Get the service url of the broker owning the topic.
+     *
+     * @param role
+     *            the role of the client
+     * @param topic
+     *            the topic name
+     * @param lookup
+     *            performs the lookup against the brokers when there is no cached or pending result
+     */
+    public CompletableFuture<String> lookupTopic(String role, String topic,
+            Supplier<CompletableFuture<String>> lookup) {
+        return get(lookups, LOOKUP, Pair.of(role, topic), lookup);
+    }
+
+    /**
+     * Get the number of partitions of the topic.
+     *
+     * @param role
+     *            the role of the client
+     * @param topic
+     *            the topic name
+     * @param lookup
+     *            gets the partitions metadata when there is no cached or pending result
+     */
+    public CompletableFuture<Integer> getPartitionsMetadata(String role, String topic,
+            Supplier<CompletableFuture<Integer>> lookup) {
+        return get(partitionsMetadata, PARTITIONS_METADATA, Pair.of(role, topic), lookup);
+    }
+
+    /**
+     * Drop the cached lookup of the topic, eg: when a client looks up again a topic it already resolved, as the owner
+     * it got is likely stale. A lookup that is still in progress is kept.
+     *
+     * @param role
+     *            the role of the client
+     * @param topic
+     *            the topic name
+     */
+    public void invalidateLookup(String role, String topic) {
+        Pair<String, String> key = Pair.of(role, topic);
+        CompletableFuture<String> brokerUrl = lookups.getIfPresent(key);
+        if (brokerUrl != null && brokerUrl.isDone()) {
+            lookups.asMap().remove(key, brokerUrl);
+            if (log.isDebugEnabled()) {
+                log.debug("[{}] Invalidated the cached lookup of topic {}", role, topic);
+            }
+        }
+    }
+
+    /**
+     * Drop the topic lookups resolved to a broker.
+     *
+     * @param brokerAddress
+     *            the address of the broker, in the "hostname:port" form
+     */
+    public void invalidateBroker(String brokerAddress) {
+        String suffix = "://" + brokerAddress;
+        lookups.asMap().entrySet().removeIf(entry -> {
+            CompletableFuture<String> brokerUrl = entry.getValue();
+            return brokerUrl.isDone() && !brokerUrl.isCompletedExceptionally()
+                    && brokerUrl.join().endsWith(suffix);
+        });
+        if (log.isDebugEnabled()) {
+            log.debug("Invalidated the cached lookups to broker {}", brokerAddress);
+        }
+    }
+
+    private <T> CompletableFuture<T> get(Cache<Pair<String, String>, CompletableFuture<T>> cache, String type,
+            Pair<String, String> key, Supplier<CompletableFuture<T>> lookup) {
+        if (!enabled) {
+            return lookup.get();
+        }
+
+        CompletableFuture<T> result = new CompletableFuture<>();
+        CompletableFuture<T> existing = cache.asMap().putIfAbsent(key, result);
+        if (existing != null) {
+            if (existing.isDone()) {
+                cacheHits.labels(type).inc();
+            } else {
+                coalescedRequests.labels(type).inc();
+            }
+            return existing;
+        }
+
+        cacheMisses.labels(type).inc();
+        lookup.get().whenComplete((value, ex) -> {
+            if (ex != null) {
+                cache.asMap().remove(key, result);
+                result.completeExceptionally(ex);
+            } else {
+                // Replacing the entry restarts its time to live, which should not include the time of the lookup
+                cache.asMap().replace(key, result, result);
+                result.complete(value);
+            }
+        });
+        return result;
+    }
+
+    private static final Logger log = LoggerFactory.getLogger(LookupCache.class);
+}
@@ -24,13 +24,23 @@ import java.net.InetSocketAddress;
 import java.net.SocketAddress;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Collectors;
 
 import org.apache.pulsar.common.api.Commands;
 import org.apache.pulsar.common.api.proto.PulsarApi.CommandLookupTopic;
+import org.apache.pulsar.common.api.proto.PulsarApi.CommandLookupTopicResponse;
 import org.apache.pulsar.common.api.proto.PulsarApi.CommandLookupTopicResponse.LookupType;
+import org.apache.pulsar.common.api.proto.PulsarApi.CommandLookupTopics;
 import org.apache.pulsar.common.api.proto.PulsarApi.CommandPartitionedTopicMetadata;
 import org.apache.pulsar.common.api.proto.PulsarApi.ServerError;
 import org.apache.pulsar.common.naming.TopicName;
+import org.apache.pulsar.common.util.FutureUtil;
 import org.apache.pulsar.policies.data.loadbalancer.ServiceLookupData;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -47,6 +57,9 @@ public class LookupProxyHandler {
     private SocketAddress clientAddress;
     private String brokerServiceURL;
 
+    // Topics this connection already got a lookup result for
+    private final Set<String> resolvedTopics = ConcurrentHashMap.newKeySet();
+
     private static final Counter lookupRequests = Counter
             .build("pulsar_proxy_lookup_requests", "Counter of topic lookup requests").create().register();
 
@@ -75,28 +88,79 @@ public class LookupProxyHandler {
         if (log.isDebugEnabled()) {
             log.debug("Received Lookup from {}", clientAddress);
         }
-        long clientRequestId = lookup.getRequestId();
+        lookupTopic(lookup.getTopic(), lookup.getAuthoritative(), lookup.getRequestId()).thenAccept(
+                response -> proxyConnection.ctx().writeAndFlush(Commands.newLookupResponse(response)));
+    }
+
+    public void handleLookupTopics(CommandLookupTopics lookupTopics) {
+        if (log.isDebugEnabled()) {
+            log.debug("Received Lookup of {} topics from {}", lookupTopics.getTopicsCount(), clientAddress);
+        }
+        long clientRequestId = lookupTopics.getRequestId();
+        List<CompletableFuture<CommandLookupTopicResponse>> responses = new ArrayList<>(
+                lookupTopics.getTopicsCount());
+        for (String topic : lookupTopics.getTopicsList()) {
+            responses.add(lookupTopic(topic, false, clientRequestId));
+        }
+        FutureUtil.waitForAll(responses).thenRun(() -> {
+            List<CommandLookupTopicResponse> lookups = responses.stream().map(CompletableFuture::join)
+                    .collect(Collectors.toList());
+            proxyConnection.ctx().writeAndFlush(Commands.newLookupTopicsResponse(lookups, clientRequestId));
+            lookups.forEach(CommandLookupTopicResponse::recycle);
+        });
+    }
+
+    /**
+     * Looks up a single topic. The returned future always completes with a response, failures are reported with a
+     * Failed lookup response. The caller is responsible for recycling it.
+     */
+    private CompletableFuture<CommandLookupTopicResponse> lookupTopic(String topic, boolean authoritative,
+            long clientRequestId) {
+        CompletableFuture<CommandLookupTopicResponse> response = new CompletableFuture<>();
         if (this.service.getLookupRequestSemaphore().tryAcquire()) {
             lookupRequests.inc();
-            String topic = lookup.getTopic();
-            String serviceUrl;
-            if (isBlank(brokerServiceURL)) {
-                ServiceLookupData availableBroker = null;
-                try {
-                    availableBroker = service.getDiscoveryProvider().nextBroker();
-                } catch (Exception e) {
-                    log.warn("[{}] Failed to get next active broker {}", clientAddress, e.getMessage(), e);
-                    proxyConnection.ctx().writeAndFlush(Commands.newLookupErrorResponse(ServerError.ServiceNotReady,
-                            e.getMessage(), clientRequestId));
-                    return;
-                }
-                serviceUrl = this.connectWithTLS ? availableBroker.getPulsarServiceUrlTls()
-                        : availableBroker.getPulsarServiceUrl();
-            } else {
-                serviceUrl = this.connectWithTLS ? service.getConfiguration().getBrokerServiceURLTLS()
-                        : service.getConfiguration().getBrokerServiceURL();
+            // A client looks up again a topic it already resolved when it could not use the result, eg: the broker
+            // no longer owns the topic. Don't answer it with the same cached result
+            if (authoritative || resolvedTopics.contains(topic)) {
+                service.getLookupCache().invalidateLookup(proxyConnection.clientAuthRole, topic);
             }
-            performLookup(clientRequestId, topic, serviceUrl, false, 10);
+            service.getLookupCache().lookupTopic(proxyConnection.clientAuthRole, topic, () -> {
+                String serviceUrl;
+                if (isBlank(brokerServiceURL)) {
+                    ServiceLookupData availableBroker = null;
+                    try {
+                        availableBroker = service.getDiscoveryProvider().nextBroker();
+                    } catch (Exception e) {
+                        log.warn("[{}] Failed to get next active broker {}", clientAddress, e.getMessage(), e);
+                        return failedLookup(ServerError.ServiceNotReady, e.getMessage());
+                    }
+                    serviceUrl = this.connectWithTLS ? availableBroker.getPulsarServiceUrlTls()
+                            : availableBroker.getPulsarServiceUrl();
+                } else {
+                    serviceUrl = this.connectWithTLS ? service.getConfiguration().getBrokerServiceURLTLS()
+                            : service.getConfiguration().getBrokerServiceURL();
+                }
+                CompletableFuture<String> brokerUrl = new CompletableFuture<>();
+                performLookup(brokerUrl, topic, serviceUrl, false, 10);
+                return brokerUrl;
+            }).thenAccept(brokerUrl -> {
+                // Reply the same address for both TLS non-TLS. The reason
+                // is that whether we use TLS
+                // and broker is independent of whether the client itself
+                // uses TLS, but we need to force the
+                // client
+                // to use the appropriate target broker (and port) when it
+                // will connect back.
+                resolvedTopics.add(topic);
+                response.complete(Commands.newLookupResponseCommand(brokerUrl, brokerUrl, true, LookupType.Connect,
+                        clientRequestId, true /* this is coming from proxy */));
+            }).exceptionally(ex -> {
+                Throwable cause = ex instanceof CompletionException ? ex.getCause() : ex;
+                ServerError error = cause instanceof LookupException ? ((LookupException) cause).error
+                        : ServerError.ServiceNotReady;
+                response.complete(Commands.newLookupErrorResponseCommand(error, cause.getMessage(), clientRequestId));
+                return null;
+            });
             this.service.getLookupRequestSemaphore().release();
         } else {
             rejectedLookupRequests.inc();
@@ -104,17 +168,17 @@ public class LookupProxyHandler {
                 log.debug("Lookup Request ID {} from {} rejected - {}.", clientRequestId, clientAddress,
                         throttlingErrorMessage);
             }
-            proxyConnection.ctx().writeAndFlush(Commands.newLookupErrorResponse(ServerError.ServiceNotReady,
+            response.complete(Commands.newLookupErrorResponseCommand(ServerError.ServiceNotReady,
                     throttlingErrorMessage, clientRequestId));
         }
-
+        return response;
     }
 
-    private void performLookup(long clientRequestId, String topic, String brokerServiceUrl, boolean authoritative,
-            int numberOfRetries) {
+    private void performLookup(CompletableFuture<String> result, String topic, String brokerServiceUrl,
+            boolean authoritative, int numberOfRetries) {
         if (numberOfRetries == 0) {
-            proxyConnection.ctx().writeAndFlush(Commands.newLookupErrorResponse(ServerError.ServiceNotReady,
-                    "Reached max number of redirections", clientRequestId));
+            result.completeExceptionally(
+                    new LookupException(ServerError.ServiceNotReady, "Reached max number of redirections"));
             return;
         }
 
@@ -122,47 +186,35 @@ public class LookupProxyHandler {
         try {
             brokerURI = new URI(brokerServiceUrl);
         } catch (URISyntaxException e) {
-            proxyConnection.ctx().writeAndFlush(
-                    Commands.newLookupErrorResponse(ServerError.MetadataError, e.getMessage(), clientRequestId));
+            result.completeExceptionally(new LookupException(ServerError.MetadataError, e.getMessage()));
             return;
         }
 
         InetSocketAddress addr = InetSocketAddress.createUnresolved(brokerURI.getHost(), brokerURI.getPort());
         if (log.isDebugEnabled()) {
-            log.debug("Getting connections to '{}' for Looking up topic '{}' with clientReq Id '{}'", addr, topic,
-                    clientRequestId);
+            log.debug("Getting connections to '{}' for Looking up topic '{}'", addr, topic);
         }
         proxyConnection.getConnectionPool().getConnection(addr).thenAccept(clientCnx -> {
             // Connected to backend broker
             long requestId = proxyConnection.newRequestId();
             ByteBuf command;
             command = Commands.newLookup(topic, authoritative, requestId);
-            clientCnx.newLookup(command, requestId).thenAccept(result -> {
-                String brokerUrl = connectWithTLS ? result.brokerUrlTls : result.brokerUrl;
-                if (result.redirect) {
+            clientCnx.newLookup(command, requestId).thenAccept(lookupResult -> {
+                String brokerUrl = connectWithTLS ? lookupResult.brokerUrlTls : lookupResult.brokerUrl;
+                if (lookupResult.redirect) {
                     // Need to try the lookup again on a different broker
-                    performLookup(clientRequestId, topic, brokerUrl, result.authoritative, numberOfRetries - 1);
+                    performLookup(result, topic, brokerUrl, lookupResult.authoritative, numberOfRetries - 1);
                 } else {
-                    // Reply the same address for both TLS non-TLS. The reason
-                    // is that whether we use TLS
-                    // and broker is independent of whether the client itself
-                    // uses TLS, but we need to force the
-                    // client
-                    // to use the appropriate target broker (and port) when it
-                    // will connect back.
-                    proxyConnection.ctx().writeAndFlush(Commands.newLookupResponse(brokerUrl, brokerUrl, true,
-                            LookupType.Connect, clientRequestId, true /* this is coming from proxy */));
+                    result.complete(brokerUrl);
                 }
             }).exceptionally(ex -> {
                 log.warn("[{}] Failed to lookup topic {}: {}", clientAddress, topic, ex.getMessage());
-                proxyConnection.ctx().writeAndFlush(
-                        Commands.newLookupErrorResponse(ServerError.ServiceNotReady, ex.getMessage(), clientRequestId));
+                result.completeExceptionally(new LookupException(ServerError.ServiceNotReady, ex.getMessage()));
                 return null;
             });
         }).exceptionally(ex -> {
             // Failed to connect to backend broker
-            proxyConnection.ctx().writeAndFlush(
-                    Commands.newLookupErrorResponse(ServerError.ServiceNotReady, ex.getMessage(), clientRequestId));
+            result.completeExceptionally(new LookupException(ServerError.ServiceNotReady, ex.getMessage()));
             return null;
         });
     }
@@ -190,20 +242,35 @@ public class LookupProxyHandler {
     private void handlePartitionMetadataResponse(CommandPartitionedTopicMetadata partitionMetadata,
             long clientRequestId) {
         TopicName topicName = TopicName.get(partitionMetadata.getTopic());
+        service.getLookupCache().getPartitionsMetadata(proxyConnection.clientAuthRole, topicName.toString(),
+                () -> getPartitionsMetadata(topicName)).thenAccept(partitions -> {
+                    if (log.isDebugEnabled()) {
+                        log.debug("[{}] Total number of partitions for topic {} is {}",
+                                proxyConnection.clientAuthRole, topicName, partitions);
+                    }
+                    proxyConnection.ctx()
+                            .writeAndFlush(Commands.newPartitionMetadataResponse(partitions, clientRequestId));
+                }).exceptionally(ex -> {
+                    Throwable cause = ex instanceof CompletionException ? ex.getCause() : ex;
+                    ServerError error = cause instanceof LookupException ? ((LookupException) cause).error
+                            : ServerError.ServiceNotReady;
+                    proxyConnection.ctx().writeAndFlush(
+                            Commands.newPartitionMetadataResponse(error, cause.getMessage(), clientRequestId));
+                    return null;
+                });
+    }
+
+    private CompletableFuture<Integer> getPartitionsMetadata(TopicName topicName) {
+        CompletableFuture<Integer> result = new CompletableFuture<>();
         if (isBlank(brokerServiceURL)) {
             service.getDiscoveryProvider().getPartitionedTopicMetadata(service, topicName,
                     proxyConnection.clientAuthRole, proxyConnection.authenticationData).thenAccept(metadata -> {
-                        if (log.isDebugEnabled()) {
-                            log.debug("[{}] Total number of partitions for topic {} is {}",
-                                    proxyConnection.clientAuthRole, topicName, metadata.partitions);
-                        }
-                        proxyConnection.ctx().writeAndFlush(
-                                Commands.newPartitionMetadataResponse(metadata.partitions, clientRequestId));
+                        result.complete(metadata.partitions);
                     }).exceptionally(ex -> {
                         log.warn("[{}] Failed to get partitioned metadata for topic {} {}", clientAddress, topicName,
                                 ex.getMessage(), ex);
-                        proxyConnection.ctx().writeAndFlush(Commands.newPartitionMetadataResponse(
-                                ServerError.ServiceNotReady, ex.getMessage(), clientRequestId));
+                        result.completeExceptionally(
+                                new LookupException(ServerError.ServiceNotReady, ex.getMessage()));
                         return null;
                     });
         } else {
@@ -211,15 +278,14 @@ public class LookupProxyHandler {
             try {
                 brokerURI = new URI(brokerServiceURL);
             } catch (URISyntaxException e) {
-                proxyConnection.ctx().writeAndFlush(Commands.newPartitionMetadataResponse(ServerError.MetadataError,
-                        e.getMessage(), clientRequestId));
-                return;
+                result.completeExceptionally(new LookupException(ServerError.MetadataError, e.getMessage()));
+                return result;
             }
             InetSocketAddress addr = new InetSocketAddress(brokerURI.getHost(), brokerURI.getPort());
 
             if (log.isDebugEnabled()) {
-                log.debug("Getting connections to '{}' for Looking up topic '{}' with clientReq Id '{}'", addr,
-                        topicName.getPartitionedTopicName(), clientRequestId);
+                log.debug("Getting connections to '{}' for Looking up topic '{}'", addr,
+                        topicName.getPartitionedTopicName());
             }
 
             proxyConnection.getConnectionPool().getConnection(addr).thenAccept(clientCnx -> {
@@ -228,22 +294,40 @@ public class LookupProxyHandler {
                 ByteBuf command;
                 command = Commands.newPartitionMetadataRequest(topicName.toString(), requestId);
                 clientCnx.newLookup(command, requestId).thenAccept(lookupDataResult -> {
-                    proxyConnection.ctx().writeAndFlush(
-                            Commands.newPartitionMetadataResponse(lookupDataResult.partitions, clientRequestId));
+                    result.complete(lookupDataResult.partitions);
                 }).exceptionally((ex) -> {
                     log.warn("[{}] failed to get Partitioned metadata : {}", topicName.toString(),
                             ex.getCause().getMessage(), ex);
-                    proxyConnection.ctx().writeAndFlush(Commands.newLookupErrorResponse(ServerError.ServiceNotReady,
-                            ex.getMessage(), clientRequestId));
+                    result.completeExceptionally(new LookupException(ServerError.ServiceNotReady, ex.getMessage()));
                     return null;
                 });
             }).exceptionally(ex -> {
                 // Failed to connect to backend broker
-                proxyConnection.ctx().writeAndFlush(Commands.newPartitionMetadataResponse(ServerError.ServiceNotReady,
-                        ex.getMessage(), clientRequestId));
+                result.completeExceptionally(new LookupException(ServerError.ServiceNotReady, ex.getMessage()));
                 return null;
             });
         }
+        return result;
+    }
+
+    private static CompletableFuture<String> failedLookup(ServerError error, String message) {
+        CompletableFuture<String> result = new CompletableFuture<>();
+        result.completeExceptionally(new LookupException(error, message));
+        return result;
+    }
+
+    /**
+     * Failure of a lookup, with the error to reply to the client.
+     */
+    private static class LookupException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        private final ServerError error;
+
+        LookupException(ServerError error, String message) {
+            super(message);
+            this.error = error;
+        }
     }
 
     private static final Logger log = LoggerFactory.getLogger(LookupProxyHandler.class);
@@ -80,6 +80,15 @@ public class ProxyConfiguration implements PulsarConfiguration {
     // Max concurrent outbound Connections
     private int maxConcurrentLookupRequests = 10000;
 
+    // Forward the bytes between the client and broker connections with the kernel splice, when both are plain TCP
+    // connections on the epoll transport
+    private boolean proxyZeroCopyModeEnabled = true;
+
+    // Time the topic lookups and partitions metadata are cached in the proxy, 0 to disable the cache
+    private long lookupCacheTtlMs = 2000;
+    // Max number of cached topic lookups, and of cached partitions metadata
+    private int lookupCacheMaxEntries = 100000;
+
     // Authentication settings of the proxy itself. Used to connect to brokers
     private String brokerClientAuthenticationPlugin;
     private String brokerClientAuthenticationParameters;
@@ -372,6 +381,30 @@ public class ProxyConfiguration implements PulsarConfiguration {
         this.maxConcurrentLookupRequests = maxConcurrentLookupRequests;
     }
 
+    public boolean isProxyZeroCopyModeEnabled() {
+        return proxyZeroCopyModeEnabled;
+    }
+
+    public void setProxyZeroCopyModeEnabled(boolean proxyZeroCopyModeEnabled) {
+        this.proxyZeroCopyModeEnabled = proxyZeroCopyModeEnabled;
+    }
+
+    public long getLookupCacheTtlMs() {
+        return lookupCacheTtlMs;
+    }
+
+    public void setLookupCacheTtlMs(long lookupCacheTtlMs) {
+        this.lookupCacheTtlMs = lookupCacheTtlMs;
+    }
+
+    public int getLookupCacheMaxEntries() {
+        return lookupCacheMaxEntries;
+    }
+
+    public void setLookupCacheMaxEntries(int lookupCacheMaxEntries) {
+        this.lookupCacheMaxEntries = lookupCacheMaxEntries;
+    }
+
     public boolean getTlsRequireTrustedClientCertOnConnect() {
         return tlsRequireTrustedClientCertOnConnect;
     }
@@ -40,16 +40,16 @@ import org.apache.pulsar.common.api.PulsarHandler;
 import org.apache.pulsar.common.api.proto.PulsarApi;
 import org.apache.pulsar.common.api.proto.PulsarApi.CommandConnect;
 import org.apache.pulsar.common.api.proto.PulsarApi.CommandLookupTopic;
+import org.apache.pulsar.common.api.proto.PulsarApi.CommandLookupTopics;
 import org.apache.pulsar.common.api.proto.PulsarApi.CommandPartitionedTopicMetadata;
 import org.apache.pulsar.common.api.proto.PulsarApi.ServerError;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.ssl.SslHandler;
-import io.netty.util.concurrent.Future;
-import io.netty.util.concurrent.FutureListener;
 import io.prometheus.client.Counter;
 import io.prometheus.client.Gauge;
 
@@ -57,7 +57,7 @@ import io.prometheus.client.Gauge;
  * Handles incoming discovery request from client and sends appropriate response back to client
  *
  */
-public class ProxyConnection extends PulsarHandler implements FutureListener<Void> {
+public class ProxyConnection extends PulsarHandler {
     // ConnectionPool is used by the proxy to issue lookup requests
     private PulsarClientImpl client;
     private ProxyService service;
@@ -140,7 +140,12 @@ public class ProxyConnection extends PulsarHandler implements FutureListener<Voi
             directProxyHandler.outboundChannel.close();
         }
 
-        LOG.info("[{}] Connection closed", remoteAddress);
+        if (directProxyHandler != null) {
+            LOG.info("[{}] Connection closed, forwarded {} bytes to the broker and {} bytes to the client",
+                    remoteAddress, directProxyHandler.getBytesToBroker(), directProxyHandler.getBytesToClient());
+        } else {
+            LOG.info("[{}] Connection closed", remoteAddress);
+        }
     }
 
     @Override
@@ -161,10 +166,9 @@ public class ProxyConnection extends PulsarHandler implements FutureListener<Voi
             break;
 
         case ProxyConnectionToBroker:
-            // Pass the buffer to the outbound connection and schedule next read
-            // only
-            // if we can write on the connection
-            directProxyHandler.outboundChannel.writeAndFlush(msg).addListener(this);
+            // Pass the buffer to the outbound connection, all the buffers of
+            // the current read are flushed at once when it completes
+            directProxyHandler.forwardToBroker((ByteBuf) msg);
             break;
 
         default:
@@ -173,15 +177,19 @@ public class ProxyConnection extends PulsarHandler implements FutureListener<Voi
     }
 
     @Override
-    public void operationComplete(Future<Void> future) throws Exception {
-        // This is invoked when the write operation on the paired connection is
-        // completed
-        if (future.isSuccess()) {
-            ctx.read();
-        } else {
-            LOG.warn("[{}] Error in writing to inbound channel. Closing", remoteAddress, future.cause());
-            directProxyHandler.outboundChannel.close();
+    public void channelReadComplete(ChannelHandlerContext ctx) throws Exception {
+        if (state == State.ProxyConnectionToBroker) {
+            directProxyHandler.flushToBroker();
+        }
+        super.channelReadComplete(ctx);
+    }
+
+    @Override
+    public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+        if (state == State.ProxyConnectionToBroker) {
+            directProxyHandler.clientWritabilityChanged();
         }
+        super.channelWritabilityChanged(ctx);
     }
 
     /**
@@ -242,6 +250,12 @@ public class ProxyConnection extends PulsarHandler implements FutureListener<Voi
         lookupProxyHandler.handleLookup(lookup);
     }
 
+    @Override
+    protected void handleLookupTopics(CommandLookupTopics lookupTopics) {
+        checkArgument(state == State.ProxyLookupRequests);
+        lookupProxyHandler.handleLookupTopics(lookupTopics);
+    }
+
     private void close() {
         state = State.Closed;
         ctx.close();
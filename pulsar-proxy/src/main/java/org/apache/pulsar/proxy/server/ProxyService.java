@@ -69,6 +69,8 @@ public class ProxyService implements Closeable {
 
     protected final AtomicReference<Semaphore> lookupRequestSemaphore;
 
+    private final LookupCache lookupCache;
+
     private static final int numThreads = Runtime.getRuntime().availableProcessors();
 
     public ProxyService(ProxyConfiguration proxyConfig) throws IOException {
@@ -77,6 +79,7 @@ public class ProxyService implements Closeable {
 
         this.lookupRequestSemaphore = new AtomicReference<Semaphore>(
                 new Semaphore(proxyConfig.getMaxConcurrentLookupRequests(), false));
+        this.lookupCache = new LookupCache(proxyConfig.getLookupCacheTtlMs(), proxyConfig.getLookupCacheMaxEntries());
 
         String hostname;
         try {
@@ -175,6 +178,10 @@ public class ProxyService implements Closeable {
     public Semaphore getLookupRequestSemaphore() {
         return lookupRequestSemaphore.get();
     }
+
+    public LookupCache getLookupCache() {
+        return lookupCache;
+    }
     
     public EventLoopGroup getWorkerGroup() {
         return workerGroup;
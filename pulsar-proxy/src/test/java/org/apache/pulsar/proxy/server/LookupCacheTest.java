@@ -0,0 +1,131 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.proxy.server;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.testng.annotations.Test;
+
+public class LookupCacheTest {
+
+    private static final String TOPIC = "persistent://sample/test/local/topic";
+
+    private static class CountingLookup<T> implements Supplier<CompletableFuture<T>> {
+        final AtomicInteger calls = new AtomicInteger();
+        CompletableFuture<T> result = new CompletableFuture<>();
+
+        @Override
+        public CompletableFuture<T> get() {
+            calls.incrementAndGet();
+            return result;
+        }
+    }
+
+    @Test
+    public void testCoalescingAndHits() throws Exception {
+        LookupCache cache = new LookupCache(60000, 100);
+        CountingLookup<String> lookup = new CountingLookup<>();
+        double hits = LookupCache.cacheHits.labels(LookupCache.LOOKUP).get();
+        double coalesced = LookupCache.coalescedRequests.labels(LookupCache.LOOKUP).get();
+
+        CompletableFuture<String> first = cache.lookupTopic("role", TOPIC, lookup);
+        CompletableFuture<String> second = cache.lookupTopic("role", TOPIC, lookup);
+        assertSame(second, first);
+        assertFalse(first.isDone());
+        assertEquals(LookupCache.coalescedRequests.labels(LookupCache.LOOKUP).get(), coalesced + 1);
+
+        lookup.result.complete("pulsar://broker-1:6650");
+        assertEquals(cache.lookupTopic("role", TOPIC, lookup).get(), "pulsar://broker-1:6650");
+        assertEquals(LookupCache.cacheHits.labels(LookupCache.LOOKUP).get(), hits + 1);
+        assertEquals(lookup.calls.get(), 1);
+
+        // the entries are per role
+        cache.lookupTopic("other-role", TOPIC, lookup);
+        assertEquals(lookup.calls.get(), 2);
+    }
+
+    @Test
+    public void testFailuresAreNotCached() throws Exception {
+        LookupCache cache = new LookupCache(60000, 100);
+        CountingLookup<Integer> lookup = new CountingLookup<>();
+
+        CompletableFuture<Integer> failed = cache.getPartitionsMetadata("role", TOPIC, lookup);
+        lookup.result.completeExceptionally(new Exception("failed"));
+        assertTrue(failed.isCompletedExceptionally());
+
+        lookup.result = CompletableFuture.completedFuture(4);
+        assertEquals(cache.getPartitionsMetadata("role", TOPIC, lookup).get().intValue(), 4);
+        assertEquals(lookup.calls.get(), 2);
+    }
+
+    @Test
+    public void testInvalidateBroker() throws Exception {
+        LookupCache cache = new LookupCache(60000, 100);
+        CountingLookup<String> lookup = new CountingLookup<>();
+        lookup.result.complete("pulsar://broker-1:6650");
+        cache.lookupTopic("role", TOPIC, lookup);
+
+        cache.invalidateBroker("broker-2:6650");
+        cache.lookupTopic("role", TOPIC, lookup);
+        assertEquals(lookup.calls.get(), 1);
+
+        cache.invalidateBroker("broker-1:6650");
+        cache.lookupTopic("role", TOPIC, lookup);
+        assertEquals(lookup.calls.get(), 2);
+    }
+
+    @Test
+    public void testInvalidateLookup() throws Exception {
+        LookupCache cache = new LookupCache(60000, 100);
+        CountingLookup<String> lookup = new CountingLookup<>();
+
+        // a pending lookup is not dropped
+        cache.lookupTopic("role", TOPIC, lookup);
+        cache.invalidateLookup("role", TOPIC);
+        cache.lookupTopic("role", TOPIC, lookup);
+        assertEquals(lookup.calls.get(), 1);
+
+        lookup.result.complete("pulsar://broker-1:6650");
+        cache.invalidateLookup("other-role", TOPIC);
+        cache.lookupTopic("role", TOPIC, lookup);
+        assertEquals(lookup.calls.get(), 1);
+
+        cache.invalidateLookup("role", TOPIC);
+        cache.lookupTopic("role", TOPIC, lookup);
+        assertEquals(lookup.calls.get(), 2);
+    }
+
+    @Test
+    public void testDisabled() throws Exception {
+        LookupCache cache = new LookupCache(0, 100);
+        CountingLookup<String> lookup = new CountingLookup<>();
+        lookup.result.complete("pulsar://broker-1:6650");
+
+        cache.lookupTopic("role", TOPIC, lookup);
+        cache.lookupTopic("role", TOPIC, lookup);
+        assertEquals(lookup.calls.get(), 2);
+    }
+}
@@ -0,0 +1,295 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.testclient;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.apache.pulsar.broker.BrokerData;
+import org.apache.pulsar.broker.BundleData;
+import org.apache.pulsar.broker.ServiceConfiguration;
+import org.apache.pulsar.broker.TimeAverageBrokerData;
+import org.apache.pulsar.broker.TimeAverageMessageData;
+import org.apache.pulsar.broker.loadbalance.LoadData;
+import org.apache.pulsar.broker.loadbalance.LoadManager;
+import org.apache.pulsar.broker.loadbalance.ModularLoadManagerStrategy;
+import org.apache.pulsar.broker.loadbalance.impl.LeastLongTermMessageRate;
+import org.apache.pulsar.broker.loadbalance.impl.LeastProjectedResourceUsage;
+import org.apache.pulsar.broker.loadbalance.impl.ModularLoadManagerImpl;
+import org.apache.pulsar.common.util.ObjectMapperFactory;
+import org.apache.pulsar.policies.data.loadbalancer.LocalBrokerData;
+import org.apache.pulsar.policies.data.loadbalancer.NamespaceBundleStats;
+import org.apache.pulsar.policies.data.loadbalancer.ResourceUsage;
+import org.apache.zookeeper.ZooKeeper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.beust.jcommander.JCommander;
+import com.beust.jcommander.Parameter;
+
+/**
+ * Offline comparison of the placement strategies of ModularLoadManagerImpl.
+ * <p>
+ * The broker data and bundle data recorded in a ZooKeeper by ModularLoadManagerImpl are replayed: every bundle is
+ * assigned, one after the other, to the recorded brokers by each strategy, and the resulting resource usage of the
+ * brokers is printed. The cpu and direct memory costs of the load are estimated from the recorded brokers, and the
+ * load reports of the brokers are assumed to be updated after each assignment.
+ */
+public class LoadPlacementReplay {
+    private static final Logger log = LoggerFactory.getLogger(LoadPlacementReplay.class);
+
+    public static final String DEFAULT_STRATEGIES = LeastLongTermMessageRate.class.getName() + ","
+            + LeastProjectedResourceUsage.class.getName();
+
+    private final Map<String, LocalBrokerData> recordedBrokers;
+    private final Map<String, BundleData> recordedBundles;
+    private final double rateMultiplier;
+
+    // Estimated cpu usage per message per second, and direct memory usage per byte per second.
+    private final double cpuPerMessage;
+    private final double directMemoryPerByte;
+
+    // JCommander arguments for running a replay via main.
+    private static class MainArguments {
+        @Parameter(names = { "--zookeeper" }, description = "ZooKeeper holding the recorded load data",
+                required = true)
+        String zookeeper;
+
+        @Parameter(names = { "--strategies" }, description = "Comma separated list of placement strategies to compare")
+        String strategies = DEFAULT_STRATEGIES;
+
+        @Parameter(names = { "--rate-multiplier" }, description = "Multiplier to use for the recorded rates")
+        double rateMultiplier = 1;
+    }
+
+    public LoadPlacementReplay(final Map<String, LocalBrokerData> recordedBrokers,
+            final Map<String, BundleData> recordedBundles, final double rateMultiplier) {
+        this.recordedBrokers = recordedBrokers;
+        this.recordedBundles = recordedBundles;
+        this.rateMultiplier = rateMultiplier;
+
+        double cpuUsage = 0;
+        double directMemoryUsage = 0;
+        double messageRate = 0;
+        double throughput = 0;
+        for (LocalBrokerData localData : recordedBrokers.values()) {
+            cpuUsage += localData.getCpu().usage;
+            directMemoryUsage += localData.getDirectMemory().usage;
+            messageRate += localData.getMsgRateIn() + localData.getMsgRateOut();
+            throughput += localData.getMsgThroughputIn() + localData.getMsgThroughputOut();
+        }
+        cpuPerMessage = messageRate > 0 ? cpuUsage / messageRate : 0;
+        directMemoryPerByte = throughput > 0 ? directMemoryUsage / throughput : 0;
+    }
+
+    /**
+     * Read the broker data and bundle data recorded in a ZooKeeper.
+     *
+     * @param zkClient
+     *            ZooKeeper to read from.
+     * @param rateMultiplier
+     *            Multiplier to use for the recorded rates.
+     * @return A replay of the recorded load.
+     */
+    public static LoadPlacementReplay fromZooKeeper(final ZooKeeper zkClient, final double rateMultiplier)
+            throws Exception {
+        final Map<String, LocalBrokerData> brokers = new TreeMap<>();
+        for (String broker : zkClient.getChildren(LoadManager.LOADBALANCE_BROKERS_ROOT, false)) {
+            final byte[] data = zkClient.getData(LoadManager.LOADBALANCE_BROKERS_ROOT + "/" + broker, false, null);
+            brokers.put(broker, ObjectMapperFactory.getThreadLocal().readValue(data, LocalBrokerData.class));
+        }
+        final Map<String, BundleData> bundles = new TreeMap<>();
+        getBundleData(ModularLoadManagerImpl.BUNDLE_DATA_ZPATH, zkClient, bundles);
+        log.info("Found {} brokers and {} bundles", brokers.size(), bundles.size());
+        return new LoadPlacementReplay(brokers, bundles, rateMultiplier);
+    }
+
+    // Recursively acquire all bundle data by getting the ZK children of the given path and calling this function
+    // on the children if there are any, or getting the data from this ZNode otherwise.
+    private static void getBundleData(final String path, final ZooKeeper zkClient,
+            final Map<String, BundleData> bundles) throws Exception {
+        final List<String> children = zkClient.getChildren(path, false);
+        if (children.isEmpty()) {
+            if (!path.equals(ModularLoadManagerImpl.BUNDLE_DATA_ZPATH)) {
+                bundles.put(path.substring(ModularLoadManagerImpl.BUNDLE_DATA_ZPATH.length() + 1),
+                        BundleData.fromBytes(zkClient.getData(path, false, null)));
+            }
+        } else {
+            for (final String child : children) {
+                getBundleData(String.format("%s/%s", path, child), zkClient, bundles);
+            }
+        }
+    }
+
+    // Make an empty broker with the resource limits of a recorded one.
+    private static LocalBrokerData initLocalData(final LocalBrokerData recorded) {
+        final LocalBrokerData localData = new LocalBrokerData(recorded.getWebServiceUrl(),
+                recorded.getWebServiceUrlTls(), recorded.getPulsarServiceUrl(), recorded.getPulsarServiceUrlTls());
+        localData.setCpu(new ResourceUsage(0, recorded.getCpu().limit));
+        // Memory usage does not depend much on the bundles, so keep the recorded one.
+        localData.setMemory(new ResourceUsage(recorded.getMemory()));
+        localData.setDirectMemory(new ResourceUsage(0, recorded.getDirectMemory().limit));
+        localData.setBandwidthIn(new ResourceUsage(0, recorded.getBandwidthIn().limit));
+        localData.setBandwidthOut(new ResourceUsage(0, recorded.getBandwidthOut().limit));
+        localData.setStorageWriteLatencyMs(recorded.getStorageWriteLatencyMs());
+        localData.setLastUpdate(0);
+        return localData;
+    }
+
+    private BundleData scale(final BundleData recorded) {
+        final BundleData bundleData = new BundleData(recorded.getShortTermData().getMaxSamples(),
+                recorded.getLongTermData().getMaxSamples());
+        scale(recorded.getShortTermData(), bundleData.getShortTermData());
+        scale(recorded.getLongTermData(), bundleData.getLongTermData());
+        return bundleData;
+    }
+
+    private void scale(final TimeAverageMessageData recorded, final TimeAverageMessageData scaled) {
+        scaled.setNumSamples(recorded.getNumSamples());
+        scaled.setMsgRateIn(recorded.getMsgRateIn() * rateMultiplier);
+        scaled.setMsgRateOut(recorded.getMsgRateOut() * rateMultiplier);
+        scaled.setMsgThroughputIn(recorded.getMsgThroughputIn() * rateMultiplier);
+        scaled.setMsgThroughputOut(recorded.getMsgThroughputOut() * rateMultiplier);
+    }
+
+    // Update the load of a broker after a bundle has been assigned to it.
+    private void assign(final BrokerData brokerData, final Set<String> brokerBundles, final String bundle,
+            final Map<String, BundleData> bundles, final long time) {
+        brokerBundles.add(bundle);
+        final TimeAverageMessageData bundleData = bundles.get(bundle).getShortTermData();
+        final LocalBrokerData localData = brokerData.getLocalData();
+        localData.setMsgRateIn(localData.getMsgRateIn() + bundleData.getMsgRateIn());
+        localData.setMsgRateOut(localData.getMsgRateOut() + bundleData.getMsgRateOut());
+        localData.setMsgThroughputIn(localData.getMsgThroughputIn() + bundleData.getMsgThroughputIn());
+        localData.setMsgThroughputOut(localData.getMsgThroughputOut() + bundleData.getMsgThroughputOut());
+        localData.setNumBundles(brokerBundles.size());
+        localData.getCpu().usage = cpuPerMessage * (localData.getMsgRateIn() + localData.getMsgRateOut());
+        localData.getDirectMemory().usage = directMemoryPerByte
+                * (localData.getMsgThroughputIn() + localData.getMsgThroughputOut());
+        // Bandwidth is reported in kilobits per second.
+        localData.getBandwidthIn().usage = localData.getMsgThroughputIn() * 8 / 1024;
+        localData.getBandwidthOut().usage = localData.getMsgThroughputOut() * 8 / 1024;
+        localData.setLastUpdate(time);
+        brokerData.getTimeAverageData().reset(brokerBundles, bundles, new NamespaceBundleStats());
+    }
+
+    /**
+     * Assign all the recorded bundles using the given placement strategy.
+     *
+     * @param strategy
+     *            Class name of the placement strategy.
+     * @param conf
+     *            Configuration to give to the strategy.
+     * @return The load data of the brokers once all the bundles are assigned.
+     */
+    public LoadData replay(final String strategy, final ServiceConfiguration conf) throws Exception {
+        conf.setLoadBalancerLoadPlacementStrategy(strategy);
+        final ModularLoadManagerStrategy placementStrategy = ModularLoadManagerStrategy.create(conf);
+
+        final LoadData loadData = new LoadData();
+        final Map<String, Set<String>> brokerBundles = new HashMap<>();
+        for (Map.Entry<String, LocalBrokerData> entry : recordedBrokers.entrySet()) {
+            final BrokerData brokerData = new BrokerData(initLocalData(entry.getValue()));
+            brokerData.setTimeAverageData(new TimeAverageBrokerData());
+            loadData.getBrokerData().put(entry.getKey(), brokerData);
+            brokerBundles.put(entry.getKey(), new HashSet<>());
+        }
+        final Map<String, BundleData> bundles = loadData.getBundleData();
+        recordedBundles.forEach((bundle, bundleData) -> bundles.put(bundle, scale(bundleData)));
+
+        final Set<String> candidates = new HashSet<>(loadData.getBrokerData().keySet());
+        long time = 0;
+        for (String bundle : bundles.keySet()) {
+            final Optional<String> broker = placementStrategy.selectBroker(candidates, bundles.get(bundle), loadData,
+                    conf);
+            if (!broker.isPresent()) {
+                throw new IllegalStateException("No broker selected for bundle " + bundle);
+            }
+            assign(loadData.getBrokerData().get(broker.get()), brokerBundles.get(broker.get()), bundle, bundles,
+                    ++time);
+        }
+        return loadData;
+    }
+
+    /**
+     * Replay the recorded load with each of the given strategies and log the resulting load of the brokers.
+     *
+     * @param strategies
+     *            Class names of the placement strategies to compare.
+     */
+    public void compare(final List<String> strategies) throws Exception {
+        final ServiceConfiguration conf = new ServiceConfiguration();
+        final double overloadThreshold = conf.getLoadBalancerBrokerOverloadedThresholdPercentage() / 100.0;
+        for (String strategy : strategies) {
+            final LoadData loadData = replay(strategy, conf);
+            final List<Double> usages = new ArrayList<>();
+            log.info("Strategy {}:", strategy);
+            for (Map.Entry<String, BrokerData> entry : new TreeMap<>(loadData.getBrokerData()).entrySet()) {
+                final LocalBrokerData localData = entry.getValue().getLocalData();
+                final double usage = localData.getMaxResourceUsage();
+                usages.add(usage);
+                log.info("  {}: {} bundles, {} msg/s, cpu {}%, direct memory {}%, bandwidth in {}%, "
+                        + "bandwidth out {}%", entry.getKey(), localData.getNumBundles(),
+                        String.format("%.1f", localData.getMsgRateIn() + localData.getMsgRateOut()),
+                        String.format("%.1f", localData.getCpu().percentUsage()),
+                        String.format("%.1f", localData.getDirectMemory().percentUsage()),
+                        String.format("%.1f", localData.getBandwidthIn().percentUsage()),
+                        String.format("%.1f", localData.getBandwidthOut().percentUsage()));
+            }
+            final double mean = usages.stream().mapToDouble(Double::doubleValue).average().orElse(0);
+            final double variance = usages.stream().mapToDouble(usage -> (usage - mean) * (usage - mean)).average()
+                    .orElse(0);
+            log.info("  max usage {}%, mean usage {}%, standard deviation {}%, {} overloaded brokers",
+                    String.format("%.1f", 100 * usages.stream().mapToDouble(Double::doubleValue).max().orElse(0)),
+                    String.format("%.1f", 100 * mean), String.format("%.1f", 100 * Math.sqrt(variance)),
+                    usages.stream().filter(usage -> usage > overloadThreshold).count());
+        }
+    }
+
+    /**
+     * Compare placement strategies on the load recorded in a ZooKeeper, with command line arguments.
+     *
+     * @param args
+     *            Arguments to pass in.
+     */
+    public static void main(String[] args) throws Exception {
+        final MainArguments arguments = new MainArguments();
+        final JCommander jc = new JCommander(arguments);
+        try {
+            jc.parse(args);
+        } catch (Exception ex) {
+            jc.usage();
+            ex.printStackTrace();
+            System.exit(1);
+        }
+        final ZooKeeper zkClient = new ZooKeeper(arguments.zookeeper, 5000, null);
+        try {
+            fromZooKeeper(zkClient, arguments.rateMultiplier).compare(Arrays.asList(arguments.strategies.split(",")));
+        } finally {
+            zkClient.close();
+        }
+    }
+}
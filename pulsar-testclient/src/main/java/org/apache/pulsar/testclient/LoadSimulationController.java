@@ -26,6 +26,7 @@ import java.io.InputStreamReader;
 import java.net.Socket;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -101,7 +102,7 @@ public class LoadSimulationController {
                 + "change tenant namespace topic\n" + "stop tenant namespace topic\n"
                 + "trade_group tenant group_name num_namespaces\n" + "change_group tenant group_name\n"
                 + "stop_group tenant group_name\n" + "script script_name\n" + "copy tenant_name source_zk target_zk\n"
-                + "stream source_zk\n" + "simulate zk\n", required = true)
+                + "stream source_zk\n" + "simulate zk\n" + "compare zk\n", required = true)
         List<String> commandArguments;
 
         @Parameter(names = { "--rand-rate" }, description = "Choose message rate uniformly randomly from the next two "
@@ -114,6 +115,9 @@ public class LoadSimulationController {
         @Parameter(names = { "--rate-multiplier" }, description = "Multiplier to use for copying or streaming rates")
         double rateMultiplier = 1;
 
+        @Parameter(names = { "--strategies" }, description = "Comma separated list of placement strategies to compare")
+        String strategies = LoadPlacementReplay.DEFAULT_STRATEGIES;
+
         @Parameter(names = { "--separation" }, description = "Separation time in ms for trade_group actions "
                 + "(0 for no separation)")
         int separation = 0;
@@ -460,6 +464,21 @@ public class LoadSimulationController {
         }
     }
 
+    // Handle the command line arguments associated with the compare command.
+    private void handleCompare(final ShellArguments arguments) throws Exception {
+        final List<String> commandArguments = arguments.commandArguments;
+        // Compare accepts 1 application argument: ZooKeeper connect string.
+        if (checkAppArgs(commandArguments.size() - 1, 1)) {
+            final ZooKeeper zkClient = new ZooKeeper(commandArguments.get(1), 5000, null);
+            try {
+                LoadPlacementReplay.fromZooKeeper(zkClient, arguments.rateMultiplier)
+                        .compare(Arrays.asList(arguments.strategies.split(",")));
+            } finally {
+                zkClient.close();
+            }
+        }
+    }
+
     // Handle the command line arguments associated with the simulate command.
     private void handleSimulate(final ShellArguments arguments) throws Exception {
         final List<String> commandArguments = arguments.commandArguments;
@@ -673,6 +692,9 @@ public class LoadSimulationController {
                 case "simulate":
                     handleSimulate(arguments);
                     break;
+                case "compare":
+                    handleCompare(arguments);
+                    break;
                 case "quit":
                 case "exit":
                     System.exit(0);
@@ -25,6 +25,7 @@ import java.io.IOException;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.function.BiConsumer;
 
 import javax.naming.AuthenticationException;
 import javax.servlet.http.HttpServletRequest;
@@ -32,6 +33,7 @@ import javax.servlet.http.HttpServletResponse;
 
 import org.apache.pulsar.broker.authentication.AuthenticationDataHttps;
 import org.apache.pulsar.broker.authentication.AuthenticationDataSource;
+import org.apache.pulsar.client.api.Message;
 import org.apache.pulsar.common.naming.NamespaceName;
 import org.apache.pulsar.common.naming.TopicName;
 import org.eclipse.jetty.websocket.api.Session;
@@ -44,6 +46,10 @@ import com.google.common.base.Splitter;
 
 public abstract class AbstractWebSocketHandler extends WebSocketAdapter implements Closeable {
 
+    private static final int DEFAULT_MAX_BATCH_SIZE = 1;
+    private static final int MAX_BATCH_SIZE_LIMIT = 1000;
+    private static final long DEFAULT_MAX_BATCH_DELAY_MS = 10;
+
     protected final WebSocketService service;
     protected final HttpServletRequest request;
 
@@ -151,6 +157,31 @@ public abstract class AbstractWebSocketHandler extends WebSocketAdapter implemen
         return null;
     }
 
+    /**
+     * The sender of the messages in binary frames when the client chose them with frameFormat=binary, null when
+     * the messages are sent as JSON text frames.
+     */
+    protected BinaryMessageSender newBinaryMessageSender(BiConsumer<List<Message<byte[]>>, Throwable> sendCallback) {
+        String frameFormat = queryParams.getOrDefault("frameFormat", "json");
+        checkArgument(frameFormat.equals("json") || frameFormat.equals("binary"), "Invalid frameFormat %s",
+                frameFormat);
+        if (frameFormat.equals("json")) {
+            return null;
+        }
+
+        int maxBatchSize = DEFAULT_MAX_BATCH_SIZE;
+        if (queryParams.containsKey("maxBatchSize")) {
+            maxBatchSize = Math.min(Integer.parseInt(queryParams.get("maxBatchSize")), MAX_BATCH_SIZE_LIMIT);
+            checkArgument(maxBatchSize > 0, "Invalid maxBatchSize %s", maxBatchSize);
+        }
+        long maxBatchDelayMs = DEFAULT_MAX_BATCH_DELAY_MS;
+        if (queryParams.containsKey("maxBatchDelayMs")) {
+            maxBatchDelayMs = Long.parseLong(queryParams.get("maxBatchDelayMs"));
+            checkArgument(maxBatchDelayMs >= 0, "Invalid maxBatchDelayMs %s", maxBatchDelayMs);
+        }
+        return new BinaryMessageSender(this, service.getExecutor(), maxBatchSize, maxBatchDelayMs, sendCallback);
+    }
+
     private TopicName extractTopicName(HttpServletRequest request) {
         String uri = request.getRequestURI();
         List<String> parts = Splitter.on("/").splitToList(uri);
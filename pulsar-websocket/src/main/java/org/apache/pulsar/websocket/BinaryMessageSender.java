@@ -0,0 +1,112 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.websocket;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+import org.apache.pulsar.client.api.Message;
+import org.apache.pulsar.websocket.data.BinaryFrameCodec;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+
+/**
+ * Sends the messages of a consumer or reader handler in binary frames, see {@link BinaryFrameCodec}.
+ * <p>
+ * A frame is sent once it holds maxBatchSize messages, or maxBatchDelayMs after its first message was added.
+ */
+class BinaryMessageSender {
+
+    private final AbstractWebSocketHandler handler;
+    private final ScheduledExecutorService executor;
+    private final int maxBatchSize;
+    private final long maxBatchDelayMs;
+    // Called with the messages of a frame, and the failure if it couldn't be written
+    private final BiConsumer<List<Message<byte[]>>, Throwable> sendCallback;
+
+    // Guarded by this
+    private List<Message<byte[]>> batch = new ArrayList<>();
+    private ScheduledFuture<?> batchTimeout;
+    private boolean closed = false;
+
+    BinaryMessageSender(AbstractWebSocketHandler handler, ScheduledExecutorService executor, int maxBatchSize,
+                        long maxBatchDelayMs, BiConsumer<List<Message<byte[]>>, Throwable> sendCallback) {
+        this.handler = handler;
+        this.executor = executor;
+        this.maxBatchSize = maxBatchSize;
+        this.maxBatchDelayMs = maxBatchDelayMs;
+        this.sendCallback = sendCallback;
+    }
+
+    synchronized void add(Message<byte[]> msg) {
+        if (closed) {
+            return;
+        }
+        batch.add(msg);
+        if (batch.size() >= maxBatchSize) {
+            send(takeBatch());
+        } else if (batch.size() == 1) {
+            batchTimeout = executor.schedule(this::flush, maxBatchDelayMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    synchronized void flush() {
+        if (closed || batch.isEmpty()) {
+            return;
+        }
+        send(takeBatch());
+    }
+
+    /**
+     * Drop the messages not sent yet.
+     */
+    synchronized void close() {
+        closed = true;
+        takeBatch();
+    }
+
+    private List<Message<byte[]>> takeBatch() {
+        if (null != batchTimeout) {
+            batchTimeout.cancel(false);
+            batchTimeout = null;
+        }
+        List<Message<byte[]>> messages = batch;
+        batch = new ArrayList<>();
+        return messages;
+    }
+
+    // Called with the lock held, so that the frames are handed to the connection in the order of their messages.
+    // sendBytes only queues the frame, it doesn't block
+    private void send(List<Message<byte[]>> messages) {
+        handler.getRemote().sendBytes(BinaryFrameCodec.encodeMessages(messages), new WriteCallback() {
+            @Override
+            public void writeFailed(Throwable th) {
+                sendCallback.accept(messages, th);
+            }
+
+            @Override
+            public void writeSuccess() {
+                sendCallback.accept(messages, null);
+            }
+        });
+    }
+}
@@ -25,6 +25,7 @@ import com.google.common.base.Enums;
 import com.google.common.base.Splitter;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Base64;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
@@ -38,6 +39,7 @@ import javax.servlet.http.HttpServletResponse;
 import org.apache.pulsar.broker.authentication.AuthenticationDataSource;
 import org.apache.pulsar.client.api.Consumer;
 import org.apache.pulsar.client.api.ConsumerBuilder;
+import org.apache.pulsar.client.api.Message;
 import org.apache.pulsar.client.api.MessageId;
 import org.apache.pulsar.client.api.PulsarClient;
 import org.apache.pulsar.client.api.PulsarClientException.AlreadyClosedException;
@@ -46,7 +48,8 @@ import org.apache.pulsar.client.api.SubscriptionType;
 import org.apache.pulsar.client.impl.ConsumerBuilderImpl;
 import org.apache.pulsar.common.util.DateFormatter;
 import org.apache.pulsar.common.util.ObjectMapperFactory;
-import org.apache.pulsar.websocket.data.ConsumerAck;
+import org.apache.pulsar.websocket.data.BinaryFrameCodec;
+import org.apache.pulsar.websocket.data.ConsumerCommand;
 import org.apache.pulsar.websocket.data.ConsumerMessage;
 import org.eclipse.jetty.websocket.api.Session;
 import org.eclipse.jetty.websocket.api.WriteCallback;
@@ -61,7 +64,9 @@ import org.slf4j.LoggerFactory;
  * <b>receive:</b> socket-proxy keeps pushing messages to client by writing into session. However, it dispatches N
  * messages at any point and after that on acknowledgement from client it dispatches further messages. <br/>
  * <b>acknowledge:</b> it accepts acknowledgement for a given message from client and send it to broker. and for next
- * action it notifies receive to dispatch further messages to client.
+ * action it notifies receive to dispatch further messages to client. <br/>
+ * <b>binary frames:</b> with frameFormat=binary, messages are dispatched in binary frames holding up to maxBatchSize
+ * messages, and can be acknowledged with binary frames.
  * </P>
  *
  */
@@ -70,9 +75,16 @@ public class ConsumerHandler extends AbstractWebSocketHandler {
     private String subscription = null;
     private SubscriptionType subscriptionType;
     private Consumer<byte[]> consumer;
+    // Null when the messages are sent as JSON
+    private BinaryMessageSender binaryMessageSender;
 
     private int maxPendingMessages;
     private final AtomicInteger pendingMessages = new AtomicInteger();
+    // With pullMode=true, messages are delivered as the client grants permits rather than as it acks them
+    private boolean pullMode;
+    private final AtomicInteger permits = new AtomicInteger();
+    // Bytes of the messages handed to the session, not written yet
+    private final LongAdder bufferedBytes = new LongAdder();
 
     private final LongAdder numMsgsDelivered;
     private final LongAdder numBytesDelivered;
@@ -95,9 +107,11 @@ public class ConsumerHandler extends AbstractWebSocketHandler {
             this.maxPendingMessages = (builder.getConf().getReceiverQueueSize() == 0) ? 1
                     : builder.getConf().getReceiverQueueSize();
             this.subscriptionType = builder.getConf().getSubscriptionType();
+            this.pullMode = Boolean.parseBoolean(queryParams.get("pullMode"));
 
             // checkAuth() should be called after assigning a value to this.subscription
             this.subscription = extractSubscription(request);
+            this.binaryMessageSender = newBinaryMessageSender(this::binaryMessagesSent);
             if (!checkAuth(response)) {
                 return;
             }
@@ -149,44 +163,20 @@ public class ConsumerHandler extends AbstractWebSocketHandler {
                         msg.getMessageId());
             }
 
-            ConsumerMessage dm = new ConsumerMessage();
-            dm.messageId = Base64.getEncoder().encodeToString(msg.getMessageId().toByteArray());
-            dm.payload = Base64.getEncoder().encodeToString(msg.getData());
-            dm.properties = msg.getProperties();
-            dm.publishTime = DateFormatter.format(msg.getPublishTime());
-            if (msg.getEventTime() != 0) {
-                dm.eventTime = DateFormatter.format(msg.getEventTime());
-            }
-            if (msg.hasKey()) {
-                dm.key = msg.getKey();
+            bufferedBytes.add(msg.getData().length);
+            if (null != binaryMessageSender) {
+                binaryMessageSender.add(msg);
+            } else {
+                sendJsonMessage(msg);
             }
-            final long msgSize = msg.getData().length;
-
-            try {
-                getSession().getRemote()
-                        .sendString(ObjectMapperFactory.getThreadLocal().writeValueAsString(dm), new WriteCallback() {
-                            @Override
-                            public void writeFailed(Throwable th) {
-                                log.warn("[{}/{}] Failed to deliver msg to {} {}", consumer.getTopic(), subscription,
-                                        getRemote().getInetSocketAddress().toString(), th.getMessage());
-                                pendingMessages.decrementAndGet();
-                                // schedule receive as one of the delivery failed
-                                service.getExecutor().execute(() -> receiveMessage());
-                            }
 
-                            @Override
-                            public void writeSuccess() {
-                                if (log.isDebugEnabled()) {
-                                    log.debug("[{}/{}] message is delivered successfully to {} ", consumer.getTopic(),
-                                            subscription, getRemote().getInetSocketAddress().toString());
-                                }
-                                updateDeliverMsgStat(msgSize);
-                            }
-                        });
-            } catch (JsonProcessingException e) {
-                close(WebSocketError.FailedToSerializeToJSON);
+            if (pullMode) {
+                if (permits.decrementAndGet() > 0) {
+                    // Start next read in a separate thread to avoid recursion
+                    service.getExecutor().execute(() -> receiveMessage());
+                }
+                return;
             }
-
             int pending = pendingMessages.incrementAndGet();
             if (pending < maxPendingMessages) {
                 // Start next read in a separate thread to avoid recursion
@@ -205,22 +195,132 @@ public class ConsumerHandler extends AbstractWebSocketHandler {
         });
     }
 
+    private void sendJsonMessage(Message<byte[]> msg) {
+        ConsumerMessage dm = new ConsumerMessage();
+        dm.messageId = Base64.getEncoder().encodeToString(msg.getMessageId().toByteArray());
+        dm.payload = Base64.getEncoder().encodeToString(msg.getData());
+        dm.properties = msg.getProperties();
+        dm.publishTime = DateFormatter.format(msg.getPublishTime());
+        if (msg.getEventTime() != 0) {
+            dm.eventTime = DateFormatter.format(msg.getEventTime());
+        }
+        if (msg.hasKey()) {
+            dm.key = msg.getKey();
+        }
+        final long msgSize = msg.getData().length;
+
+        try {
+            getSession().getRemote()
+                    .sendString(ObjectMapperFactory.getThreadLocal().writeValueAsString(dm), new WriteCallback() {
+                        @Override
+                        public void writeFailed(Throwable th) {
+                            log.warn("[{}/{}] Failed to deliver msg to {} {}", consumer.getTopic(), subscription,
+                                    getRemote().getInetSocketAddress().toString(), th.getMessage());
+                            bufferedBytes.add(-msgSize);
+                            deliveryFailed(1);
+                        }
+
+                        @Override
+                        public void writeSuccess() {
+                            if (log.isDebugEnabled()) {
+                                log.debug("[{}/{}] message is delivered successfully to {} ", consumer.getTopic(),
+                                        subscription, getRemote().getInetSocketAddress().toString());
+                            }
+                            bufferedBytes.add(-msgSize);
+                            updateDeliverMsgStat(msgSize);
+                        }
+                    });
+        } catch (JsonProcessingException e) {
+            close(WebSocketError.FailedToSerializeToJSON);
+        }
+    }
+
+    private void binaryMessagesSent(List<Message<byte[]>> messages, Throwable th) {
+        messages.forEach(msg -> bufferedBytes.add(-msg.getData().length));
+        if (null != th) {
+            log.warn("[{}/{}] Failed to deliver {} msgs to {} {}", consumer.getTopic(), subscription,
+                    messages.size(), getRemote().getInetSocketAddress().toString(), th.getMessage());
+            deliveryFailed(messages.size());
+        } else {
+            if (log.isDebugEnabled()) {
+                log.debug("[{}/{}] {} msgs are delivered successfully to {} ", consumer.getTopic(), subscription,
+                        messages.size(), getRemote().getInetSocketAddress().toString());
+            }
+            messages.forEach(msg -> updateDeliverMsgStat(msg.getData().length));
+        }
+    }
+
+    private void deliveryFailed(int numMessages) {
+        if (pullMode) {
+            // the client is still owed these messages
+            addPermits(numMessages);
+        } else {
+            pendingMessages.addAndGet(-numMessages);
+            // schedule receive as one of the delivery failed
+            service.getExecutor().execute(() -> receiveMessage());
+        }
+    }
+
+    private void addPermits(int numPermits) {
+        // Unused permits are capped to the receiver queue size, like the messages pushed while not acknowledged,
+        // so that a client can't have the service buffer more messages for it
+        int previous = permits.getAndUpdate(current -> (int) Math.min((long) current + numPermits, maxPendingMessages));
+        if (previous == 0) {
+            // Resume delivery
+            receiveMessage();
+        }
+    }
+
+    private void acknowledged(int numAcks) {
+        if (pullMode) {
+            // delivery only depends on the permits
+            return;
+        }
+        int pending = pendingMessages.getAndAdd(-numAcks);
+        if (pending >= maxPendingMessages && pending - numAcks < maxPendingMessages) {
+            // Resume delivery
+            receiveMessage();
+        }
+    }
+
     @Override
     public void onWebSocketConnect(Session session) {
         super.onWebSocketConnect(session);
-        receiveMessage();
+        if (!pullMode) {
+            receiveMessage();
+        }
     }
 
     @Override
     public void onWebSocketText(String message) {
         super.onWebSocketText(message);
 
-        // We should have received an ack
+        // We should have received an ack, or permits in pull mode
+
+        ConsumerCommand command;
+        try {
+            command = ObjectMapperFactory.getThreadLocal().readValue(message, ConsumerCommand.class);
+        } catch (IOException e) {
+            log.warn("Failed to deserialize consumer command: {}", message, e);
+            close(WebSocketError.FailedToDeserializeFromJSON);
+            return;
+        }
+
+        if (ConsumerCommand.PERMIT.equals(command.type)) {
+            if (!pullMode) {
+                log.warn("[{}/{}] Ignoring permits of {} not in pull mode", consumer.getTopic(), subscription,
+                        getRemote().getInetSocketAddress().toString());
+            } else if (command.permitMessages <= 0) {
+                close(WebSocketError.FailedToDeserializeFromJSON, "Invalid permitMessages " + command.permitMessages);
+            } else {
+                addPermits(command.permitMessages);
+            }
+            return;
+        }
 
         MessageId msgId;
         try {
-            ConsumerAck ack = ObjectMapperFactory.getThreadLocal().readValue(message, ConsumerAck.class);
-            msgId = MessageId.fromByteArray(Base64.getDecoder().decode(ack.messageId));
+            msgId = MessageId.fromByteArray(Base64.getDecoder().decode(command.messageId));
         } catch (IOException e) {
             log.warn("Failed to deserialize message id: {}", message, e);
             close(WebSocketError.FailedToDeserializeFromJSON);
@@ -229,15 +329,40 @@ public class ConsumerHandler extends AbstractWebSocketHandler {
 
         consumer.acknowledgeAsync(msgId).thenAccept(consumer -> numMsgsAcked.increment());
 
-        int pending = pendingMessages.getAndDecrement();
-        if (pending >= maxPendingMessages) {
-            // Resume delivery
-            receiveMessage();
+        acknowledged(1);
+    }
+
+    @Override
+    public void onWebSocketBinary(byte[] payload, int offset, int length) {
+        super.onWebSocketBinary(payload, offset, length);
+
+        // We should have received a frame of acks
+        List<MessageId> msgIds = new ArrayList<>();
+        try {
+            for (byte[] msgId : BinaryFrameCodec.decodeAcks(payload, offset, length)) {
+                msgIds.add(MessageId.fromByteArray(msgId));
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            log.warn("Failed to decode acks frame of {} bytes", length, e);
+            close(WebSocketError.FailedToDecodeBinaryFrame);
+            return;
+        }
+
+        if (msgIds.isEmpty()) {
+            // Nothing to acknowledge, and no room to make for new messages
+            return;
         }
+
+        msgIds.forEach(msgId -> consumer.acknowledgeAsync(msgId).thenAccept(consumer -> numMsgsAcked.increment()));
+
+        acknowledged(msgIds.size());
     }
 
     @Override
     public void close() throws IOException {
+        if (binaryMessageSender != null) {
+            binaryMessageSender.close();
+        }
         if (consumer != null) {
             if (!this.service.removeConsumer(this)) {
                 log.warn("[{}] Failed to remove consumer handler", consumer.getTopic());
@@ -281,6 +406,18 @@ public class ConsumerHandler extends AbstractWebSocketHandler {
         return msgDeliveredCounter;
     }
 
+    public long getBufferedBytes() {
+        return bufferedBytes.sum();
+    }
+
+    public boolean isPullMode() {
+        return pullMode;
+    }
+
+    public int getAvailablePermits() {
+        return permits.get();
+    }
+
     protected void updateDeliverMsgStat(long msgSize) {
         numMsgsDelivered.increment();
         MSG_DELIVERED_COUNTER_UPDATER.incrementAndGet(this);
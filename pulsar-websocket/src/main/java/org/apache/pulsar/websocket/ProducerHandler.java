@@ -20,6 +20,7 @@ package org.apache.pulsar.websocket;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static java.lang.String.format;
+import static org.apache.pulsar.websocket.WebSocketError.FailedToDecodeBinaryFrame;
 import static org.apache.pulsar.websocket.WebSocketError.FailedToDeserializeFromJSON;
 import static org.apache.pulsar.websocket.WebSocketError.PayloadEncodingError;
 import static org.apache.pulsar.websocket.WebSocketError.UnknownError;
@@ -29,6 +30,8 @@ import com.google.common.base.Enums;
 
 import java.io.IOException;
 import java.util.Base64;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLongFieldUpdater;
 import java.util.concurrent.atomic.LongAdder;
@@ -49,6 +52,7 @@ import org.apache.pulsar.client.api.PulsarClientException.ProducerBusyException;
 import org.apache.pulsar.client.api.SchemaSerializationException;
 import org.apache.pulsar.client.api.TypedMessageBuilder;
 import org.apache.pulsar.common.util.ObjectMapperFactory;
+import org.apache.pulsar.websocket.data.BinaryFrameCodec;
 import org.apache.pulsar.websocket.data.ProducerAck;
 import org.apache.pulsar.websocket.data.ProducerMessage;
 import org.apache.pulsar.websocket.stats.StatsBuckets;
@@ -165,6 +169,31 @@ public class ProducerHandler extends AbstractWebSocketHandler {
             return;
         }
 
+        sendMessage(rawPayload, sendRequest.properties, sendRequest.key, sendRequest.replicationClusters,
+                requestContext);
+    }
+
+    /**
+     * Messages sent in a binary frame, see {@link BinaryFrameCodec}. They are acked with JSON text frames, as the
+     * messages sent in text frames.
+     */
+    @Override
+    public void onWebSocketBinary(byte[] payload, int offset, int length) {
+        List<BinaryFrameCodec.ProducerEntry> entries;
+        try {
+            entries = BinaryFrameCodec.decodeProducerMessages(payload, offset, length);
+        } catch (IllegalArgumentException e) {
+            sendAckResponse(new ProducerAck(FailedToDecodeBinaryFrame, e.getMessage(), null, null));
+            return;
+        }
+
+        for (BinaryFrameCodec.ProducerEntry entry : entries) {
+            sendMessage(entry.payload, entry.properties, entry.key, entry.replicationClusters, entry.context);
+        }
+    }
+
+    private void sendMessage(byte[] rawPayload, Map<String, String> properties, String key,
+                             List<String> replicationClusters, String requestContext) {
         final long msgSize = rawPayload.length;
         TypedMessageBuilder<byte[]> builder = producer.newMessage();
 
@@ -175,14 +204,14 @@ public class ProducerHandler extends AbstractWebSocketHandler {
             return;
         }
 
-        if (sendRequest.properties != null) {
-            builder.properties(sendRequest.properties);
+        if (properties != null) {
+            builder.properties(properties);
         }
-        if (sendRequest.key != null) {
-            builder.key(sendRequest.key);
+        if (key != null) {
+            builder.key(key);
         }
-        if (sendRequest.replicationClusters != null) {
-            builder.replicationClusters(sendRequest.replicationClusters);
+        if (replicationClusters != null) {
+            builder.replicationClusters(replicationClusters);
         }
 
         final long now = System.nanoTime();
@@ -190,14 +219,14 @@ public class ProducerHandler extends AbstractWebSocketHandler {
             updateSentMsgStats(msgSize, TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - now));
             if (isConnected()) {
                 String messageId = Base64.getEncoder().encodeToString(msgId.toByteArray());
-                sendAckResponse(new ProducerAck(messageId, sendRequest.context));
+                sendAckResponse(new ProducerAck(messageId, requestContext));
             }
         }).exceptionally(exception -> {
             log.warn("[{}] Error occurred while producer handler was sending msg from {}: {}", producer.getTopic(),
                     getRemote().getInetSocketAddress().toString(), exception.getMessage());
             numMsgsFailed.increment();
             sendAckResponse(
-                    new ProducerAck(UnknownError, exception.getMessage(), null, sendRequest.context));
+                    new ProducerAck(UnknownError, exception.getMessage(), null, requestContext));
             return null;
         });
     }
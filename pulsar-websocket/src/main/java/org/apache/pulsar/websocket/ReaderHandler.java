@@ -23,6 +23,7 @@ import static org.apache.commons.lang3.StringUtils.isNotBlank;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import java.io.IOException;
 import java.util.Base64;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLongFieldUpdater;
 import java.util.concurrent.atomic.LongAdder;
@@ -30,6 +31,7 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import org.apache.pulsar.broker.authentication.AuthenticationDataSource;
 import org.apache.pulsar.client.api.Consumer;
+import org.apache.pulsar.client.api.Message;
 import org.apache.pulsar.client.api.MessageId;
 import org.apache.pulsar.client.api.PulsarClientException.AlreadyClosedException;
 import org.apache.pulsar.client.api.Reader;
@@ -39,6 +41,7 @@ import org.apache.pulsar.client.impl.MessageIdImpl;
 import org.apache.pulsar.client.impl.ReaderImpl;
 import org.apache.pulsar.common.util.DateFormatter;
 import org.apache.pulsar.common.util.ObjectMapperFactory;
+import org.apache.pulsar.websocket.data.BinaryFrameCodec;
 import org.apache.pulsar.websocket.data.ConsumerMessage;
 import org.eclipse.jetty.websocket.api.Session;
 import org.eclipse.jetty.websocket.api.WriteCallback;
@@ -60,9 +63,13 @@ public class ReaderHandler extends AbstractWebSocketHandler {
 
     private String subscription = "";
     private Reader<byte[]> reader;
+    // Null when the messages are sent as JSON
+    private BinaryMessageSender binaryMessageSender;
 
     private final int maxPendingMessages;
     private final AtomicInteger pendingMessages = new AtomicInteger();
+    // Bytes of the messages handed to the session, not written yet
+    private final LongAdder bufferedBytes = new LongAdder();
 
     private final LongAdder numMsgsDelivered;
     private final LongAdder numBytesDelivered;
@@ -84,6 +91,7 @@ public class ReaderHandler extends AbstractWebSocketHandler {
         }
 
         try {
+            this.binaryMessageSender = newBinaryMessageSender(this::binaryMessagesSent);
             ReaderBuilder<byte[]> builder = service.getPulsarClient().newReader()
                     .topic(topic.toString())
                     .startMessageId(getMessageId())
@@ -123,42 +131,11 @@ public class ReaderHandler extends AbstractWebSocketHandler {
                         msg.getMessageId());
             }
 
-            ConsumerMessage dm = new ConsumerMessage();
-            dm.messageId = Base64.getEncoder().encodeToString(msg.getMessageId().toByteArray());
-            dm.payload = Base64.getEncoder().encodeToString(msg.getData());
-            dm.properties = msg.getProperties();
-            dm.publishTime = DateFormatter.format(msg.getPublishTime());
-            if (msg.getEventTime() != 0) {
-                dm.eventTime = DateFormatter.format(msg.getEventTime());
-            }
-            if (msg.hasKey()) {
-                dm.key = msg.getKey();
-            }
-            final long msgSize = msg.getData().length;
-
-            try {
-                getSession().getRemote()
-                        .sendString(ObjectMapperFactory.getThreadLocal().writeValueAsString(dm), new WriteCallback() {
-                            @Override
-                            public void writeFailed(Throwable th) {
-                                log.warn("[{}/{}] Failed to deliver msg to {} {}", reader.getTopic(), subscription,
-                                        getRemote().getInetSocketAddress().toString(), th.getMessage());
-                                pendingMessages.decrementAndGet();
-                                // schedule receive as one of the delivery failed
-                                service.getExecutor().execute(() -> receiveMessage());
-                            }
-
-                            @Override
-                            public void writeSuccess() {
-                                if (log.isDebugEnabled()) {
-                                    log.debug("[{}/{}] message is delivered successfully to {} ", reader.getTopic(),
-                                            subscription, getRemote().getInetSocketAddress().toString());
-                                }
-                                updateDeliverMsgStat(msgSize);
-                            }
-                        });
-            } catch (JsonProcessingException e) {
-                close(WebSocketError.FailedToSerializeToJSON);
+            bufferedBytes.add(msg.getData().length);
+            if (null != binaryMessageSender) {
+                binaryMessageSender.add(msg);
+            } else {
+                sendJsonMessage(msg);
             }
 
             int pending = pendingMessages.incrementAndGet();
@@ -177,6 +154,65 @@ public class ReaderHandler extends AbstractWebSocketHandler {
         });
     }
 
+    private void sendJsonMessage(Message<byte[]> msg) {
+        ConsumerMessage dm = new ConsumerMessage();
+        dm.messageId = Base64.getEncoder().encodeToString(msg.getMessageId().toByteArray());
+        dm.payload = Base64.getEncoder().encodeToString(msg.getData());
+        dm.properties = msg.getProperties();
+        dm.publishTime = DateFormatter.format(msg.getPublishTime());
+        if (msg.getEventTime() != 0) {
+            dm.eventTime = DateFormatter.format(msg.getEventTime());
+        }
+        if (msg.hasKey()) {
+            dm.key = msg.getKey();
+        }
+        final long msgSize = msg.getData().length;
+
+        try {
+            getSession().getRemote()
+                    .sendString(ObjectMapperFactory.getThreadLocal().writeValueAsString(dm), new WriteCallback() {
+                        @Override
+                        public void writeFailed(Throwable th) {
+                            log.warn("[{}/{}] Failed to deliver msg to {} {}", reader.getTopic(), subscription,
+                                    getRemote().getInetSocketAddress().toString(), th.getMessage());
+                            bufferedBytes.add(-msgSize);
+                            pendingMessages.decrementAndGet();
+                            // schedule receive as one of the delivery failed
+                            service.getExecutor().execute(() -> receiveMessage());
+                        }
+
+                        @Override
+                        public void writeSuccess() {
+                            if (log.isDebugEnabled()) {
+                                log.debug("[{}/{}] message is delivered successfully to {} ", reader.getTopic(),
+                                        subscription, getRemote().getInetSocketAddress().toString());
+                            }
+                            bufferedBytes.add(-msgSize);
+                            updateDeliverMsgStat(msgSize);
+                        }
+                    });
+        } catch (JsonProcessingException e) {
+            close(WebSocketError.FailedToSerializeToJSON);
+        }
+    }
+
+    private void binaryMessagesSent(List<Message<byte[]>> messages, Throwable th) {
+        messages.forEach(msg -> bufferedBytes.add(-msg.getData().length));
+        if (null != th) {
+            log.warn("[{}/{}] Failed to deliver {} msgs to {} {}", reader.getTopic(), subscription, messages.size(),
+                    getRemote().getInetSocketAddress().toString(), th.getMessage());
+            pendingMessages.addAndGet(-messages.size());
+            // schedule receive as one of the delivery failed
+            service.getExecutor().execute(() -> receiveMessage());
+        } else {
+            if (log.isDebugEnabled()) {
+                log.debug("[{}/{}] {} msgs are delivered successfully to {} ", reader.getTopic(), subscription,
+                        messages.size(), getRemote().getInetSocketAddress().toString());
+            }
+            messages.forEach(msg -> updateDeliverMsgStat(msg.getData().length));
+        }
+    }
+
     @Override
     public void onWebSocketConnect(Session session) {
         super.onWebSocketConnect(session);
@@ -197,8 +233,32 @@ public class ReaderHandler extends AbstractWebSocketHandler {
         }
     }
 
+    @Override
+    public void onWebSocketBinary(byte[] payload, int offset, int length) {
+        super.onWebSocketBinary(payload, offset, length);
+
+        // We should have received a frame of acks, only counted as for text acks
+        int numAcks;
+        try {
+            numAcks = BinaryFrameCodec.decodeAcks(payload, offset, length).size();
+        } catch (IllegalArgumentException e) {
+            log.warn("Failed to decode acks frame of {} bytes", length, e);
+            close(WebSocketError.FailedToDecodeBinaryFrame);
+            return;
+        }
+
+        int pending = pendingMessages.getAndAdd(-numAcks);
+        if (pending >= maxPendingMessages && pending - numAcks < maxPendingMessages) {
+            // Resume delivery
+            receiveMessage();
+        }
+    }
+
     @Override
     public void close() throws IOException {
+        if (binaryMessageSender != null) {
+            binaryMessageSender.close();
+        }
         if (reader != null) {
             if (!this.service.removeReader(this)) {
                 log.warn("[{}] Failed to remove reader handler", reader.getTopic());
@@ -238,6 +298,10 @@ public class ReaderHandler extends AbstractWebSocketHandler {
         return msgDeliveredCounter;
     }
 
+    public long getBufferedBytes() {
+        return bufferedBytes.sum();
+    }
+
     protected void updateDeliverMsgStat(long msgSize) {
         numMsgsDelivered.increment();
         MSG_DELIVERED_COUNTER_UPDATER.incrementAndGet(this);
@@ -33,7 +33,8 @@ public enum WebSocketError {
     AuthenticationError(5, "Failed to authenticate client"), //
     NotAuthorizedError(6, "Client is not authorized"), //
     PayloadEncodingError(7, "Invalid payload encoding"), //
-    UnknownError(8, "Unknown error"); //
+    UnknownError(8, "Unknown error"), //
+    FailedToDecodeBinaryFrame(9, "Failed to decode binary frame"); //
 
     private final int code;
     private final String description;
@@ -0,0 +1,261 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.websocket.data;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.pulsar.client.api.Message;
+
+/**
+ * Encoding of the binary frames exchanged with the clients choosing the binary frame format.
+ * <p>
+ * A frame holds a number of entries, each one with length prefixed metadata followed by a length prefixed raw
+ * payload. Integers are big endian, strings are UTF-8 prefixed with their length, -1 for null. Readers skip the
+ * metadata fields they don't know about, so that fields can be added at the end of the metadata.
+ *
+ * <pre>
+ * frame            := numEntries:int32 entry*
+ * entry            := metadataLength:int32 metadata payloadLength:int32 payload
+ *
+ * consumer message := messageId:bytes publishTime:int64 eventTime:int64 key:string properties
+ * producer message := context:string key:string properties replicationClusters
+ * ack              := messageId:bytes, with an empty payload
+ *
+ * properties       := numProperties:int32 (name:string value:string)*
+ * replicationClusters := numClusters:int32 (cluster:string)*, -1 for none
+ * bytes            := length:int32 byte*
+ * </pre>
+ */
+public final class BinaryFrameCodec {
+
+    // Both lengths of an entry
+    private static final int MIN_ENTRY_SIZE = 8;
+    // The length of a string
+    private static final int MIN_STRING_SIZE = 4;
+
+    private BinaryFrameCodec() {
+    }
+
+    /**
+     * A message sent by a producer client.
+     */
+    public static class ProducerEntry {
+        public String context;
+        public String key;
+        public Map<String, String> properties;
+        public List<String> replicationClusters;
+        public byte[] payload;
+    }
+
+    /**
+     * Encode messages delivered to a consumer or reader client, in a single frame.
+     */
+    public static ByteBuffer encodeMessages(Collection<Message<byte[]>> messages) {
+        try {
+            ByteArrayOutputStream frame = new ByteArrayOutputStream(estimateSize(messages));
+            DataOutputStream out = new DataOutputStream(frame);
+            ByteArrayOutputStream metadata = new ByteArrayOutputStream(256);
+            DataOutputStream metadataOut = new DataOutputStream(metadata);
+
+            out.writeInt(messages.size());
+            for (Message<byte[]> msg : messages) {
+                metadata.reset();
+                writeBytes(metadataOut, msg.getMessageId().toByteArray());
+                metadataOut.writeLong(msg.getPublishTime());
+                metadataOut.writeLong(msg.getEventTime());
+                writeString(metadataOut, msg.hasKey() ? msg.getKey() : null);
+                writeProperties(metadataOut, msg.getProperties());
+                metadataOut.flush();
+
+                out.writeInt(metadata.size());
+                metadata.writeTo(out);
+                writeBytes(out, msg.getData());
+            }
+            out.flush();
+            return ByteBuffer.wrap(frame.toByteArray());
+        } catch (IOException e) {
+            // not thrown by in memory streams
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Decode message ids acknowledged by a consumer or reader client.
+     *
+     * @throws IllegalArgumentException if the frame is malformed
+     */
+    public static List<byte[]> decodeAcks(byte[] buffer, int offset, int length) {
+        try {
+            ByteBuffer frame = ByteBuffer.wrap(buffer, offset, length);
+            int numEntries = readCount(frame, MIN_ENTRY_SIZE);
+            List<byte[]> messageIds = new ArrayList<>(numEntries);
+            for (int i = 0; i < numEntries; i++) {
+                ByteBuffer metadata = readSlice(frame);
+                messageIds.add(readBytes(metadata));
+                // no payload
+                readSlice(frame);
+            }
+            return messageIds;
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Truncated frame");
+        }
+    }
+
+    /**
+     * Decode messages sent by a producer client.
+     *
+     * @throws IllegalArgumentException if the frame is malformed
+     */
+    public static List<ProducerEntry> decodeProducerMessages(byte[] buffer, int offset, int length) {
+        try {
+            ByteBuffer frame = ByteBuffer.wrap(buffer, offset, length);
+            int numEntries = readCount(frame, MIN_ENTRY_SIZE);
+            List<ProducerEntry> entries = new ArrayList<>(numEntries);
+            for (int i = 0; i < numEntries; i++) {
+                ByteBuffer metadata = readSlice(frame);
+                ProducerEntry entry = new ProducerEntry();
+                entry.context = readString(metadata);
+                entry.key = readString(metadata);
+                entry.properties = readProperties(metadata);
+                int numClusters = metadata.getInt();
+                if (numClusters >= 0) {
+                    checkCount(metadata, numClusters, MIN_STRING_SIZE);
+                    entry.replicationClusters = new ArrayList<>(numClusters);
+                    for (int j = 0; j < numClusters; j++) {
+                        entry.replicationClusters.add(readString(metadata));
+                    }
+                }
+                entry.payload = readBytes(frame);
+                entries.add(entry);
+            }
+            return entries;
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Truncated frame");
+        }
+    }
+
+    private static int estimateSize(Collection<Message<byte[]>> messages) {
+        int size = 4;
+        for (Message<byte[]> msg : messages) {
+            size += 64 + msg.getData().length;
+        }
+        return size;
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (null == value) {
+            out.writeInt(-1);
+        } else {
+            writeBytes(out, value.getBytes(UTF_8));
+        }
+    }
+
+    private static void writeProperties(DataOutputStream out, Map<String, String> properties) throws IOException {
+        out.writeInt(properties.size());
+        for (Map.Entry<String, String> property : properties.entrySet()) {
+            writeString(out, property.getKey());
+            writeString(out, property.getValue());
+        }
+    }
+
+    private static int readCount(ByteBuffer buffer) {
+        int count = buffer.getInt();
+        if (count < 0) {
+            throw new IllegalArgumentException("Invalid count " + count);
+        }
+        return count;
+    }
+
+    /**
+     * Read a number of elements, checking that they can fit in the rest of the buffer before anything gets
+     * allocated for them.
+     */
+    private static int readCount(ByteBuffer buffer, int minElementSize) {
+        int count = readCount(buffer);
+        checkCount(buffer, count, minElementSize);
+        return count;
+    }
+
+    private static void checkCount(ByteBuffer buffer, int count, int minElementSize) {
+        if (count > buffer.remaining() / minElementSize) {
+            throw new IllegalArgumentException("Invalid count " + count);
+        }
+    }
+
+    private static int readLength(ByteBuffer buffer) {
+        int length = readCount(buffer);
+        if (length > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        return length;
+    }
+
+    private static ByteBuffer readSlice(ByteBuffer buffer) {
+        int length = readLength(buffer);
+        ByteBuffer slice = buffer.slice();
+        slice.limit(length);
+        buffer.position(buffer.position() + length);
+        return slice;
+    }
+
+    private static byte[] readBytes(ByteBuffer buffer) {
+        byte[] bytes = new byte[readLength(buffer)];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        if (length > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    private static Map<String, String> readProperties(ByteBuffer buffer) {
+        int numProperties = readCount(buffer, 2 * MIN_STRING_SIZE);
+        Map<String, String> properties = new TreeMap<>();
+        for (int i = 0; i < numProperties; i++) {
+            properties.put(readString(buffer), readString(buffer));
+        }
+        return properties;
+    }
+}
@@ -18,13 +18,17 @@
  */
 package org.apache.pulsar.websocket.data;
 
-public class ConsumerAck {
-    public String messageId;
+/**
+ * Command sent by a consumer client, an ack unless its type is {@link #PERMIT}.
+ */
+public class ConsumerCommand {
+    public static final String ACK = "ack";
+    public static final String PERMIT = "permit";
 
-    public ConsumerAck() {
-    }
+    public String type;
+    public String messageId;
+    public int permitMessages;
 
-    public ConsumerAck(String messageId) {
-        this.messageId = messageId;
+    public ConsumerCommand() {
     }
 }
@@ -92,6 +92,7 @@ public class ProxyStats {
                 nsStat.numberOfMsgDelivered += handler.getAndResetNumMsgsAcked();
                 nsStat.numberOfBytesDelivered += handler.getAndResetNumBytesDelivered();
                 nsStat.numberOfMsgsAcked += handler.getAndResetNumMsgsAcked();
+                nsStat.numberOfBytesBuffered += handler.getBufferedBytes();
             });
         });
 
@@ -133,6 +134,7 @@ public class ProxyStats {
         public long numberOfMsgDelivered;
         public long numberOfBytesDelivered;
         public long numberOfMsgsAcked;
+        public long numberOfBytesBuffered;
 
         public ProxyNamespaceStats() {
             this.publishMsgLatency = new StatsBuckets(ENTRY_LATENCY_BUCKETS_USEC);
@@ -152,6 +154,7 @@ public class ProxyStats {
             dMetrics.put("ns_msg_deliver_rate", numberOfMsgDelivered);
             dMetrics.put("ns_byte_deliver_rate", numberOfBytesDelivered);
             dMetrics.put("ns_msg_ack_rate", numberOfMsgsAcked);
+            dMetrics.put("ns_byte_buffered", numberOfBytesBuffered);
             for (int i = 0; i < latencyBuckets.length; i++) {
                 final String latencyBucket = i >= ENTRY_LATENCY_BUCKETS_USEC.length
                         ? ENTRY_LATENCY_BUCKETS_USEC[ENTRY_LATENCY_BUCKETS_USEC.length-1] + "_higher" : Long.toString(ENTRY_LATENCY_BUCKETS_USEC[i]);
@@ -64,6 +64,10 @@ public class ProxyTopicStat {
             this.subscriptionType = handler.getSubscriptionType();
             this.remoteConnection = handler.getRemote().getInetSocketAddress().toString();
             this.numberOfMsgDelivered = handler.getMsgDeliveredCounter();
+            this.bufferedBytes = handler.getBufferedBytes();
+            if (handler.isPullMode()) {
+                this.availablePermits = handler.getAvailablePermits();
+            }
         }
         
         public ConsumerStats(ReaderHandler handler) {
@@ -71,12 +75,17 @@ public class ProxyTopicStat {
             this.subscriptionType = handler.getSubscriptionType();
             this.remoteConnection = handler.getRemote().getInetSocketAddress().toString();
             this.numberOfMsgDelivered = handler.getMsgDeliveredCounter();
+            this.bufferedBytes = handler.getBufferedBytes();
         }
 
         public String remoteConnection;
         public String subscriptionName;
         public SubscriptionType subscriptionType;
         public long numberOfMsgDelivered;
+        // bytes of the messages waiting to be written to the session
+        public long bufferedBytes;
+        // messages the client still accepts, only set in pull mode
+        public Integer availablePermits;
     }
 
 }
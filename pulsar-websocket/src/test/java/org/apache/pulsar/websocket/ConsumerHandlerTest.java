@@ -0,0 +1,222 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.websocket;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.apache.pulsar.client.api.Consumer;
+import org.apache.pulsar.client.api.Message;
+import org.apache.pulsar.client.api.MessageId;
+import org.apache.pulsar.client.api.PulsarClient;
+import org.apache.pulsar.client.impl.ConsumerBuilderImpl;
+import org.apache.pulsar.client.impl.MessageIdImpl;
+import org.apache.pulsar.client.impl.conf.ConsumerConfigurationData;
+import org.eclipse.jetty.websocket.api.RemoteEndpoint;
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+import org.eclipse.jetty.websocket.servlet.ServletUpgradeResponse;
+import org.mockito.Mockito;
+import org.mockito.stubbing.Answer;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Test the delivery of the messages of a {@link ConsumerHandler} in pull mode.
+ */
+public class ConsumerHandlerTest {
+
+    private static final int RECEIVER_QUEUE_SIZE = 10;
+
+    private Consumer<byte[]> consumer;
+    private RemoteEndpoint remote;
+    private List<WriteCallback> writeCallbacks;
+    private int receivedMessages;
+
+    @SuppressWarnings("unchecked")
+    @BeforeMethod
+    public void setup() throws Exception {
+        writeCallbacks = new ArrayList<>();
+        receivedMessages = 0;
+
+        consumer = mock(Consumer.class);
+        // every receive gets a new message
+        when(consumer.receiveAsync()).thenAnswer(invocation -> {
+            int i = receivedMessages++;
+            Message<byte[]> msg = mock(Message.class);
+            when(msg.getMessageId()).thenReturn(new MessageIdImpl(1, i, -1));
+            when(msg.getData()).thenReturn(("message-" + i).getBytes());
+            when(msg.getProperties()).thenReturn(Collections.emptyMap());
+            return CompletableFuture.completedFuture(msg);
+        });
+        when(consumer.acknowledgeAsync(any(MessageId.class))).thenReturn(CompletableFuture.completedFuture(null));
+
+        remote = mock(RemoteEndpoint.class);
+        when(remote.getInetSocketAddress()).thenReturn(InetSocketAddress.createUnresolved("localhost", 12345));
+        doAnswer(invocation -> {
+            writeCallbacks.add((WriteCallback) invocation.getArguments()[1]);
+            return null;
+        }).when(remote).sendString(anyString(), any(WriteCallback.class));
+    }
+
+    @SuppressWarnings("unchecked")
+    private ConsumerHandler newPullModeHandler() throws Exception {
+        return newHandler(true);
+    }
+
+    @SuppressWarnings("unchecked")
+    private ConsumerHandler newHandler(boolean pullMode) throws Exception {
+        ConsumerConfigurationData<byte[]> conf = new ConsumerConfigurationData<>();
+        conf.setReceiverQueueSize(RECEIVER_QUEUE_SIZE);
+        // the builder methods return the builder
+        Answer<Object> returnsSelf = invocation ->
+                invocation.getMethod().getReturnType().isInstance(invocation.getMock()) ? invocation.getMock()
+                        : Mockito.RETURNS_DEFAULTS.answer(invocation);
+        ConsumerBuilderImpl<byte[]> builder = mock(ConsumerBuilderImpl.class, returnsSelf);
+        when(builder.getConf()).thenReturn(conf);
+        when(builder.subscribe()).thenReturn(consumer);
+        PulsarClient client = mock(PulsarClient.class);
+        when(client.newConsumer()).thenReturn((ConsumerBuilderImpl) builder);
+
+        ScheduledExecutorService executor = mock(ScheduledExecutorService.class);
+        doAnswer(invocation -> {
+            ((Runnable) invocation.getArguments()[0]).run();
+            return null;
+        }).when(executor).execute(any(Runnable.class));
+
+        WebSocketService service = mock(WebSocketService.class);
+        when(service.getPulsarClient()).thenReturn(client);
+        when(service.getExecutor()).thenReturn(executor);
+        when(service.addConsumer(any(ConsumerHandler.class))).thenReturn(true);
+
+        Map<String, String[]> params = new TreeMap<>();
+        params.put("pullMode", new String[] { Boolean.toString(pullMode) });
+        HttpServletRequest request = mock(HttpServletRequest.class);
+        when(request.getRequestURI()).thenReturn("/ws/v2/consumer/persistent/my-property/my-ns/my-topic/my-sub");
+        when(request.getParameterMap()).thenReturn(params);
+
+        ConsumerHandler handler = new ConsumerHandler(service, request, mock(ServletUpgradeResponse.class));
+        Session session = mock(Session.class);
+        when(session.getRemote()).thenReturn(remote);
+        handler.onWebSocketConnect(session);
+        return handler;
+    }
+
+    private static String permit(int permitMessages) {
+        return "{\"type\":\"permit\",\"permitMessages\":" + permitMessages + "}";
+    }
+
+    @Test
+    public void testDeliveryStopsWithoutPermits() throws Exception {
+        ConsumerHandler handler = newPullModeHandler();
+        // nothing is delivered until permits are granted
+        verify(consumer, never()).receiveAsync();
+
+        handler.onWebSocketText(permit(3));
+        verify(remote, times(3)).sendString(anyString(), any(WriteCallback.class));
+
+        // acks don't grant permits
+        handler.onWebSocketText("{\"messageId\":\""
+                + Base64.getEncoder().encodeToString(new MessageIdImpl(1, 0, -1).toByteArray()) + "\"}");
+        verify(remote, times(3)).sendString(anyString(), any(WriteCallback.class));
+
+        // delivery resumes with new permits
+        handler.onWebSocketText(permit(2));
+        verify(remote, times(5)).sendString(anyString(), any(WriteCallback.class));
+        verify(consumer, times(5)).receiveAsync();
+    }
+
+    @Test
+    public void testPermitsCappedToReceiverQueueSize() throws Exception {
+        ConsumerHandler handler = newPullModeHandler();
+
+        handler.onWebSocketText(permit(1000));
+        verify(remote, times(RECEIVER_QUEUE_SIZE)).sendString(anyString(), any(WriteCallback.class));
+    }
+
+    @Test
+    public void testFailedWriteReturnsPermit() throws Exception {
+        ConsumerHandler handler = newPullModeHandler();
+
+        handler.onWebSocketText(permit(2));
+        assertEquals(writeCallbacks.size(), 2);
+
+        // the client is still owed the message which wasn't written
+        writeCallbacks.get(0).writeFailed(new Exception("write failed"));
+        assertEquals(writeCallbacks.size(), 3);
+
+        // a message written doesn't grant a permit
+        writeCallbacks.get(1).writeSuccess();
+        assertEquals(writeCallbacks.size(), 3);
+    }
+
+    // An acks frame of the given message ids
+    private static byte[] acksFrame(MessageId... msgIds) {
+        ByteBuffer frame = ByteBuffer.allocate(1024);
+        frame.putInt(msgIds.length);
+        for (MessageId msgId : msgIds) {
+            byte[] bytes = msgId.toByteArray();
+            frame.putInt(4 + bytes.length);
+            frame.putInt(bytes.length);
+            frame.put(bytes);
+            // empty payload
+            frame.putInt(0);
+        }
+        return Arrays.copyOf(frame.array(), frame.position());
+    }
+
+    @Test
+    public void testEmptyAcksFrameDoesNotResumeDelivery() throws Exception {
+        ConsumerHandler handler = newHandler(false);
+        // delivery stops once the receiver queue size is pending
+        verify(remote, times(RECEIVER_QUEUE_SIZE)).sendString(anyString(), any(WriteCallback.class));
+
+        byte[] emptyFrame = acksFrame();
+        for (int i = 0; i < 3; i++) {
+            handler.onWebSocketBinary(emptyFrame, 0, emptyFrame.length);
+        }
+        verify(remote, times(RECEIVER_QUEUE_SIZE)).sendString(anyString(), any(WriteCallback.class));
+
+        // acknowledging a message makes room for one more
+        byte[] frame = acksFrame(new MessageIdImpl(1, 0, -1));
+        handler.onWebSocketBinary(frame, 0, frame.length);
+        verify(remote, times(RECEIVER_QUEUE_SIZE + 1)).sendString(anyString(), any(WriteCallback.class));
+    }
+}
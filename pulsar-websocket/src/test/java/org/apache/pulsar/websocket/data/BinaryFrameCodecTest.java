@@ -0,0 +1,171 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.websocket.data;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.pulsar.client.api.Message;
+import org.apache.pulsar.client.api.MessageId;
+import org.apache.pulsar.client.impl.MessageIdImpl;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class BinaryFrameCodecTest {
+
+    private static Message<byte[]> message(MessageId messageId, String key, String payload) {
+        @SuppressWarnings("unchecked")
+        Message<byte[]> msg = mock(Message.class);
+        doReturn(messageId).when(msg).getMessageId();
+        doReturn(1000L).when(msg).getPublishTime();
+        doReturn(0L).when(msg).getEventTime();
+        doReturn(key != null).when(msg).hasKey();
+        doReturn(key).when(msg).getKey();
+        doReturn(Collections.singletonMap("name", "value")).when(msg).getProperties();
+        doReturn(payload.getBytes(UTF_8)).when(msg).getData();
+        return msg;
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    private static void putString(ByteBuffer buffer, String value) {
+        byte[] bytes = value.getBytes(UTF_8);
+        buffer.putInt(bytes.length);
+        buffer.put(bytes);
+    }
+
+    @Test
+    public void testEncodeMessages() throws Exception {
+        MessageId messageId1 = new MessageIdImpl(1, 2, -1);
+        MessageId messageId2 = new MessageIdImpl(1, 3, -1);
+        ByteBuffer frame = BinaryFrameCodec.encodeMessages(
+                Arrays.asList(message(messageId1, "key-1", "payload-1"), message(messageId2, null, "payload-2")));
+
+        Assert.assertEquals(frame.getInt(), 2);
+        for (MessageId messageId : Arrays.asList(messageId1, messageId2)) {
+            int metadataLength = frame.getInt();
+            int metadataEnd = frame.position() + metadataLength;
+            byte[] messageIdBytes = new byte[frame.getInt()];
+            frame.get(messageIdBytes);
+            Assert.assertEquals(MessageId.fromByteArray(messageIdBytes), messageId);
+            Assert.assertEquals(frame.getLong(), 1000L);
+            Assert.assertEquals(frame.getLong(), 0L);
+            Assert.assertEquals(readString(frame), messageId == messageId1 ? "key-1" : null);
+            Assert.assertEquals(frame.getInt(), 1);
+            Assert.assertEquals(readString(frame), "name");
+            Assert.assertEquals(readString(frame), "value");
+            Assert.assertEquals(frame.position(), metadataEnd);
+            Assert.assertEquals(readString(frame), messageId == messageId1 ? "payload-1" : "payload-2");
+        }
+        Assert.assertFalse(frame.hasRemaining());
+    }
+
+    @Test
+    public void testDecodeProducerMessages() {
+        ByteBuffer metadata = ByteBuffer.allocate(256);
+        putString(metadata, "context-1");
+        metadata.putInt(-1);
+        metadata.putInt(1);
+        putString(metadata, "name");
+        putString(metadata, "value");
+        metadata.putInt(1);
+        putString(metadata, "cluster-a");
+        // unknown field added by a newer client
+        metadata.putLong(42L);
+        metadata.flip();
+
+        ByteBuffer frame = ByteBuffer.allocate(512);
+        frame.putInt(1);
+        frame.putInt(metadata.remaining());
+        frame.put(metadata);
+        putString(frame, "payload-1");
+
+        List<BinaryFrameCodec.ProducerEntry> entries =
+                BinaryFrameCodec.decodeProducerMessages(frame.array(), 0, frame.position());
+        Assert.assertEquals(entries.size(), 1);
+        BinaryFrameCodec.ProducerEntry entry = entries.get(0);
+        Assert.assertEquals(entry.context, "context-1");
+        Assert.assertNull(entry.key);
+        Assert.assertEquals(entry.properties, Collections.singletonMap("name", "value"));
+        Assert.assertEquals(entry.replicationClusters, Collections.singletonList("cluster-a"));
+        Assert.assertEquals(new String(entry.payload, UTF_8), "payload-1");
+    }
+
+    @Test
+    public void testDecodeAcks() {
+        byte[] messageId1 = new MessageIdImpl(1, 2, -1).toByteArray();
+        byte[] messageId2 = new MessageIdImpl(1, 3, -1).toByteArray();
+        ByteBuffer frame = ByteBuffer.allocate(256);
+        frame.putInt(2);
+        for (byte[] messageId : Arrays.asList(messageId1, messageId2)) {
+            frame.putInt(4 + messageId.length);
+            frame.putInt(messageId.length);
+            frame.put(messageId);
+            frame.putInt(0);
+        }
+
+        List<byte[]> messageIds = BinaryFrameCodec.decodeAcks(frame.array(), 0, frame.position());
+        Assert.assertEquals(messageIds.size(), 2);
+        Assert.assertEquals(messageIds.get(0), messageId1);
+        Assert.assertEquals(messageIds.get(1), messageId2);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testDecodeTruncatedFrame() {
+        byte[] messageId = new MessageIdImpl(1, 2, -1).toByteArray();
+        ByteBuffer frame = ByteBuffer.allocate(256);
+        frame.putInt(1);
+        frame.putInt(4 + messageId.length);
+        frame.putInt(messageId.length);
+        frame.put(messageId);
+        frame.putInt(0);
+
+        BinaryFrameCodec.decodeAcks(frame.array(), 0, frame.position() - 5);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testDecodeAcksWithHugeCount() {
+        ByteBuffer frame = ByteBuffer.allocate(4);
+        frame.putInt(Integer.MAX_VALUE);
+
+        BinaryFrameCodec.decodeAcks(frame.array(), 0, frame.position());
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testDecodeProducerMessagesWithHugeCount() {
+        ByteBuffer frame = ByteBuffer.allocate(4);
+        frame.putInt(Integer.MAX_VALUE);
+
+        BinaryFrameCodec.decodeProducerMessages(frame.array(), 0, frame.position());
+    }
+}